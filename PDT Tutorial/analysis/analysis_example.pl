@@ -16,11 +16,15 @@
 :- multifile(prolog_analysis_api:analysis_definition/4).
 :- multifile(prolog_analysis_api:analysis_category/2).
 :- multifile(prolog_analysis_api:analysis_result/4).
+:- multifile(prolog_analysis_api:analysis_scope/2).
 
 prolog_analysis_api:analysis_definition('Example Analysis', info, 'Example Category', 'This is an example analysis').
 
 prolog_analysis_api:analysis_category('Example Category', 'This is an example category').
 
+% the results in a file only depend on the clauses in that file
+prolog_analysis_api:analysis_scope('Example Analysis', file).
+
 prolog_analysis_api:analysis_result('Example Analysis', File, Line, Description) :-
 	nth_clause(outline_demo:likes(_, _), N, Ref),
 	clause_property(Ref, file(File)),
@@ -13,15 +13,26 @@
  ****************************************************************************/
 
 :- module(prolog_analysis_api, [
-	analysis_marker/5
+	analysis_marker/5,
+	analysis_marker/6,
+	analysis_affected_file/2
 ]).
 
+:- use_module(library(lists)).
+
 %% analysis_category(Name, Description)
 :- multifile(analysis_category/2).
 
 %% analysis_definition(Name, Severity, Category, Description)
 :- multifile(analysis_definition/4).
 
+%% analysis_scope(Name, Scope)
+% Scope is file if the results of the analysis in a file only depend on
+% that file and the modules it imports. Only the results in the affected
+% files of a consult are recomputed for such analyses, all other analyses
+% are recomputed completely.
+:- multifile(analysis_scope/2).
+
 %% analysis_result(Name, File, Location, Description)
 % Location is either a line number or Start-End
 :- multifile(analysis_result/4).
@@ -34,3 +45,32 @@ analysis_marker(Name, Severity, File, Location, Description) :-
 	->	format(atom(Location), '~w-~w', [Start, End])
 	;	Location = Location0
 	).
+
+%% analysis_marker(Name, Files, Severity, File, Location, Description)
+% Like analysis_marker/5, but only for results in one of Files.
+analysis_marker(Name, Files, Severity, File, Location, Description) :-
+	member(File, Files),
+	analysis_marker(Name, Severity, File, Location, Description).
+
+%% analysis_affected_file(ChangedFiles, File)
+% File is one of ChangedFiles or a file defining a module which imports
+% predicates from a module defined in one of ChangedFiles.
+analysis_affected_file(ChangedFiles, File) :-
+	setof(F, affected_file(ChangedFiles, F), Files),
+	member(File, Files).
+
+affected_file(ChangedFiles, File) :-
+	member(File, ChangedFiles).
+affected_file(ChangedFiles, File) :-
+	member(ChangedFile, ChangedFiles),
+	module_property(Module, file(ChangedFile)),
+	module_property(Module, exports(Exports)),
+	current_module(ImportingModule),
+	ImportingModule \== Module,
+	module_property(ImportingModule, file(File)),
+	\+ memberchk(File, ChangedFiles),
+	once((
+		member(Name/Arity, Exports),
+		functor(Head, Name, Arity),
+		predicate_property(ImportingModule:Head, imported_from(Module))
+	)).
@@ -19,5 +19,7 @@ public class AnalysisPredicates {
 	public static final String ANALYSIS_DEFINITION = "prolog_analysis_api:analysis_definition";
 	public static final String ANALYSIS_RESULT = "prolog_analysis_api:analysis_result";
 	public static final String ANALYSIS_MARKER = "prolog_analysis_api:analysis_marker";
+	public static final String ANALYSIS_SCOPE = "prolog_analysis_api:analysis_scope";
+	public static final String ANALYSIS_AFFECTED_FILE = "prolog_analysis_api:analysis_affected_file";
 
 }
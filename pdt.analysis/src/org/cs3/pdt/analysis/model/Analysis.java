@@ -20,13 +20,19 @@ public class Analysis implements IAnalysis {
 	private String description;
 	private String severity;
 	private IFactbase factbase;
+	private boolean fileScoped;
 	
 	public Analysis(String name, IAnalysisCategory category, String description, String severity, IFactbase factbase) {
+		this(name, category, description, severity, factbase, false);
+	}
+	
+	public Analysis(String name, IAnalysisCategory category, String description, String severity, IFactbase factbase, boolean fileScoped) {
 		this.name = name;
 		this.category = category;
 		this.description = description;
 		this.severity = severity;
 		this.factbase = factbase;
+		this.fileScoped = fileScoped;
 	}
 
 	@Override
@@ -54,6 +60,11 @@ public class Analysis implements IAnalysis {
 		return factbase;
 	}
 	
+	@Override
+	public boolean isFileScoped() {
+		return fileScoped;
+	}
+	
 	@Override
 	public int hashCode() {
 		return name.hashCode();
@@ -24,5 +24,12 @@ public interface IAnalysis extends Comparable<IAnalysis> {
 	String getSeverity();
 	
 	IFactbase getFactbase();
+	
+	/**
+	 * @return true if the results of this analysis in a file only depend on
+	 *         that file and the modules it imports, so the results can be
+	 *         updated file by file
+	 */
+	boolean isFileScoped();
 
 }
@@ -14,9 +14,13 @@
 package org.cs3.pdt.analysis.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.core.resources.IFile;
+
 public class ResultList {
 	
 	private String analysisName;
@@ -41,6 +45,24 @@ public class ResultList {
 		return new ArrayList<>(results);
 	}
 	
+	/**
+	 * Removes all results in the given files.
+	 * 
+	 * @param files
+	 * @return the removed results
+	 */
+	public List<IResultElement> removeResults(Collection<IFile> files) {
+		ArrayList<IResultElement> removed = new ArrayList<>();
+		for (Iterator<IResultElement> it = results.iterator(); it.hasNext();) {
+			IResultElement element = it.next();
+			if (element instanceof IResult && files.contains(((IResult) element).getResource())) {
+				it.remove();
+				removed.add(element);
+			}
+		}
+		return removed;
+	}
+	
 	public int getNumberOfResults() {
 		return results.size();
 	}
@@ -17,6 +17,7 @@ import static org.cs3.prolog.connector.common.QueryUtils.bT;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -83,6 +84,11 @@ public class PrologFactbase extends AbstractFactbase {
 			for (Map<String, Object> result : results) {
 				knownCategories.put((String) result.get("Name"), (String) result.get("Description"));
 			}
+			HashSet<String> fileScopedAnalyses = new HashSet<>();
+			results = process.queryAll(bT(AnalysisPredicates.ANALYSIS_SCOPE, "Name", "file"));
+			for (Map<String, Object> result : results) {
+				fileScopedAnalyses.add((String) result.get("Name"));
+			}
 			results = process.queryAll(bT(AnalysisPredicates.ANALYSIS_DEFINITION, "Name", "Severity", "Category", "Description"));
 			for (Map<String, Object> result : results) {
 				String categoryName = (String) result.get("Category");
@@ -97,12 +103,14 @@ public class PrologFactbase extends AbstractFactbase {
 					categories.add(category);
 				}
 				
+				String analysisName = (String) result.get("Name");
 				Analysis analysis = new Analysis(
-						(String) result.get("Name"),
+						analysisName,
 						category,
 						(String) result.get("Description"),
 						(String) result.get("Severity"),
-						this);
+						this,
+						fileScopedAnalyses.contains(analysisName));
 				analyses.add(analysis);
 				category.addAnalysis(analysis);
 			}
@@ -14,13 +14,29 @@
 package org.cs3.pdt.analysis.model.prolog;
 
 import static org.cs3.prolog.connector.common.QueryUtils.bT;
+import static org.cs3.prolog.connector.common.QueryUtils.listToArgList;
 import static org.cs3.prolog.connector.common.QueryUtils.quoteAtom;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.cs3.pdt.analysis.AnalysisPredicates;
 import org.cs3.pdt.analysis.PDTAnalysis;
@@ -34,26 +50,28 @@ import org.cs3.pdt.analysis.model.ResultList;
 import org.cs3.pdt.common.PDTCommonPlugin;
 import org.cs3.pdt.common.PrologProcessStartListener;
 import org.cs3.pdt.connector.PDTConnectorPlugin;
-import org.cs3.pdt.connector.service.ConsultListener;
+import org.cs3.pdt.connector.service.ConsultDelta;
+import org.cs3.pdt.connector.service.IncrementalConsultListener;
 import org.cs3.pdt.connector.util.FileUtils;
 import org.cs3.pdt.connector.util.UIUtils;
 import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.common.LogicalOffsetIndex;
 import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.text.IDocument;
-import org.eclipse.ui.texteditor.MarkerUtilities;
 
-public class PrologResultModel extends AbstractResultModel implements ConsultListener, PrologProcessStartListener {
+public class PrologResultModel extends AbstractResultModel implements IncrementalConsultListener, PrologProcessStartListener {
 
 	private static PrologResultModel instance;
 	
@@ -74,6 +92,13 @@ public class PrologResultModel extends AbstractResultModel implements ConsultLis
 	
 	private HashMap<String, PrologFactbase> factbases = new HashMap<>();
 	
+	/**
+	 * Names of the analyses whose results have been computed completely in
+	 * this session. Only the results of these analyses can be updated file by
+	 * file.
+	 */
+	private Set<String> completeAnalyses = Collections.synchronizedSet(new HashSet<String>());
+	
 	@Override
 	public PrologFactbase getFactbase(String name) {
 		PrologFactbase factbase = factbases.get(name);
@@ -116,6 +141,7 @@ public class PrologResultModel extends AbstractResultModel implements ConsultLis
 	}
 
 	public void clearResults(PrologFactbase factbase) {
+		completeAnalyses.clear();
 		synchronized (results) {
 			Set<String> analysisNames = results.keySet();
 			for (String analysisName : analysisNames) {
@@ -146,13 +172,32 @@ public class PrologResultModel extends AbstractResultModel implements ConsultLis
 	}
 	
 	private void doClearResults(IAnalysis analysis) {
+		completeAnalyses.remove(analysis.getName());
 		ResultList resultList = getResultList(analysis.getName());
+		List<IResultElement> oldResults;
 		synchronized (resultList) {
-			for (IResultElement resultElement : resultList.getResults()) {
-				deleteResultMarkers(resultElement);
-			}
+			oldResults = resultList.getResults();
 			resultList.clearResults();
 		}
+		deleteMarkers(oldResults);
+	}
+	
+	private void deleteMarkers(final List<IResultElement> oldResults) {
+		if (oldResults.isEmpty()) {
+			return;
+		}
+		try {
+			ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+				@Override
+				public void run(IProgressMonitor monitor) throws CoreException {
+					for (IResultElement resultElement : oldResults) {
+						deleteResultMarkers(resultElement);
+					}
+				}
+			}, null, IWorkspace.AVOID_UPDATE, null);
+		} catch (CoreException e) {
+			Debug.report(e);
+		}
 	}
 	
 	private void deleteResultMarkers(IResultElement element) {
@@ -186,83 +231,289 @@ public class PrologResultModel extends AbstractResultModel implements ConsultLis
 		List<IAnalysis> enabledAnalyses = factbase.getEnabledAnalyses();
 		if (!enabledAnalyses.isEmpty()) {
 			updateAnalyses(factbase, enabledAnalyses, process, monitor);
-			fireResultsUpdated(factbase, enabledAnalyses);
 		}
 		
 		monitor.done();
 	}
 
-	public void updateAnalyses(PrologFactbase factbase, List<IAnalysis> analyses, PrologProcess process, IProgressMonitor monitor) {
+	@Override
+	public void afterConsult(PrologProcess process, List<IFile> files, ConsultDelta delta, IProgressMonitor monitor) throws PrologProcessException {
+		String factbaseName = PDTConnectorPlugin.getDefault().getPrologProcessRegistry().getKey(process);
+		PrologFactbase factbase = getFactbase(factbaseName);
+		
+		factbase.collectAnalyses(process);
+		fireAnalysesUpdated(factbase);
+		
+		List<IAnalysis> enabledAnalyses = factbase.getEnabledAnalyses();
+		if (!enabledAnalyses.isEmpty()) {
+			ArrayList<String> changedFiles = new ArrayList<>();
+			for (ConsultDelta.Kind kind : ConsultDelta.Kind.values()) {
+				for (String file : delta.getFiles(kind)) {
+					changedFiles.add(quoteAtom(file));
+				}
+			}
+			Set<IFile> affectedFiles = new HashSet<>();
+			List<String> affectedPrologFiles = new ArrayList<>();
+			List<Map<String, Object>> results = process.queryAll(bT(AnalysisPredicates.ANALYSIS_AFFECTED_FILE, listToArgList(changedFiles), "File"));
+			for (Map<String, Object> result : results) {
+				String file = (String) result.get("File");
+				affectedPrologFiles.add(quoteAtom(file));
+				try {
+					affectedFiles.add(FileUtils.findFileForLocation(file));
+				} catch (Exception e) {
+					// the file is not part of the workspace, so it has no results
+				}
+			}
+			runAnalyses(factbase, enabledAnalyses, process, new AffectedFiles(affectedFiles, listToArgList(affectedPrologFiles)), monitor);
+		}
+		
+		monitor.done();
+	}
+
+	private static final int MAX_PARALLEL_ANALYSES = 4;
+	
+	/**
+	 * Runs the given analyses and replaces their results. Up to
+	 * {@link #MAX_PARALLEL_ANALYSES} analyses run at the same time, each on its
+	 * own session. Analyses which have not been started yet are skipped if the
+	 * monitor is canceled.
+	 * 
+	 * @return {@link Status#CANCEL_STATUS} if the monitor was canceled,
+	 *         {@link Status#OK_STATUS} otherwise
+	 */
+	public IStatus updateAnalyses(PrologFactbase factbase, List<IAnalysis> analyses, PrologProcess process, IProgressMonitor monitor) {
+		return runAnalyses(factbase, analyses, process, null, monitor);
+	}
+
+	/**
+	 * The files whose results have to be recomputed after a consult.
+	 */
+	private static class AffectedFiles {
+		
+		final Collection<IFile> files;
+		final String prologFiles;
+		
+		AffectedFiles(Collection<IFile> files, String prologFiles) {
+			this.files = files;
+			this.prologFiles = prologFiles;
+		}
+		
+	}
+
+	/**
+	 * @param affectedFiles
+	 *            if not null, the results of file scoped analyses which have
+	 *            been computed completely before are only recomputed for
+	 *            these files
+	 */
+	private IStatus runAnalyses(PrologFactbase factbase, List<IAnalysis> analyses, final PrologProcess process, final AffectedFiles affectedFiles, IProgressMonitor monitor) {
+		monitor.beginTask("Run Prolog analyses", analyses.size());
+		final AtomicBoolean canceled = new AtomicBoolean();
+		final Map<IFile, IDocument> documents = new ConcurrentHashMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(analyses.size(), MAX_PARALLEL_ANALYSES)), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Prolog analysis");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+		List<Future<String>> futures = new ArrayList<>();
 		try {
-			monitor.beginTask("Run Prolog analyses", analyses.size() * 3);
-			for (IAnalysis analysis : analyses) {
-				String analysisName = analysis.getName();
-				monitor.subTask(" : " + analysisName + " : Clearing results");
-				doClearResults(analysis);
-				monitor.worked(1);
-				
-				monitor.subTask(" : " + analysisName + " : Running query");
-				List<Map<String, Object>> results = process.queryAll(bT(AnalysisPredicates.ANALYSIS_MARKER,
-						quoteAtom(analysisName),
-						"Severity",
-						"File",
-						"Location",
-						"Description"));
-				monitor.worked(1);
-				
-				monitor.subTask(" : " + analysisName + " : Processing results");
-				SubProgressMonitor subMonitor = new SubProgressMonitor(monitor, 1);
-				subMonitor.beginTask("Processing results", results.size());
-				ResultList resultList = getResultList(analysisName);
-				synchronized (resultList) {
-					for (Map<String, Object> result : results) {
-						try {
-							IFile file = FileUtils.findFileForLocation((String) result.get("File"));
-							String description = (String) result.get("Description");
-							String severity = (String) result.get("Severity");
-							Result r = new Result(analysisName, description, severity, file, null);
-							
-							IMarker marker = file.createMarker(PDTAnalysis.MARKER_TYPE);
-							marker.setAttribute(IMarker.SEVERITY, PDTAnalysis.getMarkerSeverity(severity));
-							marker.setAttribute(PDTAnalysis.ANALYSIS_NAME_ATTRIBUTE, analysisName);
-							marker.setAttribute(IMarker.MESSAGE, description);
-							
-							String location = (String) result.get("Location");
-							int line;
-							int start;
-							int end;
-							IDocument doc = UIUtils.getDocument(file);
-							if (location.indexOf("-") >= 0) {
-								String[] positions = location.split("-");
-								start = Integer.parseInt(positions[0]);
-								end = Integer.parseInt(positions[1]);
-								start = UIUtils.logicalToPhysicalOffset(doc, start);
-								end = UIUtils.logicalToPhysicalOffset(doc, end);
-								line = doc.getLineOfOffset(start);
+			for (final IAnalysis analysis : analyses) {
+				futures.add(completionService.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						if (!canceled.get()) {
+							if (affectedFiles != null && analysis.isFileScoped() && completeAnalyses.contains(analysis.getName())) {
+								updateAnalysis(analysis, process, affectedFiles, documents, canceled);
 							} else {
-								line = Integer.parseInt(location) - 1;
-								start = doc.getLineOffset(line);
-								end = start;
+								runAnalysis(analysis, process, documents, canceled);
 							}
-							MarkerUtilities.setCharStart(marker, start);
-							MarkerUtilities.setCharEnd(marker, end);
-							MarkerUtilities.setLineNumber(marker, line);
-							r.setMarker(marker);
-							resultList.addResult(r);
-						} catch (Exception e){
-							Debug.report(e);
 						}
-						subMonitor.worked(1);
+						return analysis.getName();
+					}
+				}));
+			}
+			int pending = futures.size();
+			while (pending > 0) {
+				if (monitor.isCanceled() && !canceled.getAndSet(true)) {
+					for (Future<String> future : futures) {
+						future.cancel(false);
 					}
 				}
-				subMonitor.done();
+				Future<String> finished = completionService.poll(100, TimeUnit.MILLISECONDS);
+				if (finished == null) {
+					continue;
+				}
+				pending--;
+				if (!finished.isCancelled()) {
+					try {
+						monitor.subTask(" : " + finished.get() + " : Done");
+					} catch (ExecutionException e) {
+						Debug.report(e.getCause());
+					}
+				}
+				monitor.worked(1);
 			}
-		} catch (Exception e) {
-			Debug.report(e);
+		} catch (InterruptedException e) {
+			canceled.set(true);
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
 		}
 		fireResultsUpdated(factbase, analyses);
+		monitor.done();
+		return canceled.get() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	private void runAnalysis(IAnalysis analysis, PrologProcess process, Map<IFile, IDocument> documents, AtomicBoolean canceled) throws PrologProcessException {
+		String analysisName = analysis.getName();
+		doClearResults(analysis);
+		
+		List<Map<String, Object>> results = process.queryAll(bT(AnalysisPredicates.ANALYSIS_MARKER,
+				quoteAtom(analysisName),
+				"Severity",
+				"File",
+				"Location",
+				"Description"));
+		
+		if (addResults(analysisName, results, documents, canceled)) {
+			completeAnalyses.add(analysisName);
+		}
+	}
+
+	/**
+	 * Replaces only the results of the analysis in the affected files.
+	 */
+	private void updateAnalysis(IAnalysis analysis, PrologProcess process, AffectedFiles affectedFiles, Map<IFile, IDocument> documents, AtomicBoolean canceled) throws PrologProcessException {
+		String analysisName = analysis.getName();
+		ResultList resultList = getResultList(analysisName);
+		List<IResultElement> oldResults;
+		synchronized (resultList) {
+			oldResults = resultList.removeResults(affectedFiles.files);
+		}
+		deleteMarkers(oldResults);
+		
+		List<Map<String, Object>> results = process.queryAll(bT(AnalysisPredicates.ANALYSIS_MARKER,
+				quoteAtom(analysisName),
+				affectedFiles.prologFiles,
+				"Severity",
+				"File",
+				"Location",
+				"Description"));
+		
+		if (!addResults(analysisName, results, documents, canceled)) {
+			completeAnalyses.remove(analysisName);
+		}
 	}
 
+	/**
+	 * @return false if adding the results has been canceled
+	 */
+	private boolean addResults(String analysisName, List<Map<String, Object>> results, Map<IFile, IDocument> documents, AtomicBoolean canceled) {
+		LinkedHashMap<IFile, List<Map<String, Object>>> resultsByFile = new LinkedHashMap<>();
+		for (Map<String, Object> result : results) {
+			try {
+				IFile file = FileUtils.findFileForLocation((String) result.get("File"));
+				List<Map<String, Object>> resultsInFile = resultsByFile.get(file);
+				if (resultsInFile == null) {
+					resultsInFile = new ArrayList<>();
+					resultsByFile.put(file, resultsInFile);
+				}
+				resultsInFile.add(result);
+			} catch (Exception e) {
+				Debug.report(e);
+			}
+		}
+		
+		boolean complete = true;
+		List<IResultElement> newResults = new ArrayList<>(results.size());
+		for (Map.Entry<IFile, List<Map<String, Object>>> entry : resultsByFile.entrySet()) {
+			if (canceled.get()) {
+				complete = false;
+				break;
+			}
+			try {
+				createResults(analysisName, entry.getKey(), entry.getValue(), documents, newResults);
+			} catch (Exception e) {
+				Debug.report(e);
+			}
+		}
+		
+		ResultList resultList = getResultList(analysisName);
+		synchronized (resultList) {
+			for (IResultElement result : newResults) {
+				resultList.addResult(result);
+			}
+		}
+		return complete;
+	}
+
+	/**
+	 * Creates the markers for all results of an analysis in one file as a
+	 * single workspace operation, so only one resource delta is sent.
+	 */
+	private void createResults(final String analysisName, final IFile file, final List<Map<String, Object>> results, final Map<IFile, IDocument> documents, final List<IResultElement> newResults) throws CoreException {
+		IDocument document = documents.get(file);
+		if (document == null) {
+			document = UIUtils.getDocument(file);
+			documents.put(file, document);
+		}
+		final IDocument finalDocument = document;
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (Map<String, Object> result : results) {
+					try {
+						String description = (String) result.get("Description");
+						String severity = (String) result.get("Severity");
+						Result r = new Result(analysisName, description, severity, file, null);
+						
+						String location = (String) result.get("Location");
+						int line;
+						int start;
+						int end;
+						if (location.indexOf("-") >= 0) {
+							String[] positions = location.split("-");
+							LogicalOffsetIndex offsets = UIUtils.getOffsetIndex(finalDocument);
+							start = offsets.logicalToPhysicalOffset(Integer.parseInt(positions[0]));
+							end = offsets.logicalToPhysicalOffset(Integer.parseInt(positions[1]));
+							line = finalDocument.getLineOfOffset(start);
+						} else {
+							line = Integer.parseInt(location) - 1;
+							start = finalDocument.getLineOffset(line);
+							end = start;
+						}
+						
+						IMarker marker = file.createMarker(PDTAnalysis.MARKER_TYPE);
+						marker.setAttributes(MARKER_ATTRIBUTES, new Object[] {
+								PDTAnalysis.getMarkerSeverity(severity),
+								analysisName,
+								description,
+								start,
+								end,
+								line});
+						r.setMarker(marker);
+						newResults.add(r);
+					} catch (Exception e) {
+						Debug.report(e);
+					}
+				}
+			}
+		}, ResourcesPlugin.getWorkspace().getRuleFactory().markerRule(file), IWorkspace.AVOID_UPDATE, null);
+	}
+
+	private static final String[] MARKER_ATTRIBUTES = new String[] {
+		IMarker.SEVERITY,
+		PDTAnalysis.ANALYSIS_NAME_ATTRIBUTE,
+		IMarker.MESSAGE,
+		IMarker.CHAR_START,
+		IMarker.CHAR_END,
+		IMarker.LINE_NUMBER
+	};
+
 	private void initializeFromMarkers() {
 		Job j = new Job("Initialize Prolog Result Model") {
 			@Override
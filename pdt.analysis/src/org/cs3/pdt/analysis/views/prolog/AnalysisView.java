@@ -123,8 +123,7 @@ public class AnalysisView extends AbstractAnalysisView implements ActivePrologPr
 		Job j = new Job("Run enabled analyses") {
 			@Override
 			protected IStatus run(IProgressMonitor monitor) {
-				resultModel.updateAnalyses(currentFactbase, enabledAnalyses, getCurrentProcess(), monitor);
-				return Status.OK_STATUS;
+				return resultModel.updateAnalyses(currentFactbase, enabledAnalyses, getCurrentProcess(), monitor);
 			}
 		};
 		j.schedule();
@@ -154,8 +153,7 @@ public class AnalysisView extends AbstractAnalysisView implements ActivePrologPr
 		Job j = new Job("Run analyses") {
 			@Override
 			protected IStatus run(IProgressMonitor monitor) {
-				resultModel.updateAnalyses(currentFactbase, selectedAnalyses, getCurrentProcess(), monitor);
-				return Status.OK_STATUS;
+				return resultModel.updateAnalyses(currentFactbase, selectedAnalyses, getCurrentProcess(), monitor);
 			}
 		};
 		j.schedule();
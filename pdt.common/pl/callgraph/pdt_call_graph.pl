@@ -16,6 +16,8 @@
 
 :- use_module(pdt_prolog_codewalk).
 :- use_module(library(lists)).
+:- use_module(library(pairs)).
+:- use_module(library(apply)).
 :- use_module(pdt_prolog_library(compatibility), [
 	pdt_source_file/2
 ]).
@@ -32,76 +34,110 @@ reset :-
 		(	first_run
 		->	true
 		;	assertz(first_run),
-			retractall(calls_(_, _, _, _, _, _, _, _, _)),
-			retractall(calls_multifile_(_, _, _, _, _, _, _, _))
+			retractall(calls_(_, _, _, _, _, _, _, _, _, _)),
+			retractall(calls_multifile_(_, _, _, _, _, _, _, _, _)),
+			retractall(calls_file_(_, _, _, _, _, _, _, _, _, _, _)),
+			retractall(staged_edge_(_, _, _, _, _, _, _, _, _, _))
 		)
 	)).
 
+% Readers only wait for the first generation of the call graph. Later
+% updates replace the edges of single files while readers keep seeing
+% the previous edges.
 ensure_call_graph_generated :-
-	with_mutex(pdt_call_graph, (
-		first_run,
-		!,
-		generate_call_graph,
-		retractall(first_run)
-	)),
+	\+ first_run,
 	!.
-ensure_call_graph_generated.
+ensure_call_graph_generated :-
+	with_mutex(pdt_call_graph, (
+		(	first_run
+		->	generate_call_graph,
+			retractall(first_run)
+		;	true
+		)
+	)).
 
 %% calls(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, NumberOfCalls)
 calls(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, NumberOfCalls) :-
-	calls_(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, NumberOfCalls, _TermPosition, _Info).
+	current_edge(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, NumberOfCalls, _TermPosition, _Info).
 
 call_type(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, Info) :-
-	calls_(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, _NumberOfCalls, _TermPosition, [Info|_]).
+	current_edge(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, _NumberOfCalls, _TermPosition, [Info|_]).
 
 %% calls_multifile(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, File, NumberOfCalls)
 calls_multifile(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, File, NumberOfCalls) :-
-	calls_multifile_(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, File, NumberOfCalls).
+	findall(edge(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity)-(Generation-(File0-NumberOfCalls0)),
+		calls_multifile_(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, File0, NumberOfCalls0, Generation),
+		Edges),
+	newest_generation(Edges, edge(CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity), _Generation, Values),
+	member(File-NumberOfCalls, Values).
 
-:- dynamic(calls_/9).
-:- dynamic(calls_multifile_/8).
+% calls_/10 and calls_multifile_/9 are aggregated from calls_file_/11,
+% which holds the edges found in the clauses loaded from one source file:
+% calls_file_(Source, ClauseFile, CalleeModule, CalleeName, CalleeArity, CallerModule, CallerName, CallerArity, NumberOfCalls, TermPositions, Infos)
+% The last argument of the aggregated facts is the generation of the
+% update which asserted them, see update_aggregated_edge/1.
+:- dynamic(calls_/10).
+:- dynamic(calls_multifile_/9).
+:- dynamic(calls_file_/11).
 
-
-clear([]).
-clear([Module:Name/Arity|Predicates]) :-
-	retractall(calls_(_,_,_,Module,Name,Arity,_, _, _)),
-	retractall(calls_multifile_(_,_,_,Module,Name,Arity,_,_)),
-	clear(Predicates).
+% Edges found by the current walk, committed by commit_staged_edges/1.
+:- dynamic(staged_edge_/10).
+:- dynamic(touched_pair/1).
 
 :- dynamic(predicates_to_walk/1).
 
 generate_call_graph :-
-	with_mutex(pdt_call_graph, generate_call_graph__).
-
-generate_call_graph__ :-
-	pdt_prolog_walk_code([ trace_reference(_),
-			on_trace(pdt_call_graph:assert_edge),
-			new_meta_specs(pdt_call_graph:generate_call_graph_new_meta_specs),
-			reiterate(false),
-			source(false)
-			]),
-	(	predicates_to_walk(NewPredicates)
-	->	retractall(predicates_to_walk(_)),
-		clear(NewPredicates),
-		generate_call_graph__(NewPredicates)
-	;	true
-	).
+	with_mutex(pdt_call_graph, (
+		walk_code([]),
+		commit_staged_edges(all),
+		walk_new_meta_predicates
+	)).
 
 generate_call_graph(Predicates) :-
-	with_mutex(pdt_call_graph, generate_call_graph__(Predicates)).
+	with_mutex(pdt_call_graph, (
+		walk_code([predicates(Predicates)]),
+		commit_staged_edges(predicates(Predicates)),
+		walk_new_meta_predicates
+	)).
 
-generate_call_graph__(Predicates) :-
+%% update_call_graph(+Files, +Predicates)
+%
+% Walks the clauses loaded from Files and all clauses of Predicates and
+% replaces the edges found for them before.
+update_call_graph(Files, Predicates) :-
+	with_mutex(pdt_call_graph, (
+		findall(Ref, (member(File, Files), file_clause(File, Ref)), Refs),
+		walk_code([clauses(Refs)]),
+		commit_staged_edges(files(Files)),
+		(	Predicates == []
+		->	true
+		;	walk_code([predicates(Predicates)]),
+			commit_staged_edges(predicates(Predicates))
+		),
+		walk_new_meta_predicates
+	)).
+
+file_clause(File, Ref) :-
+	pdt_source_file(Module:Head, File),
+	\+ predicate_property(Module:Head, foreign),
+	catch(clause(Module:Head, _, Ref), _, fail),
+	clause_property(Ref, source(File)).
+
+walk_code(Options) :-
+	retractall(predicates_to_walk(_)),
 	pdt_prolog_walk_code([ trace_reference(_),
 			on_trace(pdt_call_graph:assert_edge),
 			new_meta_specs(pdt_call_graph:generate_call_graph_new_meta_specs),
 			reiterate(false),
-			source(false),
-			predicates(Predicates)
-			]),
-	(	predicates_to_walk(NewPredicates)
-	->	retractall(predicates_to_walk(_)),
-		clear(NewPredicates),
-		generate_call_graph__(NewPredicates)
+			source(false)
+			| Options
+			]).
+
+walk_new_meta_predicates :-
+	(	retract(predicates_to_walk(NewPredicates))
+	->	walk_code([predicates(NewPredicates)]),
+		commit_staged_edges(predicates(NewPredicates)),
+		walk_new_meta_predicates
 	;	true
 	).
 
@@ -110,13 +146,18 @@ generate_call_graph_new_meta_specs(MetaSpecs) :-
 	findall(Module:Name/Arity, (
 		member(MetaSpec, MetaSpecs),
 		pi_of_head(MetaSpec, M, N, A),
-		calls_(M, N, A, Module, Name, Arity, _, _, _)
+		known_edge(M, N, A, Module, Name, Arity)
 	), Predicates),
 	(	Predicates \== []
 	->	sort(Predicates, PredicatesUnique),
 		assertz(predicates_to_walk(PredicatesUnique))
 	;	true
 	).
+
+known_edge(M, N, A, Module, Name, Arity) :-
+	(	staged_edge_(_, _, M, N, A, Module, Name, Arity, _, _)
+	;	calls_(M, N, A, Module, Name, Arity, _, _, _, _)
+	).
 	
 assert_edge(M1:Callee, M2:Caller, clause(Ref), Info) :-
 	assert_edge(M1:Callee, M2:Caller, clause_term_position(Ref, undefined), Info).
@@ -128,68 +169,128 @@ assert_edge(M1:Callee, M2:Caller, clause_term_position(Ref, TermPosition), Info)
 	;	M = M1
 	),
 	functor(Caller,F2,N2), 
-	assert_edge_(M,F1,N1, M2,F2,N2,TermPosition,Info),
-	(	predicate_property(M2:Caller, multifile),
-		clause_property(Ref, file(File))
-	->	assert_multifile_edge(M,F1,N1, M2,F2,N2, File)
-	;	true
-	).
+	(	clause_property(Ref, file(File))
+	->	true
+	;	File = ''
+	),
+	(	clause_property(Ref, source(Source))
+	->	true
+	;	Source = File
+	),
+	assertz(staged_edge_(Source, File, M,F1,N1, M2,F2,N2, TermPosition, Info)).
 assert_edge(_, '<initialization>', _, _) :- !.
 
-assert_edge_(M1,F1,N1, M2,F2,N2,TermPos,Info) :-
-	retract( calls_(M1,F1,N1, M2,F2,N2, Counter, TermPosTail, InfoTail) ), 
-	!,
-	Cnt_plus_1 is Counter + 1,
-	assertz(calls_(M1,F1,N1, M2,F2,N2, Cnt_plus_1, [TermPos|TermPosTail], [Info|InfoTail])).
-assert_edge_(M1,F1,N1, M2,F2,N2, TermPos, Info) :-
-	assertz(calls_(M1,F1,N1, M2,F2,N2, 1, [TermPos], [Info])).
-
-assert_multifile_edge(M1,F1,N1, M2,F2,N2, File) :-
-	retract( calls_multifile_(M1,F1,N1, M2,F2,N2, File, Counter) ), 
-	!,
-	Cnt_plus_1 is Counter + 1,
-	assertz(calls_multifile_(M1,F1,N1, M2,F2,N2, File, Cnt_plus_1)).
-assert_multifile_edge(M1,F1,N1, M2,F2,N2, File) :-
-	assertz(calls_multifile_(M1,F1,N1, M2,F2,N2, File, 1)).
+%% commit_staged_edges(+Scope)
+%
+% Replaces the edges in Scope by the staged edges. Scope is all,
+% files(Sources) or predicates(CallerPIs).
+commit_staged_edges(Scope) :-
+	findall(Ref, (edge_in_scope(Scope, Ref, Pair), assertz(touched_pair(Pair))), OldRefs),
+	maplist(erase, OldRefs),
+	findall(Key-(TermPos-Info), (
+		retract(staged_edge_(Source, File, M1,F1,N1, M2,F2,N2, TermPos, Info)),
+		Key = edge(Source, File, M1,F1,N1, M2,F2,N2)
+	), Staged),
+	keysort(Staged, Sorted),
+	group_pairs_by_key(Sorted, Groups),
+	forall(
+		member(edge(Source, File, M1,F1,N1, M2,F2,N2)-Values, Groups),
+		(	length(Values, Count),
+			pairs_keys_values(Values, TermPositions, Infos),
+			assertz(calls_file_(Source, File, M1,F1,N1, M2,F2,N2, Count, TermPositions, Infos)),
+			assertz(touched_pair(pair(M1,F1,N1, M2,F2,N2)))
+		)
+	),
+	findall(Pair, retract(touched_pair(Pair)), Pairs0),
+	sort(Pairs0, Pairs),
+	maplist(update_aggregated_edge, Pairs).
+
+edge_in_scope(all, Ref, pair(M1,F1,N1, M2,F2,N2)) :-
+	clause(calls_file_(_, _, M1,F1,N1, M2,F2,N2, _, _, _), true, Ref).
+edge_in_scope(files(Sources), Ref, pair(M1,F1,N1, M2,F2,N2)) :-
+	member(Source, Sources),
+	clause(calls_file_(Source, _, M1,F1,N1, M2,F2,N2, _, _, _), true, Ref).
+edge_in_scope(predicates(Predicates), Ref, pair(M1,F1,N1, M2,F2,N2)) :-
+	member(M2:F2/N2, Predicates),
+	clause(calls_file_(_, _, M1,F1,N1, M2,F2,N2, _, _, _), true, Ref).
+
+% The new aggregated facts are asserted before the old ones are erased,
+% so readers never miss an edge that exists before and after the update.
+% Readers do not take the mutex and may see the old and the new facts of
+% an edge at the same time. The new facts carry a newer generation, and
+% readers only use the facts of the newest generation of each edge.
+update_aggregated_edge(pair(M1,F1,N1, M2,F2,N2)) :-
+	findall(Ref, clause(calls_(M1,F1,N1, M2,F2,N2, _, _, _, _), true, Ref), OldRefs),
+	findall(Ref, clause(calls_multifile_(M1,F1,N1, M2,F2,N2, _, _, _), true, Ref), OldMultifileRefs),
+	findall(Count-(TermPositions-Infos), calls_file_(_, _, M1,F1,N1, M2,F2,N2, Count, TermPositions, Infos), Parts),
+	(	Parts == []
+	->	true
+	;	flag(pdt_call_graph_generation, Generation, Generation + 1),
+		pairs_keys_values(Parts, Counts, Values),
+		pairs_keys_values(Values, TermPositionLists, InfoLists),
+		sum_list(Counts, Count),
+		append(TermPositionLists, TermPositions),
+		append(InfoLists, Infos),
+		assertz(calls_(M1,F1,N1, M2,F2,N2, Count, TermPositions, Infos, Generation)),
+		functor(Caller, F2, N2),
+		(	predicate_property(M2:Caller, multifile)
+		->	findall(File-FileCount, (
+				calls_file_(_, File, M1,F1,N1, M2,F2,N2, FileCount, _, _),
+				File \== ''
+			), FileCounts0),
+			keysort(FileCounts0, FileCounts),
+			group_pairs_by_key(FileCounts, FileGroups),
+			forall(
+				member(File-CountsInFile, FileGroups),
+				(	sum_list(CountsInFile, CountInFile),
+					assertz(calls_multifile_(M1,F1,N1, M2,F2,N2, File, CountInFile, Generation))
+				)
+			)
+		;	true
+		)
+	),
+	maplist(erase, OldRefs),
+	maplist(erase, OldMultifileRefs).
+
+% All facts of the edges are collected by a single call, so they are from
+% the same state of the database. Only the edge is passed to the call, the
+% other arguments must be matched against the newest facts only.
+current_edge(M1,F1,N1, M2,F2,N2, Count, TermPositions, Infos) :-
+	findall(edge(M1,F1,N1, M2,F2,N2)-(Generation-data(Count0, TermPositions0, Infos0)),
+		calls_(M1,F1,N1, M2,F2,N2, Count0, TermPositions0, Infos0, Generation),
+		Edges),
+	newest_generation(Edges, edge(M1,F1,N1, M2,F2,N2), _Generation, [data(Count, TermPositions, Infos)]).
+
+%% newest_generation(+Edges, -Edge, -Generation, -Values) is nondet.
+%
+% Edges is a list of Edge-(Generation-Value). Enumerates the edges with
+% the values of their newest generation.
+newest_generation(Edges, Edge, Generation, Values) :-
+	keysort(Edges, Sorted),
+	group_pairs_by_key(Sorted, Groups),
+	member(Edge-GenerationValues, Groups),
+	max_member(Generation-_, GenerationValues),
+	findall(Value, member(Generation-Value, GenerationValues), Values).
 
 :- multifile(pdt_reload:pdt_reload_listener/1).
 pdt_reload:pdt_reload_listener(_Files) :-
 	(	first_run
 	->	true
-	;	setof(Module:Name/Arity, Head^File^FileModule^(
-			(	pdt_reload:reloaded_file(File),
-				(	pdt_source_file(Module:Head, File)
-				;	module_property(FileModule, file(File)),
-					predicate_property(FileModule:Head, imported_from(Module)),
-					predicate_property(Module:Head, transparent),
-					\+ predicate_property(Module:Head, meta_predicate(_))
-				),
-				functor(Head, Name, Arity)
-			;	retract(predicate_to_clear(Module, Name, Arity))
-			)
-		), Predicates),
-		!,
-		clear(Predicates),
-		generate_call_graph(Predicates)
+	;	findall(File, pdt_reload:reloaded_file(File), ReloadedFiles0),
+		sort(ReloadedFiles0, ReloadedFiles),
+		% transparent predicates imported into the reloaded modules
+		% depend on the context module, so they are walked again
+		findall(Module:Name/Arity, (
+			member(File, ReloadedFiles),
+			module_property(FileModule, file(File)),
+			predicate_property(FileModule:Head, imported_from(Module)),
+			predicate_property(Module:Head, transparent),
+			\+ predicate_property(Module:Head, meta_predicate(_)),
+			functor(Head, Name, Arity)
+		), Predicates0),
+		sort(Predicates0, Predicates),
+		update_call_graph(ReloadedFiles, Predicates)
 	).
 
-:- multifile(user:message_hook/3).
-:- dynamic(user:message_hook/3).
-user:message_hook(load_file(start(_, file(_, File))),_,_) :-
-	\+ first_run,
-	(	pdt_source_file(Module:Head, File)
-	;	module_property(FileModule, file(File)),
-		predicate_property(FileModule:Head, imported_from(Module)),
-		predicate_property(Module:Head, transparent),
-		\+ predicate_property(Module:Head, meta_predicate(_))
-	),
-	functor(Head, Name, Arity),
-	\+ predicate_to_clear(Module, Name, Arity),
-	assertz(predicate_to_clear(Module, Name, Arity)),
-	fail.
-
 pi_of_head(Module:Head, Module, Name, Arity) :-
 	functor(Head, Name, Arity).
-
-:- dynamic(predicate_to_clear/3).
-
@@ -14,6 +14,7 @@
 
 :- module( pdt_manual_entry,
          [ predicate_manual_entry/5    % (_Module,Pred,Arity,Content)
+         , predicate_deprecated/3      % (Module,Pred,Arity)
          ]).
          
 :- if(current_prolog_flag(dialect, swi)).
@@ -56,6 +57,16 @@ predicate_manual_entry(Module, Pred,Arity,Content, IsDeprecated) :-
 	
 predicate_manual_entry(_Module,_Pred,_Arity,'nodoc', _).
 
+%% predicate_deprecated(+Module, +Pred, +Arity) is semidet.
+%
+% Same as the IsDeprecated argument of predicate_manual_entry/5, but 
+% without generating the html code.
+predicate_deprecated(Module, Pred, Arity) :-
+	pldoc_process:doc_comment(Module:Pred/Arity, _, _, Comment),
+	atomic(Comment),
+	sub_atom(Comment, _, _, _, '@deprecated'),
+	!.
+
 gen_html_for_pred_(FileSpec,Functor/Arity,Html) :-    
 	doc_file_objects(FileSpec, _File, Objects, FileOptions, [public_only(false)]),
 	member(doc(Signature,FilePos,Doc),Objects),
@@ -103,6 +114,8 @@ manual_entry(Pred,-1,Content) :-
 
 predicate_manual_entry(_Module,_Pred,_Arity,'nodoc').
 
+predicate_deprecated(_Module,_Pred,_Arity) :- fail.
+
 :- endif.
 
 
@@ -20,6 +20,11 @@
          , find_definition_contained_in/9
          , find_definition_contained_in/10
          , find_completion/14
+         , completion_context/2
+         , completion_index_entry/8
+         , completion_documentation/6
+         , completion_file_module/2
+         , find_non_predicate_completion/6
          , find_entity_definition/6
          , find_module_reference/9
          , loaded_file/1
@@ -774,6 +779,10 @@ find_completion_(PredicatePrefix, EnclosingFile, _LineInFile, predicate, Module,
 	predicate_information(Module, Name, Arity, IsBuiltin, IsDeprecated, Visibility, ArgNames, DocKind, Doc).
 
 predicate_information(Module, Name, Arity, IsBuiltin, IsDeprecated, Visibility, ArgNames, DocKind, Doc) :-
+	predicate_visibility(Module, Name, Arity, IsBuiltin, Visibility),
+	predicate_documentation(Module, Name, Arity, IsDeprecated, ArgNames, DocKind, Doc).
+
+predicate_visibility(Module, Name, Arity, IsBuiltin, Visibility) :-
 	functor(Head, Name, Arity),
 	(	predicate_property(Module:Head, built_in)
 	->	IsBuiltin = true
@@ -784,7 +793,9 @@ predicate_information(Module, Name, Arity, IsBuiltin, IsDeprecated, Visibility,
 		)
 	->	Visibility = (public)
 	;	Visibility = protected
-	),
+	).
+
+predicate_documentation(Module, Name, Arity, IsDeprecated, ArgNames, DocKind, Doc) :-
 	(	predicate_completion_documentation_hook(Module, Name, Arity, ArgNames, DocKind, Doc)
 	->	true
 	;	predicate_manual_entry(Module, Name, Arity, Content, IsDeprecated),
@@ -864,6 +875,67 @@ is_case_insensitive_prefix_of(Prefix, Name) :-
 	downcase_atom(Name, NameDowncase),
 	atom_concat(PrefixDowncase, _, NameDowncase).
 
+               /***********************************************
+                * COMPLETION INDEX                             *
+                ***********************************************/
+
+% The client keeps the visible predicates of a module in a local index to
+% answer completion requests without querying the process. The
+% documentation is only fetched for the selected proposal.
+
+%% completion_context(+EnclosingFile, -Context) is nondet.
+%
+% Context is a module whose visible predicates are proposed in EnclosingFile.
+completion_context(EnclosingFile, Context) :-
+	setof(
+		FileModule,
+		IncludeLine^File^(
+			(	File = EnclosingFile
+			;	source_file_property(EnclosingFile, included_in(File, IncludeLine))
+			),
+			module_of_file(File, FileModule)
+		),
+		Contexts
+	),
+	member(Context, Contexts).
+
+%% completion_index_entry(+Context, -Module, -Name, -Arity, -Visibility, -IsBuiltin, -IsDeprecated, -NeedsQuotes) is nondet.
+%
+% Module:Name/Arity is visible in Context.
+completion_index_entry(Context, Module, Name, Arity, Visibility, IsBuiltin, IsDeprecated, NeedsQuotes) :-
+	atom(Context),
+	setof(Module-Name-Arity, declared_in_module(Context, Name, Arity, Module), Predicates),
+	member(Module-Name-Arity, Predicates),
+	predicate_visibility(Module, Name, Arity, IsBuiltin, Visibility),
+	(	predicate_deprecated(Module, Name, Arity)
+	->	IsDeprecated = true
+	;	IsDeprecated = false
+	),
+	needs_quotes(Name, NeedsQuotes).
+
+%% completion_documentation(+Module, +Name, +Arity, -ArgNames, -DocKind, -Doc) is det.
+completion_documentation(Module, Name, Arity, ArgNames, DocKind, Doc) :-
+	predicate_documentation(Module, Name, Arity, _IsDeprecated, ArgNames, DocKind, Doc).
+
+%% find_non_predicate_completion(+Prefix, ?EnclosingFile, ?LineInFile, -Kind, -Name, -NeedsQuotes) is nondet.
+%
+% The module and atom completions of find_completion/14. Predicates are
+% taken from the completion index.
+find_non_predicate_completion(Prefix, EnclosingFile, LineInFile, Kind, Name, NeedsQuotes) :-
+	member(Kind, [module, atom]),
+	find_completion(Prefix, EnclosingFile, LineInFile, Kind, _, Name, _, _, _, _, _, _, _, NeedsQuotes).
+
+%% completion_file_module(+Files, -Module) is nondet.
+%
+% Module is defined in one of Files. Module is user for files which do
+% not define a module.
+completion_file_module(Files, Module) :-
+	member(File, Files),
+	(	module_property(Module, file(File))
+	*->	true
+	;	Module = user
+	).
+
 %% find_entity_definition(SearchString, ExactMatch, Root, File, Line, Entity)
 
 find_entity_definition(SearchString, ExactMatch, Root, File, Line, Entity) :-
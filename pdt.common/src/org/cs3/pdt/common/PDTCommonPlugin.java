@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.cs3.pdt.common.internal.CompletionIndexUpdater;
 import org.cs3.pdt.common.internal.ConsultManager;
 import org.cs3.pdt.common.internal.EntryPointChangeListener;
 import org.cs3.pdt.common.internal.PDTProperties;
@@ -119,6 +120,9 @@ public class PDTCommonPlugin extends AbstractUIPlugin implements BundleActivator
 		consultManager = new ConsultManager();
 		registerProcessStartListener(consultManager);
 		PDTConnectorPlugin.getDefault().getPrologProcessService().registerConsultListener(consultManager);
+		CompletionIndexUpdater completionIndexUpdater = new CompletionIndexUpdater();
+		registerProcessStartListener(completionIndexUpdater);
+		PDTConnectorPlugin.getDefault().getPrologProcessService().registerConsultListener(completionIndexUpdater);
 		entryPointChangeListener = new EntryPointChangeListener();
 		ResourcesPlugin.getWorkspace().addResourceChangeListener(entryPointChangeListener, IResourceChangeEvent.POST_CHANGE);
 	}
@@ -30,6 +30,11 @@ public class PDTCommonPredicates {
 	public static final String FIND_ALTERNATIVE_PREDICATES = "pdt_search:find_alternative_predicates";
 	public static final String FIND_DEFINITION_CONTAINED_IN = "pdt_search:find_definition_contained_in";
 	public static final String FIND_COMPLETION = "pdt_search:find_completion";
+	public static final String FIND_NON_PREDICATE_COMPLETION = "pdt_search:find_non_predicate_completion";
+	public static final String COMPLETION_CONTEXT = "pdt_search:completion_context";
+	public static final String COMPLETION_INDEX_ENTRY = "pdt_search:completion_index_entry";
+	public static final String COMPLETION_DOCUMENTATION = "pdt_search:completion_documentation";
+	public static final String COMPLETION_FILE_MODULE = "pdt_search:completion_file_module";
 	public static final String FIND_MODULE_REFERENCE = "pdt_search:find_module_reference";
 	public static final String FIND_ENTITY_DEFINITION = "pdt_search:find_entity_definition";
 	public static final String LOADED_FILE = "pdt_search:loaded_file";
@@ -0,0 +1,277 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.common.completion;
+
+import static org.cs3.prolog.connector.common.QueryUtils.bT;
+import static org.cs3.prolog.connector.common.QueryUtils.listToArgList;
+import static org.cs3.prolog.connector.common.QueryUtils.quoteAtom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cs3.pdt.common.PDTCommonPredicates;
+import org.cs3.pdt.connector.service.ConsultDelta;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+
+/**
+ * Client side index of the predicates visible in the modules of a process.
+ * <p>
+ * The predicates visible in a module are fetched once and kept sorted by
+ * their lower case name, so a prefix lookup is a binary search. The entries
+ * of a module are dropped after a consult which touched the module or one of
+ * the modules it takes predicates from.
+ */
+public class CompletionIndex {
+
+	private static final Map<PrologProcess, CompletionIndex> indexes = new WeakHashMap<>();
+
+	/**
+	 * @param process
+	 * @return the index of the process
+	 */
+	public static CompletionIndex getIndex(PrologProcess process) {
+		synchronized (indexes) {
+			CompletionIndex index = indexes.get(process);
+			if (index == null) {
+				index = new CompletionIndex(process);
+				indexes.put(process, index);
+			}
+			return index;
+		}
+	}
+
+	private static final Comparator<PredicateCompletion> BY_LOWER_CASE_NAME = new Comparator<PredicateCompletion>() {
+		@Override
+		public int compare(PredicateCompletion p1, PredicateCompletion p2) {
+			int result = p1.lowerCaseName.compareTo(p2.lowerCaseName);
+			if (result == 0) {
+				result = p1.getName().compareTo(p2.getName());
+			}
+			if (result == 0) {
+				result = p1.getArity() - p2.getArity();
+			}
+			if (result == 0) {
+				result = p1.getModule().compareTo(p2.getModule());
+			}
+			return result;
+		}
+	};
+
+	private final PrologProcess process;
+	private final ConcurrentHashMap<String, PredicateCompletion[]> contexts = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, List<String>> fileContexts = new ConcurrentHashMap<>();
+	private final AtomicInteger generation = new AtomicInteger();
+
+	private CompletionIndex(PrologProcess process) {
+		this.process = process;
+	}
+
+	/**
+	 * @param context
+	 *            a module
+	 * @param prefix
+	 *            the case insensitive prefix of the predicate names, may be
+	 *            empty
+	 * @return the predicates visible in the module
+	 * @throws PrologProcessException
+	 */
+	public List<PredicateCompletion> findPredicates(String context, String prefix) throws PrologProcessException {
+		PredicateCompletion[] entries = getEntries(context);
+		String lowerCasePrefix = prefix.toLowerCase();
+		int low = 0;
+		int high = entries.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (entries[mid].lowerCaseName.compareTo(lowerCasePrefix) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		ArrayList<PredicateCompletion> result = new ArrayList<>();
+		for (int i = low; i < entries.length && entries[i].lowerCaseName.startsWith(lowerCasePrefix); i++) {
+			result.add(entries[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * @param context
+	 *            a module
+	 * @return the predicates defined in the module
+	 * @throws PrologProcessException
+	 */
+	public List<PredicateCompletion> findLocalPredicates(String context) throws PrologProcessException {
+		ArrayList<PredicateCompletion> result = new ArrayList<>();
+		for (PredicateCompletion entry : getEntries(context)) {
+			if (entry.getModule().equals(context)) {
+				result.add(entry);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param file
+	 *            the file in which the completion is requested
+	 * @param prefix
+	 *            the case insensitive prefix of the predicate names
+	 * @return the predicates visible in the modules of the file and of the
+	 *         files including it
+	 * @throws PrologProcessException
+	 */
+	public List<PredicateCompletion> findPredicatesInFile(String file, String prefix) throws PrologProcessException {
+		List<String> fileModules = getFileContexts(file);
+		if (fileModules.size() == 1) {
+			return findPredicates(fileModules.get(0), prefix);
+		}
+		LinkedHashMap<String, PredicateCompletion> result = new LinkedHashMap<>();
+		for (String context : fileModules) {
+			for (PredicateCompletion entry : findPredicates(context, prefix)) {
+				if (!result.containsKey(entry.toString())) {
+					result.put(entry.toString(), entry);
+				}
+			}
+		}
+		return new ArrayList<>(result.values());
+	}
+
+	private PredicateCompletion[] getEntries(String context) throws PrologProcessException {
+		PredicateCompletion[] entries = contexts.get(context);
+		if (entries != null) {
+			return entries;
+		}
+		int startGeneration = generation.get();
+		List<Map<String, Object>> results = process.queryAll(bT(PDTCommonPredicates.COMPLETION_INDEX_ENTRY,
+				quoteAtom(context),
+				"Module",
+				"Name",
+				"Arity",
+				"Visibility",
+				"IsBuiltin",
+				"IsDeprecated",
+				"NeedsQuotes"));
+		entries = new PredicateCompletion[results.size()];
+		int i = 0;
+		for (Map<String, Object> result : results) {
+			entries[i++] = new PredicateCompletion(process,
+					result.get("Module").toString(),
+					result.get("Name").toString(),
+					Integer.parseInt(result.get("Arity").toString()),
+					result.get("Visibility").toString(),
+					Boolean.parseBoolean(result.get("IsBuiltin").toString()),
+					Boolean.parseBoolean(result.get("IsDeprecated").toString()),
+					Boolean.parseBoolean(result.get("NeedsQuotes").toString()));
+		}
+		Arrays.sort(entries, BY_LOWER_CASE_NAME);
+		// don't keep entries which may have been read before a consult finished
+		if (generation.get() == startGeneration) {
+			contexts.put(context, entries);
+		}
+		return entries;
+	}
+
+	private List<String> getFileContexts(String file) throws PrologProcessException {
+		List<String> fileModules = fileContexts.get(file);
+		if (fileModules != null) {
+			return fileModules;
+		}
+		int startGeneration = generation.get();
+		List<Map<String, Object>> results = process.queryAll(bT(PDTCommonPredicates.COMPLETION_CONTEXT, quoteAtom(file), "Context"));
+		fileModules = new ArrayList<>(results.size());
+		for (Map<String, Object> result : results) {
+			fileModules.add(result.get("Context").toString());
+		}
+		fileModules = Collections.unmodifiableList(fileModules);
+		if (generation.get() == startGeneration) {
+			fileContexts.put(file, fileModules);
+		}
+		return fileModules;
+	}
+
+	/**
+	 * Drops the entries affected by a consult.
+	 * 
+	 * @param delta
+	 * @throws PrologProcessException
+	 */
+	public void update(ConsultDelta delta) throws PrologProcessException {
+		if (delta.isEmpty()) {
+			return;
+		}
+		generation.incrementAndGet();
+		List<String> changedFiles = new ArrayList<>();
+		for (ConsultDelta.Kind kind : ConsultDelta.Kind.values()) {
+			changedFiles.addAll(delta.getFiles(kind));
+		}
+		if (!delta.getFiles(ConsultDelta.Kind.ADDED).isEmpty() || !delta.getFiles(ConsultDelta.Kind.REMOVED).isEmpty()) {
+			// new or removed files may change the modules of any file
+			fileContexts.clear();
+		} else {
+			for (String file : changedFiles) {
+				fileContexts.remove(file);
+			}
+		}
+
+		ArrayList<String> quotedFiles = new ArrayList<>(changedFiles.size());
+		for (String file : changedFiles) {
+			quotedFiles.add(quoteAtom(file));
+		}
+		Set<String> changedModules = new HashSet<>();
+		for (Map<String, Object> result : process.queryAll(bT(PDTCommonPredicates.COMPLETION_FILE_MODULE, listToArgList(quotedFiles), "Module"))) {
+			changedModules.add(result.get("Module").toString());
+		}
+		if (changedModules.contains("user") || changedModules.contains("system")) {
+			// predicates of these modules are visible everywhere
+			contexts.clear();
+			return;
+		}
+		for (Map.Entry<String, PredicateCompletion[]> context : contexts.entrySet()) {
+			if (changedModules.contains(context.getKey()) || usesAny(context.getValue(), changedModules)) {
+				contexts.remove(context.getKey(), context.getValue());
+			}
+		}
+	}
+
+	private boolean usesAny(PredicateCompletion[] entries, Set<String> modules) {
+		for (PredicateCompletion entry : entries) {
+			if (modules.contains(entry.getModule())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drops all entries.
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		contexts.clear();
+		fileContexts.clear();
+	}
+
+}
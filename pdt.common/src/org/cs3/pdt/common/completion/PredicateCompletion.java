@@ -0,0 +1,150 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.common.completion;
+
+import static org.cs3.prolog.connector.common.QueryUtils.bT;
+import static org.cs3.prolog.connector.common.QueryUtils.quoteAtom;
+
+import java.util.List;
+import java.util.Map;
+
+import org.cs3.pdt.common.PDTCommonPredicates;
+import org.cs3.pdt.common.search.SearchConstants;
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+
+/**
+ * A predicate in the {@link CompletionIndex}. The argument names and the
+ * documentation are fetched from the process when they are requested for the
+ * first time.
+ */
+public class PredicateCompletion {
+
+	private final PrologProcess process;
+	private final String module;
+	private final String name;
+	private final int arity;
+	private final String visibility;
+	private final boolean builtin;
+	private final boolean deprecated;
+	private final boolean needsQuotes;
+	final String lowerCaseName;
+
+	private boolean documentationFetched;
+	private List<String> argNames;
+	private String docKind;
+	private String doc;
+
+	PredicateCompletion(PrologProcess process, String module, String name, int arity, String visibility, boolean builtin, boolean deprecated, boolean needsQuotes) {
+		this.process = process;
+		this.module = module;
+		this.name = name;
+		this.arity = arity;
+		this.visibility = visibility;
+		this.builtin = builtin;
+		this.deprecated = deprecated;
+		this.needsQuotes = needsQuotes;
+		lowerCaseName = name.toLowerCase();
+	}
+
+	public String getModule() {
+		return module;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getArity() {
+		return arity;
+	}
+
+	public String getVisibility() {
+		return visibility;
+	}
+
+	public boolean isBuiltin() {
+		return builtin;
+	}
+
+	public boolean isDeprecated() {
+		return deprecated;
+	}
+
+	public boolean needsQuotes() {
+		return needsQuotes;
+	}
+
+	/**
+	 * @return the argument names or null if they are unknown
+	 */
+	public List<String> getArgNames() {
+		fetchDocumentation();
+		return argNames;
+	}
+
+	/**
+	 * @return one of the <code>COMPLETION_DOC_KIND_*</code> constants of
+	 *         {@link SearchConstants}
+	 */
+	public String getDocKind() {
+		fetchDocumentation();
+		return docKind;
+	}
+
+	public String getDoc() {
+		fetchDocumentation();
+		return doc;
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized void fetchDocumentation() {
+		if (documentationFetched) {
+			return;
+		}
+		documentationFetched = true;
+		docKind = SearchConstants.COMPLETION_DOC_KIND_NODOC;
+		try {
+			Map<String, Object> result = process.queryOnce(bT(PDTCommonPredicates.COMPLETION_DOCUMENTATION,
+					quoteAtom(module),
+					quoteAtom(name),
+					arity,
+					"ArgNames",
+					"DocKind",
+					"Doc"));
+			if (result == null) {
+				return;
+			}
+			if (result.get("ArgNames") instanceof List<?>) {
+				argNames = (List<String>) result.get("ArgNames");
+			}
+			if (result.get("DocKind") != null) {
+				docKind = result.get("DocKind").toString();
+			}
+			if (result.get("Doc") != null) {
+				doc = result.get("Doc").toString();
+			}
+		} catch (PrologProcessException e) {
+			Debug.report(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return module + ":" + name + "/" + arity;
+	}
+
+}
@@ -0,0 +1,54 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.common.internal;
+
+import java.util.List;
+
+import org.cs3.pdt.common.PrologProcessStartListener;
+import org.cs3.pdt.common.completion.CompletionIndex;
+import org.cs3.pdt.connector.service.ConsultDelta;
+import org.cs3.pdt.connector.service.IncrementalConsultListener;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Keeps the {@link CompletionIndex} of a process up to date.
+ */
+public class CompletionIndexUpdater implements IncrementalConsultListener, PrologProcessStartListener {
+
+	@Override
+	public void beforeConsult(PrologProcess process, List<IFile> files, IProgressMonitor monitor) throws PrologProcessException {
+	}
+
+	@Override
+	public void afterConsult(PrologProcess process, List<IFile> files, List<String> allConsultedFiles, IProgressMonitor monitor) throws PrologProcessException {
+		CompletionIndex.getIndex(process).clear();
+		monitor.done();
+	}
+
+	@Override
+	public void afterConsult(PrologProcess process, List<IFile> files, ConsultDelta delta, IProgressMonitor monitor) throws PrologProcessException {
+		CompletionIndex.getIndex(process).update(delta);
+		monitor.done();
+	}
+
+	@Override
+	public void prologProcessStarted(PrologProcess process) {
+		CompletionIndex.getIndex(process).clear();
+	}
+
+}
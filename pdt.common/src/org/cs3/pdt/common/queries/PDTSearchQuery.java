@@ -17,7 +17,6 @@ package org.cs3.pdt.common.queries;
 import static org.cs3.prolog.connector.common.QueryUtils.bT;
 
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,8 +41,10 @@ import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.ParserUtils;
 import org.cs3.prolog.connector.common.QueryUtils;
 import org.cs3.prolog.connector.process.PrologException;
+import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.session.SolutionConsumer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -51,7 +52,6 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.search.ui.ISearchQuery;
 import org.eclipse.search.ui.ISearchResult;
 import org.eclipse.search.ui.text.Match;
@@ -122,26 +122,30 @@ public abstract class PDTSearchQuery implements ISearchQuery {
 	 * @throws NumberFormatException
 	 */
 	private IStatus doSearch(IProgressMonitor monitor) throws PrologProcessException, PrologException, IOException, NumberFormatException {
-		PrologSession session = PDTCommonUtil.getActivePrologProcess().getSession();
-		monitor.beginTask("Searching...", 2);
-		monitor.subTask("Running Prolog query");
-		List<Map<String, Object>> results = findReferencedClauses(session, new SubProgressMonitor(monitor, 1));
-		monitor.subTask("Processing results");
-		processFoundClauses(results, new SubProgressMonitor(monitor, 1));
+		// unbound variables are kept in the results, like queryAll does
+		PrologSession session = PDTCommonUtil.getActivePrologProcess().getSession(PrologProcess.DEFAULT | PrologProcess.UNBOUND_VARIABLES);
+		try {
+			monitor.beginTask("Searching...", IProgressMonitor.UNKNOWN);
+			monitor.subTask("Running Prolog query");
+			// the results are streamed, so matches are shown while the query is still running
+			findReferencedClauses(session, monitor);
+		} finally {
+			session.dispose();
+		}
 		monitor.done();
 		return Status.OK_STATUS;
 	}
 
 	/**
 	 * @param session
-	 * @return
+	 * @param monitor
 	 * @throws PrologException
 	 * @throws PrologProcessException
+	 * @throws IOException
 	 */
-	private List<Map<String, Object>> findReferencedClauses(PrologSession session, IProgressMonitor monitor)
-			throws PrologException, PrologProcessException {
+	private void findReferencedClauses(PrologSession session, IProgressMonitor monitor)
+			throws PrologException, PrologProcessException, IOException {
 		
-		monitor.beginTask("", 1);
 //		String module;               
 //		if (goal.getModule() != null && !goal.getModule().isEmpty()) {
 //			module = Util.quoteAtomIfNeeded(goal.getModule());
@@ -151,51 +155,104 @@ public abstract class PDTSearchQuery implements ISearchQuery {
 
 		String query = buildSearchQuery();
 		
-		List<Map<String, Object>> clauses = getResultForQuery(session, query);
-		
-		// Bindung der Modulvariablen aus vorheriger Query abfragen und im Goal setzen.
-//		if (clauses.size() > 0 && goal.getModule() == null){
-//			goal.setModule(clauses.get(0).get("Module").toString());
-//		}
-		monitor.done();
-		return clauses;
+		if (overridesGetResultForQuery()) {
+			processResults(getResultForQuery(session, query), monitor);
+		} else {
+			processResultsForQuery(session, query, monitor);
+		}
 	}
 	
 	abstract protected String buildSearchQuery();
 
+	/**
+	 * @deprecated the results are streamed now, override
+	 *             {@link #processResultsForQuery(PrologSession, String, IProgressMonitor)}
+	 *             instead. For compatibility, the results of a subclass
+	 *             overriding this method are still used.
+	 */
+	@Deprecated
 	protected List<Map<String, Object>> getResultForQuery(PrologSession session, String query) 
 			throws PrologProcessException {
 		Debug.info(query);
-				
 		List<Map<String, Object>> clauses = session.queryAll(query);
-        return clauses;
+		return clauses;
+	}
+
+	private boolean overridesGetResultForQuery() {
+		for (Class<?> c = getClass(); c != PDTSearchQuery.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod("getResultForQuery", PrologSession.class, String.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// not declared here, look at the superclass
+			}
+		}
+		return false;
+	}
+
+	private void processResults(List<Map<String, Object>> clauses, IProgressMonitor monitor) throws IOException {
+		FoundClauseProcessor processor = new FoundClauseProcessor(monitor);
+		monitor.subTask("Processing results");
+		for (Map<String, Object> m : clauses) {
+			if (!processor.solutionFound(m)) {
+				break;
+			}
+		}
+		processor.checkStatus();
+	}
+
+	protected void processResultsForQuery(PrologSession session, String query, IProgressMonitor monitor) 
+			throws PrologException, PrologProcessException, IOException {
+		Debug.info(query);
+		
+		FoundClauseProcessor processor = new FoundClauseProcessor(monitor);
+		monitor.subTask("Processing results");
+		session.queryAll(query, PrologSession.DEFAULT_BATCH_SIZE, processor);
+		processor.checkStatus();
 	}
 
 	/**
-	 * @param clauses
-	 * @throws IOException
-	 * @throws NumberFormatException
+	 * Adds a match for every result of the search query. Errors and
+	 * cancellation stop the query, they are reported by
+	 * {@link #checkStatus()} once the query has been stopped.
 	 */
-	private void processFoundClauses(List<Map<String, Object>> clauses, IProgressMonitor monitor)
-	throws IOException, NumberFormatException {
-		Match match;
-		matchElements.clear();
-		predicateElements.clear();
-		directiveElements.clear();
-		monitor.beginTask("", clauses.size());
-		for (Iterator<Map<String,Object>> iterator = clauses.iterator(); iterator.hasNext();) {
-			Map<String,Object> m = iterator.next();
+	private class FoundClauseProcessor implements SolutionConsumer {
+
+		private final IProgressMonitor monitor;
+		private IOException exception;
+
+		FoundClauseProcessor(IProgressMonitor monitor) {
+			this.monitor = monitor;
+			matchElements.clear();
+			predicateElements.clear();
+			directiveElements.clear();
+		}
+
+		@Override
+		public boolean solutionFound(Map<String, Object> m) {
 			Debug.info(m.toString());
-			match = constructPrologMatchForAResult(m);
-			if ((result != null) && (match != null)) {
-				result.addMatch(match);
+			try {
+				Match match = constructPrologMatchForAResult(m);
+				if ((result != null) && (match != null)) {
+					result.addMatch(match);
+				}
+			} catch (IOException e) {
+				exception = e;
+				return false;
 			}
 			monitor.worked(1);
+			return !monitor.isCanceled();
+		}
+
+		void checkStatus() throws IOException {
+			if (exception != null) {
+				throw exception;
+			}
 			if (monitor.isCanceled()) {
 				throw new OperationCanceledException();
 			}
 		}
-		monitor.done();
+
 	}
 	
 	protected abstract Match constructPrologMatchForAResult(Map<String,Object> m) throws IOException;
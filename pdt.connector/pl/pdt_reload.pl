@@ -16,10 +16,14 @@
 :- module( pdt_reload,
          [ pdt_reload/1                           % Called from ConsultActionDelegate.run()
          , pdt_reload/2                           % Called from ConsultActionDelegate.run()
+         , pdt_reload_incremental/1               % Called from PrologProcessService.executeReload()
+         , pdt_reload_incremental/2               % Called from PrologProcessService.executeReload()
+         , reload_delta/4                         % Called from PrologProcessService.collectConsultDelta()
 %         , activate_warning_and_error_tracing/0   % Called from PLMarkerUtils.addMarkers()
 %         , deactivate_warning_and_error_tracing/0 % Called from PLMarkerUtils.addMarkers()
          , errors_and_warnings/5                  % Called from PLMarkerUtils.run()
          , reloaded_file/1
+         , file_reload_generation/2
          , wait_for_reload_finished/0
          ]).
 
@@ -30,6 +34,8 @@
 
 :- use_module(split_file_path).
 :- use_module(library(lists)).
+:- use_module(library(pairs)).
+:- use_module(library(apply)).
 :- use_module(library(memfile)).
 :- use_module(library(debug)).
 :- if(current_prolog_flag(dialect, swi)).
@@ -48,6 +54,10 @@
 :- multifile(reload_message/2).
 
 pdt_reload(FileOrFiles, MessageTerm) :-
+	print_reload_message(MessageTerm),
+	pdt_reload(FileOrFiles).
+
+print_reload_message(MessageTerm) :-
 	(	nonvar(MessageTerm)
 	->	(	atomic(MessageTerm)
 		->	Message = MessageTerm
@@ -59,8 +69,7 @@ pdt_reload(FileOrFiles, MessageTerm) :-
 		write(user_error, Message),
 		nl(user_error)
 	;	true
-	),
-	pdt_reload(FileOrFiles).
+	).
 
 pdt_reload(FileOrFiles) :-
 	with_mutex('reloadMutex',(
@@ -111,6 +120,196 @@ notify_reload_listeners(Files) :-
 	fail.
 notify_reload_listeners(_).
 
+               /*************************************
+                * INCREMENTAL RELOAD                *
+                *************************************/
+
+%% pdt_reload_incremental(+FileOrFiles, +MessageTerm) is det.
+%% pdt_reload_incremental(+FileOrFiles) is det.
+%
+% Like pdt_reload/1, but an included file is replaced by the file
+% including it and the files are reloaded before the files loading them.
+% Every given file is reloaded, even if it has not been modified, so
+% consulting a file still resets its dynamic predicates and runs its
+% initialization again.
+%
+% The differences between the files and predicates before and after the
+% reload are available via reload_delta/4.
+
+pdt_reload_incremental(FileOrFiles, MessageTerm) :-
+	print_reload_message(MessageTerm),
+	pdt_reload_incremental(FileOrFiles).
+
+pdt_reload_incremental(FileOrFiles) :-
+	(	is_list(FileOrFiles)
+	->	Files = FileOrFiles
+	;	Files = [FileOrFiles]
+	),
+	with_mutex('reloadMutex',(
+		affected_files(Files, Affected),
+		findall(F, source_file(F), LoadedBefore),
+		maplist(file_snapshot, Affected, Before),
+		setup_call_cleanup(
+			activate_warning_and_error_tracing,
+			pdt_reload__(Affected),
+			deactivate_warning_and_error_tracing
+		),
+		record_reload_delta(Before, LoadedBefore)
+	)),
+	notify_reload_listeners(Affected).
+
+affected_files(Files, Affected) :-
+	findall(F, (member(File, Files), affected_file(File, F)), Fs0),
+	list_to_set(Fs0, Fs1),
+	findall(Depth-F, (member(F, Fs1), load_depth(F, [], Depth)), Pairs0),
+	% deeper files are loaded by the others, so they are reloaded first
+	sort(1, @>=, Pairs0, Pairs),
+	pairs_values(Pairs, Affected).
+
+affected_file(File, File) :-
+	split_file_path(File, _Directory, _FileName, _, lgt),
+	!.
+:- if(current_prolog_flag(dialect, swi)).
+affected_file(File, Affected) :-
+	source_file_property(File, included_in(Parent, _)),
+	!,
+	affected_file(Parent, Affected).
+:- endif.
+affected_file(File, File).
+
+load_depth(File, Visited, Depth) :-
+	findall(D,
+		(	source_file_property(File, load_context(_, Parent:_, _)),
+			Parent \== user,
+			\+ memberchk(Parent, Visited),
+			load_depth(Parent, [File|Visited], D0),
+			D is D0 + 1
+		),
+		Ds),
+	max_list([0|Ds], Depth).
+
+file_snapshot(File, snapshot(File, Loaded, Includes, Predicates)) :-
+	(	loaded_source_file(File)
+	->	Loaded = true
+	;	Loaded = false
+	),
+	findall(I, source_file_property(File, includes(I, _)), Includes),
+	file_predicates(File, Predicates).
+
+% Logtalk source files are never a source_file/1, they are compiled
+% into intermediate Prolog files.
+loaded_source_file(File) :-
+	split_file_path(File, _Directory, _FileName, _, lgt),
+	!,
+	catch(logtalk::loaded_file(File), _, fail).
+loaded_source_file(File) :-
+	source_file(File).
+
+file_predicates(File, Predicates) :-
+	findall(PI-Hash, file_predicate(File, PI, Hash), Predicates0),
+	sort(Predicates0, Predicates).
+
+file_predicate(File, PI, Hash) :-
+	source_file(M:Head, File),
+	functor(Head, Name, Arity),
+	format(atom(PI), '~q', [M:Name/Arity]),
+	(	catch(
+			(	findall(Head-Body, (clause(M:Head, Body, Ref), clause_property(Ref, source(File))), Clauses),
+				variant_sha1(Clauses, Hash)
+			),
+			_,
+			fail
+		)
+	->	true
+	;	Hash = unknown
+	).
+
+:- dynamic(reload_delta__/4).
+
+record_reload_delta(Before, LoadedBefore) :-
+	retractall(reload_delta__(_, _, _, _)),
+	forall(
+		member(snapshot(File, Loaded, Includes, Predicates), Before),
+		record_file_delta(File, Loaded, Includes, Predicates)
+	),
+	forall(
+		(	reloaded_file__(File),
+			\+ memberchk(snapshot(File, _, _, _), Before),
+			\+ reload_delta__(file, _, File, _)
+		),
+		record_side_effect_delta(File, LoadedBefore)
+	).
+
+% A reloaded Logtalk file is recorded by pdt_reload__/1 in reloaded_file__/1
+% (like its intermediate Prolog file by the message hook).
+record_file_delta(File, Loaded, _Includes, _PredicatesBefore) :-
+	split_file_path(File, _Directory, _FileName, _, lgt),
+	!,
+	(	reloaded_file__(File)
+	->	(	Loaded == true
+		->	assertz(reload_delta__(file, changed, File, ''))
+		;	assertz(reload_delta__(file, added, File, ''))
+		)
+	;	true
+	).
+record_file_delta(File, Loaded, Includes, PredicatesBefore) :-
+	(	\+ source_file(File)
+	->	(	Loaded == true
+		->	assertz(reload_delta__(file, removed, File, ''))
+		;	true
+		)
+	;	Loaded == true
+	->	assertz(reload_delta__(file, changed, File, ''))
+	;	assertz(reload_delta__(file, added, File, ''))
+	),
+	forall(
+		(	member(Included, Includes),
+			\+ source_file_property(File, includes(Included, _))
+		),
+		assertz(reload_delta__(file, removed, Included, ''))
+	),
+	file_predicates(File, PredicatesAfter),
+	forall(
+		(	member(PI-Hash, PredicatesAfter),
+			\+ (member(PI-OldHash, PredicatesBefore), OldHash == Hash)
+		),
+		(	memberchk(PI-_, PredicatesBefore)
+		->	assertz(reload_delta__(predicate, changed, File, PI))
+		;	assertz(reload_delta__(predicate, added, File, PI))
+		)
+	),
+	forall(
+		(	member(PI-_, PredicatesBefore),
+			\+ memberchk(PI-_, PredicatesAfter)
+		),
+		assertz(reload_delta__(predicate, removed, File, PI))
+	).
+
+% files which have been loaded by one of the reloaded files
+record_side_effect_delta(File, LoadedBefore) :-
+	(	memberchk(File, LoadedBefore)
+	->	Kind = changed
+	;	Kind = added
+	),
+	assertz(reload_delta__(file, Kind, File, '')),
+	file_predicates(File, Predicates),
+	forall(
+		member(PI-_, Predicates),
+		assertz(reload_delta__(predicate, Kind, File, PI))
+	).
+
+%% reload_delta(?Type, ?Kind, ?File, ?Predicate) is nondet.
+%
+% Changes caused by the last call to pdt_reload_incremental/1.
+% Type is file or predicate, Kind is added, changed or removed. For
+% predicates, Predicate is the quoted Module:Name/Arity of the predicate
+% and File is the file the predicate was loaded from, otherwise Predicate
+% is ''.
+
+reload_delta(Type, Kind, File, Predicate) :-
+	wait_for_reload_finished,
+	reload_delta__(Type, Kind, File, Predicate).
+
 %pdt_reload_listener(Files) :-
 %    atomic_list_concat(Files, '<>', FileList),
 %    catch(process_observe:process_notify(file_loaded,FileList),_,true).
@@ -134,6 +333,7 @@ activate_warning_and_error_tracing :-
 	assertz(warning_and_error_tracing).
 
 deactivate_warning_and_error_tracing :-
+	forall(reloaded_file__(File), increment_reload_generation(File)),
 	retractall(in_reload),
 	retractall(warning_and_error_tracing).
  
@@ -201,6 +401,42 @@ errors_and_warnings(Level,Line,0,Message, File) :-
 reloaded_file(LoadedFile) :-
 	wait_for_reload_finished,
 	reloaded_file__(LoadedFile).
+
+%% file_reload_generation(+File, -Generation) is det.
+%
+% Generation is an atom which changes whenever File (or a file
+% including it) is reloaded by pdt_reload/1 or loaded from a newer
+% version of the file. Clients caching information about File can use
+% it to check whether their information is still valid. The generation
+% includes the process id, so it also changes when Prolog is restarted.
+% Waits for a running reload to finish.
+
+file_reload_generation(File, Generation) :-
+	wait_for_reload_finished,
+	(	reload_generation__(File, Count)
+	->	true
+	;	Count = 0
+	),
+	(	source_file_property(File, modified(Time))
+	->	true
+	;	Time = 0
+	),
+	current_prolog_flag(pid, Pid),
+	format(atom(Generation), '~w-~w-~w', [Pid, Count, Time]).
+
+:- dynamic(reload_generation__/2).
+
+increment_reload_generation(File) :-
+	forall(
+		(	Reloaded = File
+		;	source_file_property(File, includes(Reloaded, _))
+		),
+		(	retract(reload_generation__(Reloaded, Count))
+		->	Count1 is Count + 1,
+			assertz(reload_generation__(Reloaded, Count1))
+		;	assertz(reload_generation__(Reloaded, 1))
+		)
+	).
    
 wait_for_reload_finished :-
    reset_timout_counter,
@@ -20,8 +20,11 @@ public class PrologConnectorPredicates {
 	
 	// pdt reload
 	public static final String PDT_RELOAD = "pdt_reload:pdt_reload";
+	public static final String PDT_RELOAD_INCREMENTAL = "pdt_reload:pdt_reload_incremental";
+	public static final String RELOAD_DELTA = "pdt_reload:reload_delta";
 	public static final String ERRORS_AND_WARNINGS = "pdt_reload:errors_and_warnings";
 	public static final String RELOADED_FILE = "pdt_reload:reloaded_file";
+	public static final String FILE_RELOAD_GENERATION = "pdt_reload:file_reload_generation";
 	public static final String WAIT_FOR_RELOAD_FINISHED = "pdt_reload:wait_for_reload_finished";
 
 }
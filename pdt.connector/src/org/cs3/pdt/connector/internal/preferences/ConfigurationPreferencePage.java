@@ -52,6 +52,12 @@ public class ConfigurationPreferencePage extends StructuredFieldEditorPreference
 	private MyDirectoryFieldEditor serverLogDir;
 	private MyIntegerFieldEditor timeoutFieldEditor;
 	private MyBooleanFieldEditor hidePrologWindow;
+	private MyBooleanFieldEditor framedProtocol;
+	private MyBooleanFieldEditor warmStandby;
+	private MyBooleanFieldEditor parallelHooks;
+	private MyBooleanFieldEditor bootstrapSnapshot;
+	private MyIntegerFieldEditor sessionPoolSize;
+	private MyIntegerFieldEditor sessionPoolTimeout;
 
 	private ArrayList<FieldEditor> editors = new ArrayList<FieldEditor>();
 
@@ -133,6 +139,26 @@ public class ConfigurationPreferencePage extends StructuredFieldEditorPreference
 		hidePrologWindow = new MyBooleanFieldEditor(Connector.PREF_HIDE_PLWIN, "Hide prolog process window (Windows only)", getFieldEditorParent());
 		addField(hidePrologWindow);
 
+		framedProtocol = new MyBooleanFieldEditor(Connector.PREF_FRAMED_PROTOCOL, "Use framed protocol for query results", getFieldEditorParent());
+		addField(framedProtocol);
+
+		warmStandby = new MyBooleanFieldEditor(Connector.PREF_WARM_STANDBY, "Keep a standby process for fast restarts", getFieldEditorParent());
+		addField(warmStandby);
+
+		parallelHooks = new MyBooleanFieldEditor(Connector.PREF_PARALLEL_HOOKS, "Initialize independent startup hooks in parallel", getFieldEditorParent());
+		addField(parallelHooks);
+
+		bootstrapSnapshot = new MyBooleanFieldEditor(Connector.PREF_BOOTSTRAP_SNAPSHOT, "Load the PDT libraries from a precompiled snapshot", getFieldEditorParent());
+		addField(bootstrapSnapshot);
+
+		sessionPoolSize = new MyIntegerFieldEditor(Connector.PREF_SESSION_POOL_SIZE, "Session pool size", getFieldEditorParent());
+		sessionPoolSize.getLabelControl(getFieldEditorParent()).setToolTipText("Maximum number of connections of closed sessions which are kept for later sessions");
+		addField(sessionPoolSize);
+
+		sessionPoolTimeout = new MyIntegerFieldEditor(Connector.PREF_SESSION_POOL_TIMEOUT, "Session pool timeout", getFieldEditorParent());
+		sessionPoolTimeout.getLabelControl(getFieldEditorParent()).setToolTipText("Milliseconds after which an unused pooled connection is closed, 0 to keep it forever");
+		addField(sessionPoolTimeout);
+
 		adjustLayoutForElement(executableGroup);
 	}
 
@@ -196,6 +196,12 @@ public class PreferenceConfiguration {
 		store.setDefault(Connector.PREF_TIMEOUT, 15000);
 		store.setDefault(Connector.PREF_PORT, 9944);
 		store.setDefault(Connector.PREF_HIDE_PLWIN, true);
+		store.setDefault(Connector.PREF_FRAMED_PROTOCOL, false);
+		store.setDefault(Connector.PREF_WARM_STANDBY, false);
+		store.setDefault(Connector.PREF_PARALLEL_HOOKS, false);
+		store.setDefault(Connector.PREF_BOOTSTRAP_SNAPSHOT, false);
+		store.setDefault(Connector.PREF_SESSION_POOL_SIZE, 16);
+		store.setDefault(Connector.PREF_SESSION_POOL_TIMEOUT, 300000);
 		
 		store.setDefault(Connector.PREF_SERVER_LOGDIR, PDTConnectorPlugin.getDefault().getStateLocation().toOSString());
 	}
@@ -27,8 +27,10 @@ import org.cs3.pdt.connector.PDTConnectorPlugin;
 import org.cs3.pdt.connector.PrologConnectorPredicates;
 import org.cs3.pdt.connector.registry.PrologProcessRegistry;
 import org.cs3.pdt.connector.service.ActivePrologProcessListener;
+import org.cs3.pdt.connector.service.ConsultDelta;
 import org.cs3.pdt.connector.service.ConsultListener;
 import org.cs3.pdt.connector.service.IPrologProcessService;
+import org.cs3.pdt.connector.service.IncrementalConsultListener;
 import org.cs3.pdt.connector.service.PDTReloadExecutor;
 import org.cs3.pdt.connector.subscription.DefaultSubscription;
 import org.cs3.pdt.connector.subscription.Subscription;
@@ -294,12 +296,17 @@ public class PrologProcessService implements IPrologProcessService {
 		
 		if (success) {
 			monitor.subTask("Collect all consulted files");
-			List<String> allConsultedFiles = collectConsultedFiles(process, new SubProgressMonitor(monitor, consultListenersClone.size()));
+			ConsultDelta delta = collectConsultDelta(process, new SubProgressMonitor(monitor, consultListenersClone.size()));
+			List<String> allConsultedFiles = delta.getConsultedFiles();
 			
 			for (ConsultListener listener : consultListenersClone) {
 				monitor.subTask("Notify Listener");
 				try {
-					listener.afterConsult(process, files, allConsultedFiles, new SubProgressMonitor(monitor, 1));
+					if (listener instanceof IncrementalConsultListener) {
+						((IncrementalConsultListener) listener).afterConsult(process, files, delta, new SubProgressMonitor(monitor, 1));
+					} else {
+						listener.afterConsult(process, files, allConsultedFiles, new SubProgressMonitor(monitor, 1));
+					}
 				} catch (Exception e) {
 					Debug.report(e);
 				}
@@ -310,19 +317,28 @@ public class PrologProcessService implements IPrologProcessService {
 		this.activePrologProcess.setConsulted(true);
 	}
 	
-	private List<String> collectConsultedFiles(PrologProcess process, IProgressMonitor monitor) throws PrologProcessException {
+	private ConsultDelta collectConsultDelta(PrologProcess process, IProgressMonitor monitor) throws PrologProcessException {
 		monitor.beginTask("", 1);
 		
-		List<String> result = new ArrayList<String>();
+		ConsultDelta delta = new ConsultDelta();
 		
-		List<Map<String, Object>> reloadedFiles = process.queryAll(bT(PrologConnectorPredicates.RELOADED_FILE, "File"));
-		for (Map<String, Object> reloadedFile : reloadedFiles) {
-			result.add(reloadedFile.get("File").toString());
+		List<Map<String, Object>> changes = process.queryAll(bT(PrologConnectorPredicates.RELOAD_DELTA, "Type", "Kind", "File", "Predicate"));
+		for (Map<String, Object> change : changes) {
+			ConsultDelta.Kind kind = ConsultDelta.Kind.fromPrologName(change.get("Kind").toString());
+			if (kind == null) {
+				continue;
+			}
+			String file = change.get("File").toString();
+			if ("file".equals(change.get("Type"))) {
+				delta.addFile(kind, file);
+			} else {
+				delta.addPredicate(kind, file, change.get("Predicate").toString());
+			}
 		}
 		
 		monitor.done();
 		
-		return result;
+		return delta;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -335,9 +351,9 @@ public class PrologProcessService implements IPrologProcessService {
 		String fileList = FileUtils.quotedPrologFileNameList(files);
 		String query;
 		if (message != null) {
-			query = bT(PrologConnectorPredicates.PDT_RELOAD, fileList, message);
+			query = bT(PrologConnectorPredicates.PDT_RELOAD_INCREMENTAL, fileList, message);
 		} else {
-			query = bT(PrologConnectorPredicates.PDT_RELOAD, fileList);
+			query = bT(PrologConnectorPredicates.PDT_RELOAD_INCREMENTAL, fileList);
 		}
 		for (PDTReloadExecutor executor : executorsClone) {
 			monitor.subTask("Execute reload");
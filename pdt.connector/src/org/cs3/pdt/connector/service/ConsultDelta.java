@@ -0,0 +1,128 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.connector.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The changes caused by consulting files: the files and predicates which
+ * have been added, changed or removed.
+ * 
+ * @see IncrementalConsultListener
+ */
+public class ConsultDelta {
+
+	public enum Kind {
+		ADDED, CHANGED, REMOVED;
+
+		/**
+		 * @param name
+		 *            added, changed or removed
+		 * @return the kind or null for an unknown name
+		 */
+		public static Kind fromPrologName(String name) {
+			for (Kind kind : values()) {
+				if (kind.name().equalsIgnoreCase(name)) {
+					return kind;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final Map<Kind, List<String>> files = new EnumMap<Kind, List<String>>(Kind.class);
+	private final Map<Kind, List<String>> predicates = new EnumMap<Kind, List<String>>(Kind.class);
+	private final Map<String, String> predicateFiles = new HashMap<String, String>();
+
+	public ConsultDelta() {
+		for (Kind kind : Kind.values()) {
+			files.put(kind, new ArrayList<String>());
+			predicates.put(kind, new ArrayList<String>());
+		}
+	}
+
+	public void addFile(Kind kind, String file) {
+		files.get(kind).add(file);
+	}
+
+	/**
+	 * @param kind
+	 * @param file
+	 *            the file the predicate has been loaded from
+	 * @param predicate
+	 *            the predicate as Module:Name/Arity
+	 */
+	public void addPredicate(Kind kind, String file, String predicate) {
+		predicates.get(kind).add(predicate);
+		predicateFiles.put(predicate, file);
+	}
+
+	/**
+	 * @param kind
+	 * @return the files of the given kind
+	 */
+	public List<String> getFiles(Kind kind) {
+		return Collections.unmodifiableList(files.get(kind));
+	}
+
+	/**
+	 * @param kind
+	 * @return the predicates of the given kind as Module:Name/Arity
+	 */
+	public List<String> getPredicates(Kind kind) {
+		return Collections.unmodifiableList(predicates.get(kind));
+	}
+
+	/**
+	 * @param predicate
+	 *            a predicate contained in this delta
+	 * @return the file the predicate has been loaded from
+	 */
+	public String getFile(String predicate) {
+		return predicateFiles.get(predicate);
+	}
+
+	/**
+	 * @return the added and changed files
+	 */
+	public List<String> getConsultedFiles() {
+		List<String> result = new ArrayList<String>(files.get(Kind.ADDED));
+		result.addAll(files.get(Kind.CHANGED));
+		return result;
+	}
+
+	/**
+	 * @return true if no file has been (re)loaded or removed
+	 */
+	public boolean isEmpty() {
+		for (List<String> list : files.values()) {
+			if (!list.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "ConsultDelta[files=" + files + ", predicates=" + predicates + "]";
+	}
+
+}
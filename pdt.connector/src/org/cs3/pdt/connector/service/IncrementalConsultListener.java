@@ -0,0 +1,52 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.connector.service;
+
+import java.util.List;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * A {@link ConsultListener} which is told exactly which files and predicates
+ * have changed, so it can update its data incrementally.
+ * <p>
+ * For listeners implementing this interface,
+ * {@link #afterConsult(PrologProcess, List, ConsultDelta, IProgressMonitor)}
+ * is called instead of
+ * {@link ConsultListener#afterConsult(PrologProcess, List, List, IProgressMonitor)}.
+ */
+public interface IncrementalConsultListener extends ConsultListener {
+
+	/**
+	 * A list of toplevel files has been consulted successfully into the given
+	 * {@link PrologProcess}
+	 * 
+	 * @param process
+	 *            the given {@link PrologProcess}
+	 * @param files
+	 *            the list of toplevel files
+	 * @param delta
+	 *            the files and predicates which have been added, changed or
+	 *            removed
+	 * @param monitor
+	 *            a progress monitor
+	 * @throws PrologProcessException
+	 */
+	void afterConsult(PrologProcess process, List<IFile> files, ConsultDelta delta, IProgressMonitor monitor) throws PrologProcessException;
+
+}
@@ -15,7 +15,11 @@
 package org.cs3.pdt.connector.util;
 
 import java.io.File;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.cs3.prolog.connector.common.LogicalOffsetIndex;
 import org.cs3.prolog.connector.common.Util;
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
@@ -30,7 +34,9 @@ import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.dialogs.ErrorDialog;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.IEditorInput;
@@ -287,11 +293,70 @@ public final class UIUtils {
 	}
 
 	public static int logicalToPhysicalOffset(IDocument doc, int offset) {
-		return Util.logicalToPhysicalOffset(doc.get(), offset);
+		return getOffsetIndex(doc).logicalToPhysicalOffset(offset);
 	}
 	
 	public static int physicalToLogicalOffset(IDocument doc, int offset) {
-		return Util.physicalToLogicalOffset(doc.get(), offset);
+		return getOffsetIndex(doc).physicalToLogicalOffset(offset);
+	}
+	
+	private static final Map<IDocument, OffsetIndexCache> offsetIndexes = new WeakHashMap<IDocument, OffsetIndexCache>();
+	
+	/**
+	 * Returns the index of the CRLF line delimiters of the document. The index
+	 * is cached until the document is changed, so converting many offsets of
+	 * the same document only scans its text once.
+	 * 
+	 * @param doc
+	 * @return the offset index for the current content of the document
+	 */
+	public static LogicalOffsetIndex getOffsetIndex(IDocument doc) {
+		OffsetIndexCache cache;
+		synchronized (offsetIndexes) {
+			cache = offsetIndexes.get(doc);
+			if (cache == null) {
+				cache = new OffsetIndexCache();
+				doc.addDocumentListener(cache);
+				offsetIndexes.put(doc, cache);
+			}
+		}
+		return cache.getIndex(doc);
+	}
+	
+	/**
+	 * Must not reference the document, otherwise the document would never be
+	 * removed from {@link UIUtils#offsetIndexes}.
+	 */
+	private static class OffsetIndexCache implements IDocumentListener {
+		
+		private volatile LogicalOffsetIndex index;
+		private final AtomicInteger changes = new AtomicInteger();
+		
+		LogicalOffsetIndex getIndex(IDocument doc) {
+			LogicalOffsetIndex current = index;
+			if (current == null) {
+				int stamp = changes.get();
+				current = new LogicalOffsetIndex(doc.get());
+				// don't cache an index of a text which was changed meanwhile
+				if (stamp == changes.get()) {
+					index = current;
+				}
+			}
+			return current;
+		}
+		
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+			changes.incrementAndGet();
+			index = null;
+		}
+		
+		@Override
+		public void documentChanged(DocumentEvent event) {
+			changes.incrementAndGet();
+			index = null;
+		}
+		
 	}
 	
 	public static IDocument getDocument(IFile file) throws CoreException{
@@ -154,7 +154,8 @@ public class ConsoleHistory implements ConsoleModelListener {
 		if(! ( value.equals(" ")
 				|| value.equals("")
 				|| value.equals(";")
-				|| value.startsWith("pdt_reload:pdt_reload("))
+				|| value.startsWith("pdt_reload:pdt_reload(")
+				|| value.startsWith("pdt_reload:pdt_reload_incremental("))
 				) {
 			history.add(e.getCommitText());
 			limitHistory();
@@ -205,30 +205,29 @@ public class PrologConsoleView extends ViewPart implements LifeCycleHook, Prolog
 							monitor.beginTask("initializing...", 2);
 
 							PrologProcess process = getPrologProcess();
-							try {
-								if (process != null) {
-									process.stop();
-									monitor.worked(1);
+							if (process != null) {
+								if (reconsultStrategy != null) {
+									process.setAttribute(PDTCommon.PROCESS_SPECIFIC_RECONSULT_STRATEGY, reconsultStrategy);
 								}
-								// setPrologProcess(getEditorPrologProcess());
-							} finally {
-								if (process != null) {
+								try {
+									// unlike stop() and start(), restart() keeps the warm standby server
+									process.restart();
+								} catch (PrologProcessException e) {
+									Debug.report(e);
 									if (!process.isDown()){
 										process.reset();
 										Thread.sleep(1000);
 									}
-									if (reconsultStrategy != null) {
-										process.setAttribute(PDTCommon.PROCESS_SPECIFIC_RECONSULT_STRATEGY, reconsultStrategy);
-									}
 									process.start();
-									Display.getDefault().asyncExec(new Runnable() {
-										@Override
-										public void run() {
-											getDefaultPrologConsoleService().fireConsoleVisibilityChanged(PrologConsoleView.this);
-										}
-									});
-									writeCurrentProcessPortToFile();
 								}
+								monitor.worked(1);
+								Display.getDefault().asyncExec(new Runnable() {
+									@Override
+									public void run() {
+										getDefaultPrologConsoleService().fireConsoleVisibilityChanged(PrologConsoleView.this);
+									}
+								});
+								writeCurrentProcessPortToFile();
 							}
 						} catch (Throwable e) {
 							Debug.report(e);
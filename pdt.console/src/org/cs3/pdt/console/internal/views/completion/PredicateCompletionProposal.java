@@ -16,6 +16,7 @@ package org.cs3.pdt.console.internal.views.completion;
 import java.util.List;
 
 import org.cs3.pdt.common.PDTCommonUtil;
+import org.cs3.pdt.common.completion.PredicateCompletion;
 import org.cs3.pdt.common.search.SearchConstants;
 import org.cs3.pdt.console.internal.ImageRepository;
 import org.eclipse.swt.SWT;
@@ -29,6 +30,9 @@ public class PredicateCompletionProposal extends ComparableCompletionProposal {
 	private String term;
 	private String indicator;
 	private String functor;
+	private int arity;
+	
+	private PredicateCompletion completion;
 	
 	private String visibility;
 	private boolean isBuiltin;
@@ -59,6 +63,23 @@ public class PredicateCompletionProposal extends ComparableCompletionProposal {
 		this.doc = doc;
 	}
 	
+	/**
+	 * Creates a proposal for an entry of the completion index. The argument
+	 * names and the documentation are fetched when they are needed.
+	 */
+	public PredicateCompletionProposal(PredicateCompletion completion, int prefixLength, boolean addSingleQuote) {
+		super(prefixLength, addSingleQuote);
+		this.completion = completion;
+		visibility = completion.getVisibility();
+		isBuiltin = completion.isBuiltin();
+		isDeprecated = completion.isDeprecated();
+		arity = completion.getArity();
+		signature = completion.getName() + "/" + arity;
+		label = signature + " - " + completion.getModule();
+		functor = getFunctor(completion.getName(), addSingleQuote, completion.needsQuotes());
+		indicator = functor + "/" + arity;
+	}
+	
 	private String getFunctor(String functor, boolean addSingleQuote, boolean needsQuotes) {
 		if (addSingleQuote) {
 			return functor + "'";
@@ -77,6 +98,9 @@ public class PredicateCompletionProposal extends ComparableCompletionProposal {
 		} else if ((stateMask & SWT.SHIFT) != 0) {
 			return functor;
 		} else {
+			if (term == null) {
+				term = functor + getArglist(arity, completion.getArgNames());
+			}
 			return term;
 		}
 	}
@@ -129,6 +153,10 @@ public class PredicateCompletionProposal extends ComparableCompletionProposal {
 	@Override
 	public String getDescription() {
 		if (!descriptionSet) {
+			if (completion != null) {
+				docKind = completion.getDocKind();
+				doc = completion.getDoc();
+			}
 			description = PDTCommonUtil.getHtmlDocumentation(docKind, doc);
 			descriptionSet = true;
 		}
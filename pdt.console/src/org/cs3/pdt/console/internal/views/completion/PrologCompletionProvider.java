@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.cs3.pdt.common.PDTCommonPredicates;
+import org.cs3.pdt.common.completion.CompletionIndex;
+import org.cs3.pdt.common.completion.PredicateCompletion;
 import org.cs3.pdt.common.search.SearchConstants;
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.ParserUtils;
@@ -35,7 +37,6 @@ public class PrologCompletionProvider {
 
 	private PrologProcess process;
 
-	@SuppressWarnings("unchecked")
 	public IContentProposal[] getCompletionProposals(String line, int pos) {
 //		String head = line.substring(0, pos);
 //
@@ -63,22 +64,84 @@ public class PrologCompletionProvider {
 		} else if (prefix.prefix.isEmpty()) {
 			return EMPTY_COMPLETION_PROPOSAL;
 		}
-		if (module == null || module.isEmpty()) {
-			if (prefix.prefix.isEmpty()) {
-				return EMPTY_COMPLETION_PROPOSAL;
+		ArrayList<ComparableCompletionProposal> proposals = new ArrayList<ComparableCompletionProposal>();
+		try {
+			if (module == null || module.isEmpty()) {
+				if (prefix.prefix.isEmpty()) {
+					return EMPTY_COMPLETION_PROPOSAL;
+				}
+				searchPrefix = QueryUtils.quoteAtomIfNeeded(prefix.prefix);
+				addIndexedPredicateProposals(null, prefix, proposals);
+				addNonPredicateProposals(searchPrefix, prefix, proposals);
+			} else if (":".equals(splittingOperator) && !ParserUtils.isVarPrefix(module)) {
+				addIndexedPredicateProposals(unquoteAtom(module), prefix, proposals);
+			} else {
+				if (ParserUtils.isVarPrefix(module)){
+					module = "_";
+				} else {
+					module = QueryUtils.quoteAtomIfNeeded(module);
+				}
+				searchPrefix = module + splittingOperator + QueryUtils.quoteAtomIfNeeded(prefix.prefix);
+				addQueriedProposals(searchPrefix, prefix, proposals);
 			}
-			searchPrefix = QueryUtils.quoteAtomIfNeeded(prefix.prefix);
+		} catch (PrologProcessException e) {
+			Debug.report(e);
+		}
+		Collections.sort(proposals);
+		return proposals.toArray(new ComparableCompletionProposal[proposals.size()]);
+	}
+	
+	/**
+	 * Predicates are taken from the completion index of the process, their
+	 * documentation is only fetched when it is shown.
+	 * 
+	 * @param module
+	 *            the module the predicates are visible in or null for user
+	 */
+	private void addIndexedPredicateProposals(String module, Prefix prefix, List<ComparableCompletionProposal> proposals) throws PrologProcessException {
+		CompletionIndex index = CompletionIndex.getIndex(process);
+		List<PredicateCompletion> predicates;
+		if (module == null) {
+			predicates = index.findPredicates("user", prefix.prefix);
+		} else if (prefix.prefix.isEmpty()) {
+			predicates = index.findLocalPredicates(module);
 		} else {
-			if (ParserUtils.isVarPrefix(module)){
-				module = "_";
-			} else {
-				module = QueryUtils.quoteAtomIfNeeded(module);
+			predicates = index.findPredicates(module, prefix.prefix);
+		}
+		for (PredicateCompletion predicate : predicates) {
+			proposals.add(new PredicateCompletionProposal(predicate, prefix.length, prefix.startsWithSingleQuote));
+		}
+	}
+	
+	private void addNonPredicateProposals(String searchPrefix, Prefix prefix, List<ComparableCompletionProposal> proposals) throws PrologProcessException {
+		List<Map<String, Object>> results = process.queryAll(bT(PDTCommonPredicates.FIND_NON_PREDICATE_COMPLETION,
+				searchPrefix,
+				"_",
+				"_",
+				"Kind",
+				"Name",
+				"NeedsQuotes"));
+		for (Map<String,Object> result : results) {
+			String kind = result.get("Kind").toString();
+			String name = result.get("Name").toString();
+			boolean needsQuotes = Boolean.parseBoolean((String) result.get("NeedsQuotes"));
+			if (SearchConstants.COMPLETION_KIND_MODULE.equals(kind)){
+				proposals.add(new ModuleCompletionProposal(name, prefix.length, prefix.startsWithSingleQuote, needsQuotes));
+			} else if (SearchConstants.COMPLETION_KIND_ATOM.equals(kind)){
+				proposals.add(new AtomCompletionProposal(name, prefix.length, prefix.startsWithSingleQuote, needsQuotes));
 			}
-			searchPrefix = module + splittingOperator + QueryUtils.quoteAtomIfNeeded(prefix.prefix);
 		}
-		
-		
-		ArrayList<ComparableCompletionProposal> proposals = new ArrayList<ComparableCompletionProposal>();
+	}
+	
+	private String unquoteAtom(String atom) {
+		if (atom.length() >= 2 && atom.startsWith("'") && atom.endsWith("'")) {
+			return atom.substring(1, atom.length() - 1).replace("\\'", "'");
+		}
+		return atom;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void addQueriedProposals(String searchPrefix, Prefix prefix, List<ComparableCompletionProposal> proposals) throws PrologProcessException {
 		String query = bT(PDTCommonPredicates.FIND_COMPLETION,
 				searchPrefix,
 				"_",
@@ -94,38 +157,31 @@ public class PrologCompletionProvider {
 				"DocKind",
 				"Doc",
 				"NeedsQuotes");
-		List<Map<String, Object>> results;
-		try {
-			results = process.queryAll(query);
-			for (Map<String,Object> result : results) {
-				String kind = result.get("Kind").toString();
-				String name = result.get("Name").toString();
-				boolean needsQuotes = Boolean.parseBoolean((String) result.get("NeedsQuotes"));
-				if (SearchConstants.COMPLETION_KIND_PREDICATE.equals(kind)) {
-					String resultModule = result.get("Module").toString();
-					int arity = Integer.parseInt(result.get("Arity").toString());
-					String visibility = result.get("Visibility").toString();
-					boolean isBuiltin = Boolean.parseBoolean(result.get("Builtin").toString());
-					boolean isDeprecated = Boolean.parseBoolean(result.get("IsDeprecated").toString());
-					Object argNamesValue = result.get("ArgNames");
-					List<String> argNames = null;
-					if (argNamesValue instanceof List<?>) {
-						argNames = (List<String>) argNamesValue;
-					}
-					String docKind = (String) result.get("DocKind");
-					String doc = (String) result.get("Doc");
-					proposals.add(new PredicateCompletionProposal(resultModule, name, arity, prefix.length, visibility, isBuiltin, isDeprecated, argNames, docKind, doc, prefix.startsWithSingleQuote, needsQuotes));
-				} else if (SearchConstants.COMPLETION_KIND_MODULE.equals(kind)){
-					proposals.add(new ModuleCompletionProposal(name, prefix.length, prefix.startsWithSingleQuote, needsQuotes));
-				} else if (SearchConstants.COMPLETION_KIND_ATOM.equals(kind)){
-					proposals.add(new AtomCompletionProposal(name, prefix.length, prefix.startsWithSingleQuote, needsQuotes));
+		List<Map<String, Object>> results = process.queryAll(query);
+		for (Map<String,Object> result : results) {
+			String kind = result.get("Kind").toString();
+			String name = result.get("Name").toString();
+			boolean needsQuotes = Boolean.parseBoolean((String) result.get("NeedsQuotes"));
+			if (SearchConstants.COMPLETION_KIND_PREDICATE.equals(kind)) {
+				String resultModule = result.get("Module").toString();
+				int arity = Integer.parseInt(result.get("Arity").toString());
+				String visibility = result.get("Visibility").toString();
+				boolean isBuiltin = Boolean.parseBoolean(result.get("Builtin").toString());
+				boolean isDeprecated = Boolean.parseBoolean(result.get("IsDeprecated").toString());
+				Object argNamesValue = result.get("ArgNames");
+				List<String> argNames = null;
+				if (argNamesValue instanceof List<?>) {
+					argNames = (List<String>) argNamesValue;
 				}
+				String docKind = (String) result.get("DocKind");
+				String doc = (String) result.get("Doc");
+				proposals.add(new PredicateCompletionProposal(resultModule, name, arity, prefix.length, visibility, isBuiltin, isDeprecated, argNames, docKind, doc, prefix.startsWithSingleQuote, needsQuotes));
+			} else if (SearchConstants.COMPLETION_KIND_MODULE.equals(kind)){
+				proposals.add(new ModuleCompletionProposal(name, prefix.length, prefix.startsWithSingleQuote, needsQuotes));
+			} else if (SearchConstants.COMPLETION_KIND_ATOM.equals(kind)){
+				proposals.add(new AtomCompletionProposal(name, prefix.length, prefix.startsWithSingleQuote, needsQuotes));
 			}
-		} catch (PrologProcessException e) {
-			Debug.report(e);
 		}
-		Collections.sort(proposals);
-		return proposals.toArray(new ComparableCompletionProposal[proposals.size()]);
 	}
 	
 	private class Prefix {
@@ -20,6 +20,7 @@
 :- use_module(pdt_editor_breakpoints, []).
 :- use_module(pdt_editor_highlighting, []).
 :- use_module(pdt_editor_files, []).
+:- use_module(pdt_editor_markers, []).
 
 :- ['lgt/loader'].
 
@@ -15,6 +15,7 @@
 
 :- module( pdt_editor_highlighting,
          [ predicates_with_property/3  
+         , highlighted_predicate_names/3
          ]).
 :- use_module(library(lists)).
 :- use_module( prolog_connector_pl(split_file_path),
@@ -54,17 +55,38 @@
 %	make_duplicate_free_string(AllPredicateNames,Predicates).
 
 predicates_with_property(Property, FileName, Predicates) :-
+	predicates_with_property_names(Property, FileName, AllPredicateNames),
+	make_duplicate_free_string(AllPredicateNames,Predicates).
+
+%% highlighted_predicate_names(+FileName, ?Property, -Names) is nondet.
+%
+% The names of the predicates highlighted in the editor of FileName as
+% a sorted list of atoms, one solution for each highlighted Property:
+% undefined, built_in, dynamic, transparent and meta_predicate, in this
+% order. Used by HighlightingKeywords.java to fetch all highlighted names with a
+% single query. The later properties take precedence over the earlier
+% ones, e.g. a meta predicate is also transparent.
+
+highlighted_predicate_names(FileName, Property, Names) :-
+	member(Property, [undefined, built_in, dynamic, transparent, meta_predicate]),
+	highlighting_property(Property, PropertyTerm),
+	(	predicates_with_property_names(PropertyTerm, FileName, AllPredicateNames)
+	->	sort(AllPredicateNames, Names)
+	;	Names = []
+	).
+
+highlighting_property(meta_predicate, meta_predicate(_)) :- !.
+highlighting_property(Property, Property).
+
+predicates_with_property_names(Property, FileName, AllPredicateNames) :-
 	(	split_file_path(FileName, _, _, _, lgt)
 	;	split_file_path(FileName, _, _, _, logtalk)
 	),
 	!,
 	current_predicate(logtalk_load/1),
-	logtalk_editor_adapter::predicates_with_property(Property, FileName, AllPredicateNames),
-	make_duplicate_free_string(AllPredicateNames,Predicates).
-predicates_with_property(Property, _FileName, Predicates) :-
-    findall(Name, predicate_name_with_property_(_Module,Name,Property), AllPredicateNames),
-	make_duplicate_free_string(AllPredicateNames,Predicates).
-
+	logtalk_editor_adapter::predicates_with_property(Property, FileName, AllPredicateNames).
+predicates_with_property_names(Property, _FileName, AllPredicateNames) :-
+    findall(Name, predicate_name_with_property_(_Module,Name,Property), AllPredicateNames).
 
     	
 predicate_name_with_property_(Module,Name,Property) :-
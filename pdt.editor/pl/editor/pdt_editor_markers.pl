@@ -0,0 +1,50 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ * 
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2004-2012, CS Dept. III, University of Bonn
+ * 
+ * All rights reserved. This program is  made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ * 
+ ****************************************************************************/
+
+:- module(pdt_editor_markers, [problem_marker/10]).
+
+:- use_module(library(lists), [
+	append/3,
+	member/2
+]).
+
+%% problem_marker(+Files, -File, -Kind, -Line, -Start, -Length, -Message, -Name, -QuickfixDescription, -QuickfixAction) is nondet.
+%
+% All errors and warnings of the last reload and all smells of Files
+% and of the files with errors or warnings, ordered by File. This lets
+% PLMarkerUtils update the problem markers of all consulted files with
+% a single query.
+%
+% For errors and warnings Kind is the message level and Line is the
+% line of the message, Start is -1 and Name, QuickfixDescription and
+% QuickfixAction are ''. For smells Kind is smell, Line is -1 and
+% Start and Length are the logical character range of the smell.
+problem_marker(Files, File, Kind, Line, Start, Length, Message, Name, QuickfixDescription, QuickfixAction) :-
+	findall(
+		F-marker(K, L, -1, Len, M, '', '', ''),
+		pdt_reload:errors_and_warnings(K, L, Len, M, F),
+		Messages
+	),
+	findall(F, member(F-_, Messages), MessageFiles),
+	append(Files, MessageFiles, AllFiles),
+	sort(AllFiles, SmellFiles),
+	findall(
+		F-marker(smell, -1, S, Len, D, N, QD, QA),
+		(	member(F, SmellFiles),
+			pdt_smells:smell_marker_pdt(N, D, QD, QA, F, S, Len)
+		),
+		Smells
+	),
+	append(Messages, Smells, Markers),
+	keysort(Markers, SortedMarkers),
+	member(File-marker(Kind, Line, Start, Length, Message, Name, QuickfixDescription, QuickfixAction), SortedMarkers).
@@ -25,7 +25,9 @@ import org.cs3.pdt.connector.util.ErrorMessageProvider;
 import org.cs3.pdt.editor.internal.editors.ColorManager;
 import org.cs3.pdt.editor.internal.editors.CurrentProcessListener;
 import org.cs3.pdt.editor.internal.editors.EditorConsultListener;
+import org.cs3.pdt.editor.internal.editors.HighlightingKeywordsUpdater;
 import org.cs3.pdt.editor.internal.editors.breakpoints.PDTBreakpointHandler;
+import org.cs3.pdt.editor.internal.queries.OutlineCacheUpdater;
 import org.cs3.prolog.connector.common.Debug;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
@@ -108,6 +110,12 @@ public class PDTPlugin extends AbstractUIPlugin implements IStartup, ISelectionP
 			prologProcessService.registerActivePrologProcessListener(processListener);
 			PDTCommonPlugin.getDefault().registerProcessStartListener(processListener);
 			prologProcessService.registerConsultListener(new EditorConsultListener());
+			HighlightingKeywordsUpdater highlightingKeywordsUpdater = new HighlightingKeywordsUpdater();
+			PDTCommonPlugin.getDefault().registerProcessStartListener(highlightingKeywordsUpdater);
+			prologProcessService.registerConsultListener(highlightingKeywordsUpdater);
+			OutlineCacheUpdater outlineCacheUpdater = new OutlineCacheUpdater();
+			PDTCommonPlugin.getDefault().registerProcessStartListener(outlineCacheUpdater);
+			prologProcessService.registerConsultListener(outlineCacheUpdater);
 			if (prologProcessService.hasActivePrologProcess()) {
 				processListener.activePrologProcessChanged(prologProcessService.getActivePrologProcess());
 			}
@@ -26,10 +26,14 @@ public class PDTPredicates {
 
 	// editor highlighting
 	public static final String PREDICATES_WITH_PROPERTY = "pdt_editor_highlighting:predicates_with_property";
+	public static final String HIGHLIGHTED_PREDICATE_NAMES = "pdt_editor_highlighting:highlighted_predicate_names";
 	
 	// smells
 	public static final String SMELL_MARKER_PDT = "pdt_smells:smell_marker_pdt";
 
+	// problem markers
+	public static final String PROBLEM_MARKER = "pdt_editor_markers:problem_marker";
+
 	// outline
 	public static final String MODULE_PROPERTY = "module_property";
 	public static final String ENTITY_PROPERTY = "utils4entities::entity_property";
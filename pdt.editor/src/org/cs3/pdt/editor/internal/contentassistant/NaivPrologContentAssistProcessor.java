@@ -22,12 +22,15 @@ import java.util.Set;
 
 import org.cs3.pdt.common.PDTCommonPredicates;
 import org.cs3.pdt.common.PDTCommonUtil;
+import org.cs3.pdt.common.completion.CompletionIndex;
+import org.cs3.pdt.common.completion.PredicateCompletion;
 import org.cs3.pdt.common.search.SearchConstants;
 import org.cs3.pdt.connector.util.UIUtils;
 import org.cs3.pdt.editor.internal.editors.PLEditor;
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.ParserUtils;
 import org.cs3.prolog.connector.common.QueryUtils;
+import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.cs3.prolog.connector.session.PrologSession;
 import org.eclipse.core.runtime.CoreException;
@@ -92,15 +95,19 @@ public abstract class NaivPrologContentAssistProcessor extends PrologContentAssi
 
 	@SuppressWarnings("unchecked")
 	@Override
-	protected void addPredicateProposals(IDocument document, int begin, int len, boolean startsWithSingleQuote, String prefix, String searchPrefixForDefault, List<ComparableTemplateCompletionProposal> proposals) throws PrologProcessException,
+	protected void addPredicateProposals(IDocument document, int begin, int len, boolean startsWithSingleQuote, String searchPrefix, String indexPrefix, String indexModule, List<ComparableTemplateCompletionProposal> proposals) throws PrologProcessException,
 			CoreException {
 
+		String enclFile = UIUtils.getFileFromActiveEditor();
+		if (indexPrefix != null && (enclFile == null || !enclFile.endsWith(".lgt"))) {
+			addIndexedProposals(document, begin, len, startsWithSingleQuote, searchPrefix, indexPrefix, indexModule, enclFile, proposals);
+			return;
+		}
 		PrologSession session = null;
 		try {
-			String enclFile = UIUtils.getFileFromActiveEditor();
 			session = PDTCommonUtil.getActivePrologProcess().getSession();
 			String query = bT(PDTCommonPredicates.FIND_COMPLETION,
-					prefix,
+					searchPrefix,
 					QueryUtils.quoteAtom(enclFile),
 					document.getLineOfOffset(begin) + 1,
 					"Kind",
@@ -158,8 +165,8 @@ public abstract class NaivPrologContentAssistProcessor extends PrologContentAssi
 					proposals.add(new AtomCompletionProposal(document, name, begin, len, startsWithSingleQuote || needsQuotes));
 				}
 			}
-			if (searchPrefixForDefault != null) {
-				DefaultCompletion.addDefaultCompletions(enclFile, document, begin, len, searchPrefixForDefault, proposals);
+			if (indexPrefix != null && indexModule == null) {
+				DefaultCompletion.addDefaultCompletions(enclFile, document, begin, len, indexPrefix, proposals);
 			}
 			return;
 		} catch (Exception e) {
@@ -172,6 +179,59 @@ public abstract class NaivPrologContentAssistProcessor extends PrologContentAssi
 
 	}
 
+	/**
+	 * Takes the predicates for an unqualified prefix or a
+	 * <code>Module:Prefix</code> from the completion index of the process.
+	 * For an unqualified prefix modules and atoms are still queried.
+	 */
+	private void addIndexedProposals(IDocument document, int begin, int len, boolean startsWithSingleQuote, String searchPrefix, String prefix, String module, String enclFile, List<ComparableTemplateCompletionProposal> proposals) {
+		try {
+			PrologProcess process = PDTCommonUtil.getActivePrologProcess();
+			CompletionIndex index = CompletionIndex.getIndex(process);
+			List<PredicateCompletion> predicates;
+			if (module != null) {
+				if (prefix.isEmpty()) {
+					predicates = index.findLocalPredicates(module);
+				} else {
+					predicates = index.findPredicates(module, prefix);
+				}
+			} else if (enclFile == null) {
+				predicates = index.findPredicates("user", prefix);
+			} else {
+				predicates = index.findPredicatesInFile(enclFile, prefix);
+			}
+			for (PredicateCompletion predicate : predicates) {
+				proposals.add(PredicateCompletionProposal.createProposal(document, begin, len, predicate, startsWithSingleQuote || predicate.needsQuotes()));
+			}
+			if (module != null) {
+				return;
+			}
+			
+			List<Map<String, Object>> results = process.queryAll(bT(PDTCommonPredicates.FIND_NON_PREDICATE_COMPLETION,
+					searchPrefix,
+					enclFile == null ? "_" : QueryUtils.quoteAtom(enclFile),
+					document.getLineOfOffset(begin) + 1,
+					"Kind",
+					"Name",
+					"NeedsQuotes"));
+			for (Map<String, Object> result : results) {
+				String kind = result.get("Kind").toString();
+				String name = (String) result.get("Name");
+				boolean needsQuotes = Boolean.parseBoolean((String) result.get("NeedsQuotes"));
+				if (SearchConstants.COMPLETION_KIND_MODULE.equals(kind)) {
+					proposals.add(new ModuleCompletionProposal(document, name, begin, len, startsWithSingleQuote || needsQuotes));
+				} else if (SearchConstants.COMPLETION_KIND_ATOM.equals(kind)) {
+					proposals.add(new AtomCompletionProposal(document, name, begin, len, startsWithSingleQuote || needsQuotes));
+				}
+			}
+			if (enclFile != null) {
+				DefaultCompletion.addDefaultCompletions(enclFile, document, begin, len, prefix, proposals);
+			}
+		} catch (Exception e) {
+			Debug.report(e);
+		}
+	}
+
 }
 
 
@@ -17,6 +17,7 @@ package org.cs3.pdt.editor.internal.contentassistant;
 import java.util.List;
 
 import org.cs3.pdt.common.PDTCommonUtil;
+import org.cs3.pdt.common.completion.PredicateCompletion;
 import org.cs3.pdt.common.search.SearchConstants;
 import org.cs3.pdt.editor.PDT;
 import org.cs3.pdt.editor.PDTPlugin;
@@ -67,6 +68,17 @@ public class PredicateCompletionProposal extends ComparableTemplateCompletionPro
 		return new PredicateCompletionProposal(termTemplate, documentTemplateContext, region, image, indicatorTemplate, displayString, signature, docKind, doc);
 	}
 	
+	/**
+	 * Creates a proposal for an entry of the completion index. The argument
+	 * names and the documentation are fetched when they are needed.
+	 */
+	public static PredicateCompletionProposal createProposal(IDocument document, int offset, int length, PredicateCompletion completion, boolean addQuote) {
+		PredicateCompletionProposal proposal = createProposal(document, offset, length, completion.getModule(), completion.getName(), completion.getArity(), null, completion.getVisibility(), completion.isBuiltin(), completion.isDeprecated(), null, null, addQuote);
+		proposal.completion = completion;
+		proposal.addQuote = addQuote;
+		return proposal;
+	}
+	
 	private static String createPattern(String name, int arity, List<String> argNames, boolean addQuote) {
 		if (arity <= 0) {
 			if (addQuote) {
@@ -140,6 +152,9 @@ public class PredicateCompletionProposal extends ComparableTemplateCompletionPro
 	private String docKind;
 	private String doc;
 	
+	private PredicateCompletion completion;
+	private boolean addQuote;
+	
 	private int currentStateMask = -1;
 	
 	public PredicateCompletionProposal(Template template, TemplateContext context, IRegion region, Image image, Template indicatorOnly, StyledString displayString, String signature, String docKind, String doc) {
@@ -171,12 +186,20 @@ public class PredicateCompletionProposal extends ComparableTemplateCompletionPro
 			if ((predicateCompletionProposal.currentStateMask & SWT.CTRL) != 0) {
 				return super.evaluate(predicateCompletionProposal.indicatorOnly);
 			} else {
-				return super.evaluate(template);
+				return super.evaluate(predicateCompletionProposal.getTermTemplate(template));
 			}
 		}
 		
 	}
 	
+	private Template getTermTemplate(Template template) {
+		if (completion == null) {
+			return template;
+		}
+		String pattern = createPattern(completion.getName(), completion.getArity(), completion.getArgNames(), addQuote);
+		return new Template(template.getName(), template.getDescription(), template.getContextTypeId(), pattern, template.isAutoInsertable());
+	}
+	
 	@Override
 	public void apply(ITextViewer viewer, char trigger, int stateMask, int offset) {
 		currentStateMask = stateMask;
@@ -186,6 +209,9 @@ public class PredicateCompletionProposal extends ComparableTemplateCompletionPro
 
 	@Override
 	public Object getAdditionalProposalInfo(IProgressMonitor monitor) {
+		if (completion != null) {
+			return PDTCommonUtil.getHtmlDocumentation(completion.getDocKind(), completion.getDoc());
+		}
 		return PDTCommonUtil.getHtmlDocumentation(docKind, doc);
 	}
 
@@ -21,6 +21,7 @@ import org.cs3.pdt.editor.internal.editors.PLPartitionScanner;
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.ParserUtils;
 import org.cs3.prolog.connector.common.QueryUtils;
+import org.cs3.prolog.connector.common.Util;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
@@ -54,8 +55,18 @@ public abstract class PrologContentAssistProcessor {
 		}
 	}
 		
+	/**
+	 * @param searchPrefix
+	 *            the possibly qualified prefix as a Prolog term
+	 * @param indexPrefix
+	 *            the prefix as typed if predicates can be taken from the
+	 *            completion index (unqualified prefixes and
+	 *            <code>Module:Prefix</code>), otherwise null
+	 * @param indexModule
+	 *            the unquoted module of a <code>Module:Prefix</code> or null
+	 */
 	protected abstract void addPredicateProposals(IDocument document, int begin,
-			int len, boolean startsWithSingleQuote, String prefix, String searchPrefixForDefault, List<ComparableTemplateCompletionProposal> proposals)
+			int len, boolean startsWithSingleQuote, String searchPrefix, String indexPrefix, String indexModule, List<ComparableTemplateCompletionProposal> proposals)
 			throws PrologProcessException, CoreException;
 
 	protected abstract void addVariableProposals(IDocument document, int begin,
@@ -188,7 +199,8 @@ public abstract class PrologContentAssistProcessor {
 					module = retrievePrefixedModule(document, pre.begin - splittingOperator.length());
 				}
 				String searchPrefix;
-				String searchPrefixForDefault = null;
+				String indexPrefix = null;
+				String indexModule = null;
 				
 				if (module == null || module.equals("")) {
 					if (pre.prefix.equals("")) {
@@ -198,17 +210,21 @@ public abstract class PrologContentAssistProcessor {
 						searchPrefix = splittingOperator + QueryUtils.quoteAtomIfNeeded(pre.prefix);
 					} else {
 						searchPrefix = QueryUtils.quoteAtomIfNeeded(pre.prefix);
-						searchPrefixForDefault = pre.prefix;
+						indexPrefix = pre.prefix;
 					}
 				} else {
 					if (ParserUtils.isVarPrefix(module)){
 						module = "_";
 					} else {
+						if (":".equals(splittingOperator)) {
+							indexModule = Util.unquoteAtom(module);
+							indexPrefix = pre.prefix;
+						}
 						module = QueryUtils.quoteAtomIfNeeded(module);
 					}
 					searchPrefix = module + splittingOperator + QueryUtils.quoteAtomIfNeeded(pre.prefix);
 				}
-				addPredicateProposals(document, pre.begin, pre.length, pre.startsWithSingleQuote, searchPrefix, searchPrefixForDefault, proposals);
+				addPredicateProposals(document, pre.begin, pre.length, pre.startsWithSingleQuote, searchPrefix, indexPrefix, indexModule, proposals);
 			}
 	
 			if (proposals.size() == 0)
@@ -0,0 +1,201 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.editor.internal.editors;
+
+import static org.cs3.prolog.connector.common.QueryUtils.bT;
+import static org.cs3.prolog.connector.common.QueryUtils.quoteAtom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.cs3.pdt.editor.PDTPredicates;
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * The names of the predicates highlighted in the Prolog editor, together with
+ * the property determining their highlighting.
+ * <p>
+ * The keywords are cached per process and shared by all {@link PLScanner}s.
+ * All Prolog files share the same keywords, only Logtalk files get keywords
+ * of their own. The keywords are fetched in the background when they are
+ * requested for the first time and after every consult, so opening an
+ * editor never waits for the process. Listeners are notified whenever new
+ * keywords are available.
+ */
+public class HighlightingKeywords {
+
+	public static final String UNDEFINED = "undefined";
+	public static final String BUILT_IN = "built_in";
+	public static final String DYNAMIC = "dynamic";
+	public static final String TRANSPARENT = "transparent";
+	public static final String META_PREDICATE = "meta_predicate";
+
+	private static final Map<PrologProcess, Map<String, HighlightingKeywords>> keywords = new WeakHashMap<>();
+	private static final List<HighlightingKeywordsListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Returns the keywords for a file. If the keywords have not been fetched
+	 * yet, they are empty until the fetch finishes.
+	 * 
+	 * @param process
+	 * @param fileName
+	 *            the Prolog file name of the file
+	 * @return the shared keywords
+	 */
+	public static HighlightingKeywords getKeywords(PrologProcess process, String fileName) {
+		String context = getContext(fileName);
+		HighlightingKeywords result;
+		synchronized (keywords) {
+			Map<String, HighlightingKeywords> processKeywords = keywords.get(process);
+			if (processKeywords == null) {
+				processKeywords = new HashMap<>();
+				keywords.put(process, processKeywords);
+			}
+			result = processKeywords.get(context);
+			if (result != null) {
+				return result;
+			}
+			result = new HighlightingKeywords(fileName);
+			processKeywords.put(context, result);
+		}
+		schedule(process, Collections.singletonList(result));
+		return result;
+	}
+
+	/**
+	 * Fetches all keywords of the process again in the background.
+	 * 
+	 * @param process
+	 */
+	public static void refresh(PrologProcess process) {
+		List<HighlightingKeywords> processKeywords;
+		synchronized (keywords) {
+			Map<String, HighlightingKeywords> map = keywords.get(process);
+			if (map == null || map.isEmpty()) {
+				return;
+			}
+			processKeywords = new ArrayList<>(map.values());
+		}
+		for (HighlightingKeywords k : processKeywords) {
+			k.invalidate();
+		}
+		schedule(process, processKeywords);
+	}
+
+	public static void addListener(HighlightingKeywordsListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(HighlightingKeywordsListener listener) {
+		listeners.remove(listener);
+	}
+
+	private static String getContext(String fileName) {
+		if (fileName.endsWith(".lgt") || fileName.endsWith(".logtalk")) {
+			return fileName;
+		}
+		return "";
+	}
+
+	private static void schedule(final PrologProcess process, final List<HighlightingKeywords> processKeywords) {
+		Job job = new Job("Update highlighting") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				boolean changed = false;
+				for (HighlightingKeywords k : processKeywords) {
+					if (monitor.isCanceled()) {
+						return Status.CANCEL_STATUS;
+					}
+					try {
+						changed |= k.fetch(process);
+					} catch (PrologProcessException e) {
+						Debug.report(e);
+					}
+				}
+				if (changed) {
+					for (HighlightingKeywordsListener listener : listeners) {
+						listener.keywordsChanged(process);
+					}
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	private final String fileName;
+	private volatile Map<String, String> properties = Collections.emptyMap();
+	private int generation = 0;
+
+	private HighlightingKeywords(String fileName) {
+		this.fileName = fileName;
+	}
+
+	/**
+	 * @param word
+	 * @return the property determining the highlighting of the word or null
+	 *         if the word is not highlighted
+	 */
+	public String getProperty(String word) {
+		return properties.get(word);
+	}
+
+	private synchronized void invalidate() {
+		generation++;
+	}
+
+	/**
+	 * @return true if the keywords have been replaced
+	 */
+	private boolean fetch(PrologProcess process) throws PrologProcessException {
+		int fetchedGeneration;
+		synchronized (this) {
+			fetchedGeneration = generation;
+		}
+		HashMap<String, String> newProperties = new HashMap<>();
+		List<Map<String, Object>> results = process.queryAll(bT(PDTPredicates.HIGHLIGHTED_PREDICATE_NAMES, quoteAtom(fileName), "Property", "Names"));
+		// the later properties overrule the previous ones
+		for (Map<String, Object> result : results) {
+			Object names = result.get("Names");
+			if (names instanceof List<?>) {
+				String property = result.get("Property").toString();
+				for (Object name : (List<?>) names) {
+					newProperties.put(name.toString(), property);
+				}
+			}
+		}
+		synchronized (this) {
+			// a newer fetch has been scheduled meanwhile
+			if (fetchedGeneration != generation) {
+				return false;
+			}
+			properties = newProperties;
+		}
+		return true;
+	}
+
+}
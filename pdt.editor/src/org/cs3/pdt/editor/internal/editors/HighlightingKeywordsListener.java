@@ -0,0 +1,29 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.editor.internal.editors;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+
+public interface HighlightingKeywordsListener {
+
+	/**
+	 * Called in a background thread after new highlighting keywords of the
+	 * process have been fetched.
+	 * 
+	 * @param process
+	 */
+	void keywordsChanged(PrologProcess process);
+
+}
@@ -0,0 +1,47 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.editor.internal.editors;
+
+import java.util.List;
+
+import org.cs3.pdt.common.PrologProcessStartListener;
+import org.cs3.pdt.connector.service.ConsultListener;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Refreshes the {@link HighlightingKeywords} of a process after a consult or
+ * a restart.
+ */
+public class HighlightingKeywordsUpdater implements ConsultListener, PrologProcessStartListener {
+
+	@Override
+	public void beforeConsult(PrologProcess process, List<IFile> files, IProgressMonitor monitor) throws PrologProcessException {
+	}
+
+	@Override
+	public void afterConsult(PrologProcess process, List<IFile> files, List<String> allConsultedFiles, IProgressMonitor monitor) throws PrologProcessException {
+		HighlightingKeywords.refresh(process);
+		monitor.done();
+	}
+
+	@Override
+	public void prologProcessStarted(PrologProcess process) {
+		HighlightingKeywords.refresh(process);
+	}
+
+}
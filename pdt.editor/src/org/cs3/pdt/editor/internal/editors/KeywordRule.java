@@ -0,0 +1,87 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.editor.internal.editors;
+
+import java.util.Map;
+
+import org.eclipse.jface.text.rules.ICharacterScanner;
+import org.eclipse.jface.text.rules.IRule;
+import org.eclipse.jface.text.rules.IToken;
+import org.eclipse.jface.text.rules.IWordDetector;
+import org.eclipse.jface.text.rules.Token;
+
+/**
+ * Like a {@link org.eclipse.jface.text.rules.WordRule}, but the words are
+ * looked up in the shared {@link HighlightingKeywords} instead of being
+ * copied into the rule, so creating the rule is independent of the number of
+ * keywords.
+ */
+public class KeywordRule implements IRule {
+
+	private final IWordDetector detector;
+	private final HighlightingKeywords keywords;
+	private final Map<String, IToken> propertyTokens;
+	private final IToken defaultToken;
+	private final StringBuilder buffer = new StringBuilder();
+
+	/**
+	 * @param detector
+	 * @param keywords
+	 *            may be null if there are no keywords
+	 * @param propertyTokens
+	 *            the token for each property of {@link HighlightingKeywords}
+	 * @param defaultToken
+	 *            the token for words which are no keywords
+	 */
+	public KeywordRule(IWordDetector detector, HighlightingKeywords keywords, Map<String, IToken> propertyTokens, IToken defaultToken) {
+		this.detector = detector;
+		this.keywords = keywords;
+		this.propertyTokens = propertyTokens;
+		this.defaultToken = defaultToken;
+	}
+
+	@Override
+	public IToken evaluate(ICharacterScanner scanner) {
+		int c = scanner.read();
+		if (c == ICharacterScanner.EOF || !detector.isWordStart((char) c)) {
+			scanner.unread();
+			return Token.UNDEFINED;
+		}
+		buffer.setLength(0);
+		do {
+			buffer.append((char) c);
+			c = scanner.read();
+		} while (c != ICharacterScanner.EOF && detector.isWordPart((char) c));
+		scanner.unread();
+
+		IToken token = null;
+		if (keywords != null) {
+			String property = keywords.getProperty(buffer.toString());
+			if (property != null) {
+				token = propertyTokens.get(property);
+			}
+		}
+		if (token == null) {
+			token = defaultToken;
+		}
+		if (token.isUndefined()) {
+			for (int i = buffer.length(); i > 0; i--) {
+				scanner.unread();
+			}
+		}
+		return token;
+	}
+
+}
@@ -17,10 +17,7 @@ package org.cs3.pdt.editor.internal.editors;
 import org.cs3.pdt.connector.util.UIUtils;
 import org.cs3.pdt.editor.internal.contentassistant.NaivPrologContentAssistProcessor;
 import org.cs3.pdt.editor.internal.views.lightweightOutline.PrologOutlineInformationControl;
-import org.cs3.prolog.connector.common.Debug;
-import org.cs3.prolog.connector.process.PrologProcessException;
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.text.AbstractInformationControlManager;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.DefaultInformationControl;
@@ -105,12 +102,7 @@ public class PLConfiguration extends SourceViewerConfiguration {
 
 
 	public void reinitScanner() {
-		try {
-			scanner = new PLScanner(editor, colorManager);
-		} catch (CoreException e) {
-			Debug.report(e);
-		} catch (PrologProcessException e) {
-		}
+		scanner = new PLScanner(editor, colorManager);
 		scanner.setDefaultReturnToken(new Token(new TextAttribute(colorManager
 				.getColor(colorManager.getDefaultColor()))));
 	}
@@ -46,6 +46,7 @@ import org.cs3.pdt.editor.internal.actions.FindReferencesActionDelegate;
 import org.cs3.pdt.editor.internal.actions.OpenCallHierarchyActionDelegte;
 import org.cs3.pdt.editor.internal.actions.ToggleCommentAction;
 import org.cs3.pdt.editor.internal.editors.breakpoints.PDTBreakpointHandler;
+import org.cs3.pdt.editor.internal.queries.PDTOutlineQuery;
 import org.cs3.pdt.editor.internal.views.lightweightOutline.NonNaturePrologOutline;
 import org.cs3.pdt.editor.metadata.GoalProvider;
 import org.cs3.pdt.editor.metadata.PredicateReadingUtilities;
@@ -104,7 +105,7 @@ import org.eclipse.ui.texteditor.TextEditorAction;
 import org.eclipse.ui.views.contentoutline.ContentOutlinePage;
 import org.eclipse.ui.views.contentoutline.IContentOutlinePage;
 
-public class PLEditor extends TextEditor implements ConsultListener, ActivePrologProcessListener, PrologProcessStartListener {
+public class PLEditor extends TextEditor implements ConsultListener, ActivePrologProcessListener, PrologProcessStartListener, HighlightingKeywordsListener {
 
 	public static final String COMMAND_OPEN_PRIMARY_DEFINITION = "org.eclipse.pdt.ui.open.primary.definition";
 	
@@ -395,6 +396,7 @@ public class PLEditor extends TextEditor implements ConsultListener, ActiveProlo
 		PDTConnectorPlugin.getDefault().getPrologProcessService().registerActivePrologProcessListener(this);
 		PDTConnectorPlugin.getDefault().getPrologProcessService().registerConsultListener(this);
 		PDTCommonPlugin.getDefault().registerProcessStartListener(this);
+		HighlightingKeywords.addListener(this);
 	}
 
 	/**
@@ -1406,24 +1408,38 @@ public class PLEditor extends TextEditor implements ConsultListener, ActiveProlo
 			@Override
 			public void run() {
 				PLEditor.this.updateTitleImage(getEditorInput());
-				try {
-					PLEditor.this.configuration.getPLScanner().initHighlighting();
-					PLEditor.this.getSourceViewer().invalidateTextPresentation();
-				} catch (PrologProcessException e) {
-					Debug.report(e);
-				} catch (CoreException e) {
-					Debug.report(e);
-				};
+				PLEditor.this.configuration.getPLScanner().initHighlighting();
+				PLEditor.this.getSourceViewer().invalidateTextPresentation();
+			}
+		});
+	}
+	
+	@Override
+	public void keywordsChanged(PrologProcess process) {
+		if (!process.equals(PDTCommonUtil.getActivePrologProcess())) {
+			return;
+		}
+		getSite().getShell().getDisplay().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				ISourceViewer sourceViewer = PLEditor.this.getSourceViewer();
+				if (sourceViewer != null) {
+					sourceViewer.invalidateTextPresentation();
+				}
 			}
 		});
 	}
 	
 	@Override
 	public void dispose() {
+		if (filepath != null) {
+			PDTOutlineQuery.evict(getPrologFileName());
+		}
 		super.dispose();
 		PDTConnectorPlugin.getDefault().getPrologProcessService().unRegisterActivePrologProcessListener(this);
 		PDTConnectorPlugin.getDefault().getPrologProcessService().unRegisterConsultListener(this);
 		PDTCommonPlugin.getDefault().unregisterProcessStartListener(this);
+		HighlightingKeywords.removeListener(this);
 	}
 
 }
@@ -14,19 +14,22 @@
 package org.cs3.pdt.editor.internal.editors;
 
 import static org.cs3.prolog.connector.common.QueryUtils.bT;
+import static org.cs3.prolog.connector.common.QueryUtils.listToArgList;
+import static org.cs3.prolog.connector.common.QueryUtils.quoteAtom;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.cs3.pdt.connector.PrologConnectorPredicates;
 import org.cs3.pdt.connector.util.FileUtils;
 import org.cs3.pdt.connector.util.UIUtils;
 import org.cs3.pdt.editor.PDTPredicates;
 import org.cs3.pdt.editor.quickfix.PDTMarker;
 import org.cs3.prolog.connector.common.Debug;
-import org.cs3.prolog.connector.common.QueryUtils;
+import org.cs3.prolog.connector.common.LogicalOffsetIndex;
 import org.cs3.prolog.connector.process.PrologException;
 import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
@@ -34,11 +37,12 @@ import org.cs3.prolog.connector.session.PrologSession;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
-import org.eclipse.jface.text.IDocument;
-import org.eclipse.ui.texteditor.MarkerUtilities;
 
 public class PLMarkerUtils {
 
@@ -57,17 +61,26 @@ public class PLMarkerUtils {
 				+ severity);
 	}
 
+	/**
+	 * Updates the problem markers of all consulted files. All errors, warnings
+	 * and smells are fetched with a single query and the markers of all files
+	 * are updated in a single workspace operation. Markers which did not
+	 * change are kept, so only the differences cause resource changes.
+	 * 
+	 * @param process
+	 * @param allConsultedFiles
+	 * @param monitor
+	 */
 	public static void addMarkers(PrologProcess process, List<String> allConsultedFiles, IProgressMonitor monitor) {
 		monitor.beginTask("Update markers", 2);
 		PrologSession session =null;
 		try {
 			session = process.getSession();
-			Map<String, IFile> fileNameToIFiles = new HashMap<String, IFile>();
-			monitor.subTask("add markers for errors and warnings");
-			collectIFilesForFileNames(allConsultedFiles, fileNameToIFiles);
-			addMarkersForErrorsAndWarnings(session, new SubProgressMonitor(monitor, 1, SubProgressMonitor.PREPEND_MAIN_LABEL_TO_SUBTASK), fileNameToIFiles);
-			monitor.subTask("Update Prolog Smells Detectors");
-			addMarkersForSmellDetectors(session, new SubProgressMonitor(monitor, 1, SubProgressMonitor.PREPEND_MAIN_LABEL_TO_SUBTASK), fileNameToIFiles);
+			monitor.subTask("Collect errors, warnings and smells");
+			Map<IFile, List<Map<String, Object>>> markers = collectMarkers(session, allConsultedFiles);
+			monitor.worked(1);
+			monitor.subTask("Update problem markers");
+			updateMarkers(markers, new SubProgressMonitor(monitor, 1, SubProgressMonitor.PREPEND_MAIN_LABEL_TO_SUBTASK));
 //			addMarkersUndefinedCalls(session, new SubProgressMonitor(monitor, 1, SubProgressMonitor.PREPEND_MAIN_LABEL_TO_SUBTASK), fileNameToIFiles);
 //			session.queryOnce("deactivate_warning_and_error_tracing");
 		} catch (PrologException e) {
@@ -91,75 +104,139 @@ public class PLMarkerUtils {
 		}
 	}
 	
-	private static void addMarkersForErrorsAndWarnings(PrologSession session, SubProgressMonitor monitor, Map<String, IFile> fileNameToIFiles) throws PrologProcessException, CoreException {
-		List<Map<String, Object>> msgs = session.queryAll(bT(PrologConnectorPredicates.ERRORS_AND_WARNINGS, "Kind", "Line", "Length", "Message", "File"));
-		monitor.beginTask("Add markers for errors and warnings", msgs.size());
+	/**
+	 * @return the attributes of the problem markers of every file, including
+	 *         an empty list for consulted files without problems
+	 */
+	private static Map<IFile, List<Map<String, Object>>> collectMarkers(PrologSession session, List<String> allConsultedFiles) throws PrologProcessException {
+		Map<String, IFile> fileNameToIFiles = new HashMap<String, IFile>();
+		Map<IFile, List<Map<String, Object>>> markers = new LinkedHashMap<IFile, List<Map<String, Object>>>();
+		List<String> quotedFileNames = new ArrayList<String>();
+		for (String fileName : allConsultedFiles) {
+			IFile file = getFile(fileName, fileNameToIFiles);
+			if (file != null) {
+				markers.put(file, new ArrayList<Map<String, Object>>());
+				quotedFileNames.add(quoteAtom(fileName));
+			}
+		}
 		
-		for (Map<String, Object> msg : msgs) {
-			int severity=0;
-			try {
-				severity = mapSeverity(((String)msg.get("Kind")));
-			} catch(IllegalArgumentException e){
-				monitor.worked(1);
-				continue;
+		List<Map<String, Object>> results = session.queryAll(bT(PDTPredicates.PROBLEM_MARKER, listToArgList(quotedFileNames), "File", "Kind", "Line", "Start", "Length", "Message", "Name", "QuickfixDescription", "QuickfixAction"));
+		
+		// results are ordered by file
+		String currentFileName = null;
+		IFile file = null;
+		List<Map<String, Object>> fileMarkers = null;
+		LogicalOffsetIndex offsets = null;
+		for (Map<String, Object> result : results) {
+			String fileName = result.get("File").toString();
+			if (!fileName.equals(currentFileName)) {
+				currentFileName = fileName;
+				file = getFile(fileName, fileNameToIFiles);
+				offsets = null;
+				if (file != null) {
+					fileMarkers = markers.get(file);
+					if (fileMarkers == null) {
+						fileMarkers = new ArrayList<Map<String, Object>>();
+						markers.put(file, fileMarkers);
+					}
+				}
 			}
-			
-			String fileName = msg.get("File").toString();
-			IFile file = getFile(fileName, fileNameToIFiles);
 			if (file == null) {
-				monitor.worked(1);
 				continue;
 			}
-			
-			IMarker marker = file.createMarker(IMarker.PROBLEM);
-
-			marker.setAttribute(IMarker.SEVERITY, severity);
-
-			String msgText = msg.get("Message").toString();
-			int line = Integer.parseInt(msg.get("Line").toString());
-			if (severity == IMarker.SEVERITY_ERROR && msgText.startsWith("Exported procedure ") && msgText.endsWith(" is not defined\n")){
-				line = 1;
+			try {
+				String kind = result.get("Kind").toString();
+				if ("smell".equals(kind)) {
+					if (offsets == null) {
+						offsets = UIUtils.getOffsetIndex(UIUtils.getDocument(file));
+					}
+					fileMarkers.add(getSmellAttributes(result, offsets));
+				} else {
+					Map<String, Object> attributes = getMessageAttributes(kind, result);
+					if (attributes != null) {
+						fileMarkers.add(attributes);
+					}
+				}
+			} catch (Exception e) {
+				Debug.report(e);
 			}
-			
-			MarkerUtilities.setLineNumber(marker, line);
-			
-			marker.setAttribute(IMarker.MESSAGE, msgText);
-			monitor.worked(1);
 		}
-		monitor.done();
+		return markers;
 	}
 	
-	private static void addMarkersForSmellDetectors(PrologSession session, IProgressMonitor monitor, Map<String, IFile> fileNameToIFiles) throws PrologProcessException, CoreException {
-		monitor.beginTask("Update Prolog Smells Detectors", fileNameToIFiles.size());
-
-		for (String fileName : fileNameToIFiles.keySet()) {
-			String query = bT(PDTPredicates.SMELL_MARKER_PDT, "Name", "Description", "QuickfixDescription", "QuickfixAction", QueryUtils.quoteAtom(fileName), "Start", "Length");
-			List<Map<String, Object>> msgsSmells = session.queryAll(query);
-			
-			if(msgsSmells!=null) {
-				IFile file = getFile(fileName, fileNameToIFiles);
-				IDocument doc = UIUtils.getDocument(file);
-				for (Map<String, Object> msg : msgsSmells) {
-					IMarker marker = file.createMarker(IMarker.PROBLEM);
-					marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
-					marker.setAttribute(PDTMarker.SMELL_NAME, msg.get("Name").toString());
-					marker.setAttribute(PDTMarker.QUICKFIX_DESCRIPTION, msg.get("QuickfixDescription").toString());
-					
-					String msgText = (String)msg.get("Description");
-					int startPl = Integer.parseInt(msg.get("Start").toString());
-					int start = UIUtils.logicalToPhysicalOffset(doc,startPl);
-					int length = Integer.parseInt(msg.get("Length").toString());
-					
-					MarkerUtilities.setCharStart(marker, start);
-					MarkerUtilities.setCharEnd(marker, start+length);
-					
-					marker.setAttribute(PDTMarker.QUICKFIX_ACTION, msg.get("QuickfixAction".toString()));
-					marker.setAttribute(IMarker.MESSAGE, msgText);
+	private static Map<String, Object> getMessageAttributes(String kind, Map<String, Object> result) {
+		int severity;
+		try {
+			severity = mapSeverity(kind);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		
+		String msgText = result.get("Message").toString();
+		int line = Integer.parseInt(result.get("Line").toString());
+		if (severity == IMarker.SEVERITY_ERROR && msgText.startsWith("Exported procedure ") && msgText.endsWith(" is not defined\n")){
+			line = 1;
+		}
+		
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put(IMarker.SEVERITY, severity);
+		attributes.put(IMarker.LINE_NUMBER, line);
+		attributes.put(IMarker.MESSAGE, msgText);
+		return attributes;
+	}
+	
+	private static Map<String, Object> getSmellAttributes(Map<String, Object> result, LogicalOffsetIndex offsets) {
+		int start = offsets.logicalToPhysicalOffset(Integer.parseInt(result.get("Start").toString()));
+		int length = Integer.parseInt(result.get("Length").toString());
+		
+		Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
+		attributes.put(PDTMarker.SMELL_NAME, result.get("Name").toString());
+		attributes.put(PDTMarker.QUICKFIX_DESCRIPTION, result.get("QuickfixDescription").toString());
+		attributes.put(IMarker.CHAR_START, start);
+		attributes.put(IMarker.CHAR_END, start + length);
+		attributes.put(PDTMarker.QUICKFIX_ACTION, result.get("QuickfixAction").toString());
+		attributes.put(IMarker.MESSAGE, result.get("Message").toString());
+		return attributes;
+	}
+	
+	private static void updateMarkers(final Map<IFile, List<Map<String, Object>>> markers, IProgressMonitor monitor) throws CoreException {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(new IWorkspaceRunnable() {
+			@Override
+			public void run(IProgressMonitor monitor) throws CoreException {
+				monitor.beginTask("Update problem markers", markers.size());
+				for (Map.Entry<IFile, List<Map<String, Object>>> entry : markers.entrySet()) {
+					try {
+						updateMarkers(entry.getKey(), entry.getValue());
+					} catch (CoreException e) {
+						Debug.report(e);
+					}
+					monitor.worked(1);
 				}
+				monitor.done();
+			}
+		}, workspace.getRuleFactory().markerRule(workspace.getRoot()), IWorkspace.AVOID_UPDATE, monitor);
+	}
+	
+	/**
+	 * Replaces the problem markers of the file by markers with the given
+	 * attributes. Existing markers with the same attributes are kept.
+	 */
+	private static void updateMarkers(IFile file, List<Map<String, Object>> attributes) throws CoreException {
+		if (!file.exists()) {
+			return;
+		}
+		List<Map<String, Object>> missing = new ArrayList<Map<String, Object>>(attributes);
+		for (IMarker marker : file.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO)) {
+			if (!missing.remove(marker.getAttributes())) {
+				marker.delete();
 			}
-			monitor.worked(1);
 		}
-		monitor.done();
+		for (Map<String, Object> markerAttributes : missing) {
+			IMarker marker = file.createMarker(IMarker.PROBLEM);
+			marker.setAttributes(markerAttributes);
+		}
 	}
 	
 //	private static void addMarkersUndefinedCalls(PrologSession session, SubProgressMonitor monitor, Map<String, IFile> fileNameToIFiles) throws PrologException, PrologProcessException {
@@ -190,38 +267,24 @@ public class PLMarkerUtils {
 //		monitor.done();
 //	}
 
-	private static void collectIFilesForFileNames(List<String> fileNames, Map<String, IFile> fileNameToIFiles) {
-		for (String fileName : fileNames) {
-			try {
-				getFile(fileName, fileNameToIFiles);
-			} catch (CoreException e) {
-				Debug.report(e);
-			}
+	private static IFile getFile(String fileName, Map<String, IFile> fileNameToIFiles) {
+		if (fileNameToIFiles.containsKey(fileName)) {
+			return fileNameToIFiles.get(fileName);
 		}
-	}
-	
-	private static IFile getFile(String fileName, Map<String, IFile> fileNameToIFiles) throws CoreException {
-		IFile file = fileNameToIFiles.get(fileName);
-		if (file != null) {
-			return file;
-		} else {
-			try {
-				file = FileUtils.findFileForLocation(fileName);
-			} catch (IOException e1) {
-				return null;
-			} catch (IllegalArgumentException e2){
-				return null;
-			}
-			if (file == null || !file.exists()){
-				return null;
-			}
-			file.deleteMarkers(IMarker.PROBLEM, false, IResource.DEPTH_INFINITE);
-			fileNameToIFiles.put(fileName, file);
-			return file;
+		IFile file;
+		try {
+			file = FileUtils.findFileForLocation(fileName);
+		} catch (IOException e1) {
+			file = null;
+		} catch (IllegalArgumentException e2){
+			file = null;
+		}
+		if (file != null && !file.exists()){
+			file = null;
 		}
+		fileNameToIFiles.put(fileName, file);
+		return file;
 	}
 
 
 }
-
-
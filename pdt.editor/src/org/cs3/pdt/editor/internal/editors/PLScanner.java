@@ -14,22 +14,16 @@
 
 package org.cs3.pdt.editor.internal.editors;
 
-import static org.cs3.prolog.connector.common.QueryUtils.bT;
-
 import java.io.IOException;
 import java.net.URI;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.cs3.pdt.common.PDTCommonUtil;
 import org.cs3.pdt.connector.util.FileUtils;
 import org.cs3.pdt.editor.PDTPlugin;
-import org.cs3.pdt.editor.PDTPredicates;
-import org.cs3.prolog.connector.common.Debug;
-import org.cs3.prolog.connector.common.QueryUtils;
-import org.cs3.prolog.connector.process.PrologProcessException;
-import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.process.PrologProcess;
 import org.eclipse.core.resources.IFile;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.text.TextAttribute;
 import org.eclipse.jface.text.rules.IRule;
@@ -38,7 +32,6 @@ import org.eclipse.jface.text.rules.MultiLineRule;
 import org.eclipse.jface.text.rules.RuleBasedScanner;
 import org.eclipse.jface.text.rules.Token;
 import org.eclipse.jface.text.rules.WhitespaceRule;
-import org.eclipse.jface.text.rules.WordRule;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.swt.graphics.RGB;
@@ -50,8 +43,7 @@ public class PLScanner extends RuleBasedScanner implements IPropertyChangeListen
 	private ColorManager manager;
 	private IFile file;
 
-	public PLScanner(PLEditor editor, ColorManager manager) 
-	throws CoreException, PrologProcessException {
+	public PLScanner(PLEditor editor, ColorManager manager) {
 
 		this.manager = manager;
 		
@@ -84,8 +76,12 @@ public class PLScanner extends RuleBasedScanner implements IPropertyChangeListen
 		initHighlighting();
 	}
 
-	void initHighlighting()
-			throws PrologProcessException, CoreException {
+	/**
+	 * Takes the highlighted words from the {@link HighlightingKeywords} of the
+	 * active process. The keywords are not fetched here, so this never waits
+	 * for the process.
+	 */
+	void initHighlighting() {
 		// "Tokens" indicate the desired highlighting
 		IToken variableToken    = tokenFor(manager.getVariableColor());
 		IToken stringToken      = tokenFor(manager.getStringColor());
@@ -102,8 +98,7 @@ public class PLScanner extends RuleBasedScanner implements IPropertyChangeListen
 		// - whitespace:
 		rules[3] = new WhitespaceRule(new PLWhitespaceDetector());
 		// - special words: 
-		rules[4] = new WordRule(new WordDetector(), wordToken);
-		addWordsTo((WordRule)rules[4]);
+		rules[4] = new KeywordRule(new WordDetector(), getKeywords(), getPropertyTokens(), wordToken);
 		
 		rules[5] = new CharacterCodeRule(wordToken);
 
@@ -112,98 +107,42 @@ public class PLScanner extends RuleBasedScanner implements IPropertyChangeListen
 	}
 
 	/**
-	 * Add to the special words of wordRule all names of predicates 
-	 * that should be highlighted in a specific way and associate
-	 * them to tokens that indicate the desired highlighting.
-	 * 
-     * @param wordRule -- The WordRule to which we add words.
-	 * @param manager -- The ColorManager 
-	 * @param plProject -- The PDT Metadata process.
-	 * @throws PrologProcessException
+	 * Associates the properties of highlighted predicates with the tokens
+	 * that indicate the desired highlighting.
 	 */
-	private void addWordsTo(WordRule wordRule) throws PrologProcessException, CoreException {
-		
-		// The order of the following definitions is important!
-		// The latter ones overrule the previous ones. E.g. a predicate
-		// that is transparent AND a metapredicate will be highlighted
-		// as a metapredicate because the metapredicates are added later.
-		// This makes sense since being a metapredicate is more specific
+	private Map<String, IToken> getPropertyTokens() {
+		// If a predicate has several properties, the last one of
+		// undefined, built_in, dynamic, transparent and meta_predicate
+		// determines its highlighting. E.g. a predicate that is
+		// transparent AND a metapredicate will be highlighted as a
+		// metapredicate since being a metapredicate is more specific
 		// (each metapredicate is transparent but not every transparent
 		// predicate is a metapredicate). -- GK
-		
-		addWordsWithProperty("undefined", tokenFor(manager.getUndefinedColor()), wordRule);
-		addWordsWithProperty("built_in", tokenFor(manager.getKeywordColor()), wordRule);
-		addWordsWithProperty("dynamic",  tokenFor(manager.getDynamicColor()), wordRule);
-		addWordsWithProperty("transparent", tokenFor(manager.getTransparentColor()), wordRule);
-		addWordsWithProperty("meta_predicate(_)", tokenFor(manager.getMetaColor()), wordRule);
+		Map<String, IToken> tokens = new HashMap<String, IToken>();
+		tokens.put(HighlightingKeywords.UNDEFINED, tokenFor(manager.getUndefinedColor()));
+		tokens.put(HighlightingKeywords.BUILT_IN, tokenFor(manager.getKeywordColor()));
+		tokens.put(HighlightingKeywords.DYNAMIC, tokenFor(manager.getDynamicColor()));
+		tokens.put(HighlightingKeywords.TRANSPARENT, tokenFor(manager.getTransparentColor()));
+		tokens.put(HighlightingKeywords.META_PREDICATE, tokenFor(manager.getMetaColor()));
+		return tokens;
 	}
 
-
 	private Token tokenFor(RGB color) {
 		return new Token(new TextAttribute(manager.getColor(color), null, 1)); /*SWT.NORMAL | SWT.ITALIC | SWT.BOLD | TextAttribute.UNDERLINE)*/
 	}
 	
-	/**
-	 * Add to the special words of wordRule all names of predicates 
-	 * that have a certain property and associate each with the 
-	 * token that indicates the desired highlighting.
-	 * 
-	 * @param property -- The desired property 
-	 * @param keywordToken -- The desired highlighting for words with that property
-	 * @param wordRule -- The WordRule to which to add the words.
-	 * @param plProject -- The PDT Metadata process.
-	 * @throws PrologProcessException
-	 * @throws CoreException 
-	 */
-	private void addWordsWithProperty(String property, IToken keywordToken, WordRule wordRule) throws PrologProcessException, CoreException {
-		String[] plBuiltInPredicates = getPredicatesWithProperty(property);
-		for (int i = 0; plBuiltInPredicates!=null&&i < plBuiltInPredicates.length; i++){
-			wordRule.addWord(plBuiltInPredicates[i], keywordToken);
-		}
-	}
-
-
-	/**
-	 * getPredicatesWithProperty(String property)
-	 * 
-	 * Get names of predicates that have a certain property. This implementation
-	 * (by Tobias Rho) is for projects that DO NOT have the PDT nature.
-	 * 
-	 */
-	private String[] getPredicatesWithProperty(String property) throws PrologProcessException, CoreException {
-		PrologSession session = null;
-		try {
-			session = PDTCommonUtil.getActivePrologProcess().getSession();
-			Map<String, Object> solutions = session
-					.queryOnce(bT(PDTPredicates.PREDICATES_WITH_PROPERTY, property, QueryUtils.quoteAtom(FileUtils.prologFileName(file)), "Predicates")); 
-
-			if (solutions == null)
-				return null;
-			String predicatesStr = (String) solutions.get("Predicates");
-			// swipl 5.8.x adds ", " between list elements when writing
-			// Strings/Streams:
-			predicatesStr = predicatesStr.replaceAll(" ", "");
-			return predicatesStr.substring(1, predicatesStr.length() - 1)
-					.split(",");
-		} catch (Exception e) {
-			Debug.report(e);
-		} finally {
-			if (session != null)
-				session.dispose();
+	private HighlightingKeywords getKeywords() {
+		PrologProcess process = PDTCommonUtil.getActivePrologProcess();
+		if (process == null || file == null) {
+			return null;
 		}
-		return null;
+		return HighlightingKeywords.getKeywords(process, FileUtils.prologFileName(file));
 	}
 
 	@Override
 	public void propertyChange(PropertyChangeEvent event) {
 		if (event.getProperty().startsWith("pdt.editor.colors")) {
-			try {
-				initHighlighting();
-			} catch (CoreException e) {
-				Debug.report(e);
-			} catch (PrologProcessException e) {
-				Debug.report(e);
-			}	
+			initHighlighting();
 		}
 	}
 }
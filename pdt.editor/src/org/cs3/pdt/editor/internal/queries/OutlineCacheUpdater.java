@@ -0,0 +1,53 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+package org.cs3.pdt.editor.internal.queries;
+
+import java.util.List;
+
+import org.cs3.pdt.common.PrologProcessStartListener;
+import org.cs3.pdt.connector.service.ConsultDelta;
+import org.cs3.pdt.connector.service.IncrementalConsultListener;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Removes outdated outlines from the cache of {@link PDTOutlineQuery} after a
+ * consult or a restart.
+ */
+public class OutlineCacheUpdater implements IncrementalConsultListener, PrologProcessStartListener {
+
+	@Override
+	public void beforeConsult(PrologProcess process, List<IFile> files, IProgressMonitor monitor) throws PrologProcessException {
+	}
+
+	@Override
+	public void afterConsult(PrologProcess process, List<IFile> files, List<String> allConsultedFiles, IProgressMonitor monitor) throws PrologProcessException {
+		PDTOutlineQuery.invalidate(process);
+		monitor.done();
+	}
+
+	@Override
+	public void afterConsult(PrologProcess process, List<IFile> files, ConsultDelta delta, IProgressMonitor monitor) throws PrologProcessException {
+		PDTOutlineQuery.invalidate(process, delta);
+		monitor.done();
+	}
+
+	@Override
+	public void prologProcessStarted(PrologProcess process) {
+		PDTOutlineQuery.invalidate(process);
+	}
+
+}
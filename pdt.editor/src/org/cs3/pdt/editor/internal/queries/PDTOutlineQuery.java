@@ -15,21 +15,26 @@ package org.cs3.pdt.editor.internal.queries;
 
 import static org.cs3.prolog.connector.common.QueryUtils.bT;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.WeakHashMap;
 
 import org.cs3.pdt.common.PDTCommonPredicates;
 import org.cs3.pdt.common.PDTCommonUtil;
 import org.cs3.pdt.connector.PrologConnectorPredicates;
+import org.cs3.pdt.connector.service.ConsultDelta;
 import org.cs3.pdt.editor.PDT;
 import org.cs3.pdt.editor.PDTPlugin;
 import org.cs3.pdt.editor.internal.structureElements.OutlineModuleElement;
 import org.cs3.pdt.editor.internal.structureElements.PrologClause;
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.QueryUtils;
-import org.cs3.prolog.connector.process.PrologException;
 import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.cs3.prolog.connector.session.PrologSession;
@@ -37,28 +42,72 @@ import org.cs3.prolog.connector.session.PrologSession;
 
 public class PDTOutlineQuery {
 
+	/**
+	 * The query results for a file, valid as long as the reload generation of
+	 * the file and the outline options do not change and no consult affects
+	 * its modules.
+	 */
+	private static class CachedOutline {
+		final String generation;
+		final String options;
+		final List<Map<String, Object>> result;
+		final Set<String> modules = new HashSet<String>();
+
+		CachedOutline(String generation, String options, List<Map<String, Object>> result) {
+			this.generation = generation;
+			this.options = options;
+			this.result = result;
+			for (Map<String, Object> predicate : result) {
+				modules.add(getModule(predicate));
+			}
+		}
+	}
+
+	private static final Map<PrologProcess, Map<String, CachedOutline>> cache = new WeakHashMap<PrologProcess, Map<String, CachedOutline>>();
+
+	/**
+	 * Returns the outline of a file. The outline is only queried if the file
+	 * has been reloaded since the last query, otherwise it is built from the
+	 * cached query results. Waits for a running reload to finish.
+	 * 
+	 * @param fileName
+	 * @return new outline elements of the file, which are not shared with
+	 *         other callers
+	 */
 	public static Map<String, OutlineModuleElement> getProgramElementsForFile(String fileName/*, Shell shell*/) {	
 		PrologSession session=null;
 		try {
-			session = PDTCommonUtil.getActivePrologProcess().getSession();
+			PrologProcess process = PDTCommonUtil.getActivePrologProcess();
+			session = process.getSession();
 			
-			session.queryOnce(PrologConnectorPredicates.WAIT_FOR_RELOAD_FINISHED);
-
-			String query = bT(PDTCommonPredicates.FIND_DEFINITION_CONTAINED_IN,
+			Map<String, Object> generationResult = session.queryOnce(bT(PrologConnectorPredicates.FILE_RELOAD_GENERATION,
 					QueryUtils.quoteAtom(fileName),
-					getOptions(),
-					"Entity",
-					"EntityLine",
-					"KindOfEntity",
-					"Functor",
-					"Arity",
-					"TypeOfDef",
-					"Line",
-					"PropertyList");
-			List<Map<String, Object>> result = session.queryAll(query);
+					"Generation"));
+			String generation = generationResult == null ? "" : generationResult.get("Generation").toString();
+			String options = getOptions();
+			
+			CachedOutline cachedOutline = getCachedOutline(process, fileName);
+			List<Map<String, Object>> result;
+			if (cachedOutline != null && cachedOutline.generation.equals(generation) && cachedOutline.options.equals(options)) {
+				result = cachedOutline.result;
+			} else {
+				String query = bT(PDTCommonPredicates.FIND_DEFINITION_CONTAINED_IN,
+						QueryUtils.quoteAtom(fileName),
+						options,
+						"Entity",
+						"EntityLine",
+						"KindOfEntity",
+						"Functor",
+						"Arity",
+						"TypeOfDef",
+						"Line",
+						"PropertyList");
+				result = session.queryAll(query);
+				putCachedOutline(process, fileName, new CachedOutline(generation, options, result));
+			}
 
 			if(! result.isEmpty()) {
-				return extractResults(result, fileName, session);
+				return extractResults(result, fileName);
 			}
 		}catch(Exception e){
 			Debug.report(e);
@@ -68,6 +117,144 @@ public class PDTOutlineQuery {
 		return new HashMap<String, OutlineModuleElement>();
 	}
 	
+	/**
+	 * Returns the outline of a file from the results of the last query
+	 * without accessing the process, so the outline may be outdated.
+	 * 
+	 * @param fileName
+	 * @return new outline elements of the file or null if the file has not
+	 *         been queried yet
+	 */
+	public static Map<String, OutlineModuleElement> getCachedProgramElementsForFile(String fileName) {
+		PrologProcess process = PDTCommonUtil.getActivePrologProcess();
+		if (process == null) {
+			return null;
+		}
+		CachedOutline cachedOutline = getCachedOutline(process, fileName);
+		if (cachedOutline == null) {
+			return null;
+		}
+		return extractResults(cachedOutline.result, fileName);
+	}
+	
+	private static CachedOutline getCachedOutline(PrologProcess process, String fileName) {
+		synchronized (cache) {
+			Map<String, CachedOutline> processCache = cache.get(process);
+			return processCache == null ? null : processCache.get(fileName);
+		}
+	}
+	
+	private static void putCachedOutline(PrologProcess process, String fileName, CachedOutline cachedOutline) {
+		synchronized (cache) {
+			Map<String, CachedOutline> processCache = cache.get(process);
+			if (processCache == null) {
+				processCache = new HashMap<String, CachedOutline>();
+				cache.put(process, processCache);
+			}
+			processCache.put(fileName, cachedOutline);
+		}
+	}
+	
+	/**
+	 * Removes the cached outlines which may be outdated after a consult.
+	 * 
+	 * @param process
+	 * @param delta
+	 * @see #isAffected(String, Collection, ConsultDelta)
+	 */
+	public static void invalidate(PrologProcess process, ConsultDelta delta) {
+		synchronized (cache) {
+			Map<String, CachedOutline> processCache = cache.get(process);
+			if (processCache == null) {
+				return;
+			}
+			for (Iterator<Map.Entry<String, CachedOutline>> it = processCache.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<String, CachedOutline> entry = it.next();
+				if (isAffected(entry.getKey(), entry.getValue().modules, delta)) {
+					it.remove();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Removes all cached outlines of a process, e.g. after a restart.
+	 * 
+	 * @param process
+	 */
+	public static void invalidate(PrologProcess process) {
+		synchronized (cache) {
+			cache.remove(process);
+		}
+	}
+	
+	/**
+	 * Removes the cached outlines of a file which is not shown anymore.
+	 * 
+	 * @param fileName
+	 */
+	public static void evict(String fileName) {
+		synchronized (cache) {
+			for (Map<String, CachedOutline> processCache : cache.values()) {
+				processCache.remove(fileName);
+			}
+		}
+	}
+	
+	/**
+	 * The outline of a file is affected by a consult if the file itself has
+	 * been added, changed or removed, or if predicates of one of its modules
+	 * have been, e.g. by multifile clauses in another file.
+	 * 
+	 * @param fileName
+	 * @param modules
+	 *            the modules shown in the outline of the file
+	 * @param delta
+	 * @return whether the outline of the file may have changed
+	 */
+	public static boolean isAffected(String fileName, Collection<String> modules, ConsultDelta delta) {
+		List<String> prefixes = new Vector<String>();
+		for (String module : modules) {
+			prefixes.add(quoteAtomLikeProlog(module) + ":");
+		}
+		for (ConsultDelta.Kind kind : ConsultDelta.Kind.values()) {
+			if (delta.getFiles(kind).contains(fileName)) {
+				return true;
+			}
+			for (String predicate : delta.getPredicates(kind)) {
+				for (String prefix : prefixes) {
+					if (predicate.startsWith(prefix)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Quotes an atom only if needed, like the predicates of a consult delta
+	 * are written by <code>format/2</code> with <code>~q</code>.
+	 */
+	private static String quoteAtomLikeProlog(String atom) {
+		if (atom.matches("[a-z][a-zA-Z0-9_]*")) {
+			return atom;
+		}
+		return "'" + atom.replace("\\", "\\\\").replace("'", "\\'") + "'";
+	}
+	
+	private static String getModule(Map<String, Object> predicate) {
+		Object prop = predicate.get("PropertyList");
+		if (prop instanceof Vector<?>) {
+			@SuppressWarnings("unchecked")
+			String forEntity = PDTCommonUtil.getProperty("for", (Vector<String>) prop);
+			if (forEntity != null) {
+				return forEntity;
+			}
+		}
+		return predicate.get("Entity").toString();
+	}
+	
 	private static String getOptions() {
 		StringBuffer buf = new StringBuffer("[multifile(");
 		buf.append(Boolean.toString(PDTPlugin.getDefault().getPreferenceStore().getBoolean(PDT.PREF_OUTLINESHOW_MULTIFILE)));
@@ -80,7 +267,7 @@ public class PDTOutlineQuery {
 	}
 
 	@SuppressWarnings("unchecked")
-	private static Map<String, OutlineModuleElement> extractResults(List<Map<String, Object>> result, String fileName, PrologSession session) throws PrologException, PrologProcessException {
+	private static Map<String, OutlineModuleElement> extractResults(List<Map<String, Object>> result, String fileName) {
 		Map<String, OutlineModuleElement> modules= new HashMap<String, OutlineModuleElement>();	
 		for (Map<String, Object> predicate : result) {
 			String module = predicate.get("Entity").toString();
@@ -0,0 +1,85 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.pdt.editor.internal.structureElements;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The changes of the outline of a file between two queries, so a tree viewer
+ * only has to update the changed elements instead of the whole tree.
+ */
+public class OutlineDelta {
+
+	private boolean structureChanged = false;
+	private final List<Object> removed = new ArrayList<Object>();
+	private final Map<Object, List<Object>> added = new LinkedHashMap<Object, List<Object>>();
+	private final List<Object> changed = new ArrayList<Object>();
+
+	/**
+	 * Marks that the whole tree has to be refreshed.
+	 */
+	public void setStructureChanged() {
+		structureChanged = true;
+	}
+
+	public boolean isStructureChanged() {
+		return structureChanged;
+	}
+
+	public void removed(Object element) {
+		removed.add(element);
+	}
+
+	public void added(Object parent, Object element) {
+		List<Object> children = added.get(parent);
+		if (children == null) {
+			children = new ArrayList<Object>();
+			added.put(parent, children);
+		}
+		children.add(element);
+	}
+
+	/**
+	 * @param element
+	 *            the new element replacing an equal element whose label or
+	 *            children changed
+	 */
+	public void changed(Object element) {
+		changed.add(element);
+	}
+
+	public List<Object> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return the added elements by their parent
+	 */
+	public Map<Object, List<Object>> getAdded() {
+		return added;
+	}
+
+	public List<Object> getChanged() {
+		return changed;
+	}
+
+	public boolean isEmpty() {
+		return !structureChanged && removed.isEmpty() && added.isEmpty() && changed.isEmpty();
+	}
+
+}
@@ -14,6 +14,7 @@
 package org.cs3.pdt.editor.internal.structureElements;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.cs3.pdt.common.PDTCommonUtil;
@@ -110,6 +111,45 @@ public class OutlineModuleElement extends PrologSourceLocation implements Prolog
 		}
 	}
 	
+	/**
+	 * Takes over the predicates of a newer outline of this module. Predicates
+	 * which did not change are kept, so they keep their state in the viewer.
+	 * 
+	 * @param newer
+	 * @param delta
+	 *            collects the changed predicates
+	 * @return false if the module itself changed and has to be replaced
+	 */
+	public boolean update(OutlineModuleElement newer, OutlineDelta delta) {
+		if (!equals(newer)
+				|| getLine() != newer.getLine()
+				|| !getFilePath().equals(newer.getFilePath())
+				|| fileEqualToEditorFile != newer.fileEqualToEditorFile) {
+			return false;
+		}
+		for (Iterator<Map.Entry<String, OutlinePredicateElement>> it = predicates.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, OutlinePredicateElement> entry = it.next();
+			if (!newer.predicates.containsKey(entry.getKey())) {
+				delta.removed(entry.getValue());
+				it.remove();
+			}
+		}
+		for (Map.Entry<String, OutlinePredicateElement> entry : newer.predicates.entrySet()) {
+			OutlinePredicateElement oldPredicate = predicates.get(entry.getKey());
+			OutlinePredicateElement newPredicate = entry.getValue();
+			if (oldPredicate == null) {
+				newPredicate.setParent(this);
+				predicates.put(entry.getKey(), newPredicate);
+				delta.added(this, newPredicate);
+			} else if (!oldPredicate.hasSameContent(newPredicate)) {
+				newPredicate.setParent(this);
+				predicates.put(entry.getKey(), newPredicate);
+				delta.changed(newPredicate);
+			}
+		}
+		return true;
+	}
+	
 	private String getSignature(PrologClause clause) {
 		return clause.getFunctor() + "/" + clause.getArity();
 	}
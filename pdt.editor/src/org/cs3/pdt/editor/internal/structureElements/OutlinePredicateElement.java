@@ -14,6 +14,7 @@
 package org.cs3.pdt.editor.internal.structureElements;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -114,6 +115,36 @@ public class OutlinePredicateElement extends Predicate implements PrologTreeElem
 	public Object getParent() {
 		return parent;
 	}
+	
+	public void setParent(Object parent) {
+		this.parent = parent;
+	}
+	
+	/**
+	 * @param other
+	 * @return true if the other element is shown exactly like this one,
+	 *         including its children
+	 */
+	public boolean hasSameContent(OutlinePredicateElement other) {
+		if (!equals(other)
+				|| !fileName.equals(other.fileName)
+				|| !getProperties().equals(other.getProperties())
+				|| allChildren.size() != other.allChildren.size()) {
+			return false;
+		}
+		for (int i = 0; i < allChildren.size(); i++) {
+			Object child = allChildren.get(i);
+			Object otherChild = other.allChildren.get(i);
+			if (!child.equals(otherChild)) {
+				return false;
+			}
+			if (child instanceof OutlineFileElement
+					&& !Arrays.equals(((OutlineFileElement) child).getChildren(), ((OutlineFileElement) otherChild).getChildren())) {
+				return false;
+			}
+		}
+		return true;
+	}
 
 	public void addClause(PrologClause clause) {
 		if (clause.isFromOtherFile()) {
@@ -33,7 +33,8 @@ import org.cs3.pdt.common.PrologProcessStartListener;
 import org.cs3.pdt.common.metadata.SourceLocation;
 import org.cs3.pdt.connector.PDTConnectorPlugin;
 import org.cs3.pdt.connector.service.ActivePrologProcessListener;
-import org.cs3.pdt.connector.service.ConsultListener;
+import org.cs3.pdt.connector.service.ConsultDelta;
+import org.cs3.pdt.connector.service.IncrementalConsultListener;
 import org.cs3.pdt.connector.util.FileUtils;
 import org.cs3.pdt.editor.PDT;
 import org.cs3.pdt.editor.PDTPlugin;
@@ -42,6 +43,7 @@ import org.cs3.pdt.editor.internal.ImageRepository;
 import org.cs3.pdt.editor.internal.editors.PLEditor;
 import org.cs3.pdt.editor.internal.queries.PDTOutlineQuery;
 import org.cs3.pdt.editor.internal.structureElements.OutlineClauseElement;
+import org.cs3.pdt.editor.internal.structureElements.OutlineDelta;
 import org.cs3.pdt.editor.internal.structureElements.OutlineFileElement;
 import org.cs3.pdt.editor.internal.structureElements.OutlineModuleElement;
 import org.cs3.pdt.editor.internal.structureElements.OutlinePredicateElement;
@@ -51,6 +53,9 @@ import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
@@ -66,6 +71,7 @@ import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Menu;
@@ -75,7 +81,7 @@ import org.eclipse.ui.views.contentoutline.ContentOutlinePage;
 
 
 
-public class NonNaturePrologOutline extends ContentOutlinePage implements ConsultListener, ActivePrologProcessListener, PrologProcessStartListener, IDoubleClickListener {
+public class NonNaturePrologOutline extends ContentOutlinePage implements IncrementalConsultListener, ActivePrologProcessListener, PrologProcessStartListener, IDoubleClickListener {
 	private static final int EXPANDING_LEVEL = 2;
 	public static final String MENU_ID = "org.cs3.pdt.editor.outline.menu";
 	private ITreeContentProvider contentProvider;
@@ -83,6 +89,7 @@ public class NonNaturePrologOutline extends ContentOutlinePage implements Consul
 	private PLEditor editor;
 	private ILabelProvider labelProvider;
 	private Menu contextMenu;
+	private OutlineUpdateJob updateJob;
 	//	private StringMatcher matcher;
 
 	public NonNaturePrologOutline(PLEditor editor) {
@@ -189,34 +196,105 @@ public class NonNaturePrologOutline extends ContentOutlinePage implements Consul
 		return super.getTreeViewer();
 	}
 
+	/**
+	 * Updates the outline in the background. Until the query is finished the
+	 * current outline stays visible. If the outline is still empty, the
+	 * cached outline of the file is shown meanwhile.
+	 * 
+	 * @param information
+	 */
 	public void setInput(Object information) {
 		if (model == null) {
 			return;
 		}
 		
 		String fileName = editor.getPrologFileName();
-
-		Map<String,OutlineModuleElement> modules;
+		if (fileName.isEmpty()) {
+			return;
+		}
+		
+		if (!model.hasChildren()) {
+			Map<String, OutlineModuleElement> cachedModules = PDTOutlineQuery.getCachedProgramElementsForFile(fileName);
+			if (cachedModules != null && !cachedModules.isEmpty()) {
+				updateViewer(model.update(cachedModules, true));
+			}
+		}
+		
+		if (updateJob != null) {
+			updateJob.cancel();
+		}
+		updateJob = new OutlineUpdateJob(fileName);
+		updateJob.schedule();
+	}
+	
+	private void updateViewer(OutlineDelta delta) {
 		TreeViewer treeViewer = getTreeViewer();
-		if (!fileName.isEmpty()) {
-			Object[] expandedElements = null;
-			try {			
-				modules = PDTOutlineQuery.getProgramElementsForFile(fileName);
-				model.update(modules, fileName);
-
-				expandedElements = treeViewer.getExpandedElements();
-				treeViewer.setInput(model);
-				treeViewer.setAutoExpandLevel(EXPANDING_LEVEL);
-
-			} catch(Exception e) {
-				Debug.report(e);
+		if (treeViewer == null || treeViewer.getControl().isDisposed() || delta.isEmpty()) {
+			return;
+		}
+		if (delta.isStructureChanged()) {
+			Object[] expandedElements = treeViewer.getExpandedElements();
+			treeViewer.setInput(model);
+			treeViewer.setAutoExpandLevel(EXPANDING_LEVEL);
+			treeViewer.refresh();
+			if (expandedElements.length > 0) {
+				treeViewer.setExpandedElements(expandedElements);
 			}
-			if (treeViewer != null) {
-				treeViewer.refresh();
-				if (expandedElements != null && expandedElements.length > 0) {
-					treeViewer.setExpandedElements(expandedElements);
+			return;
+		}
+		treeViewer.getControl().setRedraw(false);
+		try {
+			if (!delta.getRemoved().isEmpty()) {
+				treeViewer.remove(delta.getRemoved().toArray());
+			}
+			for (Map.Entry<Object, List<Object>> entry : delta.getAdded().entrySet()) {
+				treeViewer.add(entry.getKey(), entry.getValue().toArray());
+				if (entry.getKey() == model) {
+					for (Object module : entry.getValue()) {
+						treeViewer.expandToLevel(module, EXPANDING_LEVEL - 1);
+					}
 				}
 			}
+			for (Object element : delta.getChanged()) {
+				treeViewer.refresh(element, true);
+			}
+		} finally {
+			treeViewer.getControl().setRedraw(true);
+		}
+	}
+	
+	private class OutlineUpdateJob extends Job {
+		
+		private final String fileName;
+		
+		OutlineUpdateJob(String fileName) {
+			super("Update outline");
+			this.fileName = fileName;
+			setSystem(true);
+		}
+		
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			final Map<String, OutlineModuleElement> modules = PDTOutlineQuery.getProgramElementsForFile(fileName);
+			final boolean fileLoaded = !modules.isEmpty() || PDTOutlineQuery.isFileLoaded(fileName);
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			Display.getDefault().asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					// a newer job has been scheduled in the meantime
+					if (updateJob != OutlineUpdateJob.this || !fileName.equals(editor.getPrologFileName())) {
+						return;
+					}
+					TreeViewer treeViewer = getTreeViewer();
+					if (treeViewer == null || treeViewer.getControl().isDisposed()) {
+						return;
+					}
+					updateViewer(model.update(modules, fileLoaded));
+				}
+			});
+			return Status.OK_STATUS;
 		}
 	}
 
@@ -288,6 +366,10 @@ public class NonNaturePrologOutline extends ContentOutlinePage implements Consul
 
 	@Override
 	public void dispose() {
+		if (updateJob != null) {
+			updateJob.cancel();
+			updateJob = null;
+		}
 		super.dispose();
 		PDTConnectorPlugin.getDefault().getPrologProcessService().unRegisterConsultListener(this);
 		PDTConnectorPlugin.getDefault().getPrologProcessService().unRegisterActivePrologProcessListener(this);
@@ -321,6 +403,28 @@ public class NonNaturePrologOutline extends ContentOutlinePage implements Consul
 		monitor.done();
 	}
 
+	@Override
+	public void afterConsult(PrologProcess process, List<IFile> files, ConsultDelta delta, IProgressMonitor monitor) throws PrologProcessException {
+		monitor.beginTask("", 1);
+
+		if (process.equals(PDTCommonUtil.getActivePrologProcess())) {
+			// the cache may not have been invalidated yet, the order of the
+			// consult listeners is not defined
+			PDTOutlineQuery.invalidate(process, delta);
+			String editorFile = editor.getPrologFileName();
+			if (model != null && PDTOutlineQuery.isAffected(editorFile, model.getModuleNames(), delta)) {
+				getSite().getShell().getDisplay().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						setInput(null);
+					}
+				});
+			}
+		}
+		
+		monitor.done();
+	}
+
 	@Override
 	public void activePrologProcessChanged(PrologProcess process) {
 		getSite().getShell().getDisplay().asyncExec(new Runnable() {
@@ -13,9 +13,13 @@
 
 package org.cs3.pdt.editor.internal.views.lightweightOutline;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.cs3.pdt.editor.internal.queries.PDTOutlineQuery;
+import org.cs3.pdt.editor.internal.structureElements.OutlineDelta;
 import org.cs3.pdt.editor.internal.structureElements.OutlineModuleElement;
 
 
@@ -33,18 +37,70 @@ public class PrologSourceFileModel {
 		update(modules, fileName);
 	}
 	
-	public void update(Map<String,OutlineModuleElement> modules, String fileName){
-		message = null;
-		this.modules = modules;
-		if (modules.isEmpty()) {
-			if (fileName != null && !PDTOutlineQuery.isFileLoaded(fileName)) {
-				message = FILE_NOT_LOADED_MESSAGE;
-			}
-		} else {
+	public OutlineDelta update(Map<String,OutlineModuleElement> modules, String fileName){
+		boolean fileLoaded = !modules.isEmpty() || fileName == null || PDTOutlineQuery.isFileLoaded(fileName);
+		return update(modules, fileLoaded);
+	}
+	
+	/**
+	 * Replaces the outline by a newer one. Modules and predicates which did
+	 * not change are kept.
+	 * 
+	 * @param newModules
+	 * @param fileLoaded
+	 *            whether the file is loaded, only relevant if there are no
+	 *            modules
+	 * @return the changes of the outline
+	 */
+	public OutlineDelta update(Map<String,OutlineModuleElement> newModules, boolean fileLoaded){
+		OutlineDelta delta = new OutlineDelta();
+		String newMessage = null;
+		if (newModules.isEmpty() && !fileLoaded) {
+			newMessage = FILE_NOT_LOADED_MESSAGE;
+		}
+		if (modules == null || modules.isEmpty() || message != null || newMessage != null) {
+			message = newMessage;
+			modules = new HashMap<String, OutlineModuleElement>(newModules);
 			for (OutlineModuleElement module : modules.values()) {
 				module.setParent(this);
 			}
+			delta.setStructureChanged();
+			return delta;
+		}
+		
+		Map<String, OutlineModuleElement> updatedModules = new HashMap<String, OutlineModuleElement>();
+		for (Map.Entry<String, OutlineModuleElement> entry : modules.entrySet()) {
+			if (!newModules.containsKey(entry.getKey())) {
+				delta.removed(entry.getValue());
+			}
+		}
+		for (Map.Entry<String, OutlineModuleElement> entry : newModules.entrySet()) {
+			OutlineModuleElement oldModule = modules.get(entry.getKey());
+			OutlineModuleElement newModule = entry.getValue();
+			if (oldModule != null && oldModule.update(newModule, delta)) {
+				updatedModules.put(entry.getKey(), oldModule);
+			} else {
+				if (oldModule != null) {
+					delta.removed(oldModule);
+				}
+				newModule.setParent(this);
+				updatedModules.put(entry.getKey(), newModule);
+				delta.added(this, newModule);
+			}
+		}
+		modules = updatedModules;
+		return delta;
+	}
+	
+	/**
+	 * @return the names of the modules in the outline
+	 */
+	public List<String> getModuleNames() {
+		Map<String, OutlineModuleElement> currentModules = modules;
+		if (currentModules == null) {
+			return new ArrayList<String>();
 		}
+		return new ArrayList<String>(currentModules.keySet());
 	}
 	
 	public boolean hasChildren() {
@@ -0,0 +1,55 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cs3.prolog.connector.cterm.CTerm;
+import org.cs3.prolog.connector.cterm.CTermFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares creating CTerms with the generated parser and with the decoder used
+ * for server results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CTermBenchmark {
+
+	@Param({
+		"user",
+		"':'(lists,append(A,B,C))",
+		"predicate_property(':'(user,'[|]'(a,'[|]'(\"s\",[]))),file('/home/pdt/src/module.pl'),42,1.5e3)"
+	})
+	public String term;
+
+	@Benchmark
+	public CTerm createCTerm() {
+		return CTermFactory.createCTerm(term);
+	}
+
+	@Benchmark
+	public CTerm decodeCTerm() {
+		return CTermFactory.decodeCTerm(term);
+	}
+
+}
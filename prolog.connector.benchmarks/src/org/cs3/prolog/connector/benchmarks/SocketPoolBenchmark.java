@@ -0,0 +1,77 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.benchmarks;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.cs3.prolog.connector.internal.process.socket.ReusableSocket;
+import org.cs3.prolog.connector.internal.process.socket.SocketPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures borrowing and returning sockets under contention. The sockets are
+ * connected to a plain server socket, so no Prolog is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SocketPoolBenchmark {
+
+	private ServerSocket serverSocket;
+	private SocketPool pool;
+
+	@Setup
+	public void setUp() throws IOException {
+		serverSocket = new ServerSocket(0, 128);
+		pool = new SocketPool() {
+			@Override
+			protected ReusableSocket createSocket() throws IOException {
+				return new ReusableSocket("localhost", serverSocket.getLocalPort());
+			}
+		};
+		pool.setMinIdle(16);
+		pool.setMaxIdle(32);
+		pool.prewarm();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		pool.clear();
+		serverSocket.close();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void borrowAndRecycle() throws IOException {
+		pool.recycle(pool.borrow());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void borrowAndRecycleContended() throws IOException {
+		pool.recycle(pool.borrow());
+	}
+
+}
@@ -0,0 +1,101 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.cs3.prolog.connector.Connector;
+import org.cs3.prolog.connector.internal.process.socket.SocketPrologProcess;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.session.ResultTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the round trip latency of queries against a local SWI-Prolog.
+ * <p>
+ * The executable is taken from the system property
+ * <code>prolog.executable</code>, if it is not set the executable from the
+ * connector preferences is used.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SocketSessionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Process {
+
+		@Param({ "false", "true" })
+		public boolean framed;
+
+		PrologProcess process;
+
+		@Setup
+		public void setUp() throws Exception {
+			process = Connector.newPrologProcess(System.getProperty("prolog.executable"));
+			((SocketPrologProcess) process).setUseFramedProtocol(framed);
+			process.start();
+		}
+
+		@TearDown
+		public void tearDown() throws Exception {
+			process.stop();
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class Session {
+
+		PrologSession session;
+
+		@Setup
+		public void setUp(Process process) throws Exception {
+			session = process.process.getSession(PrologProcess.DEFAULT);
+		}
+
+		@TearDown
+		public void tearDown() {
+			session.dispose();
+		}
+
+	}
+
+	@Benchmark
+	public Map<String, Object> queryOnce(Session session) throws Exception {
+		return session.session.queryOnce("X = 1");
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> queryAll(Session session) throws Exception {
+		return session.session.queryAll("between(1, 100, X)");
+	}
+
+	@Benchmark
+	public ResultTable queryTable(Session session) throws Exception {
+		return session.session.queryTable("between(1, 100, X)");
+	}
+
+}
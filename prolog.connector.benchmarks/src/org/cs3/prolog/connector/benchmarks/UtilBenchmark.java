@@ -0,0 +1,60 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cs3.prolog.connector.common.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the string helpers applied to every value read from the server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UtilBenchmark {
+
+	private final StringBuffer plain = new StringBuffer("'/home/pdt/workspace/project/src/module.pl'");
+	private final StringBuffer escaped = new StringBuffer("'&lt;clause&gt;(&cbo;a &amp; b&cbc;)'");
+	private final String quotedAtom = "'Ecce, \\'Corinna\\' venit.'";
+	private final String unquotedAtom = "number_of_clauses";
+
+	@Benchmark
+	public String unescapePlain() {
+		return Util.unescapeBuffer(plain);
+	}
+
+	@Benchmark
+	public String unescapeEscaped() {
+		return Util.unescapeBuffer(escaped);
+	}
+
+	@Benchmark
+	public String unquoteQuotedAtom() {
+		return Util.unquoteStringOrAtom(quotedAtom);
+	}
+
+	@Benchmark
+	public String unquoteUnquotedAtom() {
+		return Util.unquoteStringOrAtom(unquotedAtom);
+	}
+
+}
@@ -0,0 +1,96 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.process.socket;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how fast {@link ValueReader} reads the values of query results,
+ * replaying server output in the text protocol.
+ * <p>
+ * The transcript is synthetic, it is not recorded from a running server. It
+ * is generated in the format written by <code>print_solution/2</code> in
+ * consult_server.pl: every solution binds a file name, a line number and a
+ * list of properties, some of which contain escaped characters. Results for
+ * real workloads may differ.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValueReaderBenchmark {
+
+	private static final int VARIABLES_PER_SOLUTION = 3;
+
+	@Param({ "100", "10000" })
+	public int solutions;
+
+	@Param({ "DEFAULT", "CTERMS", "COMPACT_RESULTS" })
+	public String mode;
+
+	private String transcript;
+	private int flags;
+
+	@Setup
+	public void setUp() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < solutions; i++) {
+			sb.append("<File><'/home/pdt/workspace/project/src/module_").append(i % 50).append(".pl'>");
+			sb.append("<Line><").append(i).append(">");
+			sb.append("<Props>{<exported><'&lt;clause&gt;'><number_of_clauses(").append(i % 7).append(")>");
+			sb.append("<'a &amp; b'><'&cbo;x&cbc;'>}");
+			sb.append(SocketCommunicationConstants.LINE_SEPARATOR);
+			sb.append(SocketCommunicationConstants.END_OF_SOLUTION);
+			sb.append(SocketCommunicationConstants.LINE_SEPARATOR);
+		}
+		transcript = sb.toString();
+		if ("CTERMS".equals(mode)) {
+			flags = PrologProcess.CTERMS;
+		} else if ("COMPACT_RESULTS".equals(mode)) {
+			flags = PrologProcess.DEFAULT | PrologProcess.COMPACT_RESULTS;
+		} else {
+			flags = PrologProcess.DEFAULT;
+		}
+	}
+
+	@Benchmark
+	public void readValues(Blackhole blackhole) throws IOException {
+		BufferedReader reader = new BufferedReader(new StringReader(transcript));
+		ValueReader valueReader = new ValueReader(reader);
+		for (int i = 0; i < solutions; i++) {
+			for (int j = 0; j < VARIABLES_PER_SOLUTION; j++) {
+				blackhole.consume(valueReader.readValue(PrologProcess.UNQUOTE_ATOMS));
+				blackhole.consume(valueReader.readValue(flags));
+			}
+			// the end of the solution is not a value
+			blackhole.consume(valueReader.readValue(flags));
+			blackhole.consume(reader.readLine());
+		}
+	}
+
+}
@@ -22,6 +22,7 @@ import org.cs3.prolog.connector.cterm.CInteger;
 import org.cs3.prolog.connector.cterm.CString;
 import org.cs3.prolog.connector.cterm.CTerm;
 import org.cs3.prolog.connector.cterm.CTermFactory;
+import org.cs3.prolog.connector.cterm.CVariable;
 
 
 public class CTermFactoryTest extends TestCase {
@@ -200,6 +201,57 @@ public class CTermFactoryTest extends TestCase {
 		assertEquals("t arity",0,t.getArity());
 		
 	}
+	
+	public void testDecodeLikeParser() throws Throwable{
+		String[] inputs = {
+				"hola", "'Ecce, \\'Corinna\\' venit.'", "'it''s'", "\"Ecce, \\\"Corinna\\\" venit.\"",
+				"42", "-1", "3.14", "1.0e10", "2E-3", "[]", "{}", "!", "_G123", "X",
+				"aterm(annos,t)", "','(!,b)", "'[|]'(a,'[|]'(1,[]))", ":(lists,append(A,B,C))",
+				"f ( a , (b) )", "s\u00fcben(x)", "=..(T,L)"
+		};
+		for (String input : inputs) {
+			CTerm parsed = CTermFactory.createCTerm(input);
+			CTerm decoded = CTermFactory.decodeCTerm(input);
+			assertEquals(input, parsed.getClass(), decoded.getClass());
+			assertEquals(input, parsed.toString(), decoded.toString());
+			assertEquals(input, parsed.getFunctorImage(), decoded.getFunctorImage());
+			assertEquals(input, parsed.getFunctorValue(), decoded.getFunctorValue());
+			assertEquals(input, parsed.getArity(), decoded.getArity());
+		}
+	}
+	
+	public void testDecodeUnicodeLetters() throws Throwable{
+		CTerm variable = CTermFactory.decodeCTerm("\u00c4rger");
+		assertTrue("type", variable instanceof CVariable);
+		CTerm atom = CTermFactory.decodeCTerm("\u00e4rger(\u00e9t\u00e9)");
+		assertTrue("type", atom instanceof CCompound);
+		assertEquals("functor image", "\u00e4rger", atom.getFunctorImage());
+		assertTrue("argument type", ((CCompound) atom).getArgument(0) instanceof CAtom);
+	}
+	
+	public void testDecodeFallsBackToParser() throws Throwable{
+		CTerm term = CTermFactory.decodeCTerm("<clause>(02D193FC)");
+		assertTrue("type",term instanceof CAtom);
+		assertEquals("functor image","<clause>",term.getFunctorImage());
+		try{
+			CTermFactory.decodeCTerm("23skido?");
+			fail("there should be an exception!");
+		}catch(Exception pe){
+			return;
+		}
+	}
+	
+	public void testDecodeSharesFunctors() throws Throwable{
+		CCompound c = (CCompound) CTermFactory.decodeCTerm("f(user,g(user),f(a,b))");
+		CCompound g = (CCompound) c.getArgument(1);
+		assertSame(c.getArgument(0).getFunctor(), g.getArgument(0).getFunctor());
+		assertSame(c.getArgument(0).getFunctorImage(), g.getArgument(0).getFunctorImage());
+		assertNotSame(c.getFunctor(), c.getArgument(2).getFunctor());
+		assertSame(c.getFunctor(), c.getArgument(2).getFunctor().withArity(3));
+		
+		CTerm again = CTermFactory.decodeCTerm("f(x,y,z)");
+		assertSame(c.getFunctor(), again.getFunctor());
+		assertSame(c.getFunctor(), CTermFactory.createCTerm("f(x,y,z)").getFunctor());
+		assertEquals("f/3", again.getFunctor().toString());
+	}
 }
-
-
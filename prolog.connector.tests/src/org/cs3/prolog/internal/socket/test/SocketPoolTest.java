@@ -0,0 +1,175 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+package org.cs3.prolog.internal.socket.test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import junit.framework.TestCase;
+
+import org.cs3.prolog.connector.internal.process.socket.ReusableSocket;
+import org.cs3.prolog.connector.internal.process.socket.SocketPool;
+
+/**
+ * Tests the pooling of sockets. No Prolog server is needed, the sockets are
+ * connected to a plain server socket.
+ */
+public class SocketPoolTest extends TestCase {
+
+	private ServerSocket serverSocket;
+	private SocketPool pool;
+
+	@Override
+	protected void setUp() throws Exception {
+		serverSocket = new ServerSocket(0, 50);
+		pool = new SocketPool() {
+			@Override
+			protected ReusableSocket createSocket() throws IOException {
+				return new ReusableSocket("localhost", serverSocket.getLocalPort());
+			}
+		};
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		pool.clear();
+		serverSocket.close();
+	}
+
+	public void testReuse() throws Exception {
+		ReusableSocket s1 = pool.borrow();
+		assertEquals(1, pool.getMisses());
+		assertEquals(1, pool.getActiveCount());
+		pool.recycle(s1);
+		assertEquals(0, pool.getActiveCount());
+		assertEquals(1, pool.getIdleCount());
+
+		ReusableSocket s2 = pool.borrow();
+		assertSame(s1, s2);
+		assertEquals(1, pool.getHits());
+		pool.recycle(s2);
+	}
+
+	public void testMaxIdle() throws Exception {
+		pool.setMaxIdle(2);
+		ReusableSocket[] sockets = new ReusableSocket[4];
+		for (int i = 0; i < sockets.length; i++) {
+			sockets[i] = pool.borrow();
+		}
+		for (ReusableSocket s : sockets) {
+			pool.recycle(s);
+		}
+		assertEquals(2, pool.getIdleCount());
+		assertEquals(2, pool.getDestroys());
+	}
+
+	public void testDestroyedSocketsAreNotReused() throws Exception {
+		ReusableSocket s1 = pool.borrow();
+		pool.destroy(s1);
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(1, pool.getDestroys());
+
+		ReusableSocket s2 = pool.borrow();
+		s2.close();
+		pool.recycle(s2);
+		assertEquals(0, pool.getIdleCount());
+		assertNotSame(s1, pool.borrow());
+	}
+
+	public void testClear() throws Exception {
+		ReusableSocket borrowed = pool.borrow();
+		pool.recycle(pool.borrow());
+		pool.clear();
+		assertEquals(0, pool.getIdleCount());
+		// sockets borrowed before clearing the pool are not reused
+		pool.recycle(borrowed);
+		assertEquals(0, pool.getIdleCount());
+		assertEquals(2, pool.getDestroys());
+	}
+
+	public void testEvictIdle() throws Exception {
+		ReusableSocket borrowed = pool.borrow();
+		assertFalse(borrowed.isReused());
+		ReusableSocket s1 = pool.borrow();
+		pool.recycle(s1);
+		ReusableSocket s2 = pool.borrow();
+		assertSame(s1, s2);
+		assertTrue(s2.isReused());
+		pool.recycle(s2);
+
+		pool.evictIdle();
+		assertEquals(0, pool.getIdleCount());
+		ReusableSocket s3 = pool.borrow();
+		assertNotSame(s1, s3);
+		assertFalse(s3.isReused());
+		// unlike clear(), sockets borrowed before are still recycled
+		pool.recycle(borrowed);
+		pool.recycle(s3);
+		assertEquals(2, pool.getIdleCount());
+	}
+
+	public void testIdleTimeout() throws Exception {
+		pool.setMinIdle(1);
+		pool.setIdleTimeout(1);
+		ReusableSocket s1 = pool.borrow();
+		ReusableSocket s2 = pool.borrow();
+		pool.recycle(s1);
+		pool.recycle(s2);
+		Thread.sleep(20);
+		// expired sockets are evicted down to the minimum idle size
+		pool.recycle(pool.borrow());
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(3, pool.getMisses());
+		assertEquals(2, pool.getDestroys());
+	}
+
+	public void testPrewarm() throws Exception {
+		pool.setMinIdle(3);
+		pool.prewarm();
+		assertEquals(3, pool.getIdleCount());
+		pool.borrow();
+		assertEquals(1, pool.getHits());
+	}
+
+	public void testBorrowTimeout() throws Exception {
+		pool.setMaxActive(1);
+		pool.setBorrowTimeout(50);
+		final ReusableSocket s1 = pool.borrow();
+		try {
+			pool.borrow();
+			fail("expected timeout");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(1, pool.getWaits());
+
+		Thread t = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+				}
+				pool.recycle(s1);
+			}
+		};
+		pool.setBorrowTimeout(5000);
+		t.start();
+		ReusableSocket s2 = pool.borrow();
+		t.join();
+		assertNotNull(s2);
+		pool.recycle(s2);
+	}
+
+}
@@ -0,0 +1,107 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Map;
+
+import org.cs3.prolog.connector.Connector;
+import org.cs3.prolog.connector.internal.process.socket.SocketPrologProcess;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that a server can be started from a compiled bootstrap snapshot.
+ */
+public class BootstrapSnapshotTest {
+
+	private SocketPrologProcess p;
+
+	@Before
+	public void setUp() throws Exception {
+		p = (SocketPrologProcess) Connector.newPrologProcess();
+		p.setUseBootstrapSnapshot(true);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		p.stop();
+	}
+
+	/**
+	 * The first start builds the snapshot in the background.
+	 */
+	private void awaitSnapshot() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 60000;
+		while (System.currentTimeMillis() < deadline) {
+			File[] snapshots = new File(p.getServerLogDir(), "pdt_bootstrap").listFiles();
+			if (snapshots != null) {
+				for (File snapshot : snapshots) {
+					if (new File(snapshot, "load.pl").exists()) {
+						return;
+					}
+				}
+			}
+			Thread.sleep(100);
+		}
+		fail("the bootstrap snapshot has not been built");
+	}
+
+	@Test
+	public void testStartFromSnapshot() throws Throwable {
+		// the first start builds the snapshot, the second one loads it
+		p.start();
+		awaitSnapshot();
+		p.restart();
+		Map<String, Object> result = p.queryOnce("current_predicate(consult_server:consult_server/2), X = ok");
+		assertNotNull(result);
+		assertEquals("ok", result.get("X"));
+
+		File[] snapshots = new File(p.getServerLogDir(), "pdt_bootstrap").listFiles();
+		assertNotNull(snapshots);
+		boolean compiled = false;
+		for (File snapshot : snapshots) {
+			compiled |= new File(snapshot, "load.pl").exists();
+		}
+		assertTrue(compiled);
+		// the QLF files are written to the snapshot only
+		File consultServer = new File(p.getConsultServerLocation());
+		assertFalse(new File(consultServer.getParentFile(), "consult_server.qlf").exists());
+	}
+
+	@Test
+	public void testSourcesAreNotConsultedAgain() throws Throwable {
+		p.start();
+		awaitSnapshot();
+		p.restart();
+		// consult_server.pl is a module file, so it must have been loaded
+		// from its own QLF file by the load file of the snapshot and not
+		// from source by the bootstrap file
+		Map<String, Object> result = p.queryOnce(
+				"source_file(consult_server:consult_server(_,_), File), "
+				+ "source_file_property(File, load_context(_, Parent:_, _)), "
+				+ "file_base_name(Parent, Name)");
+		assertNotNull(result);
+		assertEquals("load.pl", result.get("Name"));
+	}
+
+}
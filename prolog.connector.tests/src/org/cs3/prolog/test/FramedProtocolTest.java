@@ -0,0 +1,115 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+package org.cs3.prolog.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.cs3.prolog.connector.Connector;
+import org.cs3.prolog.connector.cterm.CCompound;
+import org.cs3.prolog.connector.internal.process.socket.SocketPrologProcess;
+import org.cs3.prolog.connector.internal.session.socket.IterableQuery;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.session.PrologSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the framed protocol delivers the same results as the text
+ * protocol.
+ */
+public class FramedProtocolTest {
+
+	private static final String QUERY = "member(X, [a, 'B c', \"str\", f(<, {}, '&amp;'), [1, [2, 'xä€']], 'a\\nb'])";
+
+	private SocketPrologProcess p;
+
+	@Before
+	public void setUp() throws Exception {
+		p = (SocketPrologProcess) Connector.newPrologProcess();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		p.stop();
+	}
+
+	@Test
+	public void testQueryAll() throws Throwable {
+		p.setUseFramedProtocol(false);
+		List<Map<String, Object>> expected = p.queryAll(QUERY);
+		p.setUseFramedProtocol(true);
+		List<Map<String, Object>> actual = p.queryAll(QUERY);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testSupplementaryCharacters() throws Throwable {
+		// long enough to be split into several reads, which must not end
+		// between the two chars of a supplementary character
+		StringBuilder atom = new StringBuilder("a");
+		for (int i = 0; i < 5000; i++) {
+			atom.append("\uD83D\uDE00\u00e4");
+		}
+		String query = "member(X, ['" + atom + "', f('\uD834\uDD1E')])";
+		p.setUseFramedProtocol(false);
+		List<Map<String, Object>> expected = p.queryAll(query);
+		p.setUseFramedProtocol(true);
+		List<Map<String, Object>> actual = p.queryAll(query);
+		assertEquals(expected, actual);
+		assertEquals(atom.toString(), actual.get(0).get("X"));
+	}
+
+	@Test
+	public void testQueryOnceWithFlags() throws Throwable {
+		int[] flags = new int[] { PrologProcess.NONE, PrologProcess.DEFAULT, PrologProcess.PROCESS_LISTS, PrologProcess.UNBOUND_VARIABLES };
+		for (int flag : flags) {
+			p.setUseFramedProtocol(false);
+			Map<String, Object> expected = p.queryOnce(flag, "X = [f(Y), 'q\\'uote'], Z = _");
+			p.setUseFramedProtocol(true);
+			Map<String, Object> actual = p.queryOnce(flag, "X = [f(Y), 'q\\'uote'], Z = _");
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testCTerms() throws Throwable {
+		p.setUseFramedProtocol(true);
+		Map<String, Object> result = p.queryOnce(PrologProcess.CTERMS, "X = f('a b', 1, \"c\")");
+		CCompound term = (CCompound) result.get("X");
+		assertEquals("f", term.getFunctorValue());
+		assertEquals(3, term.getArity());
+		assertEquals("a b", term.getArgument(0).getFunctorValue());
+	}
+
+	@Test
+	public void testIterator() throws Throwable {
+		p.setUseFramedProtocol(true);
+		PrologSession session = p.getSession();
+		IterableQuery iter = session.queryIterator("between(1, 10, X)");
+		int i = 0;
+		while (iter.hasNext()) {
+			i++;
+			assertEquals(Integer.toString(i), iter.next().get("X"));
+		}
+		iter.close();
+		assertEquals(10, i);
+		assertNull(session.queryOnce("fail"));
+		session.dispose();
+	}
+
+}
@@ -14,6 +14,10 @@
 
 package org.cs3.prolog.test;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
 import junit.framework.TestCase;
 
 import org.cs3.prolog.connector.Connector;
@@ -83,6 +87,26 @@ public class LifeCycleHookTest extends TestCase {
 	}
 	
 	
+	private class SlowHook extends MyHook {
+
+		private final String id;
+		private final List<String> log;
+
+		SlowHook(String id, List<String> log) {
+			this.id = id;
+			this.log = log;
+		}
+
+		@Override
+		public void onInit(PrologProcess process, PrologSession initSession)
+				throws PrologProcessException {
+			log.add("start " + id);
+			initSession.queryOnce("sleep(0.2)");
+			log.add("end " + id);
+		}
+
+	}
+
 	private PrologProcess process;
 
 	@Override
@@ -124,6 +148,38 @@ public class LifeCycleHookTest extends TestCase {
 		 */
 		
 	}
-}
 
+	public void testParallelHooks() throws Exception {
+		List<String> log = new Vector<String>();
+		process.setParallelLifeCycleHooks(true);
+		process.addLifeCycleHook(new SlowHook("A", log), "A", new String[0]);
+		process.addLifeCycleHook(new SlowHook("B", log), "B", new String[0]);
+		process.addLifeCycleHook(new SlowHook("C", log), "C", new String[] { "A", "B" });
+		process.getSession(PrologProcess.NONE).dispose();
+		process.stop();
+		assertEquals(6, log.size());
+		// A and B run concurrently, C waits for both
+		assertTrue(log.indexOf("start B") < log.indexOf("end A"));
+		assertTrue(log.indexOf("start A") < log.indexOf("end B"));
+		assertTrue(log.indexOf("start C") > log.indexOf("end A"));
+		assertTrue(log.indexOf("start C") > log.indexOf("end B"));
+
+		Map<String, Long> timings = process.getLifeCycleHookTimings();
+		assertTrue(timings.get("onInit_on_C") >= 200);
+		assertTrue(timings.containsKey("afterInit_on_A"));
+	}
 
+	public void testParallelHooksWithCycle() throws Exception {
+		MyHook X = new MyHook();
+		process.setParallelLifeCycleHooks(true);
+		process.addLifeCycleHook(X, "X", new String[] { "Y" });
+		process.addLifeCycleHook(new MyHook(), "Y", new String[] { "X" });
+		try {
+			process.getSession(PrologProcess.NONE).dispose();
+			fail("expected an exception");
+		} catch (PrologProcessException e) {
+			// expected
+		}
+		assertEquals(0, X.onInit);
+	}
+}
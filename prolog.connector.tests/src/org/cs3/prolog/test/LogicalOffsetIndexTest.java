@@ -0,0 +1,66 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.cs3.prolog.connector.common.LogicalOffsetIndex;
+import org.cs3.prolog.connector.common.Util;
+
+/**
+ * Tests the conversion between logical and physical offsets.
+ */
+public class LogicalOffsetIndexTest extends TestCase {
+
+	public void testConversion() throws Exception {
+		String data = "0" + "\r\n" + "2" + "3" + "\n" + "5" + "\r\n" + "\r\n" + "8";
+		LogicalOffsetIndex index = new LogicalOffsetIndex(data);
+		assertEquals(3, index.getDelimiterCount());
+		int[] physical = {0, 1, 3, 4, 5, 6, 7, 9, 11, 12};
+		for (int logical = 0; logical < physical.length; logical++) {
+			assertEquals(physical[logical], index.logicalToPhysicalOffset(logical));
+			assertEquals(physical[logical], Util.logicalToPhysicalOffset(data, logical));
+			assertEquals(logical, index.physicalToLogicalOffset(physical[logical]));
+			assertEquals(logical, Util.physicalToLogicalOffset(data, physical[logical]));
+		}
+	}
+
+	public void testNoDelimiters() throws Exception {
+		LogicalOffsetIndex index = new LogicalOffsetIndex("abc\ndef");
+		assertEquals(0, index.getDelimiterCount());
+		assertEquals(5, index.logicalToPhysicalOffset(5));
+		assertEquals(5, index.physicalToLogicalOffset(5));
+	}
+
+	public void testSameAsUtil() throws Exception {
+		Random random = new Random(42);
+		String[] pieces = {"a", "b", "\n", "\r", "\r\n"};
+		for (int i = 0; i < 50; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j = random.nextInt(100); j > 0; j--) {
+				sb.append(pieces[random.nextInt(pieces.length)]);
+			}
+			String data = sb.toString();
+			LogicalOffsetIndex index = new LogicalOffsetIndex(data);
+			for (int offset = 0; offset <= data.length(); offset++) {
+				assertEquals(Util.logicalToPhysicalOffset(data, offset), index.logicalToPhysicalOffset(offset));
+				assertEquals(Util.physicalToLogicalOffset(data, offset), index.physicalToLogicalOffset(offset));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.cs3.prolog.connector.Connector;
+import org.cs3.prolog.connector.process.PrologException;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.session.MultiplexedPrologSession;
+import org.cs3.prolog.connector.session.MultiplexedQueryListener;
+import org.cs3.prolog.connector.session.QueryFuture;
+import org.cs3.prolog.connector.session.SolutionSubscriber;
+import org.cs3.prolog.connector.session.SolutionSubscription;
+
+public class MultiplexedSocketSessionTest extends TestCase {
+
+	private PrologProcess process;
+
+	private MultiplexedPrologSession session;
+
+	@Override
+	protected void setUp() throws Exception {
+		process = Connector.newUninitializedPrologProcess();
+		process.start();
+		session = process.getMultiplexedSession();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		session.dispose();
+		process.stop();
+	}
+
+	private static class Recorder implements MultiplexedQueryListener {
+
+		final Vector<Map<String, Object>> solutions = new Vector<Map<String, Object>>();
+		final CountDownLatch done = new CountDownLatch(1);
+		int maxSolutions = Integer.MAX_VALUE;
+		volatile String outcome;
+		volatile PrologException error;
+
+		@Override
+		public boolean solutionFound(Map<String, Object> solution) {
+			solutions.add(solution);
+			return solutions.size() < maxSolutions;
+		}
+
+		@Override
+		public void queryComplete(int id) {
+			outcome = "complete";
+			done.countDown();
+		}
+
+		@Override
+		public void queryCancelled(int id) {
+			outcome = "cancelled";
+			done.countDown();
+		}
+
+		@Override
+		public void queryFailed(int id, PrologException e) {
+			outcome = "failed";
+			error = e;
+			done.countDown();
+		}
+
+		void await() throws InterruptedException {
+			assertTrue("query did not finish", done.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	public void testQueryOnce() throws Exception {
+		Recorder rec = new Recorder();
+		int id = session.queryOnce("atom_length(abc,L)", rec);
+		rec.await();
+		assertEquals("complete", rec.outcome);
+		assertEquals(1, rec.solutions.size());
+		assertEquals("3", rec.solutions.get(0).get("L"));
+		assertFalse(session.isPending(id));
+	}
+
+	public void testQueryAll() throws Exception {
+		Recorder rec = new Recorder();
+		session.queryAll("member(A,[a,b,c])", rec);
+		rec.await();
+		assertEquals("complete", rec.outcome);
+		assertEquals(3, rec.solutions.size());
+		assertEquals("c", rec.solutions.get(2).get("A"));
+	}
+
+	public void testNoSolution() throws Exception {
+		Recorder rec = new Recorder();
+		session.queryOnce("fail", rec);
+		rec.await();
+		assertEquals("complete", rec.outcome);
+		assertTrue(rec.solutions.isEmpty());
+	}
+
+	public void testError() throws Exception {
+		Recorder syntax = new Recorder();
+		Recorder thrown = new Recorder();
+		session.queryOnce("member(A,", syntax);
+		session.queryOnce("throw(oops)", thrown);
+		syntax.await();
+		thrown.await();
+		assertEquals("failed", syntax.outcome);
+		assertEquals("failed", thrown.outcome);
+		assertEquals("oops", thrown.error.getMessage());
+	}
+
+	public void testConcurrentQueries() throws Exception {
+		// the slow query must not block the fast ones
+		Recorder slow = new Recorder();
+		session.queryOnce("sleep(3)", slow);
+		Recorder[] fast = new Recorder[20];
+		for (int i = 0; i < fast.length; i++) {
+			fast[i] = new Recorder();
+			session.queryOnce("X is " + i + " * 2", fast[i]);
+		}
+		for (int i = 0; i < fast.length; i++) {
+			fast[i].await();
+			assertEquals(Integer.toString(i * 2), fast[i].solutions.get(0).get("X"));
+		}
+		assertEquals(1, slow.done.getCount());
+		slow.await();
+	}
+
+	public void testCancel() throws Exception {
+		Recorder rec = new Recorder();
+		int id = session.queryAll("repeat", rec);
+		Thread.sleep(100);
+		session.cancel(id);
+		rec.await();
+		assertEquals("cancelled", rec.outcome);
+	}
+
+	public void testStopFromListener() throws Exception {
+		Recorder rec = new Recorder();
+		rec.maxSolutions = 5;
+		session.queryAll("between(1,inf,X)", rec);
+		rec.await();
+		assertEquals("cancelled", rec.outcome);
+		assertEquals(5, rec.solutions.size());
+	}
+
+	public void testDemand() throws Exception {
+		Recorder rec = new Recorder();
+		int id = session.queryAll("between(1,inf,X)", PrologProcess.NONE, 2, rec);
+		Thread.sleep(200);
+		assertEquals(2, rec.solutions.size());
+		session.request(id, 3);
+		Thread.sleep(200);
+		assertEquals(5, rec.solutions.size());
+		assertEquals("5", rec.solutions.get(4).get("X"));
+		session.cancel(id);
+		rec.await();
+		assertEquals("cancelled", rec.outcome);
+	}
+
+	public void testQueryAsync() throws Exception {
+		QueryFuture<Map<String, Object>> once = process.queryOnceAsync("atom_length(abc,L)");
+		QueryFuture<List<Map<String, Object>>> all = process.queryAllAsync("member(A,[a,b])");
+		assertEquals("3", once.get(10, TimeUnit.SECONDS).get("L"));
+		assertEquals(2, all.get(10, TimeUnit.SECONDS).size());
+		assertNull(process.queryOnceAsync("fail").get(10, TimeUnit.SECONDS));
+
+		QueryFuture<Map<String, Object>> slow = process.queryOnceAsync("sleep(60)");
+		assertTrue(slow.cancel(true));
+		assertTrue(slow.isCancelled());
+	}
+
+	public void testPublisher() throws Exception {
+		final Vector<Map<String, Object>> solutions = new Vector<Map<String, Object>>();
+		final CountDownLatch done = new CountDownLatch(1);
+		process.queryAllPublisher("between(1,10,X)").subscribe(new SolutionSubscriber() {
+			private SolutionSubscription subscription;
+
+			@Override
+			public void onSubscribe(SolutionSubscription subscription) {
+				this.subscription = subscription;
+				subscription.request(1);
+			}
+
+			@Override
+			public void onNext(Map<String, Object> solution) {
+				solutions.add(solution);
+				subscription.request(1);
+			}
+
+			@Override
+			public void onError(Throwable error) {
+				done.countDown();
+			}
+
+			@Override
+			public void onComplete() {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(10, solutions.size());
+		assertEquals("10", solutions.get(9).get("X"));
+	}
+
+	public void testDisposeCancelsPendingQueries() throws Exception {
+		Recorder rec = new Recorder();
+		session.queryOnce("sleep(60)", rec);
+		session.dispose();
+		rec.await();
+		assertEquals("cancelled", rec.outcome);
+		assertTrue(session.isDisposed());
+	}
+
+}
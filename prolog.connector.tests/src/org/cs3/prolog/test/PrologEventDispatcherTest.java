@@ -0,0 +1,164 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2004-2012, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is  made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+package org.cs3.prolog.test;
+
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.cs3.prolog.connector.Connector;
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.process.PrologEvent;
+import org.cs3.prolog.connector.process.PrologEventDispatcher;
+import org.cs3.prolog.connector.process.PrologEventListener;
+import org.cs3.prolog.connector.process.PrologProcess;
+
+public class PrologEventDispatcherTest extends TestCase {
+
+	private static final String SUBJECT = "pdt_dispatcher_test";
+
+	private PrologProcess process;
+
+	private PrologEventDispatcher dispatcher;
+
+	/**
+	 * Records the data of the events it receives. Counts down its latch for
+	 * every event.
+	 */
+	private static class RecordingListener implements PrologEventListener {
+
+		final List<String> data = new Vector<String>();
+		final CountDownLatch received;
+
+		RecordingListener(int expected) {
+			received = new CountDownLatch(expected);
+		}
+
+		@Override
+		public void update(PrologEvent e) {
+			data.add(e.getData());
+			received.countDown();
+		}
+
+		void await() throws InterruptedException {
+			assertTrue("timeout, received only " + data, received.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		Debug.setDebugLevel("DEBUG");
+		process = Connector.newUninitializedPrologProcess();
+		process.start();
+		dispatcher = new PrologEventDispatcher(process);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		dispatcher.stop();
+		process.stop();
+	}
+
+	private void notify(int from, int to) throws Exception {
+		process.queryOnce("forall(between(" + from + "," + to + ",I),process_observe:process_notify(" + SUBJECT + ",I))");
+	}
+
+	private static List<String> range(int from, int to) {
+		List<String> expected = new Vector<String>();
+		for (int i = from; i <= to; i++) {
+			expected.add(Integer.toString(i));
+		}
+		return expected;
+	}
+
+	public void testOrdering() throws Exception {
+		RecordingListener listener = new RecordingListener(200);
+		dispatcher.addPrologEventListener(SUBJECT, listener);
+		notify(1, 200);
+		listener.await();
+		assertEquals(range(1, 200), listener.data);
+	}
+
+	public void testSlowListenerLosesNoEventsAndDelaysNoOther() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		RecordingListener slow = new RecordingListener(50) {
+			@Override
+			public void update(PrologEvent e) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				super.update(e);
+			}
+		};
+		RecordingListener fast = new RecordingListener(50);
+		dispatcher.addPrologEventListener(SUBJECT, slow);
+		dispatcher.addPrologEventListener(SUBJECT, fast);
+		notify(1, 50);
+		// the fast listener gets all events while the slow one is still blocked
+		fast.await();
+		assertEquals(range(1, 50), fast.data);
+		assertTrue(slow.data.isEmpty());
+		release.countDown();
+		slow.await();
+		assertEquals(range(1, 50), slow.data);
+	}
+
+	public void testCoalescing() throws Exception {
+		dispatcher.setCoalescing(true);
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		RecordingListener blocked = new RecordingListener(3) {
+			@Override
+			public void update(PrologEvent e) {
+				entered.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				super.update(e);
+			}
+		};
+		// events are posted to the listeners in the order of registration, so
+		// once the second listener has seen the last event, all events have
+		// been posted to the first one.
+		final CountDownLatch last = new CountDownLatch(1);
+		PrologEventListener witness = new PrologEventListener() {
+			@Override
+			public void update(PrologEvent e) {
+				if ("2".equals(e.getData())) {
+					last.countDown();
+				}
+			}
+		};
+		dispatcher.addPrologEventListener(SUBJECT, blocked);
+		dispatcher.addPrologEventListener(SUBJECT, witness);
+
+		notify(0, 0);
+		assertTrue(entered.await(10, TimeUnit.SECONDS));
+		process.queryOnce("forall(between(1,5,_),process_observe:process_notify(" + SUBJECT + ",1))");
+		notify(2, 2);
+		assertTrue(last.await(10, TimeUnit.SECONDS));
+		release.countDown();
+		blocked.await();
+
+		assertEquals(range(0, 2), blocked.data);
+	}
+
+}
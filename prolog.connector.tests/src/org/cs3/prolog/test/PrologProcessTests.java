@@ -25,10 +25,13 @@ public class PrologProcessTests {
 		suite.addTestSuite(XpceTest.class);
 		suite.addTestSuite(SocketSessionTest.class);
 		suite.addTestSuite(AsyncSocketSessionTest.class);
+		suite.addTestSuite(MultiplexedSocketSessionTest.class);
+		suite.addTestSuite(QueryFutureTest.class);
 		//suite.addTestSuite(MysteriousRaceConditionTest.class);
 		suite.addTestSuite(SocketSessionThrowTest.class);
 		suite.addTestSuite(LifeCycleHookTest.class);
 		suite.addTestSuite(LazyStartupRaceTest.class);
+		suite.addTestSuite(PrologEventDispatcherTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,127 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+import org.cs3.prolog.connector.session.QueryCallback;
+import org.cs3.prolog.connector.session.QueryFuture;
+
+/**
+ * Tests the completion of query futures. No Prolog process is needed.
+ */
+public class QueryFutureTest extends TestCase {
+
+	private static class TestFuture extends QueryFuture<String> {
+		int cancelCalls;
+
+		@Override
+		protected void cancelQuery() {
+			cancelCalls++;
+		}
+
+		void succeed(String value) {
+			succeeded(value);
+		}
+
+		void fail(Throwable error) {
+			failed(error);
+		}
+	}
+
+	private static class Callback implements QueryCallback<Object> {
+		Object result;
+		Throwable error;
+		int calls;
+
+		@Override
+		public void querySucceeded(Object result) {
+			this.result = result;
+			calls++;
+		}
+
+		@Override
+		public void queryFailed(Throwable error) {
+			this.error = error;
+			calls++;
+		}
+	}
+
+	public void testSuccess() throws Exception {
+		TestFuture future = new TestFuture();
+		Callback before = new Callback();
+		future.addCallback(before);
+		assertFalse(future.isDone());
+		future.succeed("a");
+		future.succeed("b");
+		assertTrue(future.isDone());
+		assertEquals("a", future.get());
+		assertEquals("a", before.result);
+		assertEquals(1, before.calls);
+
+		Callback after = new Callback();
+		future.addCallback(after);
+		assertEquals("a", after.result);
+	}
+
+	public void testFailure() throws Exception {
+		TestFuture future = new TestFuture();
+		Callback callback = new Callback();
+		future.addCallback(callback);
+		IllegalStateException error = new IllegalStateException();
+		future.fail(error);
+		try {
+			future.get();
+			fail("expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertSame(error, e.getCause());
+		}
+		assertSame(error, callback.error);
+	}
+
+	public void testCancel() throws Exception {
+		TestFuture future = new TestFuture();
+		Callback callback = new Callback();
+		future.addCallback(callback);
+		assertTrue(future.cancel(true));
+		assertFalse(future.cancel(true));
+		future.succeed("a");
+		assertTrue(future.isCancelled());
+		assertEquals(1, future.cancelCalls);
+		assertTrue(callback.error instanceof CancellationException);
+		try {
+			future.get();
+			fail("expected CancellationException");
+		} catch (CancellationException e) {
+			// expected
+		}
+	}
+
+	public void testTimeout() throws Exception {
+		TestFuture future = new TestFuture();
+		try {
+			future.get(10, TimeUnit.MILLISECONDS);
+			fail("expected TimeoutException");
+		} catch (TimeoutException e) {
+			// expected
+		}
+	}
+
+}
@@ -16,11 +16,14 @@ package org.cs3.prolog.test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.Map;
+
 import org.cs3.prolog.connector.Connector;
 import org.cs3.prolog.connector.internal.session.socket.IterableQuery;
 import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.session.SolutionConsumer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -156,6 +159,63 @@ public class QueryIterableTest {
 		session.dispose();
 	}
 	
+	@Test
+	public void testBatchedNumberOfResults() throws Throwable {
+		PrologSession session = p.getSession();
+		// 100 is a multiple of the batch size, 7 is not
+		for (int batchSize : new int[] {1, 7, 10, 100, 256}) {
+			IterableQuery iter = session.queryIterator("a(X)", batchSize);
+			int i=0;
+			while(iter.hasNext()) {
+				i++;
+				assertEquals(Integer.toString(i), iter.next().get("X"));
+			}
+			iter.close();
+			assertEquals(100, i);
+		}
+		session.queryOnce("a(X)");
+		session.dispose();
+	}
+	
+	@Test
+	public void testBatchedNeverendingQuery() throws Throwable {
+		PrologSession session = p.getSession();
+		IterableQuery iter = session.queryIterator("way(A,B)", 16);
+		int i=0;
+		while(iter.hasNext() && i<100) {
+			i++;
+			iter.next();
+		}
+		iter.close();
+		assertEquals(100, i);
+		session.queryOnce("a(X)");
+		session.dispose();
+	}
 	
+	@Test
+	public void testConsumer() throws Throwable {
+		PrologSession session = p.getSession();
+		final int[] count = new int[1];
+		session.queryAll("a(X)", 16, new SolutionConsumer() {
+			@Override
+			public boolean solutionFound(Map<String, Object> solution) {
+				count[0]++;
+				return true;
+			}
+		});
+		assertEquals(100, count[0]);
+		
+		count[0] = 0;
+		session.queryAll("way(A,B)", 16, new SolutionConsumer() {
+			@Override
+			public boolean solutionFound(Map<String, Object> solution) {
+				count[0]++;
+				return count[0] < 50;
+			}
+		});
+		assertEquals(50, count[0]);
+		session.queryOnce("a(X)");
+		session.dispose();
+	}
 
 }
@@ -21,10 +21,13 @@ import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
@@ -36,7 +39,11 @@ import org.cs3.prolog.connector.internal.process.AbstractPrologProcess;
 import org.cs3.prolog.connector.process.PrologException;
 import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
+import org.cs3.prolog.connector.session.LazyValue;
 import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.session.ResultSchema;
+import org.cs3.prolog.connector.session.ResultTable;
+import org.cs3.prolog.connector.session.Solution;
 
 /**
  * @author Lukas Degener
@@ -574,6 +581,151 @@ public class SocketSessionTest extends TestCase {
 			sessions[i].dispose();
 		}
 	}
-}
 
+	public void testQueryOnceBatch() throws Throwable {
+		PrologSession session = process.getSession();
+		List<Map<String, Object>> results = session.queryOnceBatch(Arrays.asList(
+				"X = 1", "fail", "", "atom_length(abc, L).", "member(Y, [a,b])"));
+		assertEquals(5, results.size());
+		assertEquals("1", results.get(0).get("X"));
+		assertNull(results.get(1));
+		assertTrue(results.get(2).isEmpty());
+		assertEquals("3", results.get(3).get("L"));
+		assertEquals("a", results.get(4).get("Y"));
+		session.dispose();
+	}
+
+	public void testLargeQueryOnceBatch() throws Throwable {
+		// the answers are much larger than the socket buffers, so sending
+		// all queries before reading an answer would block both sides
+		PrologSession session = process.getSession();
+		List<String> queries = new ArrayList<String>();
+		for (int i = 0; i < 2000; i++) {
+			queries.add("length(L, 1000), maplist(=(" + i + "), L)");
+		}
+		List<Map<String, Object>> results = session.queryOnceBatch(queries);
+		assertEquals(2000, results.size());
+		assertTrue(results.get(1999).get("L").toString().startsWith("[1999,"));
+		session.dispose();
+	}
+
+	public void testQueryOnceBatchException() throws Throwable {
+		PrologSession session = process.getSession();
+		try {
+			session.queryOnceBatch(Arrays.asList("assert(b(1))", "cluse(a,b)", "assert(b(2))"));
+			fail("expected exception");
+		} catch (PrologException e) {
+			// the query after the exception is still executed
+			assertEquals(2, session.queryAll("b(X)").size());
+		}
+		session.dispose();
+	}
+
+	public void testProtocolOptionsChangeWithinSession() throws Throwable {
+		PrologSession session = process.getSession(PrologProcess.NONE);
+		// queryAll switches to processing lists internally
+		List<Map<String, Object>> all = session.queryAll("X = [a]");
+		assertTrue(all.get(0).get("X") instanceof List);
+		Map<String, Object> once = session.queryOnce("X = [a]");
+		assertEquals("[a]", once.get("X"));
+		once = session.queryOnce("X = [a]");
+		assertEquals("[a]", once.get("X"));
+		session.dispose();
+	}
 
+	public void testQueryTable() throws Throwable {
+		PrologSession session = process.getSession();
+		ResultTable table = session.queryTable("member(X-Y, [a-[1,2], 'B'-_, c-\"s\"])");
+		assertEquals(2, table.getColumnCount());
+		assertEquals(0, table.getColumn("X"));
+		assertEquals(1, table.getColumn("Y"));
+		assertEquals(3, table.size());
+		assertEquals("a", table.get(0, "X"));
+		assertTrue(table.get(0, "Y") instanceof List);
+		assertEquals("B", table.get(1, "X"));
+		assertNotNull(table.get(1, "Y"));
+
+		assertTrue(session.queryTable("member(X, [])").isEmpty());
+
+		ResultTable noVariables = session.queryTable("true");
+		assertEquals(0, noVariables.getColumnCount());
+		assertEquals(1, noVariables.size());
+
+		try {
+			session.queryTable("cluse(a,b)");
+			fail("expected exception");
+		} catch (PrologException e) {
+			assertEquals(1, session.queryTable("X = 1").size());
+		}
+		session.dispose();
+	}
+
+	public void testCompactResults() throws Throwable {
+		PrologSession session = process.getSession(PrologProcess.DEFAULT | PrologProcess.COMPACT_RESULTS);
+		List<Map<String, Object>> results = session.queryAll("member(X-Y, [a-[1,2], 'B'-'{x}'])");
+		assertEquals(2, results.size());
+		Solution first = (Solution) results.get(0);
+		Solution second = (Solution) results.get(1);
+		assertSame(first.getSchema(), second.getSchema());
+		assertEquals("a", first.get("X"));
+		assertTrue(first.get("Y") instanceof ArrayList);
+		assertEquals("{x}", second.get("Y"));
+		assertEquals(2, second.size());
+		assertFalse(second.containsKey("Z"));
+
+		Map<String, Object> once = session.queryOnce("X = \"s\", Y = [1]");
+		assertTrue(once instanceof Solution);
+		assertEquals("s", once.get("X"));
+		assertEquals(2, once.entrySet().size());
+
+		ResultTable table = session.queryTable("member(X, [a,b])");
+		assertEquals("b", table.get(1, "X"));
+		assertTrue(table.toMaps().get(0) instanceof Solution);
+		session.dispose();
+	}
+
+	public void testCompactSolutionConcurrentAccess() throws Throwable {
+		final AtomicInteger conversions = new AtomicInteger();
+		final Solution solution = new Solution(new ResultSchema(new String[] { "X" }), new Object[] { new LazyValue() {
+			@Override
+			public Object convert() {
+				conversions.incrementAndGet();
+				return new String("converted");
+			}
+		} });
+		Thread[] threads = new Thread[8];
+		final Object[] seen = new Object[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					seen[index] = solution.get("X");
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(1, conversions.get());
+		for (Object value : seen) {
+			assertSame(seen[0], value);
+		}
+	}
+
+	public void testQueryAllBindsValues() throws Throwable {
+		PrologSession session = process.getSession();
+		List<Map<String, Object>> result = session.queryAll("member(X-Y, [a-1, b-2])");
+		assertEquals(2, result.size());
+		assertEquals("a", result.get(0).get("X"));
+		assertEquals("1", result.get(0).get("Y"));
+		assertEquals("b", result.get(1).get("X"));
+		assertEquals("2", result.get(1).get("Y"));
+
+		ResultTable table = session.queryTable("X = f(Y), Y = c");
+		assertEquals("f(c)", table.get(0, "X"));
+		assertEquals("c", table.get(0, "Y"));
+		session.dispose();
+	}
+}
@@ -0,0 +1,111 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+
+import org.cs3.prolog.connector.Connector;
+import org.cs3.prolog.connector.internal.process.socket.SocketPrologProcess;
+import org.cs3.prolog.connector.internal.process.socket.SocketServerStartAndStopStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that a restart switches to the standby server.
+ */
+public class WarmStandbyTest {
+
+	private SocketPrologProcess p;
+
+	@Before
+	public void setUp() throws Exception {
+		p = (SocketPrologProcess) Connector.newPrologProcess();
+		p.setUseWarmStandby(true);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		p.stop();
+	}
+
+	@Test
+	public void testRestartSwitchesToStandby() throws Throwable {
+		p.start();
+		int port = p.getPort();
+		File lockFile = p.getLockFile();
+		p.queryOnce("assertz(warm_standby_test)");
+
+		p.restart();
+
+		assertTrue(port != p.getPort());
+		assertFalse(lockFile.exists());
+		assertTrue(p.getLockFile().exists());
+		// the standby server is a fresh process
+		assertNotNull(p.queryOnce("\\+ catch(warm_standby_test, _, fail)"));
+	}
+
+	@Test
+	public void testRepeatedRestarts() throws Throwable {
+		for (int i = 0; i < 3; i++) {
+			p.restart();
+			Map<String, Object> result = p.queryOnce("X = " + i);
+			assertEquals(Integer.toString(i), result.get("X"));
+		}
+	}
+
+	@Test
+	public void testStopStopsStandby() throws Throwable {
+		p.start();
+		SocketServerStartAndStopStrategy strategy = (SocketServerStartAndStopStrategy) p.getStartAndStopStrategy();
+		int standbyPort = strategy.getStandbyPort();
+		assertTrue(standbyPort != -1);
+		assertTrue("the standby server did not come up", awaitPort(standbyPort, true));
+
+		p.stop();
+
+		assertEquals(-1, strategy.getStandbyPort());
+		assertTrue("the standby server is still running", awaitPort(standbyPort, false));
+	}
+
+	private static boolean awaitPort(int port, boolean open) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30000;
+		while (System.currentTimeMillis() < deadline) {
+			if (isOpen(port) == open) {
+				return true;
+			}
+			Thread.sleep(100);
+		}
+		return false;
+	}
+
+	private static boolean isOpen(int port) {
+		try {
+			new Socket("localhost", port).close();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+}
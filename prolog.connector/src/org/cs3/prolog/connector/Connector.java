@@ -32,6 +32,12 @@ public class Connector {
 	public static final String PREF_TIMEOUT = "process.timeout";
 	public static final String PREF_HOST = "process.host";
 	public static final String PREF_PORT = "process.port";
+	public static final String PREF_FRAMED_PROTOCOL = "process.framed_protocol";
+	public static final String PREF_WARM_STANDBY = "process.warm_standby";
+	public static final String PREF_PARALLEL_HOOKS = "process.parallel_hooks";
+	public static final String PREF_BOOTSTRAP_SNAPSHOT = "process.bootstrap_snapshot";
+	public static final String PREF_SESSION_POOL_SIZE = "process.session_pool_size";
+	public static final String PREF_SESSION_POOL_TIMEOUT = "process.session_pool_timeout";
 	
 	
     private static final String CONSULT_SERVER_PL = "consult_server.pl";
@@ -0,0 +1,102 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.common;
+
+import java.util.Arrays;
+
+/**
+ * The positions of the CRLF line delimiters of a text, used to convert
+ * between logical offsets (as used by Prolog, counting every line delimiter
+ * as one character) and physical offsets (as used by Eclipse documents) in
+ * logarithmic time.
+ * <p>
+ * An index is immutable and only valid for the text it was created from.
+ * 
+ * @see Util#logicalToPhysicalOffset(String, int)
+ */
+public class LogicalOffsetIndex {
+
+	/**
+	 * Logical offsets of the CRLF delimiters, in ascending order. The physical
+	 * offset of the i-th delimiter is <code>crlfOffsets[i] + i</code>.
+	 */
+	private final int[] crlfOffsets;
+	private final int length;
+
+	/**
+	 * @param text
+	 */
+	public LogicalOffsetIndex(String text) {
+		int[] offsets = new int[16];
+		int count = 0;
+		int pos = text.indexOf("\r\n");
+		while (pos >= 0) {
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+			}
+			offsets[count] = pos - count;
+			count++;
+			pos = text.indexOf("\r\n", pos + 2);
+		}
+		crlfOffsets = Arrays.copyOf(offsets, count);
+		length = text.length();
+	}
+
+	/**
+	 * @return the physical length of the indexed text
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the number of CRLF line delimiters of the indexed text
+	 */
+	public int getDelimiterCount() {
+		return crlfOffsets.length;
+	}
+
+	/**
+	 * @param logical
+	 *            the logical offset
+	 * @return the physical offset
+	 */
+	public int logicalToPhysicalOffset(int logical) {
+		// every CRLF before the logical offset adds one physical character
+		int index = Arrays.binarySearch(crlfOffsets, logical);
+		return logical + (index >= 0 ? index : -index - 1);
+	}
+
+	/**
+	 * @param physical
+	 *            the physical offset
+	 * @return the logical offset
+	 */
+	public int physicalToLogicalOffset(int physical) {
+		// number of CRLFs starting before the physical offset
+		int low = 0;
+		int high = crlfOffsets.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (crlfOffsets[mid] + mid < physical) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return physical - low;
+	}
+
+}
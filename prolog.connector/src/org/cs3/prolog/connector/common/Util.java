@@ -48,17 +48,16 @@ public class Util {
 	 * @param logical the logical offset
 	 * @return the physical offset
 	 * @see #physicalToLogicalOffset(String, int)
+	 * @see LogicalOffsetIndex for converting several offsets of the same text
 	 */
 	public static int logicalToPhysicalOffset(String data, int logical) {
-		int physical = 0;
+		int delimiters = 0;
 		int nextPos = data.indexOf("\r\n");
-		while (nextPos >= 0 && nextPos < logical) {
-			physical += (nextPos + 2);
-			logical -= (nextPos + 1);
-			data = data.substring(nextPos + 2);
-			nextPos = data.indexOf("\r\n");
+		while (nextPos >= 0 && nextPos - delimiters < logical) {
+			delimiters++;
+			nextPos = data.indexOf("\r\n", nextPos + 2);
 		}
-		return physical + logical;
+		return logical + delimiters;
 	}
 	
 	
@@ -69,15 +68,13 @@ public class Util {
 	 * @see #logicalToPhysicalOffset(String, int)
 	 */
 	public static int physicalToLogicalOffset(String data, int physical) {
-		int logical = 0;
+		int delimiters = 0;
 		int nextPos = data.indexOf("\r\n");
 		while (nextPos >= 0 && nextPos < physical) {
-			physical -= (nextPos + 2);
-			logical += (nextPos + 1);
-			data = data.substring(nextPos + 2);
-			nextPos = data.indexOf("\r\n");
+			delimiters++;
+			nextPos = data.indexOf("\r\n", nextPos + 2);
 		}
-		return physical + logical;
+		return physical - delimiters;
 	}
 
 	/**
@@ -296,6 +293,10 @@ public class Util {
 	public static String unescapeBuffer(StringBuffer line) {
 		return unescape(line.toString(),0,line.length());
 	}
+
+	public static String unescape(String line) {
+		return unescape(line,0,line.length());
+	}
 	
 	private static String unescape(String line, int start, int end) {
 		StringBuffer sb = new StringBuffer();
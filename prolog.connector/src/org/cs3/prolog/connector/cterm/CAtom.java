@@ -25,6 +25,10 @@ public class CAtom extends CTerm {
 		super(node);
 	}	
 	
+	CAtom(CFunctor functor) {
+		super(functor);
+	}
+	
 }
 
 
@@ -34,6 +34,11 @@ public class CCompound extends CTerm implements Iterable<CTerm> {
 		args = new CTerm[node.jjtGetNumChildren()-1]; 
 	}
 
+	CCompound(CFunctor functor, CTerm[] args) {
+		super(functor);
+		this.args = args;
+	}
+
 	public CTerm getArgument(int i) {
 		if(args[i]==null){
 			args[i]=CTermFactory.create(node.jjtGetChild(i+1));
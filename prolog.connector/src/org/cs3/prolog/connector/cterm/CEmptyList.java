@@ -25,6 +25,10 @@ public class CEmptyList extends CTerm {
 		super(node);
 	}
 	
+	CEmptyList(String functorImage) {
+		super(functorImage);
+	}
+	
 }
 
 
@@ -30,6 +30,11 @@ public class CFloat extends CTerm {
 		bigDec = new BigDecimal(getFunctorValue());
 	}
 	
+	CFloat(String functorImage) {
+		super(functorImage);
+		bigDec = new BigDecimal(getFunctorValue());
+	}
+	
 	public float getFloatValue() {
 		return bigDec.floatValue();
 	}
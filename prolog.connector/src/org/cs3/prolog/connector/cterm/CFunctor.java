@@ -0,0 +1,154 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.cterm;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.cs3.prolog.connector.common.Util;
+
+/**
+ * The name and arity of an atom or compound term. Not a term itself.
+ * <p>
+ * Functors are interned in a table shared by all sessions: terms received
+ * from the server with the same functor image and arity share one instance,
+ * including its image and value strings. So functors can usually be compared
+ * by reference. The table is bounded and is cleared when it is full, so
+ * {@link #equals(Object)} still has to be used where two terms might have
+ * been decoded at very different times.
+ */
+public final class CFunctor {
+
+	private static final int MAX_INTERNED_ATOMS = 1 << 16;
+	private static final ConcurrentHashMap<String, CFunctor> atoms = new ConcurrentHashMap<String, CFunctor>();
+
+	private final String image;
+	private final String value;
+	private final int arity;
+	private final CFunctor atom;
+	private volatile CFunctor[] compounds;
+
+	private CFunctor(String image) {
+		this.image = image;
+		this.value = Util.unquoteStringOrAtom(image);
+		this.arity = 0;
+		this.atom = this;
+	}
+
+	private CFunctor(CFunctor atom, int arity) {
+		this.image = atom.image;
+		this.value = atom.value;
+		this.arity = arity;
+		this.atom = atom;
+	}
+
+	/**
+	 * @param image
+	 *            the functor image, i.e. the name of the functor as written by
+	 *            Prolog (possibly quoted)
+	 * @param arity
+	 * @return the interned functor
+	 */
+	public static CFunctor intern(String image, int arity) {
+		return atom(image).withArity(arity);
+	}
+
+	static CFunctor atom(String image) {
+		CFunctor atom = atoms.get(image);
+		if (atom == null) {
+			if (atoms.size() >= MAX_INTERNED_ATOMS) {
+				atoms.clear();
+			}
+			atom = new CFunctor(image);
+			CFunctor existing = atoms.putIfAbsent(image, atom);
+			if (existing != null) {
+				atom = existing;
+			}
+		}
+		return atom;
+	}
+
+	/**
+	 * @param arity
+	 * @return the functor with the same name and the given arity
+	 */
+	public CFunctor withArity(int arity) {
+		if (arity == this.arity) {
+			return this;
+		}
+		if (atom != this) {
+			return atom.withArity(arity);
+		}
+		CFunctor[] functors = compounds;
+		if (functors != null && arity < functors.length && functors[arity] != null) {
+			return functors[arity];
+		}
+		synchronized (this) {
+			functors = compounds;
+			if (functors != null && arity < functors.length && functors[arity] != null) {
+				return functors[arity];
+			}
+			// copy on write, so readers never see a partially filled array
+			CFunctor[] newFunctors = new CFunctor[Math.max(arity + 1, functors == null ? 0 : functors.length)];
+			if (functors != null) {
+				System.arraycopy(functors, 0, newFunctors, 0, functors.length);
+			}
+			CFunctor functor = new CFunctor(this, arity);
+			newFunctors[arity] = functor;
+			compounds = newFunctors;
+			return functor;
+		}
+	}
+
+	/**
+	 * @return the name as written by Prolog, e.g. <code>'A'</code>
+	 */
+	public String getImage() {
+		return image;
+	}
+
+	/**
+	 * @return the unquoted name, e.g. <code>A</code>
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	public int getArity() {
+		return arity;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CFunctor)) {
+			return false;
+		}
+		CFunctor other = (CFunctor) obj;
+		return arity == other.arity && image.equals(other.image);
+	}
+
+	@Override
+	public int hashCode() {
+		return image.hashCode() * 31 + arity;
+	}
+
+	@Override
+	public String toString() {
+		return image + "/" + arity;
+	}
+
+}
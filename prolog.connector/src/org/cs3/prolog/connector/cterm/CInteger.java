@@ -30,6 +30,11 @@ public class CInteger extends CTerm{
 		bigInt = new BigInteger(getFunctorValue());
 	}
 	
+	CInteger(String functorImage) {
+		super(functorImage);
+		bigInt = new BigInteger(getFunctorValue());
+	}
+	
 	public int getIntValue() {
 		int intValue = bigInt.intValue();
 		
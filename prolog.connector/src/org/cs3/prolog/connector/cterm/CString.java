@@ -23,6 +23,10 @@ public class CString extends CTerm {
 	public CString(ASTNode node) {
 		super(node);
 	}
+	
+	CString(String functorImage) {
+		super(functorImage);
+	}
 }
 
 
@@ -26,11 +26,22 @@ import org.cs3.prolog.connector.internal.cterm.parser.ASTNode;
 public class CTerm {
 	protected ASTNode node;
 	protected String functorValue;
+	private String functorImage;
+	private CFunctor functor;
 	
 	public CTerm(ASTNode node) {
 		this.node=node;
 	}
 	
+	CTerm(String functorImage) {
+		this.functorImage=functorImage;
+	}
+	
+	CTerm(CFunctor functor) {
+		this.functor=functor;
+		this.functorImage=functor.getImage();
+	}
+	
 	@Override
 	public String toString() {
 		return CTermUtil.renderTerm(this);
@@ -38,7 +49,7 @@ public class CTerm {
 		
 	public String getFunctorValue() {
 		if(functorValue==null){
-			functorValue=doGetFunctorValue();	
+			functorValue=functor!=null ? functor.getValue() : doGetFunctorValue();	
 		}
 		return functorValue;
 	}
@@ -49,9 +60,25 @@ public class CTerm {
 	}
 
 	public String getFunctorImage() {
+		if(node==null){
+			return functorImage;
+		}
 		return node.getFunctor();
 	}
 
+	/**
+	 * Like the functor image, the functor is not affected by
+	 * {@link #rename(Map)}.
+	 * 
+	 * @return the interned name and arity of this term
+	 */
+	public CFunctor getFunctor() {
+		if(functor==null){
+			functor=CFunctor.intern(getFunctorImage(), getArity());
+		}
+		return functor;
+	}
+
 	public int getArity() {	
 		return 0;
 	}
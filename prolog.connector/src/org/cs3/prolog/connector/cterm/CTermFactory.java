@@ -34,6 +34,13 @@ import org.cs3.prolog.connector.internal.cterm.parser.Node;
  */
 public class CTermFactory {
 
+	private static final ThreadLocal<CanonicalTermDecoder> decoder = new ThreadLocal<CanonicalTermDecoder>() {
+		@Override
+		protected CanonicalTermDecoder initialValue() {
+			return new CanonicalTermDecoder();
+		}
+	};
+
 	public static CTerm createCTerm(Object data) {
 		CanonicalTermParser parser=null;
 		if(data instanceof InputStream){
@@ -56,6 +63,39 @@ public class CTermFactory {
 		return create(parser.getASTRoot());
 	}
 
+	/**
+	 * Creates a CTerm from its canonical representation as sent by the
+	 * consult server. Unlike {@link #createCTerm(Object)}, common terms are
+	 * decoded without creating a parser.
+	 * 
+	 * @param data
+	 * @return the term
+	 */
+	public static CTerm decodeCTerm(String data) {
+		CTerm term = decoder.get().decode(data);
+		if (term == null) {
+			term = createCTerm(data);
+		}
+		return term;
+	}
+
+	/**
+	 * Like {@link #decodeCTerm(String)}, but decodes the term directly from
+	 * the given range of characters.
+	 * 
+	 * @param chars
+	 * @param start
+	 * @param end
+	 * @return the term
+	 */
+	public static CTerm decodeCTerm(char[] chars, int start, int end) {
+		CTerm term = decoder.get().decode(chars, start, end);
+		if (term == null) {
+			term = createCTerm(new String(chars, start, end - start));
+		}
+		return term;
+	}
+
 	static CTerm create(Node root) {
 		if(root instanceof ASTAtom){
 			return new CAtom((ASTAtom)root);
@@ -26,6 +26,11 @@ public class CVariable extends CTerm {
 	public CVariable(ASTNode node) {
 		super(node);
 	}
+	
+	CVariable(String functorImage) {
+		super(functorImage);
+	}
+	
 	public String getVariableName() {
 		return getFunctorValue();			
 	}
@@ -0,0 +1,378 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.cterm;
+
+import java.util.Arrays;
+
+/**
+ * Builds CTerms directly from the canonical representation sent by the
+ * consult server, without creating a {@link
+ * org.cs3.prolog.connector.internal.cterm.parser.CanonicalTermParser} and an
+ * intermediate syntax tree for every value. A decoder can be reused for any
+ * number of terms. Atoms and compounds get their {@link CFunctor} from the
+ * shared table, the decoder caches the recently used ones to look them up
+ * without creating a string first.
+ * <p>
+ * Only the subset of the parser's syntax which the server actually produces
+ * is supported: atoms, strings, variables, decimal integers, floats, the
+ * empty list and compounds in prefix notation. For any other input
+ * {@link #decode(char[], int, int)} returns null and the caller has to fall
+ * back to the parser, which also takes care of reporting syntax errors.
+ * <p>
+ * Instances are not thread-safe.
+ */
+class CanonicalTermDecoder {
+
+	private static final int MAX_CACHED_ATOMS = 4096;
+	private static final String CLAUSE_DEF = "<clause>";
+
+	private char[] chars;
+	private int pos;
+	private int end;
+
+	private char[] copyBuffer = new char[256];
+	private CTerm[] argStack = new CTerm[16];
+	private int argTop;
+
+	private CFunctor[] atoms = new CFunctor[64];
+	private int atomCount;
+
+	CTerm decode(String data) {
+		int length = data.length();
+		if (length > copyBuffer.length) {
+			copyBuffer = new char[Math.max(length, copyBuffer.length * 2)];
+		}
+		data.getChars(0, length, copyBuffer, 0);
+		return decode(copyBuffer, 0, length);
+	}
+
+	/**
+	 * @return the term or null if the input is not supported by the decoder
+	 */
+	CTerm decode(char[] chars, int start, int end) {
+		this.chars = chars;
+		this.pos = start;
+		this.end = end;
+		try {
+			CTerm term = term();
+			if (term != null) {
+				skipWhitespace();
+				if (pos != end) {
+					term = null;
+				}
+			}
+			return term;
+		} finally {
+			Arrays.fill(argStack, 0, argTop, null);
+			argTop = 0;
+			this.chars = null;
+		}
+	}
+
+	private CTerm term() {
+		skipWhitespace();
+		if (pos >= end) {
+			return null;
+		}
+		char c = chars[pos];
+		if (c == '(') {
+			pos++;
+			CTerm term = term();
+			skipWhitespace();
+			if (term == null || pos >= end || chars[pos] != ')') {
+				return null;
+			}
+			pos++;
+			return term;
+		}
+		if (c == '"') {
+			int start = pos;
+			if (!skipQuoted('"')) {
+				return null;
+			}
+			return new CString(new String(chars, start, pos - start));
+		}
+		if (c == '[') {
+			pos++;
+			skipWhitespace();
+			if (pos >= end || chars[pos] != ']') {
+				return null;
+			}
+			pos++;
+			return new CEmptyList("[]");
+		}
+		if (isDigit(c)) {
+			return number();
+		}
+		if (isUpperCaseLetter(c)) {
+			int start = pos;
+			do {
+				pos++;
+			} while (pos < end && isAlphanumeric(chars[pos]));
+			return new CVariable(new String(chars, start, pos - start));
+		}
+		CFunctor atom = atom();
+		if (atom == null) {
+			return null;
+		}
+		skipWhitespace();
+		if (pos < end && chars[pos] == '(') {
+			pos++;
+			return compound(atom);
+		}
+		return new CAtom(atom);
+	}
+
+	private CTerm compound(CFunctor functor) {
+		int base = argTop;
+		char c;
+		do {
+			CTerm arg = term();
+			if (arg == null) {
+				return null;
+			}
+			pushArgument(arg);
+			skipWhitespace();
+			if (pos >= end) {
+				return null;
+			}
+			c = chars[pos++];
+		} while (c == ',');
+		if (c != ')') {
+			return null;
+		}
+		CTerm[] args = new CTerm[argTop - base];
+		System.arraycopy(argStack, base, args, 0, args.length);
+		Arrays.fill(argStack, base, argTop, null);
+		argTop = base;
+		return new CCompound(functor.withArity(args.length), args);
+	}
+
+	private CFunctor atom() {
+		int start = pos;
+		char c = chars[pos];
+		if (c == '\'') {
+			if (!skipQuoted('\'')) {
+				return null;
+			}
+		} else if (c == '!') {
+			pos++;
+		} else if (c == '{') {
+			pos++;
+			skipWhitespace();
+			if (pos >= end || chars[pos] != '}') {
+				return null;
+			}
+			pos++;
+			return CFunctor.atom("{}");
+		} else if (isLowerCaseLetter(c)) {
+			do {
+				pos++;
+			} while (pos < end && isAlphanumeric(chars[pos]));
+		} else if (isGraphic(c)) {
+			do {
+				pos++;
+			} while (pos < end && isGraphic(chars[pos]));
+		} else {
+			return null;
+		}
+		CFunctor atom = lookupAtom(start, pos);
+		// clause references are left to the parser
+		return CLAUSE_DEF.equals(atom.getImage()) ? null : atom;
+	}
+
+	private CTerm number() {
+		int start = pos;
+		skipDigits();
+		boolean isFloat = false;
+		if (pos + 1 < end && chars[pos] == '.' && isDigit(chars[pos + 1])) {
+			pos++;
+			skipDigits();
+			isFloat = true;
+		}
+		if (pos < end && (chars[pos] == 'e' || chars[pos] == 'E')) {
+			int exponent = pos + 1;
+			if (exponent < end && (chars[exponent] == '+' || chars[exponent] == '-')) {
+				exponent++;
+			}
+			if (exponent >= end || !isDigit(chars[exponent])) {
+				return null;
+			}
+			pos = exponent;
+			skipDigits();
+			isFloat = true;
+		}
+		// character codes (0'c) and other radix notations are left to the parser
+		if (pos < end && (chars[pos] == '\'' || isAlphanumeric(chars[pos]))) {
+			return null;
+		}
+		String image = new String(chars, start, pos - start);
+		return isFloat ? new CFloat(image) : new CInteger(image);
+	}
+
+	/**
+	 * Skips a quoted atom or string, accepting the same escape sequences as
+	 * the parser.
+	 */
+	private boolean skipQuoted(char quote) {
+		pos++;
+		while (pos < end) {
+			char c = chars[pos];
+			if (c == quote) {
+				if (quote == '\'' && pos + 1 < end && chars[pos + 1] == '\'') {
+					pos += 2;
+					continue;
+				}
+				pos++;
+				return true;
+			}
+			if (c == '\\') {
+				if (pos + 1 >= end || "ntbrf\\'\"".indexOf(chars[pos + 1]) < 0) {
+					return false;
+				}
+				pos += 2;
+			} else if (c == '\n' || c == '\r') {
+				return false;
+			} else {
+				pos++;
+			}
+		}
+		return false;
+	}
+
+	private void skipDigits() {
+		while (pos < end && isDigit(chars[pos])) {
+			pos++;
+		}
+	}
+
+	private void skipWhitespace() {
+		while (pos < end) {
+			char c = chars[pos];
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private void pushArgument(CTerm arg) {
+		if (argTop == argStack.length) {
+			argStack = Arrays.copyOf(argStack, argStack.length * 2);
+		}
+		argStack[argTop++] = arg;
+	}
+
+	private CFunctor lookupAtom(int start, int end) {
+		int length = end - start;
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		int mask = atoms.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		CFunctor atom;
+		while ((atom = atoms[slot]) != null) {
+			String image = atom.getImage();
+			if (image.hashCode() == hash && image.length() == length && matches(image, start)) {
+				return atom;
+			}
+			slot = (slot + 1) & mask;
+		}
+		atom = CFunctor.atom(new String(chars, start, length));
+		if (atomCount >= MAX_CACHED_ATOMS) {
+			// keep the cache bounded, frequent atoms will be added again soon
+			Arrays.fill(atoms, null);
+			atomCount = 0;
+		} else if ((atomCount + 1) * 2 > atoms.length) {
+			CFunctor[] oldAtoms = atoms;
+			atoms = new CFunctor[oldAtoms.length * 2];
+			for (CFunctor oldAtom : oldAtoms) {
+				if (oldAtom != null) {
+					insert(oldAtom);
+				}
+			}
+		}
+		insert(atom);
+		atomCount++;
+		return atom;
+	}
+
+	private void insert(CFunctor atom) {
+		int hash = atom.getImage().hashCode();
+		int mask = atoms.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (atoms[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		atoms[slot] = atom;
+	}
+
+	private boolean matches(String image, int start) {
+		for (int i = 0; i < image.length(); i++) {
+			if (image.charAt(i) != chars[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/*
+	 * Letters without case, e.g. CJK, are left to the parser: they are not
+	 * accepted as the start of a term.
+	 */
+	private static boolean isUpperCaseLetter(char c) {
+		return c == '_' || Character.isUpperCase(c) || Character.isTitleCase(c);
+	}
+
+	private static boolean isLowerCaseLetter(char c) {
+		return Character.isLowerCase(c);
+	}
+
+	private static boolean isAlphanumeric(char c) {
+		return c == '_' || Character.isLetterOrDigit(c);
+	}
+
+	private static boolean isGraphic(char c) {
+		switch (c) {
+		case ';':
+		case '$':
+		case '#':
+		case '&':
+		case '*':
+		case '+':
+		case '-':
+		case '.':
+		case '/':
+		case ':':
+		case '<':
+		case '=':
+		case '>':
+		case '?':
+		case '@':
+		case '\\':
+		case '^':
+		case '~':
+			return true;
+		default:
+			return (c >= '\u00A1' && c <= '\u00BF') || (c >= '\u2010' && c <= '\u303F');
+		}
+	}
+
+}
@@ -32,8 +32,12 @@ public class AfterInitState extends AbstractState {
 		HashSet<LifeCycleHookWrapper> done = new HashSet<LifeCycleHookWrapper>();
 		HashMap<String, LifeCycleHookWrapper> hooks = context.getHooks();
 		
-		for (LifeCycleHookWrapper h : hooks.values()) {
-			h.afterInit( done);
+		if (context.isParallelHooks()) {
+			context.enqueueWork(new ParallelHookRunner(context, hooks.values(), ParallelHookRunner.Phase.AFTER_INIT));
+		} else {
+			for (LifeCycleHookWrapper h : hooks.values()) {
+				h.afterInit( done);
+			}
 		}
 		context.enqueueWork(new NamedWorkRunnable("workDoneAfterInit") {
 			
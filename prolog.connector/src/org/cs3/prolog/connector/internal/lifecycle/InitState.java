@@ -30,6 +30,7 @@ public class InitState extends AbstractState {
 	public void enter() {
 		HashSet<LifeCycleHookWrapper> done = new HashSet<LifeCycleHookWrapper>();
 		HashMap<String, LifeCycleHookWrapper> hooks = context.getHooks();
+		context.clearHookTimings();
 		
 		context.enqueueWork(new NamedWorkRunnable("startServer"){
 			@Override
@@ -42,8 +43,12 @@ public class InitState extends AbstractState {
 			}	
 		});
 
-		for (LifeCycleHookWrapper h : hooks.values()) {
-			h.onInit(done);
+		if (context.isParallelHooks()) {
+			context.enqueueWork(new ParallelHookRunner(context, hooks.values(), ParallelHookRunner.Phase.ON_INIT));
+		} else {
+			for (LifeCycleHookWrapper h : hooks.values()) {
+				h.onInit(done);
+			}
 		}
 
 		context.enqueueWork(new NamedWorkRunnable("workDoneInit") {	
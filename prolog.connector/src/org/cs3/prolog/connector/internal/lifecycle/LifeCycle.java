@@ -15,6 +15,8 @@
 package org.cs3.prolog.connector.internal.lifecycle;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -91,6 +93,9 @@ public abstract class LifeCycle {
 
 	private HashMap<String, LifeCycleHookWrapper> hooks = new HashMap<String, LifeCycleHookWrapper>();
 
+	private volatile boolean parallelHooks = false;
+	private final Map<String, Long> hookTimings = new LinkedHashMap<String, Long>();
+
 	private DispatcherThread workThread;
 	private DispatcherThread transitionThread;
 
@@ -293,6 +298,51 @@ public abstract class LifeCycle {
 		return hooks;
 	}
 
+	/**
+	 * @return whether the onInit and afterInit methods of independent hooks
+	 *         run concurrently
+	 */
+	public boolean isParallelHooks() {
+		return parallelHooks;
+	}
+
+	/**
+	 * Changes take effect on the next start.
+	 * 
+	 * @param parallelHooks
+	 *            whether the onInit and afterInit methods of independent hooks
+	 *            run concurrently. Each onInit method gets its own session.
+	 */
+	public void setParallelHooks(boolean parallelHooks) {
+		this.parallelHooks = parallelHooks;
+	}
+
+	void clearHookTimings() {
+		synchronized (hookTimings) {
+			hookTimings.clear();
+		}
+	}
+
+	void recordHookTiming(String name, long millis) {
+		synchronized (hookTimings) {
+			Long previous = hookTimings.get(name);
+			hookTimings.put(name, previous == null ? millis : previous + millis);
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds the onInit and afterInit methods of
+	 *         each hook took during the last start, in the order in which the
+	 *         hooks finished. The keys have the form
+	 *         <code>onInit_on_&lt;id&gt;</code> and
+	 *         <code>afterInit_on_&lt;id&gt;</code>.
+	 */
+	public Map<String, Long> getHookTimings() {
+		synchronized (hookTimings) {
+			return new LinkedHashMap<String, Long>(hookTimings);
+		}
+	}
+
 	public void enqueueWork(WorkRunnable r) {
 		workThread.enqueue(r);
 	}
@@ -310,6 +360,16 @@ public abstract class LifeCycle {
 	public abstract PrologSession getInitialSession()
 			throws PrologProcessException;
 
+	/**
+	 * @return a session for a hook whose onInit method runs concurrently to
+	 *         other hooks
+	 * @throws PrologProcessException
+	 */
+	public abstract PrologSession getHookSession()
+			throws PrologProcessException;
+
+	public abstract void disposeHookSession(PrologSession session);
+
 	public abstract void startServer() throws Throwable;
 
 	public abstract void stopServer() throws Throwable;
@@ -318,6 +378,8 @@ public abstract class LifeCycle {
 
 	public abstract void disposeSessions() throws Throwable;
 
+	public abstract void afterStartup() throws Throwable;
+
 }
 
 
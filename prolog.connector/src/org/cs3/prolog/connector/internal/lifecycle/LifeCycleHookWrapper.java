@@ -65,7 +65,9 @@ public class LifeCycleHookWrapper {
 				
 				@Override
 				public void run() throws PrologProcessException {
+					long start = System.currentTimeMillis();
 					hook.onInit(context.getPrologProcess(), context.getInitialSession());
+					context.recordHookTiming(getName(), System.currentTimeMillis() - start);
 				}
 
 			});
@@ -92,7 +94,9 @@ public class LifeCycleHookWrapper {
 				
 				@Override
 				public void run() throws PrologProcessException {
+					long start = System.currentTimeMillis();
 					hook.afterInit(context.getPrologProcess());
+					context.recordHookTiming(getName(), System.currentTimeMillis() - start);
 				}
 
 			});
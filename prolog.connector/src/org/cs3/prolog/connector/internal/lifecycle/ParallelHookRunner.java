@@ -0,0 +1,229 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.lifecycle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.process.LifeCycleHook;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.cs3.prolog.connector.session.PrologSession;
+
+/**
+ * Runs the onInit or afterInit methods of all hooks concurrently. A hook is
+ * started as soon as all hooks it depends on are done, so the time needed is
+ * bounded by the longest chain of dependencies. During onInit, every hook gets
+ * its own session.
+ * <p>
+ * The dependency graph is copied when the runner is created, so it has to be
+ * created on the transition thread. Cyclic dependencies are reported before
+ * any hook is run.
+ */
+class ParallelHookRunner extends NamedWorkRunnable {
+
+	enum Phase {
+		ON_INIT("onInit"), AFTER_INIT("afterInit");
+
+		private final String name;
+
+		private Phase(String name) {
+			this.name = name;
+		}
+	}
+
+	private static class Node {
+		final String id;
+		final List<LifeCycleHook> hooks;
+		final List<Node> dependents = new ArrayList<Node>();
+		final AtomicInteger pendingDependencies = new AtomicInteger();
+
+		Node(LifeCycleHookWrapper wrapper) {
+			id = wrapper.id;
+			hooks = new ArrayList<LifeCycleHook>(wrapper.hooks);
+		}
+	}
+
+	private final LifeCycle context;
+	private final Phase phase;
+	private final List<Node> nodes = new ArrayList<Node>();
+
+	private final Object lock = new Object();
+	private int running;
+	private Throwable failure;
+
+	ParallelHookRunner(LifeCycle context, Collection<LifeCycleHookWrapper> wrappers, Phase phase) {
+		super(phase.name + "_parallel");
+		this.context = context;
+		this.phase = phase;
+		Map<LifeCycleHookWrapper, Node> nodeMap = new HashMap<LifeCycleHookWrapper, Node>();
+		for (LifeCycleHookWrapper wrapper : wrappers) {
+			Node node = new Node(wrapper);
+			nodeMap.put(wrapper, node);
+			nodes.add(node);
+		}
+		for (Map.Entry<LifeCycleHookWrapper, Node> entry : nodeMap.entrySet()) {
+			for (LifeCycleHookWrapper dependency : entry.getKey().post) {
+				Node dependencyNode = nodeMap.get(dependency);
+				if (dependencyNode != null) {
+					dependencyNode.dependents.add(entry.getValue());
+					entry.getValue().pendingDependencies.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void run() throws PrologProcessException {
+		checkForCycles();
+		if (nodes.isEmpty()) {
+			return;
+		}
+		ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Prolog Process " + phase.name + " Hook " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			synchronized (lock) {
+				running = nodes.size();
+				for (Node node : nodes) {
+					if (node.pendingDependencies.get() == 0) {
+						submit(executor, node);
+					}
+				}
+				while (running > 0 && failure == null) {
+					lock.wait();
+				}
+				if (failure != null) {
+					if (failure instanceof PrologProcessException) {
+						throw (PrologProcessException) failure;
+					}
+					throw new PrologProcessException(failure);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PrologProcessException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void submit(final ExecutorService executor, final Node node) {
+		try {
+			executeHooks(executor, node);
+		} catch (RejectedExecutionException e) {
+			// the runner has been interrupted
+		}
+	}
+
+	private void executeHooks(final ExecutorService executor, final Node node) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					runHooks(node);
+				} catch (Throwable t) {
+					Debug.report(t);
+					synchronized (lock) {
+						if (failure == null) {
+							failure = t;
+						}
+						lock.notifyAll();
+					}
+					return;
+				}
+				synchronized (lock) {
+					running--;
+					if (failure == null) {
+						for (Node dependent : node.dependents) {
+							if (dependent.pendingDependencies.decrementAndGet() == 0) {
+								submit(executor, dependent);
+							}
+						}
+					}
+					lock.notifyAll();
+				}
+			}
+		});
+	}
+
+	private void runHooks(Node node) throws PrologProcessException {
+		String name = phase.name + "_on_" + node.id;
+		long start = System.currentTimeMillis();
+		Debug.debug("processing: " + name);
+		for (LifeCycleHook hook : node.hooks) {
+			if (phase == Phase.ON_INIT) {
+				PrologSession session = context.getHookSession();
+				try {
+					hook.onInit(context.getPrologProcess(), session);
+				} finally {
+					context.disposeHookSession(session);
+				}
+			} else {
+				hook.afterInit(context.getPrologProcess());
+			}
+		}
+		context.recordHookTiming(name, System.currentTimeMillis() - start);
+	}
+
+	private void checkForCycles() throws PrologProcessException {
+		Map<Node, Integer> pending = new HashMap<Node, Integer>();
+		ArrayDeque<Node> ready = new ArrayDeque<Node>();
+		for (Node node : nodes) {
+			pending.put(node, node.pendingDependencies.get());
+			if (node.pendingDependencies.get() == 0) {
+				ready.add(node);
+			}
+		}
+		int visited = 0;
+		while (!ready.isEmpty()) {
+			Node node = ready.poll();
+			visited++;
+			for (Node dependent : node.dependents) {
+				int count = pending.get(dependent) - 1;
+				pending.put(dependent, count);
+				if (count == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+		if (visited < nodes.size()) {
+			StringBuilder sb = new StringBuilder();
+			for (Map.Entry<Node, Integer> entry : pending.entrySet()) {
+				if (entry.getValue() > 0) {
+					sb.append(sb.length() == 0 ? "" : ", ").append(entry.getKey().id);
+				}
+			}
+			throw new PrologProcessException("Cyclic dependencies between life cycle hooks: " + sb);
+		}
+	}
+
+}
@@ -14,6 +14,7 @@
 
 package org.cs3.prolog.connector.internal.lifecycle;
 
+import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.process.LifeCycleHook;
 import org.cs3.prolog.connector.process.PrologProcessException;
 
@@ -23,6 +24,20 @@ public class UpState extends AbstractState {
 		super(context);
 	}
 	
+	@Override
+	public void enter() {
+		context.enqueueWork(new NamedWorkRunnable("afterStartup") {
+			@Override
+			public void run() throws PrologProcessException {
+				try {
+					context.afterStartup();
+				} catch (Throwable t) {
+					Debug.report(t);
+				}
+			}
+		});
+	}
+	
 	@Override
 	public boolean isUp() {
 		return true;
@@ -37,7 +37,10 @@ import org.cs3.prolog.connector.process.PrologProcessException;
 import org.cs3.prolog.connector.process.StartupStrategy;
 import org.cs3.prolog.connector.session.AsyncPrologSession;
 import org.cs3.prolog.connector.session.Disposable;
+import org.cs3.prolog.connector.session.MultiplexedPrologSession;
 import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.session.QueryFuture;
+import org.cs3.prolog.connector.session.SolutionPublisher;
 
 /**
  * convenience implementation of common infrastructure.
@@ -48,6 +51,8 @@ import org.cs3.prolog.connector.session.PrologSession;
 public abstract class AbstractPrologProcess implements PrologProcess {
 
 	protected HashSet<WeakReference<? extends Disposable>> sessions = new HashSet<WeakReference<? extends Disposable>>();
+	private final Object asyncQuerySessionLock = new Object();
+	private MultiplexedPrologSession asyncQuerySession;
 	private StartupStrategy startupStrategy;
 	private final MyLifeCycle lifecycle;
 	private int defaultSessionFlag = DEFAULT;
@@ -161,6 +166,7 @@ public abstract class AbstractPrologProcess implements PrologProcess {
 		setAdditionalStartupFile(provider.getPreference(Connector.PREF_ADDITIONAL_STARTUP));
 		setEnvironment(provider.getPreference(Connector.PREF_ENVIRONMENT));
 		setTimeout(provider.getPreference(Connector.PREF_TIMEOUT));
+		setParallelLifeCycleHooks(provider.getPreference(Connector.PREF_PARALLEL_HOOKS));
 	}
 
 	/************************************************/
@@ -215,6 +221,16 @@ public abstract class AbstractPrologProcess implements PrologProcess {
 			return AbstractPrologProcess.this.getInitialSession();
 		}
 
+		@Override
+		public PrologSession getHookSession() throws PrologProcessException {
+			return AbstractPrologProcess.this.getHookSession();
+		}
+
+		@Override
+		public void disposeHookSession(PrologSession session) {
+			AbstractPrologProcess.this.disposeHookSession(session);
+		}
+
 		@Override
 		public PrologProcess getPrologProcess() {
 			return AbstractPrologProcess.this;
@@ -259,6 +275,11 @@ public abstract class AbstractPrologProcess implements PrologProcess {
 			}
 		}
 
+		@Override
+		public void afterStartup() throws Throwable {
+			AbstractPrologProcess.this.afterStartup();
+		}
+
 	}
 
 	@Override
@@ -293,6 +314,35 @@ public abstract class AbstractPrologProcess implements PrologProcess {
 		lifecycle.removeLifeCycleHook(hook, hookId);
 	}
 
+	@Override
+	public boolean isParallelLifeCycleHooks() {
+		return lifecycle.isParallelHooks();
+	}
+
+	@Override
+	public void setParallelLifeCycleHooks(boolean parallelLifeCycleHooks) {
+		lifecycle.setParallelHooks(parallelLifeCycleHooks);
+	}
+
+	public void setParallelLifeCycleHooks(String parallelLifeCycleHooks) {
+		setParallelLifeCycleHooks(Boolean.parseBoolean(parallelLifeCycleHooks));
+	}
+
+	@Override
+	public Map<String, Long> getLifeCycleHookTimings() {
+		return lifecycle.getHookTimings();
+	}
+
+	/**
+	 * override this if your subclass needs to do some work once the process is
+	 * up, e.g. preparing sessions. Errors are only reported, they do not affect
+	 * the state of the process.
+	 * 
+	 * @throws Throwable
+	 */
+	protected void afterStartup() throws Throwable {
+	}
+
 	/**
 	 * 
 	 * override this if your subclass needs special initial Sessions
@@ -331,6 +381,25 @@ public abstract class AbstractPrologProcess implements PrologProcess {
 
 	}
 
+	/**
+	 * override this if your subclass needs special sessions for hooks which
+	 * are initialized concurrently.
+	 * 
+	 * @return a session used by a single onInit hook
+	 * @throws PrologProcessException
+	 */
+	protected PrologSession getHookSession() throws PrologProcessException {
+		return getInitialSession();
+	}
+
+	/**
+	 * @param session
+	 *            a session obtained from getHookSession()
+	 */
+	protected void disposeHookSession(PrologSession session) {
+		disposeInitialSession(session);
+	}
+
 	/**
 	 * override this if you need configurable options. the default
 	 * implementation does not have any configurable options, so it will always
@@ -561,6 +630,42 @@ public abstract class AbstractPrologProcess implements PrologProcess {
 		return asyncSession;
 	}
 
+	public abstract MultiplexedPrologSession getMultiplexedSession_impl(int flags) throws Throwable;
+
+	@Override
+	public MultiplexedPrologSession getMultiplexedSession() throws PrologProcessException {
+		return getMultiplexedSession(defaultSessionFlag);
+	}
+
+	@Override
+	public MultiplexedPrologSession getMultiplexedSession(int flags) throws PrologProcessException {
+		CTermUtil.checkFlags(flags);
+		synchronized (lifecycle) {
+			if (getError() != null) {
+				throw new PrologProcessException(getError());
+			}
+			if (!isUp()) {
+				try {
+					start();
+					waitUntilUp();
+				} catch (InterruptedException e) {
+					Debug.rethrow(e);
+				}
+			}
+			try {
+				return getMultiplexedSession_internal(flags);
+			} catch (Throwable t) {
+				throw new PrologProcessException("Failed to obtain session. The Prolog process cannot be accessed.", t);
+			}
+		}
+	}
+
+	private MultiplexedPrologSession getMultiplexedSession_internal(int flags) throws Throwable {
+		MultiplexedPrologSession multiplexedSession = getMultiplexedSession_impl(flags);
+		sessions.add(new WeakReference<MultiplexedPrologSession>(multiplexedSession));
+		return multiplexedSession;
+	}
+
 	@Override
 	public StartupStrategy getStartupStrategy() {
 		return startupStrategy;
@@ -659,6 +764,72 @@ public abstract class AbstractPrologProcess implements PrologProcess {
 		return result;
 	}
 
+	@Override
+	public QueryFuture<Map<String, Object>> queryOnceAsync(String... predicates) throws PrologProcessException {
+		return queryOnceAsync(getSessionFlag(), predicates);
+	}
+
+	@Override
+	public QueryFuture<Map<String, Object>> queryOnceAsync(int flag, String... predicates) throws PrologProcessException {
+		MultiplexedQueryFuture.Once future = new MultiplexedQueryFuture.Once();
+		MultiplexedPrologSession session = getAsyncQuerySession();
+		future.started(session, session.queryOnce(conjunction(predicates), flag, future));
+		return future;
+	}
+
+	@Override
+	public QueryFuture<List<Map<String, Object>>> queryAllAsync(String... predicates) throws PrologProcessException {
+		return queryAllAsync(getSessionFlag(), predicates);
+	}
+
+	@Override
+	public QueryFuture<List<Map<String, Object>>> queryAllAsync(int flag, String... predicates) throws PrologProcessException {
+		MultiplexedQueryFuture.All future = new MultiplexedQueryFuture.All();
+		MultiplexedPrologSession session = getAsyncQuerySession();
+		future.started(session, session.queryAll(conjunction(predicates), flag, future));
+		return future;
+	}
+
+	@Override
+	public SolutionPublisher queryAllPublisher(String... predicates) {
+		return queryAllPublisher(getSessionFlag(), predicates);
+	}
+
+	@Override
+	public SolutionPublisher queryAllPublisher(int flag, String... predicates) {
+		CTermUtil.checkFlags(flag);
+		return new MultiplexedSolutionPublisher(this, conjunction(predicates), flag);
+	}
+
+	/**
+	 * @return the multiplexed session shared by all asynchronous queries of
+	 *         this process. A new session is created if the last one has been
+	 *         disposed, e.g. because the process was restarted.
+	 * @throws PrologProcessException
+	 */
+	MultiplexedPrologSession getAsyncQuerySession() throws PrologProcessException {
+		synchronized (asyncQuerySessionLock) {
+			if (asyncQuerySession == null || asyncQuerySession.isDisposed()) {
+				asyncQuerySession = getMultiplexedSession();
+			}
+			return asyncQuerySession;
+		}
+	}
+
+	private static String conjunction(String... predicates) {
+		StringBuffer buf = new StringBuffer();
+		boolean first = true;
+		for (String s : predicates) {
+			if (first) {
+				first = false;
+			} else {
+				buf.append(",");
+			}
+			buf.append(s);
+		}
+		return buf.toString();
+	}
+
 	@Override
 	public void consult(File file) throws PrologProcessException { //never executed
 		String fileName = QueryUtils.prologFileNameQuoted(file);
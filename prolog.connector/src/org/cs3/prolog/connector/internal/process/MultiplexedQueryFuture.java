@@ -0,0 +1,123 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.process;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.process.PrologException;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.cs3.prolog.connector.session.MultiplexedPrologSession;
+import org.cs3.prolog.connector.session.MultiplexedQueryListener;
+import org.cs3.prolog.connector.session.QueryFuture;
+
+/**
+ * Future of a query run by a {@link MultiplexedPrologSession}.
+ *
+ * @param <V>
+ *            the type of the result
+ */
+abstract class MultiplexedQueryFuture<V> extends QueryFuture<V> implements MultiplexedQueryListener {
+
+	/**
+	 * The first solution of the query or null if it has none.
+	 */
+	static class Once extends MultiplexedQueryFuture<Map<String, Object>> {
+
+		private Map<String, Object> solution;
+
+		@Override
+		public boolean solutionFound(Map<String, Object> solution) {
+			this.solution = solution;
+			return true;
+		}
+
+		@Override
+		protected Map<String, Object> getSolutions() {
+			return solution;
+		}
+	}
+
+	/**
+	 * All solutions of the query.
+	 */
+	static class All extends MultiplexedQueryFuture<List<Map<String, Object>>> {
+
+		private final Vector<Map<String, Object>> solutions = new Vector<Map<String, Object>>();
+
+		@Override
+		public boolean solutionFound(Map<String, Object> solution) {
+			solutions.add(solution);
+			return true;
+		}
+
+		@Override
+		protected List<Map<String, Object>> getSolutions() {
+			return solutions;
+		}
+	}
+
+	private volatile MultiplexedPrologSession session;
+	private volatile int id;
+	private final AtomicBoolean cancelSent = new AtomicBoolean();
+
+	/**
+	 * Attaches the query to the future once it has been submitted. If the
+	 * future has been cancelled in the meantime, {@link #cancelQuery()} could
+	 * not reach the query yet, so it is cancelled now.
+	 */
+	void started(MultiplexedPrologSession session, int id) {
+		this.id = id;
+		this.session = session;
+		if (isCancelled()) {
+			cancelQuery();
+		}
+	}
+
+	protected abstract V getSolutions();
+
+	@Override
+	protected void cancelQuery() {
+		MultiplexedPrologSession s = session;
+		// started() and cancel() may both get here
+		if (s == null || !cancelSent.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			s.cancel(id);
+		} catch (PrologProcessException e) {
+			Debug.report(e);
+		}
+	}
+
+	@Override
+	public void queryComplete(int id) {
+		succeeded(getSolutions());
+	}
+
+	@Override
+	public void queryCancelled(int id) {
+		cancelled();
+	}
+
+	@Override
+	public void queryFailed(int id, PrologException e) {
+		failed(e);
+	}
+
+}
@@ -0,0 +1,193 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.process;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.process.PrologException;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.cs3.prolog.connector.session.MultiplexedPrologSession;
+import org.cs3.prolog.connector.session.MultiplexedQueryListener;
+import org.cs3.prolog.connector.session.SolutionPublisher;
+import org.cs3.prolog.connector.session.SolutionSubscriber;
+import org.cs3.prolog.connector.session.SolutionSubscription;
+
+/**
+ * Publishes the solutions of a query run by the multiplexed session of a
+ * process. The demand of the subscriber is passed on to the server, see
+ * {@link MultiplexedPrologSession#queryAll(String, int, int, MultiplexedQueryListener)}.
+ */
+class MultiplexedSolutionPublisher implements SolutionPublisher {
+
+	private final AbstractPrologProcess process;
+	private final String query;
+	private final int flags;
+
+	MultiplexedSolutionPublisher(AbstractPrologProcess process, String query, int flags) {
+		this.process = process;
+		this.query = query;
+		this.flags = flags;
+	}
+
+	@Override
+	public void subscribe(SolutionSubscriber subscriber) {
+		subscriber.onSubscribe(new Subscription(subscriber));
+	}
+
+	private class Subscription implements SolutionSubscription, MultiplexedQueryListener {
+
+		private final SolutionSubscriber subscriber;
+		private boolean started;
+		private boolean cancelled;
+		private boolean terminated;
+		private MultiplexedPrologSession session;
+		private int id;
+		// demand requested while the query was being started
+		private int deferredDemand;
+
+		Subscription(SolutionSubscriber subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				cancel();
+				terminate(new IllegalArgumentException("demand must be positive: " + n));
+				return;
+			}
+			int demand = (int) Math.min(n, Integer.MAX_VALUE);
+			MultiplexedPrologSession s;
+			synchronized (this) {
+				if (cancelled || terminated) {
+					return;
+				}
+				if (started) {
+					if (session == null) {
+						deferredDemand = add(deferredDemand, demand);
+						return;
+					}
+					s = session;
+				} else {
+					started = true;
+					s = null;
+				}
+			}
+			try {
+				if (s == null) {
+					start(demand);
+				} else {
+					s.request(id, demand);
+				}
+			} catch (PrologProcessException e) {
+				terminate(e);
+			}
+		}
+
+		private void start(int demand) throws PrologProcessException {
+			MultiplexedPrologSession s = process.getAsyncQuerySession();
+			int queryId = s.queryAll(query, flags, demand, this);
+			int more;
+			boolean cancel;
+			synchronized (this) {
+				session = s;
+				id = queryId;
+				more = deferredDemand;
+				deferredDemand = 0;
+				cancel = cancelled;
+			}
+			if (cancel) {
+				s.cancel(queryId);
+			} else if (more > 0) {
+				s.request(queryId, more);
+			}
+		}
+
+		private int add(int a, int b) {
+			int sum = a + b;
+			return sum < 0 ? Integer.MAX_VALUE : sum;
+		}
+
+		@Override
+		public void cancel() {
+			MultiplexedPrologSession s;
+			synchronized (this) {
+				if (cancelled) {
+					return;
+				}
+				cancelled = true;
+				s = session;
+			}
+			if (s != null) {
+				try {
+					s.cancel(id);
+				} catch (PrologProcessException e) {
+					Debug.report(e);
+				}
+			}
+		}
+
+		private void terminate(Throwable error) {
+			synchronized (this) {
+				if (terminated) {
+					return;
+				}
+				terminated = true;
+			}
+			if (error == null) {
+				subscriber.onComplete();
+			} else {
+				subscriber.onError(error);
+			}
+		}
+
+		private synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public boolean solutionFound(Map<String, Object> solution) {
+			if (isCancelled()) {
+				return false;
+			}
+			subscriber.onNext(solution);
+			return true;
+		}
+
+		@Override
+		public void queryComplete(int id) {
+			if (!isCancelled()) {
+				terminate(null);
+			}
+		}
+
+		@Override
+		public void queryCancelled(int id) {
+			if (!isCancelled()) {
+				terminate(new CancellationException("The query was cancelled."));
+			}
+		}
+
+		@Override
+		public void queryFailed(int id, PrologException e) {
+			if (!isCancelled()) {
+				terminate(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,350 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.process.socket;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.common.QueryUtils;
+import org.cs3.prolog.connector.process.StartupStrategy;
+
+/**
+ * The bootstrap files of a server (consult_server.pl and the files of the
+ * {@link StartupStrategy}) compiled into quick load files.
+ * <p>
+ * The snapshot is stored in a directory named after a hash of the Prolog
+ * executable, the init statements and the contents of all files and
+ * directories they refer to. If there is no snapshot for the current
+ * configuration yet, the server loads the bootstrap files from source while a
+ * separate Prolog process builds the snapshot: it loads the bootstrap files
+ * and then compiles every module file and every file loaded directly by the
+ * bootstrap file into a QLF file of its own (see write_bootstrap_snapshot/2
+ * in consult_server.pl). Later servers only load the QLF files.
+ * <p>
+ * The QLF files are written to a temporary directory, never next to the
+ * source files, and the finished directory is renamed to the snapshot
+ * directory, so a server never sees a partial snapshot. A lock file keeps
+ * processes starting at the same time from building the same snapshot twice.
+ */
+class BootstrapSnapshot {
+
+	private static final String SNAPSHOT_DIRECTORY = "pdt_bootstrap";
+	private static final String SNAPSHOT_FILE = "bootstrap.pl";
+	private static final String BUILD_FILE = "build.pl";
+	private static final String LOAD_FILE = "load.pl";
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final String BUILD_SUFFIX = ".build";
+	private static final String SNAPSHOT_FORMAT = "qlf-per-file-2";
+	private static final Pattern QUOTED_ATOM = Pattern.compile("'((?:[^'\\\\]|\\\\.)*)'");
+	private static final int MAX_SNAPSHOTS = 8;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final File baseDirectory;
+	private final String key;
+	private final File directory;
+	private final File sourceFile;
+	private final File loadFile;
+
+	private BootstrapSnapshot(File baseDirectory, String key) {
+		this.baseDirectory = baseDirectory;
+		this.key = key;
+		directory = new File(baseDirectory, key);
+		sourceFile = new File(directory, SNAPSHOT_FILE);
+		loadFile = new File(directory, LOAD_FILE);
+	}
+
+	/**
+	 * Finds the snapshot for the current configuration of the process. The
+	 * snapshot may not have been built yet, see {@link #isCompiled()}.
+	 * 
+	 * @param socketProcess
+	 * @return the snapshot or null if its key could not be computed
+	 */
+	static BootstrapSnapshot get(SocketPrologProcess socketProcess) {
+		try {
+			File baseDirectory = new File(socketProcess.getServerLogDir(), SNAPSHOT_DIRECTORY);
+			return new BootstrapSnapshot(baseDirectory, computeKey(socketProcess));
+		} catch (IOException e) {
+			Debug.warning("Could not compute the key of the bootstrap snapshot, loading the bootstrap files from source.");
+			Debug.report(e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return whether the snapshot has been built
+	 */
+	boolean isCompiled() {
+		return loadFile.exists();
+	}
+
+	/**
+	 * Writes the file search path directives and the directive loading the
+	 * compiled snapshot. If the snapshot cannot be loaded, the bootstrap
+	 * files are loaded from source.
+	 * 
+	 * @param writer
+	 * @param socketProcess
+	 */
+	void writeLoadStatements(PrintWriter writer, SocketPrologProcess socketProcess) {
+		for (String fspInit : socketProcess.getStartupStrategy().getFileSearchPathInitStatements()) {
+			writer.println(":- " + fspInit + ".");
+		}
+		Debug.info("Loading bootstrap snapshot " + directory);
+		writer.println(":- (catch(load_files(" + QueryUtils.prologFileNameQuoted(loadFile) + ", []), E, (print_message(warning, E), fail)) -> true ; consult("
+				+ QueryUtils.prologFileNameQuoted(sourceFile) + ")).");
+	}
+
+	/**
+	 * Builds the snapshot in a separate Prolog process, unless another
+	 * process is already building it. Returns immediately.
+	 * 
+	 * @param socketProcess
+	 */
+	void buildInBackground(final SocketPrologProcess socketProcess) {
+		Thread thread = new Thread("Building Prolog bootstrap snapshot " + key) {
+			@Override
+			public void run() {
+				try {
+					build(socketProcess);
+				} catch (IOException e) {
+					Debug.warning("Could not build the bootstrap snapshot " + directory);
+					Debug.report(e);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void build(SocketPrologProcess socketProcess) throws IOException, InterruptedException {
+		if (!baseDirectory.isDirectory() && !baseDirectory.mkdirs()) {
+			throw new IOException("Could not create " + baseDirectory);
+		}
+		RandomAccessFile lockFile = new RandomAccessFile(new File(baseDirectory, key + LOCK_SUFFIX), "rw");
+		try {
+			FileLock lock;
+			try {
+				lock = lockFile.getChannel().tryLock();
+			} catch (OverlappingFileLockException e) {
+				lock = null;
+			}
+			if (lock == null || isCompiled()) {
+				// built or being built by another process
+				return;
+			}
+			File buildDirectory = new File(baseDirectory, key + BUILD_SUFFIX);
+			deleteDirectory(buildDirectory);
+			if (!buildDirectory.mkdirs()) {
+				throw new IOException("Could not create " + buildDirectory);
+			}
+			try {
+				File buildSourceFile = new File(buildDirectory, SNAPSHOT_FILE);
+				writeSourceFile(socketProcess, buildSourceFile);
+				File buildFile = new File(buildDirectory, BUILD_FILE);
+				writeBuildFile(socketProcess, buildFile, buildSourceFile, buildDirectory);
+				Debug.info("Building bootstrap snapshot " + directory);
+				Process process = SocketServerStartAndStopStrategy.startLoadingProcess(socketProcess, buildFile);
+				if (process == null) {
+					return;
+				}
+				try {
+					process.waitFor();
+				} finally {
+					SocketServerStartAndStopStrategy.removeBackgroundProcess(process);
+				}
+				if (!new File(buildDirectory, LOAD_FILE).exists()) {
+					throw new IOException("The snapshot has not been written, see pdt.server.log");
+				}
+				deleteOutdatedSnapshots(baseDirectory);
+				// left over from an interrupted deletion
+				deleteDirectory(directory);
+				if (!buildDirectory.renameTo(directory)) {
+					throw new IOException("Could not rename " + buildDirectory + " to " + directory);
+				}
+			} finally {
+				deleteDirectory(buildDirectory);
+			}
+		} finally {
+			// closing the file releases the lock
+			lockFile.close();
+		}
+	}
+
+	private void writeSourceFile(SocketPrologProcess socketProcess, File file) throws IOException {
+		PrintWriter writer = new PrintWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			writer.println(":- ['" + socketProcess.getConsultServerLocation() + "'].");
+			for (String lfInit : socketProcess.getStartupStrategy().getLoadFileInitStatements()) {
+				writer.println(":- " + lfInit + ".");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * The file search paths are not part of the bootstrap file, they are set
+	 * by the directives written by
+	 * {@link #writeLoadStatements(PrintWriter, SocketPrologProcess)} when the
+	 * snapshot is loaded.
+	 */
+	private void writeBuildFile(SocketPrologProcess socketProcess, File file, File bootstrapFile, File buildDirectory) throws IOException {
+		PrintWriter writer = new PrintWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			for (String fspInit : socketProcess.getStartupStrategy().getFileSearchPathInitStatements()) {
+				writer.println(":- " + fspInit + ".");
+			}
+			String source = QueryUtils.prologFileNameQuoted(bootstrapFile);
+			writer.println(":- consult(" + source + ").");
+			writer.println(":- consult_server:write_bootstrap_snapshot(" + source + ", " + QueryUtils.prologFileNameQuoted(buildDirectory) + ").");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Processes with different startup strategies need different snapshots,
+	 * so only the least recently created snapshots are deleted. Lock files
+	 * and the directories of running builds are kept.
+	 */
+	private static void deleteOutdatedSnapshots(File baseDirectory) {
+		File[] directories = baseDirectory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isDirectory() && !file.getName().endsWith(BUILD_SUFFIX);
+			}
+		});
+		if (directories == null || directories.length < MAX_SNAPSHOTS) {
+			return;
+		}
+		Arrays.sort(directories, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.valueOf(f1.lastModified()).compareTo(f2.lastModified());
+			}
+		});
+		for (int i = 0; i <= directories.length - MAX_SNAPSHOTS; i++) {
+			deleteDirectory(directories[i]);
+			new File(baseDirectory, directories[i].getName() + LOCK_SUFFIX).delete();
+		}
+	}
+
+	private static String computeKey(SocketPrologProcess socketProcess) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		update(digest, SNAPSHOT_FORMAT);
+		File executable = new File(socketProcess.getExecutablePath());
+		update(digest, executable.getAbsolutePath() + ":" + executable.length() + ":" + executable.lastModified());
+		update(digest, socketProcess.getConsultServerLocation());
+		updateWithFile(digest, new File(socketProcess.getConsultServerLocation()));
+		StartupStrategy startupStrategy = socketProcess.getStartupStrategy();
+		List<String> statements = new ArrayList<String>(startupStrategy.getFileSearchPathInitStatements());
+		statements.addAll(startupStrategy.getLoadFileInitStatements());
+		for (String statement : statements) {
+			update(digest, statement);
+			Matcher m = QUOTED_ATOM.matcher(statement);
+			while (m.find()) {
+				File file = new File(m.group(1).replace("\\'", "'").replace("\\\\", "\\"));
+				if (file.exists()) {
+					updateWithFile(digest, file);
+				}
+			}
+		}
+		byte[] hash = digest.digest();
+		char[] chars = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			chars[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+			chars[2 * i + 1] = HEX[hash[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	private static void update(MessageDigest digest, String s) throws IOException {
+		digest.update(s.getBytes("UTF-8"));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * Adds the contents of a file or of all Prolog and Logtalk files in a
+	 * directory to the hash.
+	 */
+	private static void updateWithFile(MessageDigest digest, File file) throws IOException {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children == null) {
+				return;
+			}
+			Arrays.sort(children);
+			for (File child : children) {
+				if (child.isDirectory() || isSourceFile(child)) {
+					updateWithFile(digest, child);
+				}
+			}
+			return;
+		}
+		update(digest, file.getPath());
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static boolean isSourceFile(File file) {
+		String name = file.getName();
+		return name.endsWith(".pl") || name.endsWith(".pro") || name.endsWith(".lgt") || name.endsWith(".logtalk");
+	}
+
+}
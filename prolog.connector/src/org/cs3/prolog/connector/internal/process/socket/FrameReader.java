@@ -0,0 +1,174 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ * 
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ * 
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ * 
+ ****************************************************************************/
+
+package org.cs3.prolog.connector.internal.process.socket;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+
+import org.cs3.prolog.connector.common.Util;
+import org.cs3.prolog.connector.cterm.CTerm;
+import org.cs3.prolog.connector.cterm.CTermFactory;
+import org.cs3.prolog.connector.process.PrologProcess;
+
+/**
+ * Reads solutions sent in the framed protocol mode of the consult server.
+ * <p>
+ * In this mode the server announces every solution with a line
+ * <code>FRAME &lt;length&gt;</code>, followed by a payload of exactly
+ * <code>length</code> characters (counted as code points, like Prolog does).
+ * The payload is a sequence of length-prefixed values:
+ * <ul>
+ * <li><code>S&lt;n&gt;:&lt;n characters&gt;</code> a single value</li>
+ * <li><code>L&lt;n&gt;:</code> a list, followed by its <code>n</code> elements</li>
+ * </ul>
+ * Since every value carries its length, nothing has to be escaped and the
+ * whole frame is read from the stream in bulk.
+ */
+public class FrameReader {
+
+	static final char SCALAR_TAG = 'S';
+	static final char LIST_TAG = 'L';
+	private static final char LENGTH_DELIMITER = ':';
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private SocketClient socketClient;
+	private char[] buffer = new char[INITIAL_CAPACITY];
+	private int position;
+	private int limit;
+
+	FrameReader(SocketClient socketClient) {
+		this.socketClient = socketClient;
+	}
+
+	/**
+	 * Reads the payload of a frame into the internal buffer. Any previously
+	 * read frame is discarded.
+	 *
+	 * @param codePoints
+	 *            the length of the payload as announced by the server
+	 * @throws IOException
+	 */
+	public void readFrame(int codePoints) throws IOException {
+		BufferedReader reader = socketClient.getReader();
+		position = 0;
+		limit = 0;
+		// code points still to read; a code point starts with any char but a
+		// low surrogate. If a read ends on a high surrogate, its low
+		// surrogate has to be read, too.
+		int missing = codePoints;
+		while (missing > 0 || (limit > 0 && Character.isHighSurrogate(buffer[limit - 1]))) {
+			int wanted = Math.max(missing, 1);
+			ensureCapacity(limit + wanted);
+			int read = reader.read(buffer, limit, wanted);
+			if (read < 0) {
+				throw new IOException("read EOF, while reading a frame of length " + codePoints + ".");
+			}
+			for (int i = limit; i < limit + read; i++) {
+				if (!Character.isLowSurrogate(buffer[i])) {
+					missing--;
+				}
+			}
+			limit += read;
+		}
+	}
+
+	/**
+	 * @return true if the current frame contains another value
+	 */
+	public boolean hasMoreValues() {
+		return position < limit;
+	}
+
+	/**
+	 * Reads the next value from the current frame.
+	 *
+	 * @param flags
+	 *            session flags used to convert the value
+	 * @return the value; lists are returned as {@link java.util.Vector}s, or as
+	 *         {@link java.util.ArrayList}s if
+	 *         {@link org.cs3.prolog.connector.process.PrologProcess#COMPACT_RESULTS}
+	 *         is set. In the latter case single values are returned as
+	 *         {@link RawValue}s.
+	 * @throws IOException
+	 *             if the frame is malformed
+	 */
+	public Object readValue(int flags) throws IOException {
+		return readValue(flags, Util.flagsSet(flags, PrologProcess.COMPACT_RESULTS));
+	}
+
+	private Object readValue(int flags, boolean raw) throws IOException {
+		if (!hasMoreValues()) {
+			throw new IOException("Unexpected end of frame.");
+		}
+		char tag = buffer[position++];
+		int length = readLength();
+		switch (tag) {
+		case SCALAR_TAG:
+			int end = skipCodePoints(length);
+			if (!raw && Util.flagsSet(flags, PrologProcess.CTERMS)) {
+				// decode the term in place instead of copying it first
+				CTerm term = CTermFactory.decodeCTerm(buffer, position, end);
+				position = end;
+				return term;
+			}
+			String unparsedValue = new String(buffer, position, end - position);
+			position = end;
+			if (raw) {
+				return new RawValue(unparsedValue, false, flags);
+			}
+			return ValueReader.convertValue(unparsedValue, flags);
+		case LIST_TAG:
+			List<Object> list = ValueReader.createList(flags);
+			for (int i = 0; i < length; i++) {
+				list.add(readValue(flags, false));
+			}
+			return list;
+		default:
+			throw new IOException("Unknown value tag in frame: '" + tag + "'");
+		}
+	}
+
+	private int readLength() throws IOException {
+		int length = 0;
+		while (position < limit) {
+			char c = buffer[position++];
+			if (c == LENGTH_DELIMITER) {
+				return length;
+			}
+			if (c < '0' || c > '9') {
+				throw new IOException("Malformed length in frame: '" + c + "'");
+			}
+			length = length * 10 + (c - '0');
+		}
+		throw new IOException("Unexpected end of frame while reading a length.");
+	}
+
+	private int skipCodePoints(int codePoints) throws IOException {
+		try {
+			return Character.offsetByCodePoints(buffer, 0, limit, position, codePoints);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Value exceeds the frame boundary.");
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > buffer.length) {
+			char[] newBuffer = new char[Math.max(capacity, buffer.length * 2)];
+			System.arraycopy(buffer, 0, newBuffer, 0, limit);
+			buffer = newBuffer;
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.process.socket;
+
+import org.cs3.prolog.connector.common.Util;
+import org.cs3.prolog.connector.session.LazyValue;
+
+/**
+ * The textual representation of a value as received from the server. It is
+ * only unescaped and converted according to the session flags when the value
+ * is accessed.
+ *
+ * @see org.cs3.prolog.connector.process.PrologProcess#COMPACT_RESULTS
+ */
+public class RawValue extends LazyValue {
+
+	private final String text;
+	private final boolean escaped;
+	private final int flags;
+
+	RawValue(String text, boolean escaped, int flags) {
+		this.text = text;
+		this.escaped = escaped;
+		this.flags = flags;
+	}
+
+	/**
+	 * @return the value converted according to the session flags
+	 */
+	@Override
+	public Object convert() {
+		return ValueReader.convertValue(escaped ? Util.unescape(text) : text, flags);
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
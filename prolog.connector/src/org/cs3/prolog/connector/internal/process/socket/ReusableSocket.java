@@ -19,12 +19,16 @@ package org.cs3.prolog.connector.internal.process.socket;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.concurrent.Semaphore;
 
 import org.cs3.prolog.connector.common.Debug;
 
 public class ReusableSocket extends Socket implements Reusable {
 
     private LogBuffer logBuffer = new SimpleLogBuffer();
+    private int poolGeneration;
+    private Semaphore borrowPermit;
+    private boolean reused;
 
     public ReusableSocket(String host, int port) throws UnknownHostException,
             IOException {
@@ -65,6 +69,35 @@ public class ReusableSocket extends Socket implements Reusable {
         return this.logBuffer;
     }
 
+    int getPoolGeneration() {
+        return poolGeneration;
+    }
+
+    void setPoolGeneration(int poolGeneration) {
+        this.poolGeneration = poolGeneration;
+    }
+
+    /**
+     * @return whether the socket was taken from the idle sockets of a pool
+     *         when it was borrowed the last time, as opposed to being newly
+     *         created
+     */
+    public boolean isReused() {
+        return reused;
+    }
+
+    void setReused(boolean reused) {
+        this.reused = reused;
+    }
+
+    Semaphore getBorrowPermit() {
+        return borrowPermit;
+    }
+
+    void setBorrowPermit(Semaphore borrowPermit) {
+        this.borrowPermit = borrowPermit;
+    }
+
 }
 
 
@@ -30,6 +30,9 @@ import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.Util;
@@ -37,16 +40,34 @@ import org.cs3.prolog.connector.process.PrologException;
 
 
 public class SocketClient {
+	/**
+	 * The values of the protocol options after a reset. This has to be kept in
+	 * sync with option_default/2 in consult_server.pl. Options without a
+	 * default there are considered to be false.
+	 */
+	private static final Map<String, String> DEFAULT_PROTOCOL_OPTIONS;
+	static {
+		Map<String, String> defaults = new HashMap<String, String>();
+		defaults.put("interprete_lists", "true");
+		defaults.put("unbound_variables", "false");
+		defaults.put("canonical", "false");
+		defaults.put("framed", "false");
+		DEFAULT_PROTOCOL_OPTIONS = Collections.unmodifiableMap(defaults);
+	}
+	
 	private int lockCounter = 0;
 	private Object ownerLock = new Object();
 	private BufferedReader reader;
 	private ReusableSocket socket;
-	private ReusablePool pool;
+	private SocketPool pool;
 	private BufferedWriter writer;
 	private boolean paranoid=true;
 	private String processorThread;
 	private long pid;
 	private ValueReader valueReader;	
+	private FrameReader frameReader;
+	private boolean useFramedProtocol;
+	private Map<String, String> protocolOptions = new HashMap<String, String>();
 
 	public SocketClient(String string, int port) throws UnknownHostException,
 			IOException {
@@ -55,6 +76,7 @@ public class SocketClient {
 	
 	public SocketClient(ReusableSocket socket) throws IOException {
 		valueReader=new ValueReader(this);
+		frameReader=new FrameReader(this);
 		this.socket = socket;
 		initializeBuffers();
 		reset();
@@ -85,9 +107,16 @@ public class SocketClient {
 		}
 		try {
 			if (pool != null) {
-				reset();
-	            Debug.info("recycle socket: " + socket.getLocalPort());
-				pool.recycle(socket);
+				boolean recycled = false;
+				try {
+					reset();
+					pool.recycle(socket);
+					recycled = true;
+				} finally {
+					if (!recycled) {
+						pool.destroy(socket);
+					}
+				}
 			} else {
 	            Debug.info("destroy socket: " + socket.getLocalPort());
 				socket.destroy();
@@ -101,8 +130,11 @@ public class SocketClient {
 		while (reader.ready()) {
 			reader.read();
 		}
+		// the server clears all protocol options of the connection
+		protocolOptions.clear();
 		writeln("");
 		readUntil(SocketCommunicationConstants.OK);
+		protocolOptions.putAll(DEFAULT_PROTOCOL_OPTIONS);
 	}
 
 	private InputStream getInputStream() throws IOException {
@@ -221,11 +253,11 @@ public class SocketClient {
 		writer.flush();
 	}
 
-	public ReusablePool getPool() {
+	public SocketPool getPool() {
 		return pool;
 	}
 
-	public void setPool(ReusablePool pool) {
+	public void setPool(SocketPool pool) {
 		this.pool = pool;
 	}
 
@@ -246,6 +278,76 @@ public class SocketClient {
 	public  Object readValue(int flags) throws IOException {
 		return valueReader.readValue(flags);
 	}
+
+	/**
+	 * @param id
+	 * @return the value the protocol option currently has on the server side
+	 *         or null if it is not known
+	 */
+	public String getKnownProtocolOption(String id) {
+		return protocolOptions.get(id);
+	}
+
+	/**
+	 * Records the value of a protocol option on the server side. This does not
+	 * send anything to the server.
+	 * 
+	 * @param id
+	 * @param value
+	 *            the new value or null if it is not known
+	 */
+	public void setKnownProtocolOption(String id, String value) {
+		if (value == null) {
+			protocolOptions.remove(id);
+		} else {
+			protocolOptions.put(id, value);
+		}
+	}
+
+	/**
+	 * Enables or disables the framed protocol mode for this client. This only
+	 * tells the client how to read solutions, the mode still has to be
+	 * switched on for the server by setting the protocol option
+	 * <code>framed</code>.
+	 * 
+	 * @see FrameReader
+	 */
+	public void setUseFramedProtocol(boolean useFramedProtocol) {
+		this.useFramedProtocol = useFramedProtocol;
+	}
+
+	public boolean isUseFramedProtocol() {
+		return useFramedProtocol;
+	}
+
+	/**
+	 * Reads the payload of a frame announced by a line with the prefix
+	 * {@link SocketCommunicationConstants#FRAME}.
+	 * 
+	 * @param header
+	 *            the line announcing the frame
+	 * @throws IOException
+	 */
+	public void readFrame(String header) throws IOException {
+		exceptionIfNoSocketThere();
+		int length;
+		try {
+			length = Integer.parseInt(header.substring(SocketCommunicationConstants.FRAME.length()).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed frame header: " + header);
+		}
+		frameReader.readFrame(length);
+		// the payload is terminated by a line separator
+		reader.readLine();
+	}
+
+	public boolean hasMoreFrameValues() {
+		return frameReader.hasMoreValues();
+	}
+
+	public Object readFrameValue(int flags) throws IOException {
+		return frameReader.readValue(flags);
+	}
 	
 }
 
@@ -25,6 +25,9 @@ public interface SocketCommunicationConstants {
 	public static final String GIVE_SYMBOL = "GIVE_SYMBOL";
 	public static final String QUERY = "QUERY";
 	public static final String QUERY_ALL = "QUERY_ALL";
+	public static final String QUERY_BATCHED = "QUERY_BATCHED";
+	public static final String QUERY_PIPELINED = "QUERY_PIPELINED";
+	public static final String QUERY_TABLE = "QUERY_TABLE";
 	public static final String GO_AHEAD = "GO_AHEAD";
 	public static final String LINE_SEPARATOR = "\n";
 	public static final String OK = "OK";
@@ -42,6 +45,15 @@ public interface SocketCommunicationConstants {
 	public static final String EOB = "end_of_batch.";
 	public static final String CUT = "CUT";
 	public static final String SET_OPTION = "SET_OPTION";
+	public static final String FRAME = "FRAME ";
+	public static final String ENTER_MULTIPLEX = "ENTER_MULTIPLEX";
+	public static final String EOM = "end_of_multiplex.";
+	public static final String EOM_COMPLETE = "END_OF_MULTIPLEX_COMPLETE";
+	public static final String SOLUTION_FOR_QUERY = "SOLUTION: ";
+	public static final String YES_FOR_QUERY = "YES: ";
+	public static final String NO_FOR_QUERY = "NO: ";
+	public static final String CUT_FOR_QUERY = "CUT: ";
+	public static final String ERROR_FOR_QUERY = "ERROR_FOR_QUERY: ";
 
 }
 
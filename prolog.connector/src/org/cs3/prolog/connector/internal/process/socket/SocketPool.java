@@ -0,0 +1,371 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+package org.cs3.prolog.connector.internal.process.socket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cs3.prolog.connector.common.Debug;
+
+/**
+ * Creation of new client sessions is rather costly, because every session
+ * needs its own connection and thread on the server side. So we keep the
+ * sockets of disposed sessions for later use.
+ * <p>
+ * Idle sockets are kept in a lock-free queue. The most recently used socket
+ * is reused first, sockets that have been idle for longer than the idle
+ * timeout are destroyed, but the pool never shrinks below its minimum idle
+ * size. The number of sockets borrowed at the same time can be limited, in
+ * which case {@link #borrow()} waits for a socket to be returned.
+ * <p>
+ * The pool only checks the local state of an idle socket, it cannot tell
+ * whether the server has closed the connection in the meantime. Users detect
+ * this on the first use of a socket with {@link ReusableSocket#isReused()}
+ * set, destroy it and call {@link #evictIdle()} before borrowing again.
+ * <p>
+ * Subclasses have to implement {@link #createSocket()}.
+ */
+public abstract class SocketPool {
+
+	private static class IdleSocket {
+		final ReusableSocket socket;
+		final long idleSince = System.currentTimeMillis();
+
+		IdleSocket(ReusableSocket socket) {
+			this.socket = socket;
+		}
+	}
+
+	private final ConcurrentLinkedDeque<IdleSocket> idle = new ConcurrentLinkedDeque<IdleSocket>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger activeCount = new AtomicInteger();
+	private volatile int generation = 0;
+
+	private volatile int minIdle = 2;
+	private volatile int maxIdle = 16;
+	private volatile int maxActive = 0;
+	private volatile long idleTimeout = 5 * 60 * 1000;
+	private volatile long borrowTimeout = 30 * 1000;
+	private volatile Semaphore permits = null;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong waits = new AtomicLong();
+	private final AtomicLong destroys = new AtomicLong();
+
+	/**
+	 * Creates a new socket connected to the server.
+	 *
+	 * @return the new socket
+	 * @throws IOException
+	 */
+	protected abstract ReusableSocket createSocket() throws IOException;
+
+	/**
+	 * Returns a socket, either taken from the pool or newly created. The socket
+	 * has to be handed back by calling {@link #recycle(ReusableSocket)} or
+	 * {@link #destroy(ReusableSocket)}.
+	 *
+	 * @return the socket
+	 * @throws IOException
+	 *             if no socket could be created or if the maximum number of
+	 *             borrowed sockets is reached and none was returned within the
+	 *             borrow timeout
+	 */
+	public ReusableSocket borrow() throws IOException {
+		Semaphore permit = acquirePermit();
+		boolean success = false;
+		try {
+			ReusableSocket socket = pollIdleSocket();
+			if (socket != null) {
+				hits.incrementAndGet();
+				socket.reuse();
+				socket.setReused(true);
+			} else {
+				misses.incrementAndGet();
+				socket = createSocket();
+				socket.setReused(false);
+			}
+			socket.setPoolGeneration(generation);
+			socket.setBorrowPermit(permit);
+			activeCount.incrementAndGet();
+			success = true;
+			return socket;
+		} finally {
+			if (!success && permit != null) {
+				permit.release();
+			}
+		}
+	}
+
+	/**
+	 * Hands back a borrowed socket for later use. The socket is destroyed
+	 * instead if the pool is full or has been cleared since the socket was
+	 * borrowed.
+	 *
+	 * @param socket
+	 */
+	public void recycle(ReusableSocket socket) {
+		returned(socket);
+		socket.recylce();
+		if (socket.getPoolGeneration() != generation || !isValid(socket)) {
+			destroySocket(socket);
+		} else if (idleCount.incrementAndGet() > maxIdle) {
+			idleCount.decrementAndGet();
+			destroySocket(socket);
+		} else {
+			idle.offerFirst(new IdleSocket(socket));
+		}
+		evictExpired();
+	}
+
+	/**
+	 * Hands back a borrowed socket that must not be used again, e.g. because
+	 * the connection is broken.
+	 *
+	 * @param socket
+	 */
+	public void destroy(ReusableSocket socket) {
+		returned(socket);
+		destroySocket(socket);
+	}
+
+	/**
+	 * Fills the pool up to its minimum idle size.
+	 *
+	 * @throws IOException
+	 */
+	public void prewarm() throws IOException {
+		int startGeneration = generation;
+		while (idleCount.get() < minIdle && startGeneration == generation) {
+			ReusableSocket socket = createSocket();
+			socket.setPoolGeneration(startGeneration);
+			idleCount.incrementAndGet();
+			idle.offerLast(new IdleSocket(socket));
+		}
+	}
+
+	/**
+	 * Destroys all idle sockets. Sockets which are currently borrowed are
+	 * destroyed when they are returned.
+	 */
+	public void clear() {
+		generation++;
+		evictIdle();
+	}
+
+	/**
+	 * Destroys all idle sockets, but unlike {@link #clear()} borrowed sockets
+	 * are still recycled when they are returned. Used if an idle socket turned
+	 * out to be broken, because the other ones were probably closed by the
+	 * server as well.
+	 */
+	public void evictIdle() {
+		IdleSocket s;
+		while ((s = idle.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			destroySocket(s.socket);
+		}
+	}
+
+	private Semaphore acquirePermit() throws IOException {
+		Semaphore permit = permits;
+		if (permit == null || permit.tryAcquire()) {
+			return permit;
+		}
+		waits.incrementAndGet();
+		try {
+			if (permit.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+				return permit;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a session.");
+		}
+		throw new IOException("Could not get a session within " + borrowTimeout + " ms: all " + maxActive + " sessions are in use.");
+	}
+
+	private void returned(ReusableSocket socket) {
+		activeCount.decrementAndGet();
+		Semaphore permit = socket.getBorrowPermit();
+		socket.setBorrowPermit(null);
+		if (permit != null) {
+			permit.release();
+		}
+	}
+
+	private ReusableSocket pollIdleSocket() {
+		IdleSocket s;
+		while ((s = idle.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			if (isExpired(s) || !isValid(s.socket)) {
+				destroySocket(s.socket);
+			} else {
+				return s.socket;
+			}
+		}
+		return null;
+	}
+
+	private void evictExpired() {
+		IdleSocket s;
+		while (idleCount.get() > minIdle && (s = idle.peekLast()) != null && isExpired(s)) {
+			if (idle.removeLastOccurrence(s)) {
+				idleCount.decrementAndGet();
+				destroySocket(s.socket);
+			}
+		}
+	}
+
+	private boolean isExpired(IdleSocket s) {
+		return idleTimeout > 0 && System.currentTimeMillis() - s.idleSince > idleTimeout;
+	}
+
+	private boolean isValid(ReusableSocket socket) {
+		return socket.isConnected() && !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+	}
+
+	private void destroySocket(ReusableSocket socket) {
+		destroys.incrementAndGet();
+		try {
+			socket.destroy();
+		} catch (RuntimeException e) {
+			Debug.report(e);
+		}
+	}
+
+	/************************************************/
+	/**** Options [Start] *****/
+	/************************************************/
+
+	public int getMinIdle() {
+		return minIdle;
+	}
+
+	/**
+	 * @param minIdle
+	 *            number of idle sockets created by {@link #prewarm()} and kept
+	 *            regardless of the idle timeout
+	 */
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	public int getMaxIdle() {
+		return maxIdle;
+	}
+
+	/**
+	 * @param maxIdle
+	 *            maximum number of idle sockets, further returned sockets are
+	 *            destroyed
+	 */
+	public void setMaxIdle(int maxIdle) {
+		this.maxIdle = maxIdle;
+	}
+
+	public int getMaxActive() {
+		return maxActive;
+	}
+
+	/**
+	 * Changes only affect sockets borrowed afterwards.
+	 *
+	 * @param maxActive
+	 *            maximum number of sockets borrowed at the same time, 0 for no
+	 *            limit
+	 */
+	public void setMaxActive(int maxActive) {
+		this.maxActive = maxActive;
+		permits = maxActive > 0 ? new Semaphore(maxActive, true) : null;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * @param idleTimeout
+	 *            time in milliseconds after which an idle socket is destroyed,
+	 *            0 to keep idle sockets forever
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getBorrowTimeout() {
+		return borrowTimeout;
+	}
+
+	/**
+	 * @param borrowTimeout
+	 *            time in milliseconds {@link #borrow()} waits if the maximum
+	 *            number of borrowed sockets is reached
+	 */
+	public void setBorrowTimeout(long borrowTimeout) {
+		this.borrowTimeout = borrowTimeout;
+	}
+
+	/************************************************/
+	/**** Options [End] *****/
+	/************************************************/
+
+	/**
+	 * @return number of borrowed sockets taken from the pool
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of borrowed sockets which had to be created
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of times {@link #borrow()} had to wait for a socket
+	 */
+	public long getWaits() {
+		return waits.get();
+	}
+
+	/**
+	 * @return number of destroyed sockets
+	 */
+	public long getDestroys() {
+		return destroys.get();
+	}
+
+	public int getIdleCount() {
+		return idleCount.get();
+	}
+
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "SocketPool[idle=" + getIdleCount() + ", active=" + getActiveCount() + ", hits=" + getHits() + ", misses="
+				+ getMisses() + ", waits=" + getWaits() + ", destroys=" + getDestroys() + "]";
+	}
+
+}
@@ -23,9 +23,11 @@ import org.cs3.prolog.connector.common.PreferenceProvider;
 import org.cs3.prolog.connector.internal.process.AbstractPrologProcess;
 import org.cs3.prolog.connector.internal.process.ServerStartAndStopStrategy;
 import org.cs3.prolog.connector.internal.session.socket.AsyncSocketSession;
+import org.cs3.prolog.connector.internal.session.socket.MultiplexedSocketSession;
 import org.cs3.prolog.connector.internal.session.socket.SocketSession;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.cs3.prolog.connector.session.AsyncPrologSession;
+import org.cs3.prolog.connector.session.MultiplexedPrologSession;
 import org.cs3.prolog.connector.session.PrologSession;
 
 public class SocketPrologProcess extends AbstractPrologProcess {
@@ -69,6 +71,13 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 	private boolean useSessionPooling = true;
 	private int port = 9999;
 	private boolean hidePlwin;
+	private boolean useFramedProtocol;
+	private boolean useWarmStandby;
+	private boolean useBootstrapSnapshot;
+	private volatile boolean restarting;
+	private int multiplexWorkers = 4;
+	private int sessionPoolSize = 16;
+	private long sessionPoolTimeout = 5 * 60 * 1000;
 
 	private String serverLogDir;
 	private String consultServerLocation;
@@ -82,7 +91,10 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 	}
 	public void setUseSessionPooling(boolean useSessionPooling) {
 		this.useSessionPooling = useSessionPooling;
-		pool = useSessionPooling ? new ReusablePool() : null;
+		if (pool != null) {
+			pool.clear();
+		}
+		pool = useSessionPooling ? createPool() : null;
 	}
 	public int getPort() {
 		return port;
@@ -96,6 +108,99 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 	public void setHidePlwin(String hidePlwin) {
 		this.hidePlwin = Boolean.parseBoolean(hidePlwin);
 	}
+	public boolean isUseFramedProtocol() {
+		return useFramedProtocol;
+	}
+	public void setUseFramedProtocol(boolean useFramedProtocol) {
+		this.useFramedProtocol = useFramedProtocol;
+	}
+	public void setUseFramedProtocol(String useFramedProtocol) {
+		this.useFramedProtocol = Boolean.parseBoolean(useFramedProtocol);
+	}
+	public boolean isUseWarmStandby() {
+		return useWarmStandby;
+	}
+	/**
+	 * @param useWarmStandby
+	 *            whether a second server is kept running in the background, so
+	 *            that a restart only has to switch to it. Changes take effect
+	 *            on the next start of the process.
+	 */
+	public void setUseWarmStandby(boolean useWarmStandby) {
+		this.useWarmStandby = useWarmStandby;
+		if (!useWarmStandby && startAndStopStrategy instanceof SocketServerStartAndStopStrategy) {
+			((SocketServerStartAndStopStrategy) startAndStopStrategy).discardStandby(getHost());
+		}
+	}
+	public void setUseWarmStandby(String useWarmStandby) {
+		setUseWarmStandby(Boolean.parseBoolean(useWarmStandby));
+	}
+	public boolean isUseBootstrapSnapshot() {
+		return useBootstrapSnapshot;
+	}
+	/**
+	 * @param useBootstrapSnapshot
+	 *            whether the server loads consult_server.pl and the files of
+	 *            the startup strategy from a quick load file which is
+	 *            compiled once for every set of bootstrap files
+	 */
+	public void setUseBootstrapSnapshot(boolean useBootstrapSnapshot) {
+		this.useBootstrapSnapshot = useBootstrapSnapshot;
+	}
+	public void setUseBootstrapSnapshot(String useBootstrapSnapshot) {
+		this.useBootstrapSnapshot = Boolean.parseBoolean(useBootstrapSnapshot);
+	}
+	public int getMultiplexWorkers() {
+		return multiplexWorkers;
+	}
+	/**
+	 * @param multiplexWorkers
+	 *            number of Prolog threads running the queries of a new
+	 *            multiplexed session
+	 */
+	public void setMultiplexWorkers(int multiplexWorkers) {
+		this.multiplexWorkers = multiplexWorkers;
+	}
+	public int getSessionPoolSize() {
+		return sessionPoolSize;
+	}
+	/**
+	 * @param sessionPoolSize
+	 *            maximum number of connections of disposed sessions which are
+	 *            kept for later sessions
+	 */
+	public void setSessionPoolSize(int sessionPoolSize) {
+		this.sessionPoolSize = sessionPoolSize;
+		if (pool != null) {
+			pool.setMaxIdle(sessionPoolSize);
+		}
+	}
+	public void setSessionPoolSize(String sessionPoolSize) {
+		if (sessionPoolSize == null || sessionPoolSize.isEmpty()) {
+			return;
+		}
+		setSessionPoolSize(Integer.parseInt(sessionPoolSize));
+	}
+	public long getSessionPoolTimeout() {
+		return sessionPoolTimeout;
+	}
+	/**
+	 * @param sessionPoolTimeout
+	 *            time in milliseconds after which the connection of a disposed
+	 *            session is closed, 0 to keep it forever
+	 */
+	public void setSessionPoolTimeout(long sessionPoolTimeout) {
+		this.sessionPoolTimeout = sessionPoolTimeout;
+		if (pool != null) {
+			pool.setIdleTimeout(sessionPoolTimeout);
+		}
+	}
+	public void setSessionPoolTimeout(String sessionPoolTimeout) {
+		if (sessionPoolTimeout == null || sessionPoolTimeout.isEmpty()) {
+			return;
+		}
+		setSessionPoolTimeout(Long.parseLong(sessionPoolTimeout));
+	}
 	public void setServerLogDir(String path){
 		serverLogDir = path;
 	}
@@ -109,6 +214,11 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 		setHidePlwin(provider.getPreference(Connector.PREF_HIDE_PLWIN));
 //		setUseSessionPooling(true);
 		setServerLogDir(provider.getPreference(Connector.PREF_SERVER_LOGDIR));		
+		setUseFramedProtocol(provider.getPreference(Connector.PREF_FRAMED_PROTOCOL));
+		setUseWarmStandby(provider.getPreference(Connector.PREF_WARM_STANDBY));
+		setUseBootstrapSnapshot(provider.getPreference(Connector.PREF_BOOTSTRAP_SNAPSHOT));
+		setSessionPoolSize(provider.getPreference(Connector.PREF_SESSION_POOL_SIZE));
+		setSessionPoolTimeout(provider.getPreference(Connector.PREF_SESSION_POOL_TIMEOUT));
 
 	}
 	
@@ -126,7 +236,7 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 	/************************************************/	
 
 
-	private ReusablePool pool = useSessionPooling ? new ReusablePool() : null;
+	private SocketPool pool;
 	
 	private File lockFile;
 	private ServerStartAndStopStrategy startAndStopStrategy;
@@ -144,24 +254,71 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 		setServerLogDir(System.getProperty("java.io.tmpdir"));		
 	}
 	
-	@Override
-	public PrologSession getSession_impl(int flags) throws Throwable {
-		ReusableSocket socket = null;
-		try {
-			if (useSessionPooling) {
-				socket = (ReusableSocket) pool
-						.findInstance(ReusableSocket.class);
+	private SocketPool createPool() {
+		SocketPool pool = new SocketPool() {
+			@Override
+			protected ReusableSocket createSocket() throws IOException {
+				return new ReusableSocket(getHost(), port);
 			}
-			if (socket == null) {
-				socket = new ReusableSocket(getHost(), port);
-				Debug.info("sync session creating new ReusableSocket: " + socket.getLocalPort());
+		};
+		pool.setMaxIdle(sessionPoolSize);
+		pool.setIdleTimeout(sessionPoolTimeout);
+		return pool;
+	}
+
+	/**
+	 * @return the pool of sockets used for sessions or null if session pooling
+	 *         is disabled
+	 */
+	public SocketPool getSessionPool() {
+		return pool;
+	}
 
-			} else {
-				Debug.info("sync session reusing old ReusableSocket: " + socket.getLocalPort());
+	private SocketClient createClient() throws IOException {
+		if (pool == null) {
+			return new SocketClient(new ReusableSocket(getHost(), port));
+		}
+		ReusableSocket socket = pool.borrow();
+		try {
+			return createPooledClient(socket);
+		} catch (IOException e) {
+			pool.destroy(socket);
+			if (!socket.isReused()) {
+				throw e;
 			}
+			// the connection of an idle socket may have been closed by the
+			// server, so drop the idle sockets and try again once
+			Debug.warning("Discarding idle session sockets: " + e.getMessage());
+			pool.evictIdle();
+		}
+		socket = pool.borrow();
+		try {
+			return createPooledClient(socket);
+		} catch (IOException e) {
+			pool.destroy(socket);
+			throw e;
+		}
+	}
 
-			SocketClient client = new SocketClient(socket);
-			client.setPool(pool);
+	/**
+	 * The handshake of the client doubles as liveness check of an idle socket,
+	 * it must not block forever if the server does not answer anymore.
+	 */
+	private SocketClient createPooledClient(ReusableSocket socket) throws IOException {
+		if (socket.isReused()) {
+			socket.setSoTimeout(getTimeout());
+		}
+		SocketClient client = new SocketClient(socket);
+		socket.setSoTimeout(0);
+		client.setPool(pool);
+		return client;
+	}
+
+	@Override
+	public PrologSession getSession_impl(int flags) throws Throwable {
+		try {
+			SocketClient client = createClient();
+			client.setUseFramedProtocol(useFramedProtocol);
 			SocketSession s = new SocketSession(client, this,flags);
 
 			return s;
@@ -173,21 +330,9 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 
 	@Override
 	public AsyncPrologSession getAsyncSession_impl(int flags) throws Throwable {
-		ReusableSocket socket = null;
 		try {
-			if (useSessionPooling) {
-				socket = (ReusableSocket) pool
-						.findInstance(ReusableSocket.class);
-			}
-			if (socket == null) {
-				socket = new ReusableSocket(getHost(), port);
-				Debug.info("async session creating new ReusableSocket: " + socket.getLocalPort());
-			} else {
-				Debug.info("async session reusing old ReusableSocket: " + socket.getLocalPort());
-			}
-			SocketClient client = new SocketClient(socket);
+			SocketClient client = createClient();
 			client.setParanoiaEnabled(false);
-			client.setPool(pool);
 			
 			AsyncPrologSession s = new AsyncSocketSession(client, this,flags);
 
@@ -198,6 +343,32 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 		}
 	}
 
+	@Override
+	public MultiplexedPrologSession getMultiplexedSession_impl(int flags) throws Throwable {
+		try {
+			SocketClient client = createClient();
+			client.setParanoiaEnabled(false);
+			
+			MultiplexedPrologSession s = new MultiplexedSocketSession(client, this, flags, multiplexWorkers);
+
+			return s;
+		} catch (Throwable e) {
+			throw error(e);
+			
+		}
+	}
+
+	@Override
+	protected void afterStartup() {
+		if (pool != null) {
+			try {
+				pool.prewarm();
+			} catch (IOException e) {
+				Debug.report(e);
+			}
+		}
+	}
+
 	
 	
 	/*
@@ -238,6 +409,23 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 		}
 	}
 
+	@Override
+	protected PrologSession getHookSession() throws PrologProcessException {
+		try {
+			// configured like the sessions of getSession_impl(int)
+			SocketClient client = createClient();
+			client.setUseFramedProtocol(useFramedProtocol);
+			return new InitSession(client, this, getSessionFlag());
+		} catch (Throwable e) {
+			throw error(e);
+		}
+	}
+
+	@Override
+	protected void disposeHookSession(PrologSession session) {
+		((InitSession) session).doDispose();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -255,6 +443,24 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 		}
 	}
 
+	/**
+	 * A restart keeps the warm standby server, so that the new server can be
+	 * taken from it. A plain {@link #stop()} discards it.
+	 */
+	@Override
+	public void restart() throws PrologProcessException {
+		restarting = true;
+		try {
+			super.restart();
+		} finally {
+			restarting = false;
+		}
+	}
+
+	boolean isRestarting() {
+		return restarting;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -266,6 +472,7 @@ public class SocketPrologProcess extends AbstractPrologProcess {
 			super.stop();
 		} finally {
 			if (pool != null) {
+				Debug.info("session pool statistics: " + pool);
 				pool.clear();
 			}
 		}
@@ -27,10 +27,14 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.InputStreamPump;
@@ -42,9 +46,30 @@ import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessStartException;
 import org.cs3.prolog.connector.process.StartupStrategy;
 
+/**
+ * Starts and stops the server of a {@link SocketPrologProcess}.
+ * <p>
+ * If {@link SocketPrologProcess#isUseWarmStandby()} is set, a second server
+ * is started in the background as soon as a server is up. When the process is
+ * restarted, the old server is shut down in the background and the standby
+ * server takes its place, so the process only has to wait for the startup
+ * hooks. When the process is stopped without a restart, the standby server is
+ * stopped as well. A standby server is only used if the configuration of the process
+ * has not changed since it was started.
+ */
 public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrategy {
 
 	private static JackTheProcessRipper processRipper;
+
+	/**
+	 * Standby servers and servers that are being shut down in the background.
+	 * They are destroyed if the JVM exits before they are used or stopped.
+	 */
+	private static final Set<Process> backgroundProcesses = Collections.synchronizedSet(new HashSet<Process>());
+	private static Thread backgroundProcessesShutdownHook;
+
+	private StandbyServer standby;
+	private Process serverProcess;
 	
 	private static final String STARTUP_ERROR_LOG_PROLOG_CODE = 
 			":- multifile message_hook/3.\n" +
@@ -106,20 +131,32 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 	}
 
 	private Process startSocketServer(SocketPrologProcess socketProcess) {
-		File lockFile = Util.getLockFile();
-		socketProcess.setLockFile(lockFile);
-		File errorLogFile = Util.getLockFile();
-		socketProcess.setErrorLogFile(errorLogFile);
-		Util.addTempFile(errorLogFile);
-		int port = getFreePort(socketProcess);
-		Process process = getNewProcess(socketProcess, port);
+		Process process = null;
+		if (socketProcess.isUseWarmStandby()) {
+			process = takeStandby(socketProcess);
+		}
+		if (process == null) {
+			File lockFile = Util.getLockFile();
+			socketProcess.setLockFile(lockFile);
+			File errorLogFile = Util.getLockFile();
+			socketProcess.setErrorLogFile(errorLogFile);
+			Util.addTempFile(errorLogFile);
+			int port = getFreePort(socketProcess);
+			process = launchServer(socketProcess, port, lockFile, errorLogFile);
+		}
+		serverProcess = process;
+		if (socketProcess.isUseWarmStandby()) {
+			startStandby(socketProcess);
+		}
+		return process;
+	}
+
+	private Process launchServer(SocketPrologProcess socketProcess, int port, File lockFile, File errorLogFile) {
+		Process process = getNewProcess(socketProcess, port, lockFile, errorLogFile);
 		try {			
 			initializeBuffers(socketProcess, process);
-			waitForProcessToGetRunning(socketProcess, process);
-			String errorLogFileContent = getErrorLogFileContent(socketProcess);
-			if (errorLogFileContent != null && !errorLogFileContent.isEmpty()) {
-				Debug.warning("Prolog warnings and errors during initialization:\n" + errorLogFileContent);
-			}
+			waitForProcessToGetRunning(socketProcess, process, lockFile, errorLogFile);
+			logErrors(errorLogFile);
 			return process;
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -127,8 +164,201 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 		}
 	}
 
-	private static Process getNewProcess(SocketPrologProcess socketProcess, int port) {
-		String[] commandArray = getCommandArray(socketProcess, port);
+	private void logErrors(File errorLogFile) {
+		String errorLogFileContent = getErrorLogFileContent(errorLogFile);
+		if (errorLogFileContent != null && !errorLogFileContent.isEmpty()) {
+			Debug.warning("Prolog warnings and errors during initialization:\n" + errorLogFileContent);
+		}
+	}
+
+	private synchronized void startStandby(final SocketPrologProcess socketProcess) {
+		if (standby != null) {
+			return;
+		}
+		final File lockFile = Util.getLockFile();
+		final File errorLogFile = Util.getLockFile();
+		Util.addTempFile(errorLogFile);
+		final int port;
+		try {
+			port = Util.findFreePort();
+		} catch (IOException e) {
+			Debug.report(e);
+			return;
+		}
+		standby = new StandbyServer(getConfiguration(socketProcess), port, lockFile, errorLogFile, new Callable<Process>() {
+			@Override
+			public Process call() throws Exception {
+				Process process = getNewProcess(socketProcess, port, lockFile, errorLogFile);
+				if (process == null) {
+					return null;
+				}
+				addBackgroundProcess(process);
+				initializeBuffers(socketProcess, process);
+				waitForProcessToGetRunning(socketProcess, process, lockFile, errorLogFile);
+				Debug.info("Standby server is running on port " + port);
+				return process;
+			}
+		});
+		standby.start();
+	}
+
+	/**
+	 * Waits for the standby server if it is still starting up and hands it
+	 * over to the given process.
+	 * 
+	 * @return the process of the standby server or null if there is no usable
+	 *         standby server
+	 */
+	private Process takeStandby(SocketPrologProcess socketProcess) {
+		StandbyServer server;
+		synchronized (this) {
+			server = standby;
+			standby = null;
+		}
+		if (server == null) {
+			return null;
+		}
+		if (!server.getConfiguration().equals(getConfiguration(socketProcess))) {
+			Debug.info("The configuration has changed, discarding the standby server.");
+			discard(socketProcess.getHost(), server);
+			return null;
+		}
+		Process process = server.await();
+		if (process == null || hasExited(process) || !server.getLockFile().exists()) {
+			Debug.warning("The standby server is not running, starting a new server.");
+			discard(socketProcess.getHost(), server);
+			return null;
+		}
+		backgroundProcesses.remove(process);
+		socketProcess.setPort(server.getPort());
+		socketProcess.setLockFile(server.getLockFile());
+		socketProcess.setErrorLogFile(server.getErrorLogFile());
+		logErrors(server.getErrorLogFile());
+		Debug.info("Switched to the standby server on port " + server.getPort());
+		return process;
+	}
+
+	/**
+	 * Stops the standby server, if any. Called when the warm standby is
+	 * disabled and when the server is stopped for good.
+	 * 
+	 * @param host
+	 */
+	void discardStandby(String host) {
+		StandbyServer server;
+		synchronized (this) {
+			server = standby;
+			standby = null;
+		}
+		if (server != null) {
+			discard(host, server);
+		}
+	}
+
+	/**
+	 * @return the port of the standby server or -1 if there is none
+	 */
+	public synchronized int getStandbyPort() {
+		return standby == null ? -1 : standby.getPort();
+	}
+
+	private static void discard(final String host, final StandbyServer server) {
+		Thread thread = new Thread("Stopping Prolog standby server (port " + server.getPort() + ")") {
+			@Override
+			public void run() {
+				Process process = server.await();
+				if (process == null) {
+					return;
+				}
+				stopSocketServer(host, server.getPort(), server.getLockFile(), server.getErrorLogFile());
+				backgroundProcesses.remove(process);
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return a description of everything that goes into the startup of a
+	 *         server. A standby server can only replace a server with the same
+	 *         configuration.
+	 */
+	private static String getConfiguration(SocketPrologProcess socketProcess) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(socketProcess.getExecutablePath()).append('\n');
+		sb.append(socketProcess.getOSInvocation()).append('\n');
+		sb.append(socketProcess.getCommandLineArguments()).append('\n');
+		sb.append(socketProcess.getAdditionalStartupFile()).append('\n');
+		sb.append(socketProcess.getEnvironment()).append('\n');
+		sb.append(socketProcess.getConsultServerLocation()).append('\n');
+		sb.append(socketProcess.getServerLogDir()).append('\n');
+		sb.append(socketProcess.isHidePlwin()).append('\n');
+		sb.append(socketProcess.isUseBootstrapSnapshot()).append('\n');
+		StartupStrategy startupStrategy = socketProcess.getStartupStrategy();
+		sb.append(startupStrategy.getFileSearchPathInitStatements()).append('\n');
+		sb.append(startupStrategy.getLoadFileInitStatements());
+		return sb.toString();
+	}
+
+	private static boolean hasExited(Process process) {
+		try {
+			process.exitValue();
+			return true;
+		} catch (IllegalThreadStateException e) {
+			return false;
+		}
+	}
+
+	private static synchronized void addBackgroundProcess(Process process) {
+		if (backgroundProcessesShutdownHook == null) {
+			backgroundProcessesShutdownHook = new Thread("Prolog Standby Server Shutdown Hook") {
+				@Override
+				public void run() {
+					synchronized (backgroundProcesses) {
+						for (Process p : backgroundProcesses) {
+							p.destroy();
+						}
+					}
+				}
+			};
+			Runtime.getRuntime().addShutdownHook(backgroundProcessesShutdownHook);
+		}
+		backgroundProcesses.add(process);
+	}
+
+	private static Process getNewProcess(SocketPrologProcess socketProcess, int port, File lockFile, File errorLogFile) {
+		return getNewProcess(socketProcess, getCommandArray(socketProcess, port, lockFile, errorLogFile));
+	}
+
+	/**
+	 * Starts a Prolog process with the executable, arguments and environment
+	 * of the given process which loads the given file and halts. Used to
+	 * build a {@link BootstrapSnapshot} without disturbing the server. The
+	 * process is destroyed if the JVM exits before it has halted.
+	 * 
+	 * @return the process or null if it could not be started
+	 */
+	static Process startLoadingProcess(SocketPrologProcess socketProcess, File file) throws IOException {
+		String[] command = getCommands(socketProcess);
+		String[] args = buildArguments(socketProcess, file);
+		String[] commandArray = new String[command.length + args.length + 2];
+		System.arraycopy(command, 0, commandArray, 0, command.length);
+		System.arraycopy(args, 0, commandArray, command.length, args.length);
+		commandArray[commandArray.length - 2] = "-t";
+		commandArray[commandArray.length - 1] = "halt";
+		Process process = getNewProcess(socketProcess, commandArray);
+		if (process != null) {
+			addBackgroundProcess(process);
+			initializeBuffers(socketProcess, process);
+		}
+		return process;
+	}
+
+	static void removeBackgroundProcess(Process process) {
+		backgroundProcesses.remove(process);
+	}
+
+	private static Process getNewProcess(SocketPrologProcess socketProcess, String[] commandArray) {
 		Map<String, String> env = getEnvironmentAsArray(socketProcess);
 		Process process = null;
 		try {
@@ -179,15 +409,15 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 		return writer;
 	}
 	
-	private  void waitForProcessToGetRunning(SocketPrologProcess socketProcess,
-			Process process) {
+	private static void waitForProcessToGetRunning(SocketPrologProcess socketProcess,
+			Process process, File lockFile, File errorLogFile) {
 		long timeout = socketProcess.getTimeout();
 		long startTime = System.currentTimeMillis();
-		while (!isRunning(socketProcess)) {
+		while (!lockFile.exists()) {
 			try {
 				long now = System.currentTimeMillis();
 				if (now - startTime > timeout) {
-					String errorLogFileContent = getErrorLogFileContent(socketProcess);
+					String errorLogFileContent = getErrorLogFileContent(errorLogFile);
 					if (errorLogFileContent != null) {
 						Debug.error("Prolog errors during initialization:\n" + errorLogFileContent);
 					}
@@ -207,10 +437,10 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 		}
 	}
 
-	private String getErrorLogFileContent(SocketPrologProcess socketProcess) {
+	private static String getErrorLogFileContent(File errorLogFile) {
 		String errorLogFileContent = null;
 		try {
-			errorLogFileContent = Util.readInputStreamToString(new FileInputStream(socketProcess.getErrorLogFile()));
+			errorLogFileContent = Util.readInputStreamToString(new FileInputStream(errorLogFile));
 		} catch (FileNotFoundException e) {
 		} catch (IOException e) {
 		}
@@ -230,21 +460,21 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 		return env;
 	}
 
-	private static String[] getCommandArray(SocketPrologProcess socketProcess, int port) {
+	private static String[] getCommandArray(SocketPrologProcess socketProcess, int port, File lockFile, File errorLogFile) {
 		String[] command = getCommands(socketProcess);
-		String[] args = getArguments(socketProcess, port);
+		String[] args = getArguments(socketProcess, port, lockFile, errorLogFile);
 		String[] commandArray = new String[command.length + args.length];
 		System.arraycopy(command, 0, commandArray, 0, command.length);
 		System.arraycopy(args, 0, commandArray, command.length, args.length);
 		return commandArray;
 	}
 
-	private static String[] getArguments(SocketPrologProcess socketProcess, int port) {
+	private static String[] getArguments(SocketPrologProcess socketProcess, int port, File lockFile, File errorLogFile) {
 		File tmpFile = null;
 		try {
 			tmpFile = File.createTempFile("socketProcess", null);
 			Util.addTempFile(tmpFile);
-			writeInitialisationToTempFile(socketProcess, port, tmpFile);
+			writeInitialisationToTempFile(socketProcess, port, lockFile, errorLogFile, tmpFile);
 		} catch (IOException e) {
 			Debug.report(e);
 			throw new RuntimeException(e);
@@ -275,7 +505,7 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 	}
 
 	private static void writeInitialisationToTempFile(SocketPrologProcess socketProcess,
-			int port, File tmpFile) throws FileNotFoundException {
+			int port, File lockFile, File errorLogFile, File tmpFile) throws FileNotFoundException {
 		PrintWriter tmpWriter = new PrintWriter(new BufferedOutputStream(new FileOutputStream(tmpFile)));
 //      Don't set the encoding globally because it breaks something
 //		tmpWriter.println(":- set_prolog_flag(encoding, utf8).");
@@ -290,16 +520,24 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 		}
 		tmpWriter.println(":- (current_prolog_flag(windows,_T) -> set_prolog_flag(tty_control,false) ; true).");
 
-		tmpWriter.println(":- ['" + socketProcess.getConsultServerLocation() + "'].");
-		StartupStrategy startupStrategy = socketProcess.getStartupStrategy();
-		for (String fspInit : startupStrategy.getFileSearchPathInitStatements()) {
-			tmpWriter.println(":- " + fspInit + ".");
-		}
-		for (String lfInit : startupStrategy.getLoadFileInitStatements()) {
-			tmpWriter.println(":- " + lfInit + ".");
+		BootstrapSnapshot snapshot = socketProcess.isUseBootstrapSnapshot() ? BootstrapSnapshot.get(socketProcess) : null;
+		if (snapshot != null && snapshot.isCompiled()) {
+			snapshot.writeLoadStatements(tmpWriter, socketProcess);
+		} else {
+			if (snapshot != null) {
+				snapshot.buildInBackground(socketProcess);
+			}
+			tmpWriter.println(":- ['" + socketProcess.getConsultServerLocation() + "'].");
+			StartupStrategy startupStrategy = socketProcess.getStartupStrategy();
+			for (String fspInit : startupStrategy.getFileSearchPathInitStatements()) {
+				tmpWriter.println(":- " + fspInit + ".");
+			}
+			for (String lfInit : startupStrategy.getLoadFileInitStatements()) {
+				tmpWriter.println(":- " + lfInit + ".");
+			}
 		}
-		tmpWriter.println(":- consult_server(" + port + "," + QueryUtils.prologFileNameQuoted(socketProcess.getLockFile()) + ").");
-		tmpWriter.println(":- write_pdt_startup_error_messages_to_file(" + QueryUtils.prologFileNameQuoted(socketProcess.getErrorLogFile()) + ").");
+		tmpWriter.println(":- consult_server(" + port + "," + QueryUtils.prologFileNameQuoted(lockFile) + ").");
+		tmpWriter.println(":- write_pdt_startup_error_messages_to_file(" + QueryUtils.prologFileNameQuoted(errorLogFile) + ").");
 		tmpWriter.close();
 	}
 
@@ -328,26 +566,62 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 			throw new ClassCastException("SocketPrologProcess needed but got another PrologProcess");
 		}
 		try {
+			SocketPrologProcess socketProcess = (SocketPrologProcess) process;
+			if (!socketProcess.isRestarting()) {
+				// nobody is going to take the standby server
+				discardStandby(socketProcess.getHost());
+			}
 			if (!isRunning(process)) {
 				Debug.info("There is no server running. I do not stop anything.");
 				return;
 			}
-			SocketPrologProcess socketProcess = (SocketPrologProcess) process;
-			stopSocketServer(socketProcess);
+			if (socketProcess.isUseWarmStandby() && socketProcess.isRestarting()) {
+				stopSocketServerInBackground(socketProcess);
+			} else {
+				stopSocketServer(socketProcess.getHost(), socketProcess.getPort(), socketProcess.getLockFile(), socketProcess.getErrorLogFile());
+			}
 		} catch (Throwable e) {
 			Debug.report(e);
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Shuts the server down without waiting for it, so that a restart can
+	 * switch to the standby server immediately. The lock file is removed
+	 * right away, so the process is no longer considered running.
+	 */
+	private void stopSocketServerInBackground(SocketPrologProcess socketProcess) {
+		final String host = socketProcess.getHost();
+		final int port = socketProcess.getPort();
+		final File lockFile = socketProcess.getLockFile();
+		final File errorLogFile = socketProcess.getErrorLogFile();
+		final Process process = serverProcess;
+		serverProcess = null;
+		if (process != null) {
+			addBackgroundProcess(process);
+		}
+		Thread thread = new Thread("Stopping Prolog server (port " + port + ")") {
+			@Override
+			public void run() {
+				stopSocketServer(host, port, lockFile, errorLogFile);
+				if (process != null) {
+					backgroundProcesses.remove(process);
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+		lockFile.delete();
+	}
 	
-	private static void stopSocketServer(SocketPrologProcess socketProcess){
+	private static void stopSocketServer(String host, int port, File lockFile, File errorLogFile){
 		try {
-			SocketClient client = getSocketClient(socketProcess);
+			SocketClient client = new SocketClient(host, port);
 			sendClientShutdownCommand(client);
 			long pid = client.getServerPid();
 			client.close();
-			socketProcess.getLockFile().delete();
-			File errorLogFile = socketProcess.getErrorLogFile();
+			lockFile.delete();
 			if (errorLogFile.exists()) {
 				errorLogFile.delete();
 			}
@@ -359,13 +633,6 @@ public class SocketServerStartAndStopStrategy implements ServerStartAndStopStrat
 		}
 	}
 
-	private static SocketClient getSocketClient(SocketPrologProcess socketProcess)
-			throws UnknownHostException, IOException {
-		int port = socketProcess.getPort();
-		SocketClient client = new SocketClient(socketProcess.getHost(), port);
-		return client;
-	}
-
 	private static void sendClientShutdownCommand(SocketClient client) 
 			throws UnknownHostException, IOException {
 		client.readUntil(SocketCommunicationConstants.GIVE_COMMAND);
@@ -0,0 +1,86 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.process.socket;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.cs3.prolog.connector.common.Debug;
+
+/**
+ * A Prolog server which is started in the background and kept ready until a
+ * {@link SocketPrologProcess} is (re)started. The server is only used if the
+ * configuration of the process has not changed since the server was started.
+ *
+ * @see SocketServerStartAndStopStrategy
+ */
+class StandbyServer {
+
+	private final String configuration;
+	private final int port;
+	private final File lockFile;
+	private final File errorLogFile;
+	private final FutureTask<Process> startup;
+
+	StandbyServer(String configuration, int port, File lockFile, File errorLogFile, Callable<Process> launcher) {
+		this.configuration = configuration;
+		this.port = port;
+		this.lockFile = lockFile;
+		this.errorLogFile = errorLogFile;
+		this.startup = new FutureTask<Process>(launcher);
+	}
+
+	void start() {
+		Thread thread = new Thread(startup, "Prolog standby server (port " + port + ")");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Waits until the server is up.
+	 *
+	 * @return the server process or null if the server could not be started
+	 */
+	Process await() {
+		try {
+			return startup.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Debug.warning("Could not start the standby server.");
+			Debug.report(e.getCause());
+		}
+		return null;
+	}
+
+	String getConfiguration() {
+		return configuration;
+	}
+
+	int getPort() {
+		return port;
+	}
+
+	File getLockFile() {
+		return lockFile;
+	}
+
+	File getErrorLogFile() {
+		return errorLogFile;
+	}
+
+}
@@ -16,6 +16,8 @@ package org.cs3.prolog.connector.internal.process.socket;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 import java.util.Vector;
 
@@ -34,12 +36,20 @@ public class ValueReader {
 	private BufferedReader reader;
 	private boolean hasToContinue;
 	private StringBuffer valueBuffer;
-	private Stack<Vector<Object>> stack;
+	private Stack<List<Object>> stack;
 	
 	ValueReader(SocketClient socketClient) {
 		this.socketClient=socketClient;
 	}
 
+	/**
+	 * Creates a reader for values from the given reader instead of a socket,
+	 * e.g. to replay recorded server output.
+	 */
+	ValueReader(BufferedReader reader) {
+		this.reader=reader;
+	}
+
 	public  Object readValue(int flags) throws IOException {
 		Object value = null;
 		value = doReading(flags);
@@ -62,9 +72,11 @@ public class ValueReader {
 	}
 
 	private void prepeareEverythingForNextReading() {
-		reader = socketClient.getReader();
+		if (socketClient != null) {
+			reader = socketClient.getReader();
+		}
 		valueBuffer = new StringBuffer();
-		stack = new Stack<Vector<Object>>();
+		stack = new Stack<List<Object>>();
 		hasToContinue=true;
 	}
 
@@ -75,7 +87,7 @@ public class ValueReader {
 			clearValueBuffer();
 			break;
 		case BEGIN_OF_LIST_CHAR:
-			stack.push(new Vector<Object>());
+			stack.push(createList(flags));
 			break;
 		case  END_OF_VALUE_CHAR:
 			value = parseValue(flags);
@@ -106,11 +118,33 @@ public class ValueReader {
 	}
 
 	private Object parseValue(int flags) {
-		Object value;
+		if (stack.isEmpty() && Util.flagsSet(flags, PrologProcess.COMPACT_RESULTS)) {
+			// list elements are converted right away, single values on access
+			return new RawValue(valueBuffer.toString(), true, flags);
+		}
 		String unparsedValue = Util.unescapeBuffer(valueBuffer);
-		
+		return convertValue(unparsedValue, flags);
+	}
+
+	/**
+	 * @return a {@link Vector} or, if {@link PrologProcess#COMPACT_RESULTS} is
+	 *         set, an {@link ArrayList}
+	 */
+	static List<Object> createList(int flags) {
+		if (Util.flagsSet(flags, PrologProcess.COMPACT_RESULTS)) {
+			return new ArrayList<Object>();
+		}
+		return new Vector<Object>();
+	}
+
+	/**
+	 * Converts the (already unescaped) textual representation of a value
+	 * according to the given session flags.
+	 */
+	static Object convertValue(String unparsedValue, int flags) {
+		Object value;
 		if (Util.flagsSet(flags,PrologProcess.CTERMS)) {
-			CTerm ctermValue = CTermFactory.createCTerm(unparsedValue);
+			CTerm ctermValue = CTermFactory.decodeCTerm(unparsedValue);
 			value=ctermValue;
 		} else{
 			if(Util.flagsSet(flags, PrologProcess.UNQUOTE_ATOMS)) {
@@ -166,7 +200,7 @@ public class ValueReader {
 		if (stack.isEmpty()) {
 			hasToContinue=false;
 		} else {
-			Vector<Object> l = stack.peek();
+			List<Object> l = stack.peek();
 			l.add(value);
 		}
 	}
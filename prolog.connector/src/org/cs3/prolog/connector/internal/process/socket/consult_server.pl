@@ -36,6 +36,7 @@
 
 option_default(interprete_lists,true).
 option_default(canonical,false).
+option_default(framed,false).
 
 
 
@@ -239,6 +240,25 @@ handle_command(InStream,OutStream,'ENTER_BATCH',continue):-
 		my_read_command(InStream,Term),
 		handle_batch_command(Term,InStream,OutStream),
 		Term=end_of_batch,!.
+% Queries are run concurrently by Count worker threads, see
+% start_multiplex_workers/3. The client tags every query with an id which
+% is sent along with each of its results.
+handle_command(InStream,OutStream,'ENTER_MULTIPLEX',continue):-
+	!,
+	request_line(InStream,OutStream,'GIVE_SYMBOL',CountAtom),
+	atom_number(CountAtom,Count),
+	setup_call_cleanup(
+		start_multiplex_workers(OutStream,Count,Multiplex),
+		(	my_format(OutStream,'GO_AHEAD~n',[]),
+			repeat,
+				my_read_command(InStream,Term),
+				handle_multiplex_command(Term,InStream,Multiplex),
+				(Term==end_of_multiplex;Term==end_of_file),
+			!
+		),
+		stop_multiplex_workers(Multiplex)
+	),
+	my_format(OutStream,'END_OF_MULTIPLEX_COMPLETE~n',[]).
 handle_command(InStream,OutStream,'QUERY',continue):-
 	!,
 	debug('handle_command', 'before my_format', []),
@@ -260,6 +280,44 @@ handle_command(InStream,OutStream,'QUERY_ALL',continue):-
 	;
 		true
 	).
+handle_command(InStream,OutStream,'QUERY_BATCHED',continue):-
+	!,
+	request_line(InStream,OutStream,'GIVE_SYMBOL',BatchSizeAtom),
+	atom_number(BatchSizeAtom,BatchSize),
+	my_format(OutStream,'GIVE_TERM~n',[]),
+	call_save(OutStream,my_read_term(InStream,Term,[variable_names(Vars)])),
+	(
+		iterate_solution_batches(InStream,OutStream,Term,Vars,BatchSize)
+	;
+		true
+	).
+handle_command(InStream,OutStream,'QUERY_TABLE',continue):-
+	!,
+	my_format(OutStream,'GIVE_TERM~n',[]),
+	call_save(OutStream,my_read_term(InStream,Term,[variable_names(Vars)])),
+	(
+		table_solutions(OutStream,Term,Vars)
+	;
+		true
+	).
+% The client sends all Count queries at once, so the answers are written
+% without waiting for it. It keeps the queries of a single command small
+% enough for the socket buffers, since it reads no answer before it has
+% written the last query. Errors are reported by call_save/2 and do not
+% stop the following queries.
+handle_command(InStream,OutStream,'QUERY_PIPELINED',continue):-
+	!,
+	request_line(InStream,OutStream,'GIVE_SYMBOL',CountAtom),
+	atom_number(CountAtom,Count),
+	my_format(OutStream,'GIVE_TERM~n',[]),
+	forall(
+		between(1,Count,_),
+		call_save(OutStream,(
+			my_read_goal(InStream,Goal,Vars),
+			one_solution(OutStream,Goal,Vars)
+			)
+		)
+	).
 handle_command(InStream,OutStream,'SET_OPTION',continue):-
 	!,
 	request_line(InStream,OutStream,'GIVE_SYMBOL',Symbol),
@@ -373,6 +431,225 @@ handle_batch_command(query_all(Id),InStream,OutStream):-
     		)
     	).
 
+% Multiplexed queries
+%
+% The handler thread only reads the queries and posts them to a message
+% queue, the worker threads run them. All results of a query are written
+% as one block, so the blocks of different queries never interleave:
+%
+%   SOLUTION: Id            followed by the bindings as in print_solution/2
+%   YES: Id / NO: Id        the query is complete
+%   CUT: Id                 the query was cancelled
+%   ERROR_FOR_QUERY: Id     followed by the error as in report_error/2
+%
+% The queue, the mutex serializing the output and the records describing
+% the running and cancelled queries share the key of the multiplex.
+%
+% A query started with query_demand/3 only computes as many solutions as the
+% client has requested, further solutions are requested with request/2.
+
+start_multiplex_workers(OutStream,Count,multiplex(Key,OutStream,Workers)):-
+	gensym(multiplex_,Key),
+	message_queue_create(_,[alias(Key)]),
+	findall(Name=Value,option_value(Name,Value),Options),
+	findall(Worker,
+		(	between(1,Count,_),
+			thread_create(multiplex_worker(Key,OutStream,Options),Worker,[])
+		),
+		Workers
+	).
+
+stop_multiplex_workers(multiplex(Key,_,Workers)):-
+	cancel_multiplex(Key),
+	forall(member(_,Workers),thread_send_message(Key,stop)),
+	forall(member(Worker,Workers),thread_join(Worker,_)),
+	forall(recorded(Key,_,Ref),erase(Ref)),
+	message_queue_destroy(Key),
+	catch(mutex_destroy(Key),_,true).
+
+handle_multiplex_command(query_once(Id,Options),InStream,Multiplex):-
+	!,
+	read_multiplex_job(once,Id,Options,InStream,Multiplex).
+handle_multiplex_command(query_all(Id,Options),InStream,Multiplex):-
+	!,
+	read_multiplex_job(all,Id,Options,InStream,Multiplex).
+handle_multiplex_command(query_demand(Id,Options,Demand),InStream,Multiplex):-
+	!,
+	Multiplex=multiplex(Key,_,_),
+	add_multiplex_demand(Key,Id,Demand),
+	read_multiplex_job(demand,Id,Options,InStream,Multiplex).
+handle_multiplex_command(request(Id,Demand),_,multiplex(Key,_,_)):-
+	!,
+	add_multiplex_demand(Key,Id,Demand).
+handle_multiplex_command(cancel(Id),_,multiplex(Key,_,_)):-
+	!,
+	recordz(Key,cancelled(Id),_),
+	forall(
+		recorded(Key,running(Id,Worker),_),
+		catch(thread_signal(Worker,interrupt_multiplex_job(Id)),_,true)
+	).
+handle_multiplex_command(_,_,_).
+
+read_multiplex_job(Kind,Id,Options,InStream,multiplex(Key,OutStream,_)):-
+	catch(
+		(	my_read_goal(InStream,Goal,Vars),
+			thread_send_message(Key,job(Id,Kind,Options,Goal,Vars))
+		),
+		Error,
+		multiplex_error(Error,Key,Id,OutStream)
+	).
+
+% Queries which are still queued are skipped, running ones are interrupted.
+cancel_multiplex(Key):-
+	recordz(Key,stopping,_),
+	forall(
+		recorded(Key,running(Id,Worker),_),
+		catch(thread_signal(Worker,interrupt_multiplex_job(Id)),_,true)
+	).
+
+% The signal may arrive after the worker has moved on to the next query.
+interrupt_multiplex_job(Id):-
+	(	nb_current(multiplex_job,Id)
+	->	throw(multiplex_cancelled(Id))
+	;	true
+	).
+
+add_multiplex_demand(Key,Id,Demand):-
+	with_mutex(Key,
+		(	(	recorded(Key,demand(Id,Old),Ref)
+			->	erase(Ref),
+				New is Old+Demand
+			;	New=Demand
+			),
+			recordz(Key,demand(Id,New))
+		)
+	),
+	forall(
+		recorded(Key,running(Id,Worker),_),
+		catch(thread_send_message(Worker,multiplex_demand(Id)),_,true)
+	).
+
+% Waits until the client has requested another solution.
+await_multiplex_demand(Key,Id):-
+	(	take_multiplex_demand(Key,Id)
+	->	true
+	;	thread_get_message(multiplex_demand(Id)),
+		await_multiplex_demand(Key,Id)
+	).
+
+take_multiplex_demand(Key,Id):-
+	with_mutex(Key,
+		(	recorded(Key,demand(Id,Demand),Ref),
+			Demand > 0,
+			erase(Ref),
+			Rest is Demand-1,
+			recordz(Key,demand(Id,Rest))
+		)
+	).
+
+multiplex_cancelled(Key,Id):-
+	(	recorded(Key,cancelled(Id),_)
+	->	true
+	;	recorded(Key,stopping,_)
+	).
+
+multiplex_worker(Key,OutStream,Options):-
+	forall(member(Name=Value,Options),set_option(Name,Value)),
+	set_option(framed,false),
+	nb_setval(multiplex_job,none),
+	multiplex_worker_loop(Key,OutStream).
+
+multiplex_worker_loop(Key,OutStream):-
+	thread_get_message(Key,Job),
+	(	Job==stop
+	->	true
+	;	run_multiplex_job(Job,Key,OutStream),
+		multiplex_worker_loop(Key,OutStream)
+	).
+
+run_multiplex_job(job(Id,_,_,_,_),Key,OutStream):-
+	multiplex_cancelled(Key,Id),
+	!,
+	forall(recorded(Key,cancelled(Id),Ref),erase(Ref)),
+	multiplex_reply(Key,OutStream,'CUT: ~w~n',[Id]).
+run_multiplex_job(job(Id,Kind,Options,Goal,Vars),Key,OutStream):-
+	forall(member(Name=Value,Options),set_option(Name,Value)),
+	thread_self(Self),
+	recordz(Key,running(Id,Self),Running),
+	catch(
+		(	nb_setval(multiplex_job,Id),
+			multiplex_solutions(Kind,Key,Id,Goal,Vars,OutStream),
+			nb_setval(multiplex_job,none)
+		),
+		Error,
+		(	nb_setval(multiplex_job,none),
+			multiplex_error(Error,Key,Id,OutStream)
+		)
+	),
+	erase(Running),
+	forall(recorded(Key,cancelled(Id),Ref),erase(Ref)),
+	forall(recorded(Key,demand(Id,_),Ref),erase(Ref)),
+	drop_multiplex_demand(Self,Id).
+
+drop_multiplex_demand(Self,Id):-
+	(	thread_get_message(Self,multiplex_demand(Id),[timeout(0)])
+	->	drop_multiplex_demand(Self,Id)
+	;	true
+	).
+
+multiplex_solutions(once,Key,Id,Goal,Vars,OutStream):-
+	!,
+	(	user:Goal
+	->	multiplex_solution(Key,Id,Vars,OutStream),
+		multiplex_reply(Key,OutStream,'YES: ~w~n',[Id])
+	;	multiplex_reply(Key,OutStream,'NO: ~w~n',[Id])
+	).
+multiplex_solutions(Kind,Key,Id,Goal,Vars,OutStream):-
+	nb_setval(multiplex_solutions,false),
+	(	user:Goal,
+		(	Kind==demand
+		->	await_multiplex_demand(Key,Id)
+		;	true
+		),
+		multiplex_solution(Key,Id,Vars,OutStream),
+		nb_setval(multiplex_solutions,true),
+		multiplex_cancelled(Key,Id)
+	->	multiplex_reply(Key,OutStream,'CUT: ~w~n',[Id])
+	;	nb_getval(multiplex_solutions,true)
+	->	multiplex_reply(Key,OutStream,'YES: ~w~n',[Id])
+	;	multiplex_reply(Key,OutStream,'NO: ~w~n',[Id])
+	).
+
+multiplex_solution(Key,Id,Vars,OutStream):-
+	with_output_to(string(Solution),
+		(	current_output(Out),
+			print_solution(Out,Vars)
+		)
+	),
+	multiplex_reply(Key,OutStream,'SOLUTION: ~w~n~w',[Id,Solution]).
+
+multiplex_error(multiplex_cancelled(Id),Key,Id,OutStream):-
+	!,
+	multiplex_reply(Key,OutStream,'CUT: ~w~n',[Id]).
+multiplex_error(Error,Key,Id,OutStream):-
+	with_output_to(string(Message),
+		(	current_output(Out),
+			report_error(Out,Error)
+		)
+	),
+	multiplex_reply(Key,OutStream,'ERROR_FOR_QUERY: ~w~n~w',[Id,Message]).
+
+% Writes the reply in one piece, an interrupt can only arrive before or
+% after the text is written.
+multiplex_reply(Key,OutStream,Format,Args):-
+	format(string(Text),Format,Args),
+	with_mutex(Key,
+		(	write(OutStream,Text),
+			flush_output(OutStream)
+		)
+	),
+	debug(consult_server(traffic),'(Down:~w, multiplex) >>>~w',[OutStream,Text]).
+
 call_save(OutStream, Goal):-
     catch(Goal,
 	    Error,
@@ -442,9 +719,36 @@ iterate_solutions(InStream,OutStream,Term,Vars):-
 	; my_format(OutStream,'YES~n',[])
 	).
 	
+% Like iterate_solutions/4, but only asks the client for more solutions
+% after every BatchSize solutions. The client reads a whole batch without
+% a round trip per solution.
+iterate_solution_batches(InStream,OutStream,Term,Vars,BatchSize):-
+	nb_setval(solutions_in_batch,0),
+	( user:forall(
+			catch(Term,E,throw(wrapped(E))),
+			(
+				consult_server:print_solution(OutStream,Vars),
+				consult_server:request_next_batch(InStream,OutStream,BatchSize)
+			)
+		)
+	->my_format(OutStream,'NO~n',[])
+	; my_format(OutStream,'YES~n',[])
+	).
+
+request_next_batch(InStream,OutStream,BatchSize):-
+	nb_getval(solutions_in_batch,Count0),
+	Count is Count0 + 1,
+	(	Count < BatchSize
+	->	nb_setval(solutions_in_batch,Count)
+	;	nb_setval(solutions_in_batch,0),
+		request_line(InStream,OutStream,'MORE?','YES')
+	).
 	
 	
-	
+print_solution(OutStream,Vars):-
+	option(framed,true),
+	!,
+	print_framed_solution(OutStream,Vars).
 print_solution(OutStream,Vars):-
 	forall(
 		(member(Key=Val,Vars), filter_variable(Val)),
@@ -489,6 +793,111 @@ print_value(Out,Val,Vars):-
 
 
 
+% All solutions are collected with findall/3 and sent as a table: first a
+% row with the variable names, then one row per solution containing the
+% values in the same order. Each row is printed like a solution without
+% the variable names and terminated with END_OF_SOLUTION.
+table_solutions(OutStream,Term,Vars):-
+	binding_keys(Vars,Keys),
+	binding_values(Vars,Values),
+	user:findall(Values,catch(Term,E,throw(wrapped(E))),Rows),
+	print_row(OutStream,Keys,[]),
+	forall(
+		member(Row,Rows),
+		print_row(OutStream,Row,Vars)
+	),
+	(	Rows == []
+	->	my_format(OutStream,'NO~n',[])
+	;	my_format(OutStream,'YES~n',[])
+	).
+
+% The values must share the variables of Vars, otherwise running Term would
+% not bind the findall/3 template (findall/3 on member/2 would copy them).
+binding_keys([],[]).
+binding_keys([Key=_|Vars],[Key|Keys]):-
+	binding_keys(Vars,Keys).
+
+binding_values([],[]).
+binding_values([_=Value|Vars],[Value|Values]):-
+	binding_values(Vars,Values).
+
+print_row(OutStream,Values,Vars):-
+	option(framed,true),
+	!,
+	print_frame(OutStream,print_framed_values(Values,Vars)).
+print_row(OutStream,Values,Vars):-
+	forall(
+		member(Value,Values),
+		print_value(OutStream,Value,Vars)
+	),
+	nl(OutStream),
+	my_format(OutStream,'END_OF_SOLUTION~n',[]).
+
+
+
+% Framed protocol:
+% Each solution is sent as a line 'FRAME <Length>', followed by a payload of
+% exactly Length characters and a line break. The payload is a sequence of
+% length prefixed values, so nothing has to be escaped:
+%   S<N>:<N characters>      a single value (variable names are sent this way, too)
+%   L<N>:                    a list, followed by its N elements
+% The solution is terminated with END_OF_SOLUTION as in the text protocol.
+print_framed_solution(OutStream,Vars):-
+	print_frame(OutStream,print_framed_bindings(Vars)).
+
+% print_frame(+OutStream,:Printer) calls Printer with an additional output
+% argument and sends everything it writes as one frame.
+print_frame(OutStream,Printer):-
+	with_output_to(string(Payload),
+		(	current_output(Out),
+			call(Printer,Out)
+		)
+	),
+	string_length(Payload,Length),
+	my_format(OutStream,'FRAME ~w~n~w~nEND_OF_SOLUTION~n',[Length,Payload]).
+
+print_framed_bindings(Vars,Out):-
+	forall(
+		(member(Key=Val,Vars), filter_variable(Val)),
+		print_framed_binding(Out,Key,Val,Vars)
+	).
+
+print_framed_values(Values,Vars,Out):-
+	forall(
+		member(Value,Values),
+		print_framed_value(Out,Value,Vars)
+	).
+
+print_framed_binding(Out,Key,Val,Vars):-
+	print_framed_scalar(Out,Key),
+	print_framed_value(Out,Val,Vars).
+
+print_framed_value(Out,Val,Vars):-
+	option(canonical,true),
+	!,
+	print_framed_term(Out,Val,Vars).
+print_framed_value(Out,Val,Vars):-
+	(	is_list(Val), option(interprete_lists,true)
+	->	length(Val,Length),
+		format(Out,'L~w:',[Length]),
+		forall(member(Elm,Val),print_framed_value(Out,Elm,Vars))
+	;	print_framed_term(Out,Val,Vars)
+	).
+
+print_framed_term(Out,Term,Vars):-
+	with_output_to(string(String),
+		(	current_output(O),
+			write_term(O, Term, [ignore_ops(true),quoted(true),variable_names(Vars)])
+		)
+	),
+	print_framed_scalar(Out,String).
+
+print_framed_scalar(Out,Text):-
+	atom_length(Text,Length),
+	format(Out,'S~w:~w',[Length,Text]).
+
+
+
 handle_exception(InStream,OutStream,Error,Action):-
     debug(consult_server(handler), 'handle_excpetion (pre): Up:~w, Down:~w, Error:~w~n',[InStream,OutStream,Error]),
     handle_exception_X(InStream,OutStream,Error,Action),
@@ -780,3 +1189,86 @@ list_2_comma_separated_list([Element],Element) :- !.
 list_2_comma_separated_list([Element|[H|T]],ElementComma) :-
 	list_2_comma_separated_list([H|T],RestAtom),
 	format(atom(ElementComma),'~w,~w',[Element,RestAtom]).
+
+
+% Bootstrap snapshot (see BootstrapSnapshot.java)
+%
+% write_bootstrap_snapshot(+Bootstrap, +Directory) compiles the files loaded
+% by the file Bootstrap into quick load files in Directory and writes the file
+% load.pl which loads them in the same order. qcompile/2 only embeds
+% non-module files into the QLF file of the file loading them, so every module
+% file and every file loaded directly by Bootstrap is compiled separately.
+% A file comes after all files it loads, so these are already loaded when the
+% load directives of its QLF file are run. Files of the Prolog system and
+% Logtalk intermediate files are loaded as usual.
+%
+% Compiling reloads the files, so this is only called by the separate
+% process building the snapshot (see BootstrapSnapshot.java), never by a
+% server.
+
+:- use_module(library(filesex)).
+
+write_bootstrap_snapshot(Bootstrap, Directory) :-
+	absolute_file_name(Bootstrap, Root, [file_type(prolog), access(read)]),
+	loaded_files_post_order([Root], [], Reversed),
+	reverse(Reversed, Ordered),
+	findall(File, (member(File, Ordered), snapshot_file(Root, File)), Files),
+	compile_snapshot_files(Files, 1, Directory, Entries),
+	atomic_list_concat([Directory, '/load.tmp'], TmpLoader),
+	atomic_list_concat([Directory, '/load.pl'], Loader),
+	setup_call_cleanup(
+		open(TmpLoader, write, Out),
+		forall(
+			member(Entry, Entries),
+			format(Out, ':- load_files(~q, [if(not_loaded)]).~n', [Entry])
+		),
+		close(Out)
+	),
+	rename_file(TmpLoader, Loader).
+
+loaded_files_post_order([], Visited, Visited).
+loaded_files_post_order([File|Files], Visited0, Visited) :-
+	(	memberchk(File, Visited0)
+	->	Visited1 = Visited0
+	;	findall(Child, loaded_by(File, Child), Children),
+		loaded_files_post_order(Children, Visited0, Visited2),
+		Visited1 = [File|Visited2]
+	),
+	loaded_files_post_order(Files, Visited1, Visited).
+
+loaded_by(Parent, Child) :-
+	source_file(Child),
+	source_file_property(Child, load_context(_, Parent:_, _)).
+
+snapshot_file(Root, File) :-
+	File \== Root,
+	current_prolog_flag(home, Home),
+	\+ sub_atom(File, 0, _, _, Home),
+	\+ sub_atom(File, _, _, _, '/.lgt_tmp/'),
+	(	source_file_property(File, module(_))
+	->	true
+	;	source_file_property(File, load_context(_, Root:_, _))
+	).
+
+% The QLF files are named relative to load.pl, so the directory can be moved
+% after it has been written. If a file cannot be compiled the load file
+% refers to the source file instead.
+compile_snapshot_files([], _, _, []).
+compile_snapshot_files([File|Files], N, Directory, [Entry|Entries]) :-
+	file_base_name(File, Name),
+	file_name_extension(Base, _, Name),
+	format(atom(QlfName), '~|~`0t~d~3+_~w.qlf', [N, Base]),
+	atomic_list_concat([Directory, /, QlfName], Target),
+	(	catch(compile_snapshot_file(File, Target), E, (print_message(warning, E), fail))
+	->	Entry = QlfName
+	;	Entry = File
+	),
+	N1 is N + 1,
+	compile_snapshot_files(Files, N1, Directory, Entries).
+
+% qcompile/2 always writes the QLF file next to the source file, so the
+% output file is passed to load_files/2 directly, the same way qcompile/2
+% does it. The source directories are never written to.
+compile_snapshot_file(File, Target) :-
+	load_files(user:File, ['$qlf'(Target), include(user)]),
+	exists_file(Target).
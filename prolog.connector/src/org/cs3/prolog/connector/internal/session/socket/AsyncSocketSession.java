@@ -22,6 +22,7 @@ import java.util.Vector;
 
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.cterm.CTermUtil;
+import org.cs3.prolog.connector.internal.process.socket.RawValue;
 import org.cs3.prolog.connector.internal.process.socket.SocketClient;
 import org.cs3.prolog.connector.internal.process.socket.SocketCommunicationConstants;
 import org.cs3.prolog.connector.internal.process.socket.SocketPrologProcess;
@@ -335,6 +336,10 @@ public class AsyncSocketSession implements AsyncPrologSession {
 					throw new IOException(
 							"could not read value for variable " + varname);
 				}
+				if (value instanceof RawValue) {
+					// results are passed on as plain maps, so convert right away
+					value = ((RawValue) value).convert();
+				}
 				result.put(varname, value);
 			}
 		}
@@ -0,0 +1,65 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+package org.cs3.prolog.connector.internal.session.socket;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * Iterator for queries which fetches the results in batches.
+ *
+ * The server sends up to <code>batchSize</code> solutions without waiting
+ * for the client and then asks whether it should continue. The next batch
+ * is only requested once all results of the current batch have been
+ * consumed, so at most <code>batchSize</code> results are held in memory.
+ */
+class BatchedIterableQuery extends IterableQuery {
+
+	private final SocketSession session;
+	private final int batchSize;
+	private final ArrayDeque<Map<String, Object>> buffer;
+	private boolean exhausted = false;
+	private boolean firstBatchRead = false;
+
+	BatchedIterableQuery(SocketSession session, int batchSize) {
+		super(session);
+		this.session = session;
+		this.batchSize = batchSize;
+		this.buffer = new ArrayDeque<Map<String, Object>>(batchSize);
+	}
+
+	@Override
+	protected Map<String, Object> readFirstResult() throws IOException {
+		return nextFromBuffer();
+	}
+
+	@Override
+	protected Map<String, Object> readMore() throws IOException {
+		return nextFromBuffer();
+	}
+
+	private Map<String, Object> nextFromBuffer() throws IOException {
+		if (buffer.isEmpty() && !exhausted) {
+			fillBuffer();
+		}
+		return buffer.poll();
+	}
+
+	private void fillBuffer() throws IOException {
+		exhausted = !session.readBatch(buffer, batchSize, firstBatchRead);
+		firstBatchRead = true;
+	}
+
+}
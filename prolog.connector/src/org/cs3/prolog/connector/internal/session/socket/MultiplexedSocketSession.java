@@ -0,0 +1,416 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.internal.session.socket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.cterm.CTermUtil;
+import org.cs3.prolog.connector.internal.process.socket.RawValue;
+import org.cs3.prolog.connector.internal.process.socket.SocketClient;
+import org.cs3.prolog.connector.internal.process.socket.SocketCommunicationConstants;
+import org.cs3.prolog.connector.internal.process.socket.SocketPrologProcess;
+import org.cs3.prolog.connector.process.PrologException;
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+import org.cs3.prolog.connector.session.MultiplexedPrologSession;
+import org.cs3.prolog.connector.session.MultiplexedQueryListener;
+
+/**
+ * Multiplexed session on top of a single socket connection.
+ * <p>
+ * The server thread of the connection only reads the queries and hands them
+ * to its worker threads. Each block of results starts with the id of its
+ * query. The blocks are read by a single dispatcher thread and passed on to
+ * the listener of the respective query. Results are always sent using the
+ * line based protocol.
+ */
+public class MultiplexedSocketSession implements MultiplexedPrologSession {
+
+	private static class PendingQuery {
+		final MultiplexedQueryListener listener;
+		final int flags;
+		volatile boolean cancelled;
+
+		PendingQuery(MultiplexedQueryListener listener, int flags) {
+			this.listener = listener;
+			this.flags = flags;
+		}
+	}
+
+	private final SocketPrologProcess process;
+	private final int flags;
+	private final int workers;
+	private volatile SocketClient client;
+	private volatile boolean disposing;
+	private Thread dispatcher;
+	private final Object writeLock = new Object();
+	private final AtomicInteger idCounter = new AtomicInteger();
+	private final ConcurrentHashMap<Integer, PendingQuery> pending = new ConcurrentHashMap<Integer, PendingQuery>();
+
+	public MultiplexedSocketSession(SocketClient client, SocketPrologProcess process, int flags, int workers) throws IOException {
+		this.client = client;
+		this.process = process;
+		this.flags = flags;
+		this.workers = workers;
+		enterMultiplex();
+	}
+
+	private void enterMultiplex() throws IOException {
+		client.readUntil(SocketCommunicationConstants.GIVE_COMMAND);
+		client.writeln(SocketCommunicationConstants.ENTER_MULTIPLEX);
+		client.readUntil(SocketCommunicationConstants.GIVE_SYMBOL);
+		client.writeln(Integer.toString(workers));
+		client.readUntil(SocketCommunicationConstants.GO_AHEAD);
+		dispatcher = new Thread("Multiplexed Query Result Dispatcher (" + client.getProcessorThread() + ")") {
+			@Override
+			public void run() {
+				try {
+					while (readAndDispatch());
+				} catch (IOException e) {
+					if (!disposing) {
+						Debug.report(e);
+						process.error(e);
+					}
+					failAll(e);
+				} catch (RuntimeException e) {
+					Debug.report(e);
+					failAll(e);
+				}
+			}
+		};
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	private boolean readAndDispatch() throws IOException {
+		String line = client.readln();
+		if (line == null) {
+			throw new IOException("Connection closed by the server.");
+		}
+		line = line.trim();
+		if (SocketCommunicationConstants.EOM_COMPLETE.equals(line)) {
+			return false;
+		} else if (line.startsWith(SocketCommunicationConstants.SOLUTION_FOR_QUERY)) {
+			dispatchSolution(parseId(line, SocketCommunicationConstants.SOLUTION_FOR_QUERY));
+		} else if (line.startsWith(SocketCommunicationConstants.YES_FOR_QUERY)) {
+			dispatchComplete(parseId(line, SocketCommunicationConstants.YES_FOR_QUERY));
+		} else if (line.startsWith(SocketCommunicationConstants.NO_FOR_QUERY)) {
+			dispatchComplete(parseId(line, SocketCommunicationConstants.NO_FOR_QUERY));
+		} else if (line.startsWith(SocketCommunicationConstants.CUT_FOR_QUERY)) {
+			dispatchCancelled(parseId(line, SocketCommunicationConstants.CUT_FOR_QUERY));
+		} else if (line.startsWith(SocketCommunicationConstants.ERROR_FOR_QUERY)) {
+			dispatchError(parseId(line, SocketCommunicationConstants.ERROR_FOR_QUERY));
+		} else if (line.length() > 0) {
+			Debug.warning("Unexpected line in multiplexed session: " + line);
+		}
+		return true;
+	}
+
+	private static int parseId(String line, String prefix) {
+		return Integer.parseInt(line.substring(prefix.length()).trim());
+	}
+
+	private void dispatchSolution(int id) throws IOException {
+		PendingQuery query = pending.get(id);
+		Map<String, Object> solution = readSolution(query == null ? PrologProcess.NONE : query.flags);
+		if (query == null || query.cancelled) {
+			return;
+		}
+		boolean more;
+		try {
+			more = query.listener.solutionFound(solution);
+		} catch (RuntimeException e) {
+			Debug.report(e);
+			more = false;
+		}
+		if (!more) {
+			cancel(id, query);
+		}
+	}
+
+	private Map<String, Object> readSolution(int flags) throws IOException {
+		HashMap<String, Object> result = new HashMap<String, Object>();
+		while (true) {
+			String varname = (String) client.readValue(PrologProcess.NONE);
+			if (varname == null) {
+				String line = client.readln();
+				if (line == null) {
+					throw new IOException("Connection closed by the server.");
+				}
+				if (SocketCommunicationConstants.END_OF_SOLUTION.equals(line.trim())) {
+					return result;
+				}
+				throw new IOException("Unexpected line in solution: " + line);
+			}
+			Object value = client.readValue(flags);
+			if (value == null) {
+				throw new IOException("could not read value for variable " + varname);
+			}
+			if (value instanceof RawValue) {
+				// results are passed on as plain maps, so convert right away
+				value = ((RawValue) value).convert();
+			}
+			result.put(varname, value);
+		}
+	}
+
+	private void dispatchComplete(int id) {
+		PendingQuery query = pending.remove(id);
+		if (query == null) {
+			return;
+		}
+		try {
+			if (query.cancelled) {
+				query.listener.queryCancelled(id);
+			} else {
+				query.listener.queryComplete(id);
+			}
+		} catch (RuntimeException e) {
+			Debug.report(e);
+		}
+	}
+
+	private void dispatchCancelled(int id) {
+		PendingQuery query = pending.remove(id);
+		if (query == null) {
+			return;
+		}
+		try {
+			query.listener.queryCancelled(id);
+		} catch (RuntimeException e) {
+			Debug.report(e);
+		}
+	}
+
+	private void dispatchError(int id) throws IOException {
+		String line = client.readln();
+		if (line == null) {
+			throw new IOException("Connection closed by the server.");
+		}
+		String message = line.startsWith(SocketCommunicationConstants.ERROR) ? line.substring(SocketCommunicationConstants.ERROR.length()) : line;
+		PendingQuery query = pending.remove(id);
+		if (query == null) {
+			return;
+		}
+		try {
+			query.listener.queryFailed(id, new PrologException(message));
+		} catch (RuntimeException e) {
+			Debug.report(e);
+		}
+	}
+
+	private void failAll(Exception cause) {
+		List<Integer> ids = new ArrayList<Integer>(pending.keySet());
+		for (Integer id : ids) {
+			PendingQuery query = pending.remove(id);
+			if (query == null) {
+				continue;
+			}
+			try {
+				query.listener.queryFailed(id, new PrologException("The connection to the Prolog process was lost.", cause));
+			} catch (RuntimeException e) {
+				Debug.report(e);
+			}
+		}
+	}
+
+	@Override
+	public int queryOnce(String query, MultiplexedQueryListener listener) throws PrologProcessException {
+		return queryOnce(query, flags, listener);
+	}
+
+	@Override
+	public int queryOnce(String query, int flags, MultiplexedQueryListener listener) throws PrologProcessException {
+		return startQuery("query_once", query, flags, -1, listener);
+	}
+
+	@Override
+	public int queryAll(String query, MultiplexedQueryListener listener) throws PrologProcessException {
+		return queryAll(query, flags, listener);
+	}
+
+	@Override
+	public int queryAll(String query, int flags, MultiplexedQueryListener listener) throws PrologProcessException {
+		return startQuery("query_all", query, flags, -1, listener);
+	}
+
+	@Override
+	public int queryAll(String query, int flags, int demand, MultiplexedQueryListener listener) throws PrologProcessException {
+		if (demand < 0) {
+			throw new IllegalArgumentException("negative demand: " + demand);
+		}
+		return startQuery("query_demand", query, flags, demand, listener);
+	}
+
+	private int startQuery(String command, String query, int flags, int demand, MultiplexedQueryListener listener) throws PrologProcessException {
+		CTermUtil.checkFlags(flags);
+		if (listener == null) {
+			throw new IllegalArgumentException("null listener!");
+		}
+		if (isDisposed()) {
+			throw new IllegalStateException("Session is disposed!");
+		}
+		if (!query.endsWith(".")) {
+			query = query + ".";
+		}
+		int id = idCounter.getAndIncrement();
+		pending.put(id, new PendingQuery(listener, flags));
+		StringBuilder buf = new StringBuilder();
+		buf.append(command).append('(').append(id).append(',').append(getProtocolOptions(flags));
+		if (demand >= 0) {
+			buf.append(',').append(demand);
+		}
+		buf.append(").");
+		buf.append(SocketCommunicationConstants.LINE_SEPARATOR);
+		buf.append(query);
+		try {
+			write(buf.toString());
+		} catch (IOException e) {
+			pending.remove(id);
+			throw process.error(e);
+		}
+		return id;
+	}
+
+	/*
+	 * the worker threads are shared by all queries, so the options are sent
+	 * along with every query.
+	 */
+	private static String getProtocolOptions(int flags) {
+		boolean processLists = (flags & PrologProcess.PROCESS_LISTS) > 0;
+		boolean showUnboundResults = (flags & PrologProcess.UNBOUND_VARIABLES) > 0;
+		return "[interprete_lists=" + processLists + ",unbound_variables=" + showUnboundResults + "]";
+	}
+
+	@Override
+	public void cancel(int id) throws PrologProcessException {
+		PendingQuery query = pending.get(id);
+		if (query == null) {
+			return;
+		}
+		try {
+			cancel(id, query);
+		} catch (IOException e) {
+			throw process.error(e);
+		}
+	}
+
+	@Override
+	public void request(int id, int demand) throws PrologProcessException {
+		if (demand <= 0) {
+			throw new IllegalArgumentException("demand must be positive: " + demand);
+		}
+		PendingQuery query = pending.get(id);
+		if (query == null || query.cancelled || isDisposed()) {
+			return;
+		}
+		try {
+			write("request(" + id + "," + demand + ").");
+		} catch (IOException e) {
+			throw process.error(e);
+		}
+	}
+
+	private void cancel(int id, PendingQuery query) throws IOException {
+		if (query.cancelled || isDisposed()) {
+			return;
+		}
+		query.cancelled = true;
+		write("cancel(" + id + ").");
+	}
+
+	private void write(String lines) throws IOException {
+		SocketClient c = client;
+		if (c == null) {
+			throw new IOException("Session is disposed!");
+		}
+		synchronized (writeLock) {
+			c.writeln(lines);
+		}
+	}
+
+	@Override
+	public boolean isPending(int id) {
+		return pending.containsKey(id);
+	}
+
+	@Override
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	@Override
+	public int getWorkerCount() {
+		return workers;
+	}
+
+	@Override
+	public void dispose() {
+		if (isDisposed()) {
+			return;
+		}
+		disposing = true;
+		try {
+			if (process.getError() == null) {
+				exitMultiplex();
+			}
+			client.close();
+		} catch (Exception e) {
+			process.error(e);
+		} finally {
+			failAll(new IllegalStateException("Session is disposed!"));
+			client = null;
+			disposing = false;
+		}
+	}
+
+	private void exitMultiplex() throws IOException, InterruptedException {
+		if (Thread.currentThread() == dispatcher) {
+			throw new IllegalThreadStateException("Cannot dispose the session from the dispatch thread");
+		}
+		// the server cancels all pending queries before it confirms
+		synchronized (writeLock) {
+			client.writeln(SocketCommunicationConstants.EOM);
+		}
+		dispatcher.join(process.getTimeout());
+		if (dispatcher.isAlive()) {
+			Debug.error("Dispatcher won't die. I will not longer wait for it.");
+			return;
+		}
+		client.readUntil(SocketCommunicationConstants.OK);
+	}
+
+	@Override
+	public boolean isDisposed() {
+		return disposing || client == null;
+	}
+
+	public PrologProcess getPrologProcess() {
+		return process;
+	}
+
+	public String getProcessorThreadAlias() {
+		SocketClient c = client;
+		return c == null ? null : c.getProcessorThread();
+	}
+
+}
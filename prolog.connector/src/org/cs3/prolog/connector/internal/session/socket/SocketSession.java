@@ -18,7 +18,8 @@ package org.cs3.prolog.connector.internal.session.socket;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,14 +34,27 @@ import org.cs3.prolog.connector.process.PrologException;
 import org.cs3.prolog.connector.process.PrologProcess;
 import org.cs3.prolog.connector.process.PrologProcessException;
 import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.session.ResultSchema;
+import org.cs3.prolog.connector.session.ResultTable;
+import org.cs3.prolog.connector.session.Solution;
+import org.cs3.prolog.connector.session.SolutionConsumer;
 
 public class SocketSession implements PrologSession {
 	
-	private static final String RESULT_LIST = "ResultList";
+	/**
+	 * Upper bound for the queries sent at once by
+	 * {@link #queryOnceBatch(List)}, well below the size of the socket
+	 * buffers. Larger batches are sent in several chunks.
+	 */
+	private static final int MAX_PIPELINED_CHARS = 4096;
+
 	private SocketClient client;
 	private boolean queryActive;
 	private AbstractPrologProcess process;
 	private int flags;
+	private final ArrayList<String> solutionNames = new ArrayList<String>();
+	private final ArrayList<Object> solutionValues = new ArrayList<Object>();
+	private ResultSchema lastSchema;
 	
 	public SocketSession(SocketClient client, AbstractPrologProcess process, int flags) {
 		this.client = client;
@@ -101,6 +115,115 @@ public class SocketSession implements PrologSession {
 		return results;
 	}
 
+	@Override
+	public IterableQuery queryIterator(String query, int batchSize) throws PrologException, PrologProcessException {
+		if (queryActive) {
+			throw new PrologProcessException("Cannot start query while another query is active.");
+		}
+		CTermUtil.checkFlags(flags);
+		if (isDisposed()) {
+			throw new IllegalStateException("Session is disposed!");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		if (query.length() == 0) {
+			return emptyIterator();
+		}
+		try {
+			startBatchedQuery(query, batchSize);
+		} catch (IOException e) {
+			throw process.error(e);
+		}
+		return new BatchedIterableQuery(this, batchSize);
+	}
+
+	@Override
+	public void queryAll(String query, int batchSize, SolutionConsumer consumer) throws PrologException, PrologProcessException {
+		if (queryActive) {
+			throw new PrologProcessException("Cannot start query while another query is active.");
+		}
+		CTermUtil.checkFlags(flags);
+		if (isDisposed()) {
+			throw new IllegalStateException("Session is disposed!");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+		}
+		if (query.length() == 0) {
+			consumer.solutionFound(generateAnEmtpyResult());
+			return;
+		}
+		ArrayDeque<Map<String, Object>> buffer = new ArrayDeque<Map<String, Object>>(batchSize);
+		try {
+			startBatchedQuery(query, batchSize);
+			try {
+				boolean more = true;
+				boolean requestMore = false;
+				while (more) {
+					more = readBatch(buffer, batchSize, requestMore);
+					requestMore = true;
+					while (!buffer.isEmpty()) {
+						if (!consumer.solutionFound(buffer.poll())) {
+							return;
+						}
+					}
+				}
+			} finally {
+				closeIterator();
+			}
+		} catch (IOException e) {
+			throw process.error(e);
+		}
+	}
+
+	private void startBatchedQuery(String query, int batchSize) throws IOException {
+		configureProtocol(flags);
+		client.readUntil(SocketCommunicationConstants.GIVE_COMMAND);
+		client.writeln(SocketCommunicationConstants.QUERY_BATCHED);
+		client.readUntil(SocketCommunicationConstants.GIVE_SYMBOL);
+		client.writeln(Integer.toString(batchSize));
+		client.readUntil(SocketCommunicationConstants.GIVE_TERM);
+		normalizeQuery(query);
+		queryActive = true;
+	}
+
+	/**
+	 * Reads the next batch of solutions of a query started with
+	 * {@link SocketCommunicationConstants#QUERY_BATCHED}.
+	 * 
+	 * @param buffer
+	 *            the solutions are added to this collection
+	 * @param batchSize
+	 *            the batch size the query was started with
+	 * @param requestMore
+	 *            false for the first batch, true for all following batches
+	 * @return false if the query has no more solutions
+	 * @throws IOException
+	 */
+	boolean readBatch(Collection<Map<String, Object>> buffer, int batchSize, boolean requestMore) throws IOException {
+		try {
+			if (requestMore) {
+				client.readUntil(SocketCommunicationConstants.MORE);
+				client.writeln(SocketCommunicationConstants.YES);
+			}
+			for (int i = 0; i < batchSize; i++) {
+				Map<String, Object> result = read_solution(flags);
+				if (result == null) {
+					queryActive = false;
+					client.readUntil(SocketCommunicationConstants.OK);
+					return false;
+				}
+				buffer.add(result);
+			}
+			return true;
+		} catch (PrologException e) {
+			// the server has already left the query
+			queryActive = false;
+			throw e;
+		}
+	}
+
 	private IterableQuery emptyIterator() {
 		return new IterableQuery(this) {
 			@Override
@@ -182,6 +305,9 @@ public class SocketSession implements PrologSession {
 	}
 
 	protected void closeIterator() throws IOException {
+		if (!queryActive) {
+			return;
+		}
 		queryActive = false;
 		client.writeln(SocketCommunicationConstants.NO);
 	}
@@ -192,111 +318,97 @@ public class SocketSession implements PrologSession {
 		return l;
 	}
 	
-	private List<Map<String, Object>> queryAllAtOnce(String query) throws PrologProcessException {
-		int oldflags = flags;
-		flags = flags | PrologProcess.PROCESS_LISTS;
-		
-		if (query.endsWith(".")) {
-			query = query.substring(0, query.length()-1);
+	private List<Map<String, Object>> queryAllAtOnce(String query) throws PrologException, PrologProcessException {
+		if (query.length() == 0) {
+			return generateEmptyResults();
 		}
-		List<String> vars = getVariableNames(query);
-		String newQuery = createFindallQuery(query, vars);
-		Map<String, Object> result = queryOnce(newQuery);
-		flags=oldflags;
-		return transformResults(result, vars);
+		// lists are always processed, as the results used to be transferred
+		// as a single list of lists
+		return queryTable(query, flags | PrologProcess.PROCESS_LISTS).toMaps();
 	}
 
-	private List<Map<String, Object>> transformResults(Map<String, Object> result,  List<String> vars) {
-		List<Map<String, Object>> newResult = new ArrayList<Map<String,Object>>();
-		
-		@SuppressWarnings("unchecked")
-		List<List<Object>> listOfLists = (List<List<Object>>) result.get(RESULT_LIST);
-		for (List<Object> list : listOfLists) {
-			HashMap<String, Object> newMap = new HashMap<String, Object>();
-			for (int i=0; i<vars.size(); i++) {
-				newMap.put(vars.get(i), list.get(i));
-			}
-			newResult.add(newMap);
-		}
-		
-		return newResult;
+	@Override
+	public ResultTable queryTable(String query) throws PrologException, PrologProcessException {
+		return queryTable(query, flags);
 	}
 
-	private String createFindallQuery(String query, List<String> vars) {
-		StringBuffer buf = new StringBuffer();
-		buf.append("findall([");
-		boolean addComma = false;
-		for (String v : vars) {
-			if (addComma) {
-				buf.append(", ");
-			} else {
-				addComma = true;
-			}
-			buf.append(v);
+	private ResultTable queryTable(String query, int flags) throws PrologException, PrologProcessException {
+		if (queryActive) {
+			throw new PrologProcessException("Cannot start query while another query is active.");
+		}
+		CTermUtil.checkFlags(flags);
+		if (isDisposed()) {
+			throw new IllegalStateException("Session is disposed!");
+		}
+		if (query.length() == 0) {
+			return new ResultTable(new ResultSchema(new String[0]), generateEmptyRows(), isCompact(flags));
+		}
+		try {
+			configureProtocol(flags);
+			client.readUntil(SocketCommunicationConstants.GIVE_COMMAND);
+			client.writeln(SocketCommunicationConstants.QUERY_TABLE);
+			client.readUntil(SocketCommunicationConstants.GIVE_TERM);
+			normalizeQuery(query);
+			return readTable(flags);
+		} catch (IOException e) {
+			throw process.error(e);
 		}
-		buf.append("], (");
-		buf.append(query);
-		buf.append("), " + RESULT_LIST + ")");
-		return buf.toString();
 	}
 
-	private List<String> getVariableNames(String query) {
-		try {
-			String getVarQuery = "get_var_names(" + quoteQuery(query) + ",Vars)";
-			Map<String, Object> result = queryOnce(getVarQuery);
-			String varString = result.get("Vars").toString();
-			if (varString.isEmpty()) {
-				return new ArrayList<String>();
-			} else {
-				return Arrays.asList(Util.unquoteAtom(varString).split(","));
+	private List<Object[]> generateEmptyRows() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[0]);
+		return rows;
+	}
+
+	private ResultTable readTable(int flags) throws IOException {
+		List<Object> header = readRow(PrologProcess.UNQUOTE_ATOMS);
+		if (header == null) {
+			throw new PrologException("could not read the variable names");
+		}
+		ResultSchema schema = new ResultSchema(header.toArray(new String[header.size()]));
+		List<Object[]> rows = new ArrayList<Object[]>();
+		List<Object> row = readRow(flags);
+		while (row != null) {
+			if (row.size() != schema.size()) {
+				throw new PrologException("expected " + schema.size() + " values, but got " + row.size());
 			}
-		} catch (PrologProcessException e) {
-			e.printStackTrace();
+			rows.add(row.toArray());
+			row = readRow(flags);
 		}
-		return null;
+		client.readUntil(SocketCommunicationConstants.OK);
+		return new ResultTable(schema, rows, isCompact(flags));
 	}
-	
-	private String quoteQuery(String query) {
-		if (query.startsWith("'") && query.endsWith("'")) {
-			return query;
-		} else {
-			StringBuilder buf = new StringBuilder("\'");
-			for (int i = 0; i < query.length(); i++) {
-				char c = query.charAt(i);
-				switch (c) {
-				case '\b':
-					buf.append("\\b");
-					continue;
-				case '\t':
-					buf.append("\\t");
-					continue;
-				case '\n':
-					buf.append("\\n");
-					continue;
-				case '\f':
-					buf.append("\\f");
-					continue;
-				case '\r':
-					buf.append("\\r");
-					continue;
-				case '\"':
-					buf.append("\\\"");
-					continue;
-				case '\'':
-					buf.append("\\\'");
-					continue;
-				case '\\':
-					buf.append("\\\\");
-					continue;
+
+	/**
+	 * Reads a row of a table sent as response to
+	 * {@link SocketCommunicationConstants#QUERY_TABLE}.
+	 * 
+	 * @return the values of the row or null if there are no more rows
+	 */
+	private List<Object> readRow(int flags) throws IOException {
+		ArrayList<Object> row = new ArrayList<Object>();
+		String line;
+		if (client.isUseFramedProtocol()) {
+			line = client.readln();
+			if (line != null && line.startsWith(SocketCommunicationConstants.FRAME)) {
+				client.readFrame(line);
+				while (client.hasMoreFrameValues()) {
+					row.add(client.readFrameValue(flags));
 				}
-				buf.append(c);
+				line = client.readln();
+			}
+		} else {
+			Object value = readValue(flags);
+			while (value != null) {
+				row.add(value);
+				value = readValue(flags);
 			}
-			buf.append('\'');
-			return buf.toString();
+			line = client.readln();
 		}
+		return handleSpecialResults(line) ? row : null;
 	}
 
-
 	@Override
 	public Map<String, Object> queryOnce(String query) throws PrologException, PrologProcessException {
 		if (queryActive) {
@@ -325,6 +437,88 @@ public class SocketSession implements PrologSession {
 		return solution;
 	}
 
+	@Override
+	public List<Map<String, Object>> queryOnceBatch(List<String> queries) throws PrologException, PrologProcessException {
+		if (queryActive) {
+			throw new PrologProcessException("Cannot start query while another query is active.");
+		}
+		CTermUtil.checkFlags(flags);
+		if (isDisposed()) {
+			throw new IllegalStateException("Session is disposed!");
+		}
+		List<Map<String, Object>> solutions = new ArrayList<Map<String, Object>>(queries.size());
+		if (queries.isEmpty()) {
+			return solutions;
+		}
+		PrologException firstError = null;
+		try {
+			configureProtocol(flags);
+			int next = 0;
+			while (next < queries.size()) {
+				StringBuilder chunk = new StringBuilder();
+				int count = 0;
+				while (next < queries.size()) {
+					StringBuilder query = new StringBuilder();
+					query.append(SocketCommunicationConstants.LINE_SEPARATOR);
+					appendNormalizedQuery(query, queries.get(next));
+					if (count > 0 && chunk.length() + query.length() > MAX_PIPELINED_CHARS) {
+						break;
+					}
+					chunk.append(query);
+					count++;
+					next++;
+				}
+				PrologException error = queryPipelined(count, chunk, solutions);
+				if (firstError == null) {
+					firstError = error;
+				}
+			}
+		} catch (IOException e) {
+			throw process.error(e);
+		}
+		if (firstError != null) {
+			throw firstError;
+		}
+		return solutions;
+	}
+
+	/**
+	 * Sends count queries with a single flush and reads their answers. The
+	 * server answers every query as soon as it has read it, so the queries
+	 * of a chunk must fit into the socket buffers. Otherwise both sides
+	 * could block writing while nobody reads.
+	 * 
+	 * @return the first exception raised by one of the queries, or null
+	 */
+	private PrologException queryPipelined(int count, CharSequence queries, List<Map<String, Object>> solutions) throws IOException {
+		PrologException firstError = null;
+		StringBuilder buf = new StringBuilder();
+		buf.append(SocketCommunicationConstants.QUERY_PIPELINED);
+		buf.append(SocketCommunicationConstants.LINE_SEPARATOR);
+		buf.append(count);
+		buf.append(queries);
+		client.readUntil(SocketCommunicationConstants.GIVE_COMMAND);
+		client.writeln(buf.toString());
+		client.readUntil(SocketCommunicationConstants.GIVE_SYMBOL);
+		client.readUntil(SocketCommunicationConstants.GIVE_TERM);
+		for (int i = 0; i < count; i++) {
+			Map<String, Object> solution = null;
+			try {
+				solution = read_solution(flags);
+				if (solution != null) {
+					client.readUntil(SocketCommunicationConstants.YES);
+				}
+			} catch (PrologException e) {
+				if (firstError == null) {
+					firstError = e;
+				}
+			}
+			solutions.add(solution);
+		}
+		client.readUntil(SocketCommunicationConstants.OK);
+		return firstError;
+	}
+
 	private void tryFinishReading() throws PrologProcessException {
 		try {
 			finishReading();
@@ -343,23 +537,87 @@ public class SocketSession implements PrologSession {
 		}
 	}
 
+	private void appendNormalizedQuery(StringBuilder buf, String query) {
+		query = query.trim();
+		if (query.length() == 0) {
+			// like queryOnce, answer an empty query with an empty result
+			query = "true";
+		}
+		buf.append(query);
+		if (!query.endsWith(".")) {
+			buf.append('.');
+		}
+	}
+
 	private Map<String, Object> generateAnEmtpyResult() {
 		return new HashMap<String, Object>();
 	}
 	
 	private Map<String, Object> read_solution(int flags) throws IOException {
-		HashMap<String, Object> result = new HashMap<String, Object>();
+		solutionNames.clear();
+		solutionValues.clear();
+		String line;
+		if (client.isUseFramedProtocol()) {
+			line = read_framed_bindings(flags);
+		} else {
+			line = read_bindings(flags);
+		}
+		if (!handleSpecialResults(line)) {
+			return null;
+		}
+		return createSolution(flags);
+	}
+
+	private String read_bindings(int flags) throws IOException {
 		while (true) {			
 			String varname = (String) readValue(PrologProcess.UNQUOTE_ATOMS);
 			if (varname == null) {
-				return handleSpecialResults(result);
+				return client.readln();
 			} else {
 				Object value = readVariableValue(flags, varname);
-				result.put(varname, value);
+				solutionNames.add(varname);
+				solutionValues.add(value);
 			}
 		}
 	}
 
+	private String read_framed_bindings(int flags) throws IOException {
+		String line = client.readln();
+		if (line != null && line.startsWith(SocketCommunicationConstants.FRAME)) {
+			client.readFrame(line);
+			while (client.hasMoreFrameValues()) {
+				String varname = (String) client.readFrameValue(PrologProcess.UNQUOTE_ATOMS);
+				if (!client.hasMoreFrameValues()) {
+					throw new PrologException(
+							"could not read value for variable " + varname);
+				}
+				solutionNames.add(varname);
+				solutionValues.add(client.readFrameValue(flags));
+			}
+			line = client.readln();
+		}
+		return line;
+	}
+
+	private Map<String, Object> createSolution(int flags) {
+		if (isCompact(flags)) {
+			// the solutions of a query all bind the same variables
+			if (lastSchema == null || !lastSchema.hasVariableNames(solutionNames)) {
+				lastSchema = new ResultSchema(solutionNames.toArray(new String[solutionNames.size()]));
+			}
+			return new Solution(lastSchema, solutionValues.toArray());
+		}
+		HashMap<String, Object> result = new HashMap<String, Object>();
+		for (int i = 0; i < solutionNames.size(); i++) {
+			result.put(solutionNames.get(i), solutionValues.get(i));
+		}
+		return result;
+	}
+
+	private boolean isCompact(int flags) {
+		return Util.flagsSet(flags, PrologProcess.COMPACT_RESULTS);
+	}
+
 	private Object readVariableValue(int flags, String varname)
 			throws IOException {
 		Object value = readValue(flags);
@@ -370,19 +628,19 @@ public class SocketSession implements PrologSession {
 		return value;
 	}
 
-	private HashMap<String, Object> handleSpecialResults(HashMap<String, Object> result)
+	/**
+	 * @return true if the line ends a solution, false if there are no more
+	 *         solutions
+	 */
+	private boolean handleSpecialResults(String line)
 			throws IOException {
-		String line = client.readln();
 		if (line == null) {
 			throw new IOException("There was no solution to read.");
 		}
 		if (line.startsWith(SocketCommunicationConstants.ERROR)) {
 			throwPrologErrorToJavaVM(line);
 		}
-		if (SocketCommunicationConstants.END_OF_SOLUTION.equals(line)) {
-			return result;
-		}
-		return null;
+		return SocketCommunicationConstants.END_OF_SOLUTION.equals(line);
 	}
 
 	private void throwPrologErrorToJavaVM(String line) {
@@ -434,6 +692,8 @@ public class SocketSession implements PrologSession {
 		
 		boolean showUnboundResults = (flags & PrologProcess.UNBOUND_VARIABLES) > 0;
 		setProtocolOption("unbound_variables", Boolean.toString(showUnboundResults));
+		
+		setProtocolOption("framed", Boolean.toString(client.isUseFramedProtocol()));
 	}
 
 	public SocketClient getClient() {
@@ -445,6 +705,12 @@ public class SocketSession implements PrologSession {
 			throw new RuntimeException(
 					"Cannot set protocol option while query is active.");
 		}
+		if (value.equals(client.getKnownProtocolOption(id))) {
+			// the server already uses this value, save the round trip
+			return;
+		}
+		// if anything goes wrong, the value on the server side is unknown
+		client.setKnownProtocolOption(id, null);
 		try {
 			client.readUntil(SocketCommunicationConstants.GIVE_COMMAND);
 			client.writeln(SocketCommunicationConstants.SET_OPTION);
@@ -453,6 +719,7 @@ public class SocketSession implements PrologSession {
 			client.readUntil(SocketCommunicationConstants.GIVE_TERM);
 			client.writeln(value);
 			client.readUntil(SocketCommunicationConstants.OK);
+			client.setKnownProtocolOption(id, value);
 		} catch (IOException e) {
 			throw new RuntimeException("IO Error while setting protocol option");
 		} 
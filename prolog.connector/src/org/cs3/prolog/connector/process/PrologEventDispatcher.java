@@ -22,11 +22,17 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
-import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.cs3.prolog.connector.common.Debug;
 import org.cs3.prolog.connector.common.QueryUtils;
@@ -86,25 +92,47 @@ import org.cs3.prolog.connector.session.PrologSession;
  * <p>
  * The above tells the Java side that the <code>pdt_edit_hook</code> event
  * occurred for the file <code>'l:\test.pl'</code>.
+ * 
+ * <h3>Threading</h3>
+ * 
+ * Events are passed to the listeners from a thread pool. Every listener has
+ * its own unbounded queue of events, so a slow listener does not delay the
+ * others and no event is lost, while each listener still receives its events
+ * in order. With {@link #setCoalescing(boolean)}, an event is skipped if an
+ * identical event is still waiting in the queue of the listener, which keeps
+ * the queue of a slow listener short.
  */
 public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 
-	private HashMap<String, Vector<PrologEventListener>> listenerLists = new HashMap<String, Vector<PrologEventListener>>();
+	private static final AtomicInteger threadCounter = new AtomicInteger();
+
+	private final ConcurrentHashMap<String, CopyOnWriteArrayList<PrologEventListener>> listenerLists = new ConcurrentHashMap<String, CopyOnWriteArrayList<PrologEventListener>>();
+
+	private final ConcurrentHashMap<PrologEventListener, ListenerChannel> channels = new ConcurrentHashMap<PrologEventListener, ListenerChannel>();
+
+	private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "Prolog Event Dispatcher " + threadCounter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	});
 
 	/*
 	 * XXX i don't like the idea of keeping a reference to this session on the
 	 * heap. This has proven a bad practice in the past. Is there any other way
 	 * to solve this?
 	 */
-	private AsyncPrologSession session;
-
-	private Object observerTicket = new Object();
+	private volatile AsyncPrologSession session;
 
 	private Object eventTicket = new Object();
 
 	private PrologProcess process;
 	
-	private HashSet<String> subjects = new HashSet<String>();
+	private Set<String> subjects = new HashSet<String>();
+
+	private volatile boolean coalescing = false;
 
 	/**
 	 * Creates a new PrologEventDispatcher for the given process.
@@ -123,12 +151,8 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 
 			@Override
 			public void afterInit(PrologProcess process) throws PrologProcessException {
-				synchronized (listenerLists) {
-					Set<String> subjects = listenerLists.keySet();
-					for (Iterator<String> it = subjects.iterator(); it.hasNext();) {
-						String subject = it.next();
-						enableSubject(subject);
-					}				
+				for (String subject : listenerLists.keySet()) {
+					enableSubject(subject);
 				}
 			}
 
@@ -181,6 +205,7 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 			stop();
 
 		}
+		executor.shutdown();
 	}
 
 	/**
@@ -194,18 +219,16 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 	 */
 	public void addPrologEventListener(String subject,
 			PrologEventListener l) throws PrologProcessException {
-		synchronized (listenerLists) {
-			Vector<PrologEventListener> list = listenerLists.get(subject);
+		CopyOnWriteArrayList<PrologEventListener> list = listenerLists.get(subject);
+		if (list == null) {
+			CopyOnWriteArrayList<PrologEventListener> newList = new CopyOnWriteArrayList<PrologEventListener>();
+			list = listenerLists.putIfAbsent(subject, newList);
 			if (list == null) {
-				list = new Vector<PrologEventListener>();
-				listenerLists.put(subject, list);
-				enableSubject(subject);
-			}
-			if (!list.contains(l)) {
-				list.add(l);
+				list = newList;
 			}
 		}
-
+		list.addIfAbsent(l);
+		enableSubject(subject);
 	}
 
 	/**
@@ -219,22 +242,33 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 	 */
 	public void removePrologEventListener(String subject,
 			PrologEventListener l) throws PrologProcessException {
-		synchronized (listenerLists) {
-			Vector<PrologEventListener> list = listenerLists.get(subject);
-			if (list == null) {
-				return;
-			}
+		CopyOnWriteArrayList<PrologEventListener> list = listenerLists.get(subject);
+		if (list == null) {
+			return;
+		}
+		list.remove(l);
+		if (!isRegistered(l)) {
+			channels.remove(l);
+		}
+		if (list.isEmpty() && listenerLists.remove(subject, list)) {
+			disableSubject(subject);
+		}
+	}
+
+	private boolean isRegistered(PrologEventListener l) {
+		for (List<PrologEventListener> list : listenerLists.values()) {
 			if (list.contains(l)) {
-				list.remove(l);
-			}
-			if (list.isEmpty()) {
-				disableSubject(subject);
-				listenerLists.remove(subject);
+				return true;
 			}
 		}
-
+		return false;
 	}
 
+	/*
+	 * process_dispatch/3 looks up the observations of its thread for every
+	 * event, so subjects can be added and removed from another session while
+	 * the dispatch query keeps running.
+	 */
 	private synchronized void enableSubject(String subject) throws PrologProcessException {
 		synchronized (subjects) {
 			if (subjects.contains(subject)) {
@@ -242,11 +276,11 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 				return;
 			}
 		}
+		boolean startDispatch = false;
 		if (session == null) {
 			session = process.getAsyncSession(PrologProcess.NONE);
 			session.addBatchListener(this);
-		} else {
-			abort();
+			startDispatch = true;
 		}
 		PrologSession s = process.getSession(PrologProcess.NONE);
 		try {
@@ -265,20 +299,21 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 		} finally {
 			s.dispose();
 		}
-		// session.queryOnce(observerTicket,"thread_self(_Me),observe(_Me,"+subject+",'"+subject+"')");
-		dispatch();
+		if (startDispatch) {
+			dispatch();
+		}
 	}
 
-	private void disableSubject(String subject) throws PrologProcessException {
-		if (session == null) {
+	private synchronized void disableSubject(String subject) throws PrologProcessException {
+		if (session == null || listenerLists.containsKey(subject)) {
+			// a listener has been added again in the meantime
 			return;
 		}
-
-		abort();
-		session.queryOnce(observerTicket, "thread_self(_Me),process_unobserve(_Me,"
-				+ subject + ")");
-		if (!listenerLists.isEmpty()) {
-			dispatch();
+		PrologSession s = process.getSession(PrologProcess.NONE);
+		try {
+			s.queryOnce(bT("process_unobserve", quoteAtom(session.getProcessorThreadAlias()), subject));
+		} finally {
+			s.dispose();
 		}
 		synchronized (subjects) {
 			subjects.remove(subject);
@@ -312,7 +347,7 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 	 * 
 	 * @throws PrologProcessException
 	 */
-	public void stop() throws PrologProcessException {
+	public synchronized void stop() throws PrologProcessException {
 		if (session == null) {
 			return;
 		}
@@ -322,7 +357,7 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 	}
 
 	
-	private void stop(PrologSession s) throws PrologException, PrologProcessException {
+	private synchronized void stop(PrologSession s) throws PrologException, PrologProcessException {
 		if (session == null) {
 			return;
 		}
@@ -332,26 +367,94 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 	}
 
 	private void fireUpdate(String subject, String key, String event) {
-		Vector<PrologEventListener> listeners = listenerLists.get(key);
+		List<PrologEventListener> listeners = listenerLists.get(key);
 		if (listeners == null) {
 			return;
 		}
 		PrologEvent e = new PrologEvent(this, subject, event);
-		Vector<PrologEventListener> cloned = getAListenersClone(listeners);
-		for (Iterator<PrologEventListener> it = cloned.iterator(); it.hasNext();) {
-			PrologEventListener l = it.next();
-			l.update(e);
+		for (PrologEventListener l : listeners) {
+			getChannel(l).post(e);
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private Vector<PrologEventListener> getAListenersClone(
-			Vector<PrologEventListener> listeners) {
-		Vector<PrologEventListener> cloned = null;
-		synchronized (listeners) {
-			cloned = (Vector<PrologEventListener>) listeners.clone();
+	private ListenerChannel getChannel(PrologEventListener l) {
+		ListenerChannel channel = channels.get(l);
+		if (channel == null) {
+			ListenerChannel newChannel = new ListenerChannel(l);
+			channel = channels.putIfAbsent(l, newChannel);
+			if (channel == null) {
+				channel = newChannel;
+			}
+		}
+		return channel;
+	}
+
+	/**
+	 * Queue of the events of a single listener. At most one task per listener
+	 * is running at a time, so the listener receives its events in order.
+	 */
+	private class ListenerChannel implements Runnable {
+
+		private final PrologEventListener listener;
+		private final ArrayDeque<PrologEvent> queue = new ArrayDeque<PrologEvent>();
+		// number of queued events per subject and data, used for coalescing
+		private final HashMap<String, Integer> queued = new HashMap<String, Integer>();
+		private boolean scheduled;
+
+		ListenerChannel(PrologEventListener listener) {
+			this.listener = listener;
+		}
+
+		void post(PrologEvent e) {
+			synchronized (queue) {
+				String id = id(e);
+				if (coalescing && queued.containsKey(id)) {
+					return;
+				}
+				queue.add(e);
+				Integer count = queued.get(id);
+				queued.put(id, count == null ? 1 : count + 1);
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			executor.execute(this);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				PrologEvent e;
+				synchronized (queue) {
+					e = queue.poll();
+					if (e == null) {
+						scheduled = false;
+						return;
+					}
+					unqueued(e);
+				}
+				try {
+					listener.update(e);
+				} catch (RuntimeException ex) {
+					Debug.report(ex);
+				}
+			}
+		}
+
+		private void unqueued(PrologEvent e) {
+			String id = id(e);
+			Integer count = queued.get(id);
+			if (count == null || count <= 1) {
+				queued.remove(id);
+			} else {
+				queued.put(id, count - 1);
+			}
+		}
+
+		private String id(PrologEvent e) {
+			return e.getSubject() + '\u0000' + e.getData();
 		}
-		return cloned;
 	}
 
 
@@ -378,6 +481,20 @@ public class PrologEventDispatcher extends DefaultAsyncPrologSessionListener {
 		return res;
 	}
 
+	public boolean isCoalescing() {
+		return coalescing;
+	}
+
+	/**
+	 * @param coalescing
+	 *            if true, an event is not passed to a listener if an event
+	 *            with the same subject and data is still waiting to be passed
+	 *            to it
+	 */
+	public void setCoalescing(boolean coalescing) {
+		this.coalescing = coalescing;
+	}
+
 	private static File observeFile = null;
 
 	private static File getObserveFile() throws IOException {
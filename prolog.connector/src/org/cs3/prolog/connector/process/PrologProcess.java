@@ -21,7 +21,10 @@ import java.util.Map;
 import org.cs3.prolog.connector.common.PreferenceProvider;
 import org.cs3.prolog.connector.cterm.CTerm;
 import org.cs3.prolog.connector.session.AsyncPrologSession;
+import org.cs3.prolog.connector.session.MultiplexedPrologSession;
 import org.cs3.prolog.connector.session.PrologSession;
+import org.cs3.prolog.connector.session.QueryFuture;
+import org.cs3.prolog.connector.session.SolutionPublisher;
 
 /**
  * Provides the main interface for interacting with Prolog processes. Each
@@ -77,6 +80,19 @@ public interface PrologProcess {
 	 * 
 	 */
 	public final static int UNBOUND_VARIABLES = 8;
+
+	/**
+	 * Session flag.
+	 * 
+	 * Deviates from NONE in that every solution is reported as a
+	 * {@link org.cs3.prolog.connector.session.Solution}, which shares the
+	 * variable names with the other solutions of the query and keeps the
+	 * values in an array. Values are only converted when they are accessed for
+	 * the first time and lists are reported as java.util.ArrayList instead of
+	 * java.util.Vector. Can be combined with all other flags.
+	 * 
+	 */
+	public final static int COMPACT_RESULTS = 16;
 	
 	/**
 	 * Session flag.
@@ -324,6 +340,31 @@ public interface PrologProcess {
 	 * @param hookId
 	 */
 	public void removeLifeCycleHook(final LifeCycleHook hook,final String hookId);
+
+	/**
+	 * @return whether the life cycle hooks of independent hooks run
+	 *         concurrently during startup
+	 */
+	public boolean isParallelLifeCycleHooks();
+
+	/**
+	 * If enabled, the onInit and afterInit methods of hooks which do not
+	 * depend on each other run concurrently, and every onInit method gets its
+	 * own session. A hook still runs only after all hooks it depends on. The
+	 * process fails to start if the dependencies are cyclic. Changes take
+	 * effect on the next start.
+	 * 
+	 * @param parallelLifeCycleHooks
+	 */
+	public void setParallelLifeCycleHooks(boolean parallelLifeCycleHooks);
+
+	/**
+	 * @return the time in milliseconds the onInit and afterInit methods of
+	 *         every life cycle hook took during the last start. The keys have
+	 *         the form <code>onInit_on_&lt;id&gt;</code> and
+	 *         <code>afterInit_on_&lt;id&gt;</code>.
+	 */
+	public Map<String, Long> getLifeCycleHookTimings();
 	
 	/**
 	 * Returns an asynchronous prolog session.
@@ -352,6 +393,34 @@ public interface PrologProcess {
 	 */
 	public AsyncPrologSession getAsyncSession(int flags) throws PrologProcessException;
 	
+	/**
+	 * Returns a multiplexed prolog session.
+	 * <p>
+	 * A multiplexed session runs many queries concurrently over a single
+	 * connection, see {@link MultiplexedPrologSession}.
+	 * <p>
+	 * Uses the flag provided by {@link #getSessionFlag()}.
+	 * 
+	 * @return a new multiplexed session object
+	 * @throws PrologProcessException
+	 * @see #getAsyncSession()
+	 */
+	public MultiplexedPrologSession getMultiplexedSession() throws PrologProcessException;
+	
+	/**
+	 * Returns a multiplexed prolog session.
+	 * <p>
+	 * A multiplexed session runs many queries concurrently over a single
+	 * connection, see {@link MultiplexedPrologSession}.
+	 * 
+	 * @param flags
+	 * 
+	 * @return a new multiplexed session object
+	 * @throws PrologProcessException
+	 * @see #getAsyncSession(int)
+	 */
+	public MultiplexedPrologSession getMultiplexedSession(int flags) throws PrologProcessException;
+	
 	/**
 	 * Checks if the process is in an error state, e.g. if the corresponding
 	 * process has been killed externally.
@@ -494,6 +563,105 @@ public interface PrologProcess {
 	 */
 	public Map<String, Object> queryOnce(int flag, String... predicates) throws PrologProcessException;
 	
+	/**
+	 * Starts the given query without waiting for its result. The query is
+	 * created by connecting the given goals conjunctively.
+	 * <p>
+	 * All asynchronous queries of a process share one multiplexed session, so
+	 * they run concurrently without occupying a connection each. The result
+	 * of the future is the same as the one returned by
+	 * {@link #queryOnce(String...)}. Cancelling the future cancels the query.
+	 * <p>
+	 * Uses the flag provided by {@link #getSessionFlag()}.
+	 * 
+	 * @param predicates
+	 *            a number of goals
+	 * @return the future result of the query
+	 * @throws PrologProcessException
+	 * @see #getMultiplexedSession()
+	 */
+	public QueryFuture<Map<String, Object>> queryOnceAsync(String... predicates) throws PrologProcessException;
+	
+	/**
+	 * Starts the given query without waiting for its result. See
+	 * {@link #queryOnceAsync(String...)}.
+	 * <p>
+	 * Flag sets the kind of objects returned by the query.
+	 * 
+	 * @param flag
+	 *            kind of objects returned by the query
+	 * @param predicates
+	 *            a number of goals
+	 * @return the future result of the query
+	 * @throws PrologProcessException
+	 */
+	public QueryFuture<Map<String, Object>> queryOnceAsync(int flag, String... predicates) throws PrologProcessException;
+	
+	/**
+	 * Starts the given query without waiting for its results. The query is
+	 * created by connecting the given goals conjunctively.
+	 * <p>
+	 * All asynchronous queries of a process share one multiplexed session, so
+	 * they run concurrently without occupying a connection each. The result
+	 * of the future is the same as the one returned by
+	 * {@link #queryAll(String...)}. Cancelling the future cancels the query.
+	 * <p>
+	 * Uses the flag provided by {@link #getSessionFlag()}.
+	 * 
+	 * @param predicates
+	 *            a number of goals
+	 * @return the future results of the query
+	 * @throws PrologProcessException
+	 * @see #getMultiplexedSession()
+	 */
+	public QueryFuture<List<Map<String, Object>>> queryAllAsync(String... predicates) throws PrologProcessException;
+	
+	/**
+	 * Starts the given query without waiting for its results. See
+	 * {@link #queryAllAsync(String...)}.
+	 * <p>
+	 * Flag sets the kind of objects returned by the query.
+	 * 
+	 * @param flag
+	 *            kind of objects returned by the query
+	 * @param predicates
+	 *            a number of goals
+	 * @return the future results of the query
+	 * @throws PrologProcessException
+	 */
+	public QueryFuture<List<Map<String, Object>>> queryAllAsync(int flag, String... predicates) throws PrologProcessException;
+	
+	/**
+	 * Returns a publisher of the solutions of the given query. The query is
+	 * created by connecting the given goals conjunctively.
+	 * <p>
+	 * The query is run for each subscriber separately, in the multiplexed
+	 * session shared by the asynchronous queries. Solutions are only computed
+	 * as they are requested by the subscriber.
+	 * <p>
+	 * Uses the flag provided by {@link #getSessionFlag()}.
+	 * 
+	 * @param predicates
+	 *            a number of goals
+	 * @return the publisher
+	 * @see #queryAllAsync(String...)
+	 */
+	public SolutionPublisher queryAllPublisher(String... predicates);
+	
+	/**
+	 * Returns a publisher of the solutions of the given query. See
+	 * {@link #queryAllPublisher(String...)}.
+	 * <p>
+	 * Flag sets the kind of objects returned by the query.
+	 * 
+	 * @param flag
+	 *            kind of objects returned by the query
+	 * @param predicates
+	 *            a number of goals
+	 * @return the publisher
+	 */
+	public SolutionPublisher queryAllPublisher(int flag, String... predicates);
+	
 	/**
 	 * Returns the flag for new sessions. If no flag is specified for a query or
 	 * a session, this flag will be used.
@@ -0,0 +1,80 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+
+/**
+ * A value of a {@link Solution} or a {@link ResultTable} which is converted
+ * when it is accessed for the first time.
+ * <p>
+ * The converted value replaces the lazy value in the array holding the
+ * values of the solution. The array is used as lock, so values of the same
+ * solution can be accessed from several threads.
+ *
+ * @see PrologProcess#COMPACT_RESULTS
+ */
+public abstract class LazyValue {
+
+	protected LazyValue() {
+	}
+
+	/**
+	 * @return the converted value
+	 */
+	public abstract Object convert();
+
+	/**
+	 * Converts the value at the given index if it has not been converted yet
+	 * and replaces it with the converted value.
+	 */
+	static Object resolve(Object[] values, int index) {
+		synchronized (values) {
+			Object value = values[index];
+			if (value instanceof LazyValue) {
+				value = ((LazyValue) value).convert();
+				values[index] = value;
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Converts all values of the array which have not been converted yet.
+	 */
+	static void resolveAll(Object[] values) {
+		synchronized (values) {
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] instanceof LazyValue) {
+					values[i] = ((LazyValue) values[i]).convert();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replaces the value at the given index.
+	 * 
+	 * @return the previous value, converted
+	 */
+	static Object replace(Object[] values, int index, Object value) {
+		synchronized (values) {
+			Object old = resolve(values, index);
+			values[index] = value;
+			return old;
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+import org.cs3.prolog.connector.process.PrologProcessException;
+
+/**
+ * Prolog session running many queries concurrently over a single connection.
+ * <p>
+ * Unlike an {@link AsyncPrologSession}, which processes its queries one after
+ * the other, the queries of a multiplexed session are distributed to a small
+ * pool of Prolog worker threads. Every query gets an id which is sent along
+ * with each of its results, so the results of different queries may arrive in
+ * any order. A single thread reads all results and passes them to the
+ * {@link MultiplexedQueryListener} of the respective query.
+ * <p>
+ * The methods of this interface return immediately and may be called from
+ * any thread, including the listeners.
+ *
+ * @see PrologProcess#getMultiplexedSession()
+ */
+public interface MultiplexedPrologSession extends Disposable {
+
+	/**
+	 * Runs a query for its first solution.
+	 * <p>
+	 * Uses the flag of this session.
+	 *
+	 * @param query
+	 * @param listener
+	 * @return the id of the query
+	 * @throws PrologProcessException
+	 */
+	public int queryOnce(String query, MultiplexedQueryListener listener) throws PrologProcessException;
+
+	/**
+	 * Runs a query for its first solution.
+	 *
+	 * @param query
+	 * @param flags
+	 *            the kind of objects passed to the listener, see
+	 *            {@link PrologProcess#getSession(int)}
+	 * @param listener
+	 * @return the id of the query
+	 * @throws PrologProcessException
+	 */
+	public int queryOnce(String query, int flags, MultiplexedQueryListener listener) throws PrologProcessException;
+
+	/**
+	 * Runs a query for all its solutions. The solutions are passed to the
+	 * listener as they are found.
+	 * <p>
+	 * Uses the flag of this session.
+	 *
+	 * @param query
+	 * @param listener
+	 * @return the id of the query
+	 * @throws PrologProcessException
+	 */
+	public int queryAll(String query, MultiplexedQueryListener listener) throws PrologProcessException;
+
+	/**
+	 * Runs a query for all its solutions. The solutions are passed to the
+	 * listener as they are found.
+	 *
+	 * @param query
+	 * @param flags
+	 *            the kind of objects passed to the listener, see
+	 *            {@link PrologProcess#getSession(int)}
+	 * @param listener
+	 * @return the id of the query
+	 * @throws PrologProcessException
+	 */
+	public int queryAll(String query, int flags, MultiplexedQueryListener listener) throws PrologProcessException;
+
+	/**
+	 * Runs a query for as many solutions as requested. Initially only
+	 * <code>demand</code> solutions are computed, further solutions have to
+	 * be requested with {@link #request(int, int)}. The query keeps its Prolog
+	 * worker thread while it waits for the next request.
+	 *
+	 * @param query
+	 * @param flags
+	 *            the kind of objects passed to the listener, see
+	 *            {@link PrologProcess#getSession(int)}
+	 * @param demand
+	 *            the number of solutions to compute before the next request
+	 * @param listener
+	 * @return the id of the query
+	 * @throws PrologProcessException
+	 */
+	public int queryAll(String query, int flags, int demand, MultiplexedQueryListener listener) throws PrologProcessException;
+
+	/**
+	 * Requests further solutions of a query started with
+	 * {@link #queryAll(String, int, int, MultiplexedQueryListener)}. Does
+	 * nothing if the query is already complete.
+	 *
+	 * @param id
+	 *            the id returned when the query was started
+	 * @param demand
+	 *            the number of additional solutions
+	 * @throws PrologProcessException
+	 */
+	public void request(int id, int demand) throws PrologProcessException;
+
+	/**
+	 * Cancels a query. A query which has not been started yet is skipped, a
+	 * running query is interrupted. Does nothing if the query is already
+	 * complete.
+	 *
+	 * @param id
+	 *            the id returned when the query was started
+	 * @throws PrologProcessException
+	 */
+	public void cancel(int id) throws PrologProcessException;
+
+	/**
+	 * @param id
+	 * @return true if the query has neither completed nor been cancelled yet
+	 */
+	public boolean isPending(int id);
+
+	/**
+	 * @return the number of queries which have neither completed nor been
+	 *         cancelled yet
+	 */
+	public int getPendingCount();
+
+	/**
+	 * @return the number of Prolog threads running the queries of this
+	 *         session
+	 */
+	public int getWorkerCount();
+
+	/**
+	 * Disposes the session. Pending queries are cancelled.
+	 */
+	@Override
+	public void dispose();
+
+}
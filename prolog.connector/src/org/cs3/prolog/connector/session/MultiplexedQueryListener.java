@@ -0,0 +1,60 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import org.cs3.prolog.connector.process.PrologException;
+
+/**
+ * Receives the results of a query run by a {@link MultiplexedPrologSession}.
+ * <p>
+ * All methods are called from the thread reading the results of the session,
+ * so they should return quickly. Exactly one of {@link #queryComplete(int)},
+ * {@link #queryCancelled(int)} and {@link #queryFailed(int, PrologException)}
+ * is called for every query.
+ */
+public interface MultiplexedQueryListener extends SolutionConsumer {
+
+	/**
+	 * Called after all solutions of the query have been passed to
+	 * {@link #solutionFound(java.util.Map)}. The query may not have had any
+	 * solutions at all.
+	 *
+	 * @param id
+	 *            the id of the query
+	 */
+	void queryComplete(int id);
+
+	/**
+	 * Called if the query was cancelled, either by
+	 * {@link MultiplexedPrologSession#cancel(int)}, by returning false from
+	 * {@link #solutionFound(java.util.Map)} or because the session was
+	 * disposed.
+	 *
+	 * @param id
+	 *            the id of the query
+	 */
+	void queryCancelled(int id);
+
+	/**
+	 * Called if the query raised an exception or if the connection to the
+	 * Prolog process was lost.
+	 *
+	 * @param id
+	 *            the id of the query
+	 * @param e
+	 */
+	void queryFailed(int id, PrologException e);
+
+}
@@ -31,6 +31,13 @@ import org.cs3.prolog.connector.process.PrologProcessException;
  */
 public interface PrologSession extends Disposable {
 	
+	/**
+	 * Default number of solutions transferred per round trip by
+	 * {@link #queryIterator(String, int)} and
+	 * {@link #queryAll(String, int, SolutionConsumer)}.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+	
 	/**
 	 * @param query
 	 * @return the first result of the query or null if the query fails
@@ -49,6 +56,19 @@ public interface PrologSession extends Disposable {
 	 */
     public List<Map<String,Object>> queryAll(String query) throws PrologException, PrologProcessException;
 
+	/**
+	 * Like {@link #queryAll(String)}, but the results are returned as a table
+	 * with one column per variable of the query and one row per solution. The
+	 * variable names are only stored once and variables that are not bound by
+	 * a solution are included.
+	 * 
+	 * @param query
+	 * @return all results of the query, the table is empty if the query fails
+	 * @throws PrologException
+	 * @throws PrologProcessException
+	 */
+    public ResultTable queryTable(String query) throws PrologException, PrologProcessException;
+
     
     /**
      * Returns an iterator which iterates over the results of the query. Each result is only computed when requested.
@@ -61,6 +81,57 @@ public interface PrologSession extends Disposable {
      */
     public IterableQuery queryIterator(String query) throws PrologException, PrologProcessException;
 
-}
+    /**
+     * Returns an iterator which iterates over the results of the query. In
+     * contrast to {@link #queryIterator(String)} the results are fetched in
+     * batches of up to <code>batchSize</code> solutions per round trip. The
+     * next batch is only computed when all results of the current batch have
+     * been consumed, so the memory needed does not depend on the number of
+     * results.
+     * 
+     * @param query
+     * @param batchSize
+     *            the maximum number of solutions transferred at once
+     * @return the iterator
+     * @throws PrologException
+     * @throws PrologProcessException
+     * @see #DEFAULT_BATCH_SIZE
+     */
+    public IterableQuery queryIterator(String query, int batchSize) throws PrologException, PrologProcessException;
 
+    /**
+     * Passes all results of the query to the given consumer while the query is
+     * still running. The results are fetched in batches of up to
+     * <code>batchSize</code> solutions, so in contrast to
+     * {@link #queryAll(String)} they are never held in memory at once. The
+     * query is stopped as soon as the consumer returns false.
+     * 
+     * @param query
+     * @param batchSize
+     *            the maximum number of solutions transferred at once
+     * @param consumer
+     * @throws PrologException
+     * @throws PrologProcessException
+     * @see #DEFAULT_BATCH_SIZE
+     */
+    public void queryAll(String query, int batchSize, SolutionConsumer consumer) throws PrologException, PrologProcessException;
 
+    /**
+     * Runs several queries with few round trips. The queries are sent to the
+     * server in chunks and answered in order, so in contrast to calling
+     * {@link #queryOnce(String)} for every query the latency is paid only once
+     * per chunk.
+     * <p>
+     * If a query raises an exception, the following queries are still
+     * executed. After all answers have been read, the first of these
+     * exceptions is thrown.
+     * 
+     * @param queries
+     * @return a list containing the first result of each query, or null for
+     *         each query that fails, in the order of the queries
+     * @throws PrologException
+     * @throws PrologProcessException
+     */
+    public List<Map<String,Object>> queryOnceBatch(List<String> queries) throws PrologException, PrologProcessException;
+
+}
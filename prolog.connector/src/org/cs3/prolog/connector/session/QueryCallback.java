@@ -0,0 +1,44 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Callback for the result of a {@link QueryFuture}.
+ *
+ * @param <V>
+ *            the type of the result
+ * @see QueryFuture#addCallback(QueryCallback)
+ */
+public interface QueryCallback<V> {
+
+	/**
+	 * Called if the query completed normally.
+	 *
+	 * @param result
+	 */
+	void querySucceeded(V result);
+
+	/**
+	 * Called if the query raised an exception, if the connection to the
+	 * Prolog process was lost or if the query was cancelled. In the latter
+	 * case the error is a {@link CancellationException}.
+	 *
+	 * @param error
+	 */
+	void queryFailed(Throwable error);
+
+}
@@ -0,0 +1,182 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.cs3.prolog.connector.common.Debug;
+import org.cs3.prolog.connector.process.PrologProcess;
+
+/**
+ * The pending result of a query started with
+ * {@link PrologProcess#queryOnceAsync(String...)} or
+ * {@link PrologProcess#queryAllAsync(String...)}.
+ * <p>
+ * Instead of blocking in {@link #get()}, callers can register a
+ * {@link QueryCallback} which is notified as soon as the query is complete.
+ * Cancelling the future cancels the query in the Prolog process.
+ *
+ * @param <V>
+ *            the type of the result
+ */
+public abstract class QueryFuture<V> implements Future<V> {
+
+	private static final int PENDING = 0;
+	private static final int SUCCEEDED = 1;
+	private static final int FAILED = 2;
+	private static final int CANCELLED = 3;
+
+	private final CountDownLatch done = new CountDownLatch(1);
+	private int state = PENDING;
+	private V value;
+	private Throwable error;
+	private List<QueryCallback<? super V>> callbacks = new ArrayList<QueryCallback<? super V>>();
+
+	/**
+	 * Cancels the query in the Prolog process. Called at most once, after the
+	 * future has been marked as cancelled.
+	 */
+	protected abstract void cancelQuery();
+
+	/**
+	 * Completes the future with the result of the query.
+	 *
+	 * @param value
+	 * @return false if the future was already done
+	 */
+	protected boolean succeeded(V value) {
+		return finish(SUCCEEDED, value, null);
+	}
+
+	/**
+	 * Completes the future with the error raised by the query.
+	 *
+	 * @param error
+	 * @return false if the future was already done
+	 */
+	protected boolean failed(Throwable error) {
+		return finish(FAILED, null, error);
+	}
+
+	/**
+	 * Marks the future as cancelled without calling {@link #cancelQuery()},
+	 * e.g. because the query was cancelled by the Prolog process.
+	 *
+	 * @return false if the future was already done
+	 */
+	protected boolean cancelled() {
+		return finish(CANCELLED, null, new CancellationException("The query was cancelled."));
+	}
+
+	/**
+	 * Registers a callback. If the future is already done, the callback is
+	 * notified immediately in the calling thread, otherwise in the thread
+	 * completing the future.
+	 *
+	 * @param callback
+	 */
+	public void addCallback(QueryCallback<? super V> callback) {
+		synchronized (this) {
+			if (state == PENDING) {
+				callbacks.add(callback);
+				return;
+			}
+		}
+		notify(callback);
+	}
+
+	private boolean finish(int newState, V newValue, Throwable newError) {
+		List<QueryCallback<? super V>> toNotify;
+		synchronized (this) {
+			if (state != PENDING) {
+				return false;
+			}
+			state = newState;
+			value = newValue;
+			error = newError;
+			toNotify = callbacks;
+			callbacks = null;
+		}
+		done.countDown();
+		for (QueryCallback<? super V> callback : toNotify) {
+			notify(callback);
+		}
+		return true;
+	}
+
+	private void notify(QueryCallback<? super V> callback) {
+		try {
+			if (state == SUCCEEDED) {
+				callback.querySucceeded(value);
+			} else {
+				callback.queryFailed(error);
+			}
+		} catch (RuntimeException e) {
+			Debug.report(e);
+		}
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (!cancelled()) {
+			return false;
+		}
+		cancelQuery();
+		return true;
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return state == CANCELLED;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return state != PENDING;
+	}
+
+	@Override
+	public V get() throws InterruptedException, ExecutionException {
+		done.await();
+		return getResult();
+	}
+
+	@Override
+	public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!done.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return getResult();
+	}
+
+	private synchronized V getResult() throws ExecutionException {
+		switch (state) {
+		case SUCCEEDED:
+			return value;
+		case CANCELLED:
+			throw (CancellationException) error;
+		default:
+			throw new ExecutionException(error);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The variable names of a query. All solutions of a query share the same
+ * schema, so the names are stored only once.
+ *
+ * @see Solution
+ */
+public class ResultSchema {
+
+	private final String[] variableNames;
+	private final HashMap<String, Integer> columns;
+
+	public ResultSchema(String[] variableNames) {
+		this.variableNames = new String[variableNames.length];
+		columns = new HashMap<String, Integer>(variableNames.length * 2);
+		for (int i = 0; i < variableNames.length; i++) {
+			this.variableNames[i] = variableNames[i].intern();
+			columns.put(this.variableNames[i], i);
+		}
+	}
+
+	/**
+	 * @return the variable names of the query. The array must not be
+	 *         modified.
+	 */
+	public String[] getVariableNames() {
+		return variableNames;
+	}
+
+	/**
+	 * @param column
+	 * @return the name of the variable in the given column
+	 */
+	public String getVariableName(int column) {
+		return variableNames[column];
+	}
+
+	/**
+	 * @param variableName
+	 * @return the column of the variable or -1 if the query has no such
+	 *         variable
+	 */
+	public int getColumn(Object variableName) {
+		Integer column = columns.get(variableName);
+		return column == null ? -1 : column.intValue();
+	}
+
+	public int size() {
+		return variableNames.length;
+	}
+
+	/**
+	 * @param variableNames
+	 * @return true if this schema consists of exactly the given variable
+	 *         names in the given order
+	 */
+	public boolean hasVariableNames(List<String> variableNames) {
+		if (variableNames.size() != this.variableNames.length) {
+			return false;
+		}
+		for (int i = 0; i < this.variableNames.length; i++) {
+			if (!this.variableNames[i].equals(variableNames.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,158 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+package org.cs3.prolog.connector.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+
+/**
+ * All results of a query in a columnar layout: the variable names of the query
+ * are stored once and every solution is a row holding the values of the
+ * variables in the same order.
+ * <p>
+ * If the query was run with {@link PrologProcess#COMPACT_RESULTS}, values are
+ * converted when they are accessed for the first time.
+ *
+ * @see PrologSession#queryTable(String)
+ */
+public class ResultTable implements Iterable<Object[]> {
+
+	private final ResultSchema schema;
+	private final List<Object[]> rows;
+	private final boolean compact;
+
+	/**
+	 * @param schema
+	 * @param rows
+	 * @param compact
+	 *            whether {@link #toMaps()} returns {@link Solution}s
+	 */
+	public ResultTable(ResultSchema schema, List<Object[]> rows, boolean compact) {
+		this.schema = schema;
+		this.rows = rows;
+		this.compact = compact;
+	}
+
+	public ResultSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the variable names of the query. The array must not be
+	 *         modified.
+	 */
+	public String[] getVariableNames() {
+		return schema.getVariableNames();
+	}
+
+	/**
+	 * @param variableName
+	 * @return the column of the variable or -1 if the query has no such
+	 *         variable
+	 */
+	public int getColumn(String variableName) {
+		return schema.getColumn(variableName);
+	}
+
+	public int getColumnCount() {
+		return schema.size();
+	}
+
+	/**
+	 * @return the number of solutions
+	 */
+	public int size() {
+		return rows.size();
+	}
+
+	public boolean isEmpty() {
+		return rows.isEmpty();
+	}
+
+	/**
+	 * @param row
+	 * @return the values of the given solution, ordered like the variable
+	 *         names. The array must not be modified.
+	 */
+	public Object[] getRow(int row) {
+		return resolve(rows.get(row));
+	}
+
+	/**
+	 * @param row
+	 * @param variableName
+	 * @return the value of the variable in the given solution or null if the
+	 *         query has no such variable
+	 */
+	public Object get(int row, String variableName) {
+		int column = getColumn(variableName);
+		return column < 0 ? null : LazyValue.resolve(rows.get(row), column);
+	}
+
+	@Override
+	public Iterator<Object[]> iterator() {
+		final Iterator<Object[]> iterator = rows.iterator();
+		return new Iterator<Object[]>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Object[] next() {
+				return resolve(iterator.next());
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+			}
+		};
+	}
+
+	/**
+	 * @return the solutions in the format returned by
+	 *         {@link PrologSession#queryAll(String)}. For a compact table the
+	 *         solutions share the rows of this table.
+	 */
+	public List<Map<String, Object>> toMaps() {
+		List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(rows.size());
+		for (Object[] row : rows) {
+			if (compact) {
+				result.add(new Solution(schema, row));
+				continue;
+			}
+			HashMap<String, Object> map = new HashMap<String, Object>();
+			for (int i = 0; i < row.length; i++) {
+				map.put(schema.getVariableName(i), row[i]);
+			}
+			result.add(map);
+		}
+		return result;
+	}
+
+	private Object[] resolve(Object[] row) {
+		if (compact) {
+			LazyValue.resolveAll(row);
+		}
+		return row;
+	}
+
+}
@@ -0,0 +1,131 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+
+/**
+ * A solution of a query, returned by sessions created with
+ * {@link PrologProcess#COMPACT_RESULTS}.
+ * <p>
+ * The variable names are held by the {@link ResultSchema} shared by all
+ * solutions of the query, the values are stored in an array ordered like the
+ * variable names. Values are converted when they are accessed for the first
+ * time, see {@link LazyValue}.
+ * <p>
+ * Existing variables can be rebound with {@link #put(String, Object)}, but
+ * variables can neither be added nor removed.
+ */
+public class Solution extends AbstractMap<String, Object> {
+
+	private final ResultSchema schema;
+	private final Object[] values;
+
+	/**
+	 * @param schema
+	 * @param values
+	 *            the values ordered like the variable names of the schema. The
+	 *            array is not copied.
+	 */
+	public Solution(ResultSchema schema, Object[] values) {
+		if (values.length != schema.size()) {
+			throw new IllegalArgumentException("expected " + schema.size() + " values, but got " + values.length);
+		}
+		this.schema = schema;
+		this.values = values;
+	}
+
+	public ResultSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @param column
+	 * @return the value of the variable in the given column
+	 */
+	public Object get(int column) {
+		return LazyValue.resolve(values, column);
+	}
+
+	@Override
+	public Object get(Object key) {
+		int column = schema.getColumn(key);
+		return column < 0 ? null : get(column);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return schema.getColumn(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		int column = schema.getColumn(key);
+		if (column < 0) {
+			throw new UnsupportedOperationException("Not a variable of the query: " + key);
+		}
+		return LazyValue.replace(values, column, value);
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new Iterator<Entry<String, Object>>() {
+					private int column = 0;
+
+					@Override
+					public boolean hasNext() {
+						return column < values.length;
+					}
+
+					@Override
+					public Entry<String, Object> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(schema.getVariableName(column), get(column));
+						column++;
+						return entry;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return values.length;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,34 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+package org.cs3.prolog.connector.session;
+
+import java.util.Map;
+
+/**
+ * Callback for streaming query results.
+ *
+ * @see PrologSession#queryAll(String, int, SolutionConsumer)
+ */
+public interface SolutionConsumer {
+
+	/**
+	 * Called for every solution of the query, in the order in which the
+	 * solutions are found.
+	 *
+	 * @param solution
+	 * @return true to receive further solutions, false to stop the query
+	 */
+	boolean solutionFound(Map<String, Object> solution);
+
+}
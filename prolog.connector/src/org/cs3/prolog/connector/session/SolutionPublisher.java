@@ -0,0 +1,40 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import org.cs3.prolog.connector.process.PrologProcess;
+
+/**
+ * Source of the solutions of a query. Every subscriber runs the query on its
+ * own and receives the solutions only as fast as it requests them, so the
+ * Prolog process does not compute solutions nobody has asked for.
+ * <p>
+ * The interfaces follow the protocol of the Reactive Streams publisher.
+ *
+ * @see PrologProcess#queryAllPublisher(String...)
+ */
+public interface SolutionPublisher {
+
+	/**
+	 * Subscribes to the solutions of the query.
+	 * {@link SolutionSubscriber#onSubscribe(SolutionSubscription)} is called
+	 * before this method returns, the query starts with the first call of
+	 * {@link SolutionSubscription#request(long)}.
+	 *
+	 * @param subscriber
+	 */
+	void subscribe(SolutionSubscriber subscriber);
+
+}
@@ -0,0 +1,60 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Receives the solutions of a {@link SolutionPublisher}.
+ * <p>
+ * Except for {@link #onSubscribe(SolutionSubscription)}, all methods are
+ * called from the thread reading the results of the query, so they should
+ * return quickly.
+ */
+public interface SolutionSubscriber {
+
+	/**
+	 * Called once before any other method.
+	 *
+	 * @param subscription
+	 *            used to request solutions and to cancel the query
+	 */
+	void onSubscribe(SolutionSubscription subscription);
+
+	/**
+	 * Called for every requested solution, in the order in which the
+	 * solutions are found.
+	 *
+	 * @param solution
+	 */
+	void onNext(Map<String, Object> solution);
+
+	/**
+	 * Called if the query raised an exception, if the connection to the
+	 * Prolog process was lost or if the query was cancelled by the Prolog
+	 * process. In the latter case the error is a
+	 * {@link CancellationException}. No further methods are called.
+	 *
+	 * @param error
+	 */
+	void onError(Throwable error);
+
+	/**
+	 * Called after the last solution. No further methods are called.
+	 */
+	void onComplete();
+
+}
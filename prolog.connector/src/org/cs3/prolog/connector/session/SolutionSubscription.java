@@ -0,0 +1,39 @@
+/*****************************************************************************
+ * This file is part of the Prolog Development Tool (PDT)
+ *
+ * WWW: http://sewiki.iai.uni-bonn.de/research/pdt/start
+ * Mail: pdt@lists.iai.uni-bonn.de
+ * Copyright (C): 2016, CS Dept. III, University of Bonn
+ *
+ * All rights reserved. This program is made available under the terms
+ * of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ ****************************************************************************/
+
+
+package org.cs3.prolog.connector.session;
+
+/**
+ * Link between a {@link SolutionPublisher} and one of its
+ * {@link SolutionSubscriber}s.
+ */
+public interface SolutionSubscription {
+
+	/**
+	 * Requests further solutions. The first call starts the query.
+	 *
+	 * @param n
+	 *            the number of additional solutions, {@link Long#MAX_VALUE}
+	 *            for all solutions. A value less than 1 cancels the query
+	 *            and is reported to {@link SolutionSubscriber#onError(Throwable)}.
+	 */
+	void request(long n);
+
+	/**
+	 * Cancels the query. The subscriber receives no further solutions and is
+	 * not notified about the end of the query.
+	 */
+	void cancel();
+
+}